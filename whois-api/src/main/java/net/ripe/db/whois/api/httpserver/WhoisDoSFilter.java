@@ -1,6 +1,8 @@
 package net.ripe.db.whois.api.httpserver;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.ip.Ipv6Resource;
 import org.eclipse.jetty.servlets.DoSFilter;
@@ -10,8 +12,11 @@ import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.annotation.Name;
 import org.slf4j.Logger;
 
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -25,28 +30,18 @@ public class WhoisDoSFilter extends DoSFilter {
 
     private static final Joiner COMMA_JOINER = Joiner.on(',');
 
-    private final List<Ipv4Resource> ipv4whitelist = new CopyOnWriteArrayList<>();
-    private final List<Ipv6Resource> ipv6whitelist = new CopyOnWriteArrayList<>();
+    // replaced on every change, so checking the whitelist does not lock
+    private volatile Whitelist whitelist = Whitelist.EMPTY;
 
     @Override
     protected boolean checkWhitelist(final String candidate) {
+        final Whitelist current = whitelist;
         if (candidate.contains(".")) {
-            final Ipv4Resource address = Ipv4Resource.parse(candidate);
-            for (Ipv4Resource entry : ipv4whitelist) {
-                if (entry.contains(address)) {
-                    return true;
-                }
-            }
+            return current.ipv4Ranges.contains(0, Ipv4Resource.parse(candidate).begin());
         } else {
-            final Ipv6Resource address = Ipv6Resource.parse(candidate);
-            for (Ipv6Resource entry : ipv6whitelist) {
-                if (entry.contains(address)) {
-                    return true;
-                }
-            }
+            final BigInteger address = Ipv6Resource.parse(candidate).begin();
+            return current.ipv6Ranges.contains(Ipv6Resource.msb(address), Ipv6Resource.lsb(address));
         }
-
-        return false;
     }
 
     @Override
@@ -65,9 +60,10 @@ public class WhoisDoSFilter extends DoSFilter {
     public String getWhitelist() {
         StringBuilder result = new StringBuilder();
 
-        COMMA_JOINER.appendTo(result, ipv4whitelist);
+        final Whitelist current = whitelist;
+        COMMA_JOINER.appendTo(result, current.ipv4Entries);
         result.append(',');
-        COMMA_JOINER.appendTo(result, ipv6whitelist);
+        COMMA_JOINER.appendTo(result, current.ipv6Entries);
 
         return result.toString();
     }
@@ -78,11 +74,17 @@ public class WhoisDoSFilter extends DoSFilter {
      * @param commaSeparatedList comma-separated whitelist
      */
     @Override
-    public void setWhitelist(final String commaSeparatedList) {
-        clearWhitelist();
+    public synchronized void setWhitelist(final String commaSeparatedList) {
+        final List<Ipv4Resource> ipv4Entries = Lists.newArrayList();
+        final List<Ipv6Resource> ipv6Entries = Lists.newArrayList();
         for (String address : StringUtil.csvSplit(commaSeparatedList)) {
-            addWhitelistAddress(address, false);
+            if (address.contains(".")) {
+                ipv4Entries.add(Ipv4Resource.parse(address));
+            } else {
+                ipv6Entries.add(Ipv6Resource.parse(address));
+            }
         }
+        whitelist = new Whitelist(ipv4Entries, ipv6Entries);
         LOGGER.info("DoSFilter IP whitelist: {}", getWhitelist());
     }
 
@@ -91,9 +93,8 @@ public class WhoisDoSFilter extends DoSFilter {
      */
     @Override
     @ManagedOperation("clears the list of IP addresses that will not be rate limited")
-    public void clearWhitelist() {
-        ipv4whitelist.clear();
-        ipv6whitelist.clear();
+    public synchronized void clearWhitelist() {
+        whitelist = Whitelist.EMPTY;
         LOGGER.info("DoSFilter IP whitelist cleared");
     }
 
@@ -107,20 +108,17 @@ public class WhoisDoSFilter extends DoSFilter {
      */
     @Override
     @ManagedOperation("adds an IP address that will not be rate limited")
-    public boolean addWhitelistAddress(@Name("address") final String address) {
-        return addWhitelistAddress(address, true);
-    }
-
-    private boolean addWhitelistAddress(final String address, final boolean log) {
+    public synchronized boolean addWhitelistAddress(@Name("address") final String address) {
+        final List<Ipv4Resource> ipv4Entries = Lists.newArrayList(whitelist.ipv4Entries);
+        final List<Ipv6Resource> ipv6Entries = Lists.newArrayList(whitelist.ipv6Entries);
         boolean result;
         if (address.contains(".")) {
-            result = ipv4whitelist.add(Ipv4Resource.parse(address));
+            result = ipv4Entries.add(Ipv4Resource.parse(address));
         } else {
-            result = ipv6whitelist.add(Ipv6Resource.parse(address));
-        }
-        if (log) {
-            LOGGER.info("DoSFilter IP whitelist: {}", getWhitelist());
+            result = ipv6Entries.add(Ipv6Resource.parse(address));
         }
+        whitelist = new Whitelist(ipv4Entries, ipv6Entries);
+        LOGGER.info("DoSFilter IP whitelist: {}", getWhitelist());
         return result;
     }
 
@@ -133,15 +131,94 @@ public class WhoisDoSFilter extends DoSFilter {
      */
     @Override
     @ManagedOperation("removes an IP address that will not be rate limited")
-    public boolean removeWhitelistAddress(@Name("address") final String address) {
+    public synchronized boolean removeWhitelistAddress(@Name("address") final String address) {
+        final List<Ipv4Resource> ipv4Entries = Lists.newArrayList(whitelist.ipv4Entries);
+        final List<Ipv6Resource> ipv6Entries = Lists.newArrayList(whitelist.ipv6Entries);
         boolean result;
         if (address.contains(".")) {
-            result = ipv4whitelist.remove(Ipv4Resource.parse(address));
+            result = ipv4Entries.remove(Ipv4Resource.parse(address));
         } else {
-            result = ipv6whitelist.remove(Ipv6Resource.parse(address));
+            result = ipv6Entries.remove(Ipv6Resource.parse(address));
         }
+        whitelist = new Whitelist(ipv4Entries, ipv6Entries);
         LOGGER.info("DoSFilter IP whitelist: {}", getWhitelist());
         return result;
     }
 
+    /**
+     * The whitelisted entries (as configured), and the address ranges they cover: sorted, and merged where they
+     * overlap or are adjacent.
+     */
+    private static final class Whitelist {
+        static final Whitelist EMPTY = new Whitelist(Collections.emptyList(), Collections.emptyList());
+
+        final List<Ipv4Resource> ipv4Entries;
+        final List<Ipv6Resource> ipv6Entries;
+        final Ranges ipv4Ranges;
+        final Ranges ipv6Ranges;
+
+        Whitelist(final List<Ipv4Resource> ipv4Entries, final List<Ipv6Resource> ipv6Entries) {
+            this.ipv4Entries = ImmutableList.copyOf(ipv4Entries);
+            this.ipv6Entries = ImmutableList.copyOf(ipv6Entries);
+            this.ipv4Ranges = new Ranges(ipv4Entries.stream()
+                    .map(entry -> new BigInteger[]{BigInteger.valueOf(entry.begin()), BigInteger.valueOf(entry.end())})
+                    .collect(Collectors.toList()));
+            this.ipv6Ranges = new Ranges(ipv6Entries.stream()
+                    .map(entry -> new BigInteger[]{entry.begin(), entry.end()})
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Disjoint address ranges, with addresses as two unsigned longs (most and least significant).
+     */
+    private static final class Ranges {
+        private final long[] beginMsb;
+        private final long[] beginLsb;
+        private final long[] endMsb;
+        private final long[] endLsb;
+
+        Ranges(final List<BigInteger[]> ranges) {
+            ranges.sort(Comparator.comparing(range -> range[0]));
+
+            final List<BigInteger[]> merged = Lists.newArrayList();
+            for (final BigInteger[] range : ranges) {
+                final BigInteger[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && range[0].compareTo(last[1].add(BigInteger.ONE)) <= 0) {
+                    last[1] = last[1].max(range[1]);
+                } else {
+                    merged.add(new BigInteger[]{range[0], range[1]});
+                }
+            }
+
+            beginMsb = new long[merged.size()];
+            beginLsb = new long[merged.size()];
+            endMsb = new long[merged.size()];
+            endLsb = new long[merged.size()];
+            for (int i = 0; i < merged.size(); i++) {
+                beginMsb[i] = Ipv6Resource.msb(merged.get(i)[0]);
+                beginLsb[i] = Ipv6Resource.lsb(merged.get(i)[0]);
+                endMsb[i] = Ipv6Resource.msb(merged.get(i)[1]);
+                endLsb[i] = Ipv6Resource.lsb(merged.get(i)[1]);
+            }
+        }
+
+        boolean contains(final long msb, final long lsb) {
+            // the last range starting at or before the address
+            int low = 0;
+            int high = beginMsb.length - 1;
+            int found = -1;
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                if (Ipv6Resource.compare(beginMsb[mid], beginLsb[mid], msb, lsb) <= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+
+            return found >= 0 && Ipv6Resource.compare(msb, lsb, endMsb[found], endLsb[found]) <= 0;
+        }
+    }
 }
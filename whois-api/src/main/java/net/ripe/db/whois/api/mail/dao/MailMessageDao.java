@@ -3,10 +3,17 @@ package net.ripe.db.whois.api.mail.dao;
 import net.ripe.db.whois.update.domain.DequeueStatus;
 
 import javax.mail.internet.MimeMessage;
+import java.util.List;
 
 public interface MailMessageDao {
     String claimMessage();
 
+    List<String> claimMessages(int limit);
+
+    int releaseStaleClaims(int claimTimeoutSeconds);
+
+    int countUnclaimedMessages();
+
     void addMessage(MimeMessage message);
 
     MimeMessage getMessage(String messageUuid);
@@ -1,5 +1,6 @@
 package net.ripe.db.whois.api.mail.dao;
 
+import com.google.common.collect.Iterables;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.domain.Hosts;
 import net.ripe.db.whois.common.domain.Timestamp;
@@ -16,6 +17,8 @@ import javax.sql.DataSource;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
@@ -34,25 +37,65 @@ class MailMessageDaoJdbc implements MailMessageDao {
     @Override
     @CheckForNull
     public String claimMessage() {
-        final String uuid = UUID.randomUUID().toString();
+        return Iterables.getFirst(claimMessages(1), null);
+    }
+
+    /**
+     * Claim up to limit unclaimed messages with a single update statement.
+     * Each claimed row gets a unique claim_uuid sharing a per-batch prefix, which is used to read the claims back.
+     */
+    @Override
+    public List<String> claimMessages(final int limit) {
+        final String batchUuid = UUID.randomUUID().toString();
         final int rows = jdbcTemplate.update("" +
                 "update mailupdates " +
-                "set status = ?, changed = ?, claim_host = ?, claim_uuid = ? " +
+                "set status = ?, changed = ?, claim_host = ?, claim_uuid = concat(?, '-', id) " +
                 "where status is null " +
-                "limit 1 ",
+                "order by id " +
+                "limit ? ",
                 DequeueStatus.CLAIMED.name(),
                 Timestamp.from(dateTimeProvider.getCurrentDateTime()).getValue(),
                 Hosts.getLocalHostName(),
-                uuid);
-
-        switch (rows) {
-            case 0:
-                return null;
-            case 1:
-                return uuid;
-            default:
-                throw new IllegalStateException("Should never claim more than 1 row");
+                batchUuid,
+                limit);
+
+        if (rows == 0) {
+            return Collections.emptyList();
         }
+
+        final List<String> claimed = jdbcTemplate.queryForList("" +
+                "select claim_uuid from mailupdates " +
+                "where claim_uuid like ? " +
+                "order by id",
+                String.class,
+                batchUuid + "-%");
+
+        if (claimed.size() != rows) {
+            throw new IllegalStateException("Claimed " + rows + " messages but found " + claimed.size());
+        }
+
+        return claimed;
+    }
+
+    /**
+     * Release messages that were claimed but never picked up by a handler (e.g. because the claiming instance crashed).
+     * Messages that have progressed beyond CLAIMED are left alone, as they may have been (partially) processed.
+     */
+    @Override
+    public int releaseStaleClaims(final int claimTimeoutSeconds) {
+        return jdbcTemplate.update("" +
+                "update mailupdates " +
+                "set status = null, changed = ?, claim_host = null, claim_uuid = null " +
+                "where status = ? " +
+                "and changed < ?",
+                Timestamp.from(dateTimeProvider.getCurrentDateTime()).getValue(),
+                DequeueStatus.CLAIMED.name(),
+                Timestamp.from(dateTimeProvider.getCurrentDateTime().minusSeconds(claimTimeoutSeconds)).getValue());
+    }
+
+    @Override
+    public int countUnclaimedMessages() {
+        return jdbcTemplate.queryForObject("select count(*) from mailupdates where status is null", Integer.class);
     }
 
     @Override
@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
 
 import javax.mail.Message;
@@ -34,6 +35,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,7 +55,11 @@ public class MessageDequeue implements ApplicationService {
     private final LoggerContext loggerContext;
     private final DateTimeProvider dateTimeProvider;
 
-    private final AtomicInteger freeThreads = new AtomicInteger();
+    // handler threads plus prefetch queue slots that are not occupied by a claimed message
+    private final AtomicInteger freeSlots = new AtomicInteger();
+    private final AtomicInteger prefetched = new AtomicInteger();
+    private final AtomicLong dequeued = new AtomicLong();
+    private volatile long dequeuedLastMinute;
 
     private ExecutorService handlerExecutor;
     private ScheduledExecutorService pollerExecutor;
@@ -64,6 +70,12 @@ public class MessageDequeue implements ApplicationService {
     @Value("${mail.dequeue.interval}")
     private int intervalMs;
 
+    @Value("${mail.dequeue.batch.size:10}")
+    private int batchSize;
+
+    @Value("${mail.dequeue.claim.timeout:3600}")
+    private int claimTimeoutSeconds;
+
     @Autowired
     public MessageDequeue(final MaintenanceMode maintenanceMode,
                           final MailGateway mailGateway,
@@ -93,11 +105,14 @@ public class MessageDequeue implements ApplicationService {
         }
 
         if (nrThreads > 0) {
-            freeThreads.set(nrThreads);
+            // prefetch queue is sized to the number of handler threads, so a finishing handler can immediately pick up the next message
+            freeSlots.set(nrThreads * 2);
+            prefetched.set(0);
 
             handlerExecutor = Executors.newFixedThreadPool(nrThreads);
 
             pollerExecutor = Executors.newSingleThreadScheduledExecutor();
+            pollerExecutor.scheduleWithFixedDelay(new ClaimRecovery(), 0, 1, TimeUnit.MINUTES);
             pollerExecutor.scheduleWithFixedDelay(new MessagePoller(), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
 
             LOGGER.info("Message dequeue started");
@@ -133,6 +148,22 @@ public class MessageDequeue implements ApplicationService {
         return true;
     }
 
+    int getBacklog() {
+        return mailMessageDao.countUnclaimedMessages();
+    }
+
+    int getPrefetched() {
+        return prefetched.get();
+    }
+
+    long getDequeued() {
+        return dequeued.get();
+    }
+
+    long getDequeuedLastMinute() {
+        return dequeuedLastMinute;
+    }
+
     class MessagePoller implements Runnable {
         @Override
         public void run() {
@@ -142,21 +173,30 @@ public class MessageDequeue implements ApplicationService {
                         return;
                     }
 
-                    while (freeThreads.get() == 0) {
+                    final int limit = Math.min(batchSize, freeSlots.get());
+                    if (limit <= 0) {
                         LOGGER.debug("Postpone message claiming until free thread is available");
                         return;
                     }
 
-                    final String messageId = mailMessageDao.claimMessage();
+                    final List<String> messageIds = mailMessageDao.claimMessages(limit);
 
-                    if (messageId == null) {
+                    if (messageIds.isEmpty()) {
                         LOGGER.debug("No more messages");
                         return;
                     }
 
-                    LOGGER.debug("Queue {}", messageId);
-                    freeThreads.decrementAndGet();
-                    handlerExecutor.submit(new MessageHandler(messageId));
+                    for (final String messageId : messageIds) {
+                        LOGGER.debug("Queue {}", messageId);
+                        freeSlots.decrementAndGet();
+                        prefetched.incrementAndGet();
+                        handlerExecutor.submit(new MessageHandler(messageId));
+                    }
+
+                    if (messageIds.size() < limit) {
+                        LOGGER.debug("No more messages");
+                        return;
+                    }
                 }
             } catch (DataAccessException e) {
                 LOGGER.warn("Unable to claim message due to {}", e.getMessage());
@@ -166,6 +206,28 @@ public class MessageDequeue implements ApplicationService {
         }
     }
 
+    class ClaimRecovery implements Runnable {
+        private long dequeuedAtLastRun;
+
+        @Override
+        public void run() {
+            final long dequeuedNow = dequeued.get();
+            dequeuedLastMinute = dequeuedNow - dequeuedAtLastRun;
+            dequeuedAtLastRun = dequeuedNow;
+
+            try {
+                final int released = mailMessageDao.releaseStaleClaims(claimTimeoutSeconds);
+                if (released > 0) {
+                    LOGGER.warn("Released {} message(s) claimed more than {} seconds ago", released, claimTimeoutSeconds);
+                }
+            } catch (DataAccessException e) {
+                LOGGER.warn("Unable to release stale claims due to {}", e.getMessage());
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected", e);
+            }
+        }
+    }
+
     class MessageHandler implements Runnable {
         final String messageId;
 
@@ -175,12 +237,16 @@ public class MessageDequeue implements ApplicationService {
 
         @Override
         public void run() {
+            prefetched.decrementAndGet();
             try {
                 handleMessage(messageId);
+            } catch (EmptyResultDataAccessException e) {
+                LOGGER.warn("Claim {} was released before handling, skipping", messageId);
             } catch (Exception e) {
                 LOGGER.error("Unexpected", e);
             } finally {
-                freeThreads.incrementAndGet();
+                dequeued.incrementAndGet();
+                freeSlots.incrementAndGet();
             }
         }
     }
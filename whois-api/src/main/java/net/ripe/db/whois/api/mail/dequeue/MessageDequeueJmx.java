@@ -0,0 +1,43 @@
+package net.ripe.db.whois.api.mail.dequeue;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "MessageDequeue", description = "Mail update dequeue")
+public class MessageDequeueJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageDequeueJmx.class);
+
+    private final MessageDequeue messageDequeue;
+
+    @Autowired
+    public MessageDequeueJmx(final MessageDequeue messageDequeue) {
+        super(LOGGER);
+        this.messageDequeue = messageDequeue;
+    }
+
+    @ManagedAttribute(description = "Number of messages waiting to be claimed")
+    public int getBacklog() {
+        return messageDequeue.getBacklog();
+    }
+
+    @ManagedAttribute(description = "Number of claimed messages waiting for a handler thread")
+    public int getPrefetched() {
+        return messageDequeue.getPrefetched();
+    }
+
+    @ManagedAttribute(description = "Number of messages dequeued since startup")
+    public long getDequeued() {
+        return messageDequeue.getDequeued();
+    }
+
+    @ManagedAttribute(description = "Number of messages dequeued in the last minute")
+    public long getDequeueRate() {
+        return messageDequeue.getDequeuedLastMinute();
+    }
+}
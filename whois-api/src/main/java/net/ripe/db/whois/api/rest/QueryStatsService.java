@@ -0,0 +1,46 @@
+package net.ripe.db.whois.api.rest;
+
+import com.google.common.net.InetAddresses;
+import net.ripe.db.whois.query.acl.AccessControlListManager;
+import net.ripe.db.whois.query.stats.QueryLatencyStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Latency of query execution stages, as plain text. Only accessible from trusted addresses.
+ */
+@Component
+@Path("/query-stats")
+public class QueryStatsService {
+
+    private final AccessControlListManager accessControlListManager;
+    private final QueryLatencyStats queryLatencyStats;
+
+    @Autowired
+    public QueryStatsService(final AccessControlListManager accessControlListManager, final QueryLatencyStats queryLatencyStats) {
+        this.accessControlListManager = accessControlListManager;
+        this.queryLatencyStats = queryLatencyStats;
+    }
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response stats(@Context final HttpServletRequest request) {
+        if (!accessControlListManager.isTrusted(InetAddresses.forString(request.getRemoteAddr()))) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+
+        if (!queryLatencyStats.isEnabled()) {
+            return Response.ok("Query latency stats are disabled\n").build();
+        }
+
+        return Response.ok(queryLatencyStats.getStats()).build();
+    }
+}
@@ -0,0 +1,91 @@
+package net.ripe.db.whois.api.httpserver;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.ManualTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Whitelist checks against 10k whitelisted prefixes, by as many threads as a Jetty server would use.
+ */
+@Category(ManualTest.class)
+public class WhoisDoSFilterManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhoisDoSFilterManualTest.class);
+
+    private static final int PREFIXES = 10_000;
+    private static final int THREADS = 16;
+    private static final int CHECKS_PER_THREAD = 100_000;
+
+    @Test
+    public void check_whitelist_10k_prefixes() throws Exception {
+        final Random random = new Random(1);
+
+        final List<String> prefixes = Lists.newArrayListWithExpectedSize(PREFIXES);
+        for (int i = 0; i < PREFIXES; i++) {
+            if (i % 2 == 0) {
+                prefixes.add(String.format("%d.%d.%d.0/24", 1 + random.nextInt(223), random.nextInt(256), random.nextInt(256)));
+            } else {
+                prefixes.add(String.format("2001:%x:%x::/48", random.nextInt(0x10000), random.nextInt(0x10000)));
+            }
+        }
+
+        final WhoisDoSFilter subject = new WhoisDoSFilter();
+        final Stopwatch setWhitelist = Stopwatch.createStarted();
+        subject.setWhitelist(String.join(",", prefixes));
+        LOGGER.info("Setting {} prefixes took {}", PREFIXES, setWhitelist.stop());
+
+        final Stopwatch addAddress = Stopwatch.createStarted();
+        subject.addWhitelistAddress("193.0.0.0/21");
+        LOGGER.info("Adding a prefix took {}", addAddress.stop());
+
+        final List<String> candidates = Lists.newArrayList();
+        for (int i = 0; i < 1000; i++) {
+            candidates.add(String.format("%d.%d.%d.%d", 1 + random.nextInt(223), random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            candidates.add(String.format("2001:%x:%x::1", random.nextInt(0x10000), random.nextInt(0x10000)));
+        }
+        candidates.add("193.0.6.139");
+
+        final AtomicInteger whitelisted = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+
+            final List<Future<?>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < CHECKS_PER_THREAD; i++) {
+                        if (subject.checkWhitelist(candidates.get(i % candidates.size()))) {
+                            whitelisted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+
+            stopwatch.stop();
+            final int checks = THREADS * CHECKS_PER_THREAD;
+            LOGGER.info("{} checks by {} threads took {} ({} ns/check, {} whitelisted)",
+                    checks, THREADS, stopwatch, stopwatch.elapsed(TimeUnit.NANOSECONDS) / checks, whitelisted.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertThat(subject.checkWhitelist("193.0.6.139"), is(true));
+    }
+}
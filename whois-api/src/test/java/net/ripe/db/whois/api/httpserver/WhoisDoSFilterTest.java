@@ -0,0 +1,69 @@
+package net.ripe.db.whois.api.httpserver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class WhoisDoSFilterTest {
+    private WhoisDoSFilter subject;
+
+    @Before
+    public void setUp() {
+        subject = new WhoisDoSFilter();
+    }
+
+    @Test
+    public void empty_whitelist() {
+        assertThat(subject.checkWhitelist("10.0.0.1"), is(false));
+        assertThat(subject.checkWhitelist("2001:db8::1"), is(false));
+        assertThat(subject.getWhitelist(), is(","));
+    }
+
+    @Test
+    public void whitelist_addresses_and_prefixes() {
+        subject.setWhitelist("10.0.0.1,192.168.0.0/24,2001:db8::/32");
+
+        assertThat(subject.checkWhitelist("10.0.0.0"), is(false));
+        assertThat(subject.checkWhitelist("10.0.0.1"), is(true));
+        assertThat(subject.checkWhitelist("10.0.0.2"), is(false));
+        assertThat(subject.checkWhitelist("192.167.255.255"), is(false));
+        assertThat(subject.checkWhitelist("192.168.0.0"), is(true));
+        assertThat(subject.checkWhitelist("192.168.0.255"), is(true));
+        assertThat(subject.checkWhitelist("192.168.1.0"), is(false));
+        assertThat(subject.checkWhitelist("2001:db8::1"), is(true));
+        assertThat(subject.checkWhitelist("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"), is(true));
+        assertThat(subject.checkWhitelist("2001:db9::"), is(false));
+        assertThat(subject.getWhitelist(), is("10.0.0.1/32,192.168.0.0/24,2001:db8::/32"));
+    }
+
+    @Test
+    public void whitelist_overlapping_and_adjacent_prefixes() {
+        subject.setWhitelist("10.0.0.0/24,10.0.0.128/25,10.0.1.0/24,10.0.3.0/24");
+
+        assertThat(subject.checkWhitelist("10.0.0.200"), is(true));
+        assertThat(subject.checkWhitelist("10.0.1.255"), is(true));
+        assertThat(subject.checkWhitelist("10.0.2.0"), is(false));
+        assertThat(subject.checkWhitelist("10.0.3.0"), is(true));
+    }
+
+    @Test
+    public void add_and_remove() {
+        subject.setWhitelist("10.0.0.0/8");
+
+        assertThat(subject.addWhitelistAddress("10.0.0.0/16"), is(true));
+        assertThat(subject.addWhitelistAddress("2001:db8::/32"), is(true));
+        assertThat(subject.checkWhitelist("2001:db8::1"), is(true));
+
+        assertThat(subject.removeWhitelistAddress("10.0.0.0/8"), is(true));
+        assertThat(subject.checkWhitelist("10.0.0.1"), is(true));
+        assertThat(subject.checkWhitelist("10.1.0.0"), is(false));
+
+        assertThat(subject.removeWhitelistAddress("10.0.0.0/8"), is(false));
+        assertThat(subject.getWhitelist(), is("10.0.0.0/16,2001:db8::/32"));
+
+        subject.clearWhitelist();
+        assertThat(subject.checkWhitelist("10.0.0.1"), is(false));
+    }
+}
@@ -1,5 +1,7 @@
 package net.ripe.db.whois.api.mail.dao;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.api.AbstractIntegrationTest;
 import net.ripe.db.whois.api.MimeMessageProvider;
 import net.ripe.db.whois.api.mail.dequeue.MessageDequeue;
@@ -14,6 +16,7 @@ import org.springframework.util.FileCopyUtils;
 import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 import java.io.InputStreamReader;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -117,6 +120,59 @@ public class MailMessageDaoJdbcIntegrationTest extends AbstractIntegrationTest {
         }
     }
 
+    @Test
+    public void claim_batch() {
+        final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
+        for (int i = 0; i < 5; i++) {
+            subject.addMessage(message);
+        }
+
+        final List<String> first = subject.claimMessages(3);
+        final List<String> second = subject.claimMessages(3);
+        final List<String> third = subject.claimMessages(3);
+
+        assertThat(first, hasSize(3));
+        assertThat(second, hasSize(2));
+        assertThat(third, hasSize(0));
+        assertThat(Sets.intersection(Sets.newHashSet(first), Sets.newHashSet(second)), hasSize(0));
+
+        for (final String messageId : Iterables.concat(first, second)) {
+            assertNotNull(subject.getMessage(messageId));
+        }
+    }
+
+    @Test
+    public void releaseStaleClaims() {
+        final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
+        subject.addMessage(message);
+        subject.addMessage(message);
+
+        final LocalDateTime now = testDateTimeProvider.getCurrentDateTime();
+        final String claimed = subject.claimMessage();
+        final String logged = subject.claimMessage();
+        subject.setStatus(logged, DequeueStatus.LOGGED);
+
+        assertThat(subject.releaseStaleClaims(60), is(0));
+
+        testDateTimeProvider.setTime(now.plusMinutes(2));
+        assertThat(subject.releaseStaleClaims(60), is(1));
+        assertThat(subject.countUnclaimedMessages(), is(1));
+
+        final String reclaimed = subject.claimMessage();
+        assertNotNull(reclaimed);
+        assertThat(reclaimed.equals(claimed), is(false));
+    }
+
+    @Test
+    public void countUnclaimedMessages() {
+        final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
+        subject.addMessage(message);
+        subject.addMessage(message);
+        subject.claimMessage();
+
+        assertThat(subject.countUnclaimedMessages(), is(1));
+    }
+
     @Test
     public void setStatus() {
         final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
@@ -27,16 +27,19 @@ import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.mail.Message;
 import javax.mail.internet.MimeMessage;
 import java.io.ByteArrayInputStream;
+import java.util.Collections;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyList;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
@@ -67,6 +70,8 @@ public class MessageDequeueTest {
     public void setUp() throws Exception {
         ReflectionTestUtils.setField(subject, "nrThreads", 1);
         ReflectionTestUtils.setField(subject, "intervalMs", 1);
+        ReflectionTestUtils.setField(subject, "batchSize", 10);
+        ReflectionTestUtils.setField(subject, "claimTimeoutSeconds", 3600);
         when(maintenanceMode.allowUpdate()).thenReturn(true);
     }
 
@@ -97,7 +102,7 @@ public class MessageDequeueTest {
         final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
 
         when(mailMessageDao.getMessage("1")).thenReturn(message);
-        when(mailMessageDao.claimMessage()).thenReturn("1").thenReturn(null);
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1")).thenReturn(Collections.emptyList());
 
         subject.start();
 
@@ -120,7 +125,7 @@ public class MessageDequeueTest {
         when(messageHandler.handle(any(UpdateRequest.class), any(UpdateContext.class))).thenReturn(new UpdateResponse(UpdateStatus.SUCCESS, ""));
 
         when(mailMessageDao.getMessage("1")).thenReturn(message);
-        when(mailMessageDao.claimMessage()).thenReturn("1").thenReturn(null);
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1")).thenReturn(Collections.emptyList());
 
         subject.start();
 
@@ -133,6 +138,40 @@ public class MessageDequeueTest {
         verify(mailGateway, timeout(TIMEOUT)).sendEmail(anyString(), anyString(), anyString(), any());
     }
 
+    @Test
+    public void handleMessage_batch() throws Exception {
+        final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
+
+        when(mailMessageDao.getMessage(anyString())).thenReturn(message);
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1", "2")).thenReturn(Collections.emptyList());
+
+        subject.start();
+
+        verify(mailMessageDao, timeout(TIMEOUT)).deleteMessage("1");
+        verify(mailMessageDao, timeout(TIMEOUT)).deleteMessage("2");
+        verify(mailMessageDao, timeout(TIMEOUT).atLeastOnce()).claimMessages(2);
+        verifyNoMoreInteractions(messageHandler);
+    }
+
+    @Test
+    public void handleMessage_claim_released() throws Exception {
+        when(mailMessageDao.getMessage("1")).thenThrow(new EmptyResultDataAccessException(1));
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1")).thenReturn(Collections.emptyList());
+
+        subject.start();
+
+        verify(mailMessageDao, timeout(TIMEOUT)).getMessage("1");
+        verify(mailMessageDao, never()).setStatus(anyString(), any(DequeueStatus.class));
+        verify(mailMessageDao, never()).deleteMessage("1");
+    }
+
+    @Test
+    public void releaseStaleClaims() {
+        subject.start();
+
+        verify(mailMessageDao, timeout(TIMEOUT)).releaseStaleClaims(3600);
+    }
+
     @Test
     public void handleMessage_exception() throws Exception {
         final MimeMessage message = MimeMessageProvider.getMessageSimpleTextUnsigned();
@@ -144,7 +183,7 @@ public class MessageDequeueTest {
         when(messageHandler.handle(any(UpdateRequest.class), any(UpdateContext.class))).thenThrow(RuntimeException.class);
 
         when(mailMessageDao.getMessage("1")).thenReturn(message);
-        when(mailMessageDao.claimMessage()).thenReturn("1").thenReturn(null);
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1")).thenReturn(Collections.emptyList());
 
         subject.start();
 
@@ -166,7 +205,7 @@ public class MessageDequeueTest {
                 new MailMessage("", null, "", "", null, "", Keyword.NONE, Lists.newArrayList()));
 
         when(mailMessageDao.getMessage("1")).thenReturn(message);
-        when(mailMessageDao.claimMessage()).thenReturn("1").thenReturn(null);
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1")).thenReturn(Collections.emptyList());
 
         subject.start();
 
@@ -217,7 +256,7 @@ public class MessageDequeueTest {
                 "body\n").getBytes()));
 
         when(mailMessageDao.getMessage("1")).thenReturn(message);
-        when(mailMessageDao.claimMessage()).thenReturn("1").thenReturn(null);
+        when(mailMessageDao.claimMessages(anyInt())).thenReturn(Lists.newArrayList("1")).thenReturn(Collections.emptyList());
 
         when(messageParser.parse(eq(message), any(UpdateContext.class))).thenAnswer(new Answer<MailMessage>() {
             @Override
@@ -301,6 +301,14 @@ public final class QueryMessages {
                 + "has exceeded the maximum number allowed (%d).", connectionLimit);
     }
 
+    public static Message connectionRateExceeded(final int connectionRateLimit) {
+        return new QueryMessage(Type.ERROR, ""
+                + "ERROR:306: connection rate exceeded\n"
+                + "\n"
+                + "Number of connections opened from a single IP address\n"
+                + "has exceeded the maximum number allowed per minute (%d).", connectionRateLimit);
+    }
+
     public static Message duplicateIpFlagsPassed() {
         return new QueryMessage(Type.ERROR, ""
                 + "ERROR:901: duplicate IP flags passed\n"
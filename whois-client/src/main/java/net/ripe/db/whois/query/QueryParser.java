@@ -32,6 +32,7 @@ public class QueryParser {
     protected static final int MAX_QUERY_ARGUMENTS = 61;
 
     private static final QueryFlagParser PARSER = new QueryFlagParser();
+    private static final OptionSet NO_OPTIONS = PARSER.parse();
 
     private final String originalStringQuery;
     private final String searchKey;
@@ -45,16 +46,32 @@ public class QueryParser {
         final String substituted = Latin1Conversion.convertString(query);
         hasSubstitutions = !substituted.equals(query);
 
-        options = PARSER.parse(Iterables.toArray(SPACE_SPLITTER.split(substituted), String.class));
-
+        final List<String> arguments = SPACE_SPLITTER.splitToList(substituted);
+        final List<?> searchKeys;
+        if (hasFlag(arguments)) {
+            options = PARSER.parse(arguments.toArray(new String[0]));
+            searchKeys = options.nonOptionArguments();
+        } else {
+            // only search keys, no need for the option parser
+            options = NO_OPTIONS;
+            searchKeys = arguments;
+        }
 
-        final List<?> searchKeys = options.nonOptionArguments();
         if (searchKeys.size() >= MAX_QUERY_ARGUMENTS) {
             throw new IllegalArgumentExceptionMessage(QueryMessages.tooManyArguments());
         }
         searchKey = SPACE_JOINER.join(searchKeys);
     }
 
+    private static boolean hasFlag(final List<String> arguments) {
+        for (final String argument : arguments) {
+            if (argument.startsWith("-")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public String getSearchKey() {
         return searchKey;
     }
@@ -58,4 +58,30 @@ public class QueryParserTest {
         }
     }
 
+
+    @Test
+    public void search_key_only() {
+        parse("  AS3333   193.0.0.1 ");
+
+        assertThat(subject.getSearchKey(), is("AS3333 193.0.0.1"));
+        assertFalse(subject.hasOptions());
+        assertFalse(subject.hasOption(QueryFlag.BRIEF));
+        assertFalse(subject.hasOnlyQueryFlag(QueryFlag.PERSISTENT_CONNECTION));
+        assertThat(subject.getOptionValues(QueryFlag.SOURCES).isEmpty(), is(true));
+    }
+
+    @Test
+    public void search_key_only_too_many_arguments() {
+        final StringBuilder query = new StringBuilder();
+        for (int i = 0; i < QueryParser.MAX_QUERY_ARGUMENTS; i++) {
+            query.append("a ");
+        }
+
+        try {
+            parse(query.toString());
+            fail();
+        } catch (IllegalArgumentExceptionMessage e) {
+            assertThat(e.getExceptionMessage(), is(QueryMessages.tooManyArguments()));
+        }
+    }
 }
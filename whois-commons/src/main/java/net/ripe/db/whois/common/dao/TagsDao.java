@@ -4,12 +4,15 @@ package net.ripe.db.whois.common.dao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Tag;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TagsDao {
 
     List<Tag> getTags(Integer objectId);
 
+    List<Tag> getTags(Collection<Integer> objectIds);
+
     List<Tag> getTagsOfType(CIString type);
 
     void createTag(Tag tag);
@@ -7,6 +7,7 @@ import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectRowMapper;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexBatch;
 import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategies;
 import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategy;
 import net.ripe.db.whois.common.domain.CIString;
@@ -43,6 +44,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
 @Component
 public class JdbcRpslObjectOperations {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcRpslObjectOperations.class);
@@ -58,43 +61,159 @@ public class JdbcRpslObjectOperations {
 
     public static Set<CIString> insertIntoTablesIgnoreMissing(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject) {
         final Set<CIString> missingReferences = Sets.newHashSet();
-        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
 
-        final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
-        for (final AttributeType keyAttributeType : keyAttributes) {
-            missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, keyAttributeType));
+        // key rows must exist before resolving (self) references and updating key rows
+        missingReferences.addAll(insertIntoKeyTablesIgnoreMissing(jdbcTemplate, rpslObjectInfo, rpslObject));
+        missingReferences.addAll(insertIntoNonKeyTablesIgnoreMissing(jdbcTemplate, rpslObjectInfo, rpslObject));
+
+        return missingReferences;
+    }
+
+    public static Set<CIString> insertIntoKeyTablesIgnoreMissing(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject) {
+        final Set<CIString> missingReferences = Sets.newHashSet();
+        final IndexBatch indexBatch = new IndexBatch();
+
+        for (final AttributeType keyAttributeType : ObjectTemplate.getTemplate(rpslObject.getType()).getKeyAttributes()) {
+            missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, keyAttributeType, indexBatch));
         }
 
+        indexBatch.flush(jdbcTemplate);
+        return missingReferences;
+    }
+
+    public static Set<CIString> insertIntoNonKeyTablesIgnoreMissing(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject) {
+        final Set<CIString> missingReferences = Sets.newHashSet();
+        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
+        final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
+        final IndexBatch indexBatch = new IndexBatch();
+
         for (final AttributeTemplate attributeTemplate : objectTemplate.getAttributeTemplates()) {
             final AttributeType attributeType = attributeTemplate.getAttributeType();
             if (!keyAttributes.contains(attributeType)) {
-                missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, attributeType));
+                missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, attributeType, indexBatch));
             }
         }
 
+        indexBatch.flush(jdbcTemplate);
         return missingReferences;
     }
 
-    private static Set<CIString> insertAttributeIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject, final AttributeType attributeType) {
+    /**
+     * Update the index tables for a modified object. Index tables for attributes with unchanged values are left alone,
+     * and for changed attributes only the rows for removed values are deleted and the rows for added values inserted,
+     * instead of deleting and re-inserting all index rows for the object.
+     */
+    public static void updateTables(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject originalObject, final RpslObject updatedObject) {
+        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(updatedObject.getType());
+        final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
+
+        final Set<AttributeType> changedAttributes = Sets.newHashSet();
+        for (final AttributeTemplate attributeTemplate : objectTemplate.getAttributeTemplates()) {
+            final AttributeType attributeType = attributeTemplate.getAttributeType();
+            if (!getIndexedValues(originalObject, attributeType).equals(getIndexedValues(updatedObject, attributeType))) {
+                changedAttributes.add(attributeType);
+            }
+        }
+
+        if (changedAttributes.isEmpty()) {
+            return;
+        }
+
+        if (!Sets.intersection(changedAttributes, keyAttributes).isEmpty() || !isIndexedSeparately(objectTemplate, changedAttributes)) {
+            deleteFromTables(jdbcTemplate, rpslObjectInfo);
+            insertIntoTables(jdbcTemplate, rpslObjectInfo, updatedObject);
+            return;
+        }
+
+        final Set<CIString> missingReferences = Sets.newHashSet();
+        final IndexBatch indexBatch = new IndexBatch();
+        for (final AttributeType attributeType : changedAttributes) {
+            final IndexStrategy indexStrategy = IndexStrategies.get(attributeType);
+            final Set<String> originalValues = getIndexedValues(originalObject, attributeType);
+            final Set<String> updatedValues = getIndexedValues(updatedObject, attributeType);
+
+            if (removeFromIndex(jdbcTemplate, rpslObjectInfo, updatedObject, indexStrategy, Sets.difference(originalValues, updatedValues))) {
+                missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, updatedObject, attributeType, Sets.difference(updatedValues, originalValues), indexBatch));
+            } else {
+                indexStrategy.removeFromIndex(jdbcTemplate, rpslObjectInfo);
+                missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, updatedObject, attributeType, updatedValues, indexBatch));
+            }
+        }
+        indexBatch.flush(jdbcTemplate);
+
+        if (!missingReferences.isEmpty()) {
+            throw new IllegalArgumentException("Missing references: " + missingReferences);
+        }
+    }
+
+    // false if the rows for a value can't be told apart, and the attribute has to be re-indexed as a whole
+    private static boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject updatedObject, final IndexStrategy indexStrategy, final Set<String> removedValues) {
+        for (final String removedValue : removedValues) {
+            if (!indexStrategy.removeFromIndex(jdbcTemplate, rpslObjectInfo, updatedObject, removedValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // changed attributes can only be re-indexed on their own if they have their own index table, and don't depend on other attributes
+    private static boolean isIndexedSeparately(final ObjectTemplate objectTemplate, final Set<AttributeType> changedAttributes) {
+        for (final AttributeType changedAttribute : changedAttributes) {
+            final IndexStrategy indexStrategy = IndexStrategies.get(changedAttribute);
+            if (!indexStrategy.isIndexedByValueOnly()) {
+                return false;
+            }
+
+            if (indexStrategy.getLookupTableName() == null) {
+                continue;
+            }
+
+            for (final AttributeTemplate attributeTemplate : objectTemplate.getAttributeTemplates()) {
+                final IndexStrategy otherStrategy = IndexStrategies.get(attributeTemplate.getAttributeType());
+                if (otherStrategy != indexStrategy && indexStrategy.getLookupTableName().equals(otherStrategy.getLookupTableName())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // values are compared case sensitive, as the index tables store the values as-is
+    private static Set<String> getIndexedValues(final RpslObject rpslObject, final AttributeType attributeType) {
+        final Set<String> values = Sets.newLinkedHashSet();
+        for (final CIString value : getUniqueReferenceValues(rpslObject, attributeType)) {
+            values.add(value.toString());
+        }
+        return values;
+    }
+
+    private static Set<CIString> getUniqueReferenceValues(final RpslObject rpslObject, final AttributeType attributeType) {
+        final Set<CIString> uniqueValues = Sets.newLinkedHashSet();
+        for (final RpslAttribute attribute : rpslObject.findAttributes(attributeType)) {
+            uniqueValues.addAll(attribute.getReferenceValues());
+        }
+        return uniqueValues;
+    }
+
+    private static Set<CIString> insertAttributeIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject, final AttributeType attributeType, final IndexBatch indexBatch) {
+        return insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, attributeType, getIndexedValues(rpslObject, attributeType), indexBatch);
+    }
+
+    private static Set<CIString> insertAttributeIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject, final AttributeType attributeType, final Set<String> values, final IndexBatch indexBatch) {
         final Set<CIString> missingReferences = Sets.newHashSet();
 
         final IndexStrategy indexStrategy = IndexStrategies.get(attributeType);
 
-        final Set<CIString> uniqueValues = Sets.newHashSet();
-        final List<RpslAttribute> attributes = rpslObject.findAttributes(attributeType);
-        for (final RpslAttribute attribute : attributes) {
-            for (final CIString value : attribute.getReferenceValues()) {
-                if (uniqueValues.add(value)) {
-                    try {
-                        final int rows = indexStrategy.addToIndex(jdbcTemplate, rpslObjectInfo, rpslObject, value.toString());
-                        if (rows < 1) {
-                            throw new DataIntegrityViolationException("Rows affected: " + rows);
-                        }
-                    } catch (IllegalArgumentException e) {
-                        LOGGER.debug("Missing reference: " + value, e);
-                        missingReferences.add(value);
-                    }
+        for (final String value : values) {
+            try {
+                final int rows = indexStrategy.addToIndex(jdbcTemplate, rpslObjectInfo, rpslObject, value, indexBatch);
+                if (rows < 1) {
+                    throw new DataIntegrityViolationException("Rows affected: " + rows);
                 }
+            } catch (IllegalArgumentException e) {
+                LOGGER.debug("Missing reference: " + value, e);
+                missingReferences.add(ciString(value));
             }
         }
 
@@ -40,6 +40,7 @@ import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertI
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoTablesIgnoreMissing;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.lookupRpslObjectUpdateInfo;
 import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.updateLastAndUpdateSerials;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.updateTables;
 import static net.ripe.db.whois.common.domain.CIString.ciString;
 
 @Repository
@@ -214,9 +215,12 @@ public class JdbcRpslObjectUpdateDao implements RpslObjectUpdateDao {
     @Override
     public RpslObjectUpdateInfo updateObject(final int objectId, final RpslObject object) {
         final RpslObjectUpdateInfo rpslObjectInfo = lookupRpslObjectUpdateInfo(jdbcTemplate, objectId, object.getKey().toString());
+        final RpslObject originalObject = jdbcTemplate.queryForObject(
+                "SELECT object_id, object FROM last WHERE object_id = ?",
+                new RpslObjectRowMapper(),
+                objectId);
 
-        deleteFromTables(jdbcTemplate, rpslObjectInfo);
-        insertIntoTables(jdbcTemplate, rpslObjectInfo, object);
+        updateTables(jdbcTemplate, rpslObjectInfo, originalObject, object);
         copyToHistoryAndUpdateSerials(jdbcTemplate, rpslObjectInfo);
         final int newSequenceId = updateLastAndUpdateSerials(dateTimeProvider, jdbcTemplate, rpslObjectInfo, object);
 
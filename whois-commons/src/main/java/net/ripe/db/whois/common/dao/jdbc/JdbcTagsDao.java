@@ -1,5 +1,6 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.aspects.RetryFor;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.CIString;
@@ -10,6 +11,7 @@ import org.springframework.dao.RecoverableDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,20 +19,31 @@ import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
 @RetryFor(RecoverableDataAccessException.class)
 public class JdbcTagsDao implements TagsDao {
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TagsCache tagsCache;
 
     @Autowired
-    public JdbcTagsDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource) {
+    public JdbcTagsDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final TagsCache tagsCache) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.tagsCache = tagsCache;
     }
 
     @Override
     public List<Tag> getTags(final Integer objectId) {
+        final TagsCache.Tags cachedTags = tagsCache.get();
+        if (cachedTags != null) {
+            return cachedTags.get(objectId);
+        }
+
         return jdbcTemplate.query("" +
                 "SELECT object_id, tag_id, data " +
                 "FROM tags " +
@@ -39,6 +52,29 @@ public class JdbcTagsDao implements TagsDao {
                 objectId);
     }
 
+    @Override
+    public List<Tag> getTags(final Collection<Integer> objectIds) {
+        if (objectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final TagsCache.Tags cachedTags = tagsCache.get();
+        if (cachedTags != null) {
+            final List<Tag> tags = Lists.newArrayList();
+            for (final Integer objectId : objectIds) {
+                tags.addAll(cachedTags.get(objectId));
+            }
+            return tags;
+        }
+
+        return namedParameterJdbcTemplate.query("" +
+                "SELECT object_id, tag_id, data " +
+                "FROM tags " +
+                "WHERE object_id IN (:objectIds)",
+                Collections.singletonMap("objectIds", objectIds),
+                new TagRowMapper());
+    }
+
     @Override
     public List<Tag> getTagsOfType(final CIString type) {
         return jdbcTemplate.query("" +
@@ -51,6 +87,7 @@ public class JdbcTagsDao implements TagsDao {
 
     @Override
     public void createTag(final Tag tag) {
+        tagsCache.modified();
         jdbcTemplate.update("INSERT INTO tags(object_id, tag_id, data) VALUES(?, ?, ?)",
                 tag.getObjectId(),
                 tag.getType().toString(),
@@ -59,6 +96,7 @@ public class JdbcTagsDao implements TagsDao {
 
     @Override
     public void createTags(final List<Tag> tags) {
+        tagsCache.modified();
         jdbcTemplate.batchUpdate("INSERT INTO tags(object_id, tag_id, data) VALUES(?, ?, ?)", new BatchPreparedStatementSetter() {
             @Override
             public void setValues(final PreparedStatement ps, final int i) throws SQLException {
@@ -77,11 +115,13 @@ public class JdbcTagsDao implements TagsDao {
 
     @Override
     public void deleteTag(final CIString type, final Integer objectId) {
+        tagsCache.modified();
         jdbcTemplate.update("DELETE FROM tags WHERE tag_id = ? AND object_id = ?", type.toString(), objectId);
     }
 
     @Override
     public void deleteTags(final CIString type, final List<Integer> objectIds) {
+        tagsCache.modified();
         jdbcTemplate.batchUpdate("DELETE FROM tags WHERE tag_id = ? AND object_id = ?", new BatchPreparedStatementSetter() {
             @Override
             public void setValues(final PreparedStatement ps, final int i) throws SQLException {
@@ -98,11 +138,13 @@ public class JdbcTagsDao implements TagsDao {
 
     @Override
     public void deleteOrphanedTags() {
+        tagsCache.modified();
         jdbcTemplate.update("DELETE tags FROM tags LEFT OUTER JOIN last ON last.object_id = tags.object_id WHERE last.sequence_id = 0");
     }
 
     @Override
     public void deleteTagsOfType(final CIString type) {
+        tagsCache.modified();
         jdbcTemplate.update("DELETE FROM tags WHERE tag_id = ?", type.toString());
     }
 
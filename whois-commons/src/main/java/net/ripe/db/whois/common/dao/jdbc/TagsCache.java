@@ -0,0 +1,197 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.CheckForNull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Object id to tags map per source, loaded with a single scan of the tags table.
+ *
+ * A source is loaded by the scheduled refresh after its first lookup, until then lookups go to the database. Writes
+ * through the tags dao mark the source as modified (again when the transaction completes), so lookups go to the
+ * database until it is reloaded after a batch of writes (e.g. a resource tagger run). Changes made by another
+ * instance are picked up by the periodic reload.
+ */
+@Component
+public class TagsCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TagsCache.class);
+
+    private final SourceContext sourceContext;
+    private final boolean enabled;
+    private final long reloadIntervalMillis;
+    private final ConcurrentMap<CIString, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TagsCache(final SourceContext sourceContext,
+                     @Value("${whois.tags.cache.enabled:false}") final boolean enabled,
+                     @Value("${whois.tags.cache.reload.interval.msecs:600000}") final long reloadIntervalMillis) {
+        this.sourceContext = sourceContext;
+        this.enabled = enabled;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+    }
+
+    private static final class CacheEntry {
+        private final Source source;
+        private final AtomicInteger modifications = new AtomicInteger();
+        private final AtomicLong hits = new AtomicLong();
+        private volatile Tags tags;
+        private volatile int loadedModifications = -1;
+        private volatile long loadedAt;
+
+        private CacheEntry(final Source source) {
+            this.source = source;
+        }
+
+        @CheckForNull
+        private Tags getTags() {
+            return loadedModifications == modifications.get() ? tags : null;
+        }
+    }
+
+    /**
+     * @return the tags of the current source, or null if they are not (or no longer) cached
+     */
+    @CheckForNull
+    Tags get() {
+        if (!enabled) {
+            return null;
+        }
+
+        final Source source = sourceContext.getCurrentSource();
+        final CacheEntry cacheEntry = cache.computeIfAbsent(source.getName(), name -> new CacheEntry(source));
+        final Tags tags = cacheEntry.getTags();
+        if (tags != null) {
+            cacheEntry.hits.incrementAndGet();
+        }
+        return tags;
+    }
+
+    void modified() {
+        if (!enabled) {
+            return;
+        }
+
+        final CacheEntry cacheEntry = cache.get(sourceContext.getCurrentSource().getName());
+        if (cacheEntry == null) {
+            return;
+        }
+
+        cacheEntry.modifications.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    cacheEntry.modifications.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${whois.tags.cache.refresh.interval.msecs:10000}")
+    public void refresh() {
+        for (final CacheEntry cacheEntry : cache.values()) {
+            if (cacheEntry.getTags() == null || System.currentTimeMillis() - cacheEntry.loadedAt > reloadIntervalMillis) {
+                try {
+                    load(cacheEntry);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Loading tags of {}", cacheEntry.source, e);
+                }
+            }
+        }
+    }
+
+    private void load(final CacheEntry cacheEntry) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final int modifications = cacheEntry.modifications.get();
+
+        final Map<String, CIString> types = Maps.newHashMap();
+        final List<Tag> tags = Lists.newArrayList();
+        JdbcStreamingHelper.executeStreaming(sourceContext.getSourceConfiguration(cacheEntry.source).getJdbcTemplate(),
+                "SELECT object_id, tag_id, data FROM tags",
+                rs -> {
+                    tags.add(new Tag(types.computeIfAbsent(rs.getString(2), CIString::ciString), rs.getInt(1), rs.getString(3)));
+                });
+
+        cacheEntry.tags = Tags.of(tags);
+        cacheEntry.loadedModifications = modifications;
+        cacheEntry.loadedAt = System.currentTimeMillis();
+
+        LOGGER.info("Loaded {} in {} for {} ({} lookups served from the previous load)",
+                cacheEntry.tags, stopwatch, cacheEntry.source, cacheEntry.hits.getAndSet(0));
+    }
+
+    static final class Tags {
+        private final int[] objectIds;
+        private final Tag[][] tags;
+        private final int nrTags;
+
+        private Tags(final int[] objectIds, final Tag[][] tags, final int nrTags) {
+            this.objectIds = objectIds;
+            this.tags = tags;
+            this.nrTags = nrTags;
+        }
+
+        static Tags of(final List<Tag> tags) {
+            // stable, so the tags of an object stay in database order
+            tags.sort(Comparator.comparingInt(Tag::getObjectId));
+
+            int nrObjects = 0;
+            for (int i = 0; i < tags.size(); i++) {
+                if (i == 0 || tags.get(i).getObjectId() != tags.get(i - 1).getObjectId()) {
+                    nrObjects++;
+                }
+            }
+
+            final int[] objectIds = new int[nrObjects];
+            final Tag[][] objectTags = new Tag[nrObjects][];
+            int object = 0;
+            for (int start = 0; start < tags.size(); ) {
+                final int objectId = tags.get(start).getObjectId();
+                int end = start + 1;
+                while (end < tags.size() && tags.get(end).getObjectId() == objectId) {
+                    end++;
+                }
+
+                objectIds[object] = objectId;
+                objectTags[object] = tags.subList(start, end).toArray(new Tag[end - start]);
+                object++;
+                start = end;
+            }
+
+            return new Tags(objectIds, objectTags, tags.size());
+        }
+
+        List<Tag> get(final int objectId) {
+            final int index = Arrays.binarySearch(objectIds, objectId);
+            return index < 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(tags[index]));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tags of %d objects", nrTags, objectIds.length);
+        }
+    }
+}
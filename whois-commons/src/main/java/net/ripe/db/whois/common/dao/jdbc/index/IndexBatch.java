@@ -0,0 +1,46 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects index rows per insert statement, so all rows for an index table are written in a single JDBC batch.
+ */
+public class IndexBatch {
+    private final Map<String, List<Object[]>> rowsByStatement = Maps.newLinkedHashMap();
+
+    void add(final String statement, final Object... args) {
+        rowsByStatement.computeIfAbsent(statement, key -> Lists.newArrayList()).add(args);
+    }
+
+    public boolean isEmpty() {
+        return rowsByStatement.isEmpty();
+    }
+
+    /**
+     * Write all collected rows, and clear the batch.
+     * @return the number of batch statements executed
+     */
+    public int flush(final JdbcTemplate jdbcTemplate) {
+        int statements = 0;
+
+        for (final Map.Entry<String, List<Object[]>> entry : rowsByStatement.entrySet()) {
+            final int[] rowsAffected = jdbcTemplate.batchUpdate(entry.getKey(), entry.getValue());
+            for (final int rows : rowsAffected) {
+                if (rows < 1 && rows != Statement.SUCCESS_NO_INFO) {
+                    throw new DataIntegrityViolationException("Rows affected: " + rows);
+                }
+            }
+            statements++;
+        }
+
+        rowsByStatement.clear();
+        return statements;
+    }
+}
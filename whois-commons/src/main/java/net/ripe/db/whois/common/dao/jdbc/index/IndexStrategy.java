@@ -16,6 +16,11 @@ public interface IndexStrategy {
     int addToIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo, RpslObject object, CIString value);
     int addToIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo, RpslObject object, String value);
 
+    /**
+     * Add to index, deferring the insert to the batch where supported (the batch is flushed by the caller).
+     */
+    int addToIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo, RpslObject object, String value, IndexBatch batch);
+
     List<RpslObjectInfo> findInIndex(JdbcTemplate jdbcTemplate, String value);
     List<RpslObjectInfo> findInIndex(JdbcTemplate jdbcTemplate, String value, final ObjectType type);
     List<RpslObjectInfo> findInIndex(JdbcTemplate jdbcTemplate, CIString value);
@@ -25,6 +30,17 @@ public interface IndexStrategy {
 
     void removeFromIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo);
 
+    /**
+     * Remove the index rows for a single value, which is no longer in the (updated) object.
+     * @return false if the rows for the value can't be told apart, so the attribute has to be re-indexed as a whole
+     */
+    boolean removeFromIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo, RpslObject object, String value);
+
+    /**
+     * @return true if the index rows only depend on the values of this attribute, so they can be updated on their own
+     */
+    boolean isIndexedByValueOnly();
+
     String getLookupTableName();
 
     String getLookupColumnName();
@@ -34,6 +34,11 @@ abstract class IndexStrategyAdapter implements IndexStrategy {
         return 1;
     }
 
+    @Override
+    public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value, final IndexBatch batch) {
+        return addToIndex(jdbcTemplate, objectInfo, object, value);
+    }
+
     @Override
     public final List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final CIString value) {
         return findInIndex(jdbcTemplate, value.toString());
@@ -68,6 +73,16 @@ abstract class IndexStrategyAdapter implements IndexStrategy {
     public void removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
     }
 
+    @Override
+    public boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        return true;
+    }
+
+    @Override
+    public boolean isIndexedByValueOnly() {
+        return false;
+    }
+
     @Override
     public String getLookupTableName() {
         return null;
@@ -2,6 +2,7 @@ package net.ripe.db.whois.common.dao.jdbc.index;
 
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.apache.commons.lang.Validate;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -25,6 +26,11 @@ abstract class IndexStrategyWithSingleLookupTable extends IndexStrategyAdapter {
         jdbcTemplate.update(String.format("DELETE FROM %s WHERE object_id = ?", lookupTableName), objectInfo.getObjectId());
     }
 
+    @Override
+    public boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        return false;
+    }
+
     @Override
     public void cleanupMissingObjects(final JdbcTemplate jdbcTemplate) {
         jdbcTemplate.update(String.format("DELETE %s FROM %s LEFT JOIN last ON %s.object_id = last.object_id AND last.sequence_id != 0 WHERE last.object_id IS NULL", lookupTableName, lookupTableName, lookupTableName));
@@ -20,4 +20,24 @@ class IndexWithAuth extends IndexWithValueAndType {
             return super.addToIndex(jdbcTemplate, objectInfo, object, value);
         }
     }
+
+    @Override
+    public int addToIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo, RpslObject object, String value, IndexBatch batch) {
+        final String auth = value.toUpperCase();
+        if (auth.startsWith("MD5-PW ")) {
+            return 1;
+        } else {
+            return super.addToIndex(jdbcTemplate, objectInfo, object, value, batch);
+        }
+    }
+
+    @Override
+    public boolean removeFromIndex(JdbcTemplate jdbcTemplate, RpslObjectInfo objectInfo, RpslObject object, String value) {
+        final String auth = value.toUpperCase();
+        if (auth.startsWith("MD5-PW ")) {
+            return true;
+        } else {
+            return super.removeFromIndex(jdbcTemplate, objectInfo, object, value);
+        }
+    }
 }
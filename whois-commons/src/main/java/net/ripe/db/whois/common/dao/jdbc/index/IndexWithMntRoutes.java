@@ -48,6 +48,18 @@ class IndexWithMntRoutes extends IndexWithReference {
                 ObjectTypeIds.getId(objectInfo.getObjectType()));
     }
 
+    // values for the same maintainer share a row, so it's only inserted if it doesn't exist yet
+    @Override
+    public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value, final IndexBatch batch) {
+        return addToIndex(jdbcTemplate, objectInfo, object, value);
+    }
+
+    // the row may still be needed by another value for the same maintainer
+    @Override
+    public boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        return false;
+    }
+
     @Override
     public List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value) {
         return Lists.newArrayList(findInIndex(jdbcTemplate, value, "mnt_routes"));
@@ -24,6 +24,11 @@ class IndexWithName extends IndexStrategyWithSingleLookupTable {
         super(attributeType, lookupTableName);
     }
 
+    @Override
+    public boolean isIndexedByValueOnly() {
+        return true;
+    }
+
     @Override
     public List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value) {
         final String[] names = Iterables.toArray(SPACE_SPLITTER.split(value), String.class);
@@ -81,6 +86,30 @@ class IndexWithName extends IndexStrategyWithSingleLookupTable {
         return ret;
     }
 
+    // names are indexed per word, so the rows can only be told apart if the remaining values don't share a word
+    @Override
+    public boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        final Set<CIString> names = Sets.newLinkedHashSet();
+        for (final String name : SPACE_SPLITTER.split(value)) {
+            names.add(ciString(name));
+        }
+
+        for (final CIString remainingValue : object.getValuesForAttribute(attributeType)) {
+            for (final String name : SPACE_SPLITTER.split(remainingValue.toString())) {
+                if (names.contains(ciString(name))) {
+                    return false;
+                }
+            }
+        }
+
+        final String query = String.format("DELETE FROM %s WHERE object_id = ? AND name = ?", lookupTableName);
+        for (final CIString name : names) {
+            jdbcTemplate.update(query, objectInfo.getObjectId(), name.toString());
+        }
+
+        return true;
+    }
+
     int addToIndex(final JdbcTemplate jdbcTemplate, final int objectId, final String name) {
         final String query = String.format("INSERT INTO %s (object_id, name) VALUES (?, ?)", lookupTableName);
         return jdbcTemplate.update(query, objectId, name);
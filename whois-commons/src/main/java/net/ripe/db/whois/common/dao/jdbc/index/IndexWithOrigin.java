@@ -14,6 +14,11 @@ class IndexWithOrigin extends IndexStrategyAdapter {
         super(attributeType);
     }
 
+    @Override
+    public boolean isIndexedByValueOnly() {
+        return true;
+    }
+
     @Override
     public List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value) {
         if (!AttributeType.ORIGIN.isValidValue(ObjectType.ROUTE, value) && !AttributeType.ORIGIN.isValidValue(ObjectType.ROUTE6, value)) {
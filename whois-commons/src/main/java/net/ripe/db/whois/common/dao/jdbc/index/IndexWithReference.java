@@ -47,6 +47,11 @@ class IndexWithReference extends IndexStrategySimpleLookup {
         return referenceStrategies;
     }
 
+    @Override
+    public boolean isIndexedByValueOnly() {
+        return true;
+    }
+
     @CheckForNull
     RpslObjectInfo getReference(final JdbcTemplate jdbcTemplate, final String pkey) {
         for (final IndexStrategy referenceStrategy : getReferenceStrategies()) {
@@ -61,12 +66,39 @@ class IndexWithReference extends IndexStrategySimpleLookup {
 
     @Override
     public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        return addToIndex(jdbcTemplate, objectInfo, getExistingReference(jdbcTemplate, object, value));
+    }
+
+    @Override
+    public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value, final IndexBatch batch) {
+        final RpslObjectInfo reference = getExistingReference(jdbcTemplate, object, value);
+        final String query = String.format("INSERT INTO %s (object_id, %s, object_type) VALUES (?, ?, ?)", lookupTableName, lookupColumnName);
+        batch.add(query, objectInfo.getObjectId(), reference.getObjectId(), ObjectTypeIds.getId(objectInfo.getObjectType()));
+        return 1;
+    }
+
+    @Override
+    public boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        final RpslObjectInfo reference;
+        try {
+            reference = getExistingReference(jdbcTemplate, object, value);
+        } catch (IllegalArgumentException e) {
+            // the referenced object is gone, so its row can't be found by value
+            return false;
+        }
+
+        // nothing deleted if the row references an earlier object with the same key, so it can't be found by value
+        final String query = String.format("DELETE FROM %s WHERE object_id = ? AND %s = ?", lookupTableName, lookupColumnName);
+        return jdbcTemplate.update(query, objectInfo.getObjectId(), reference.getObjectId()) > 0;
+    }
+
+    RpslObjectInfo getExistingReference(final JdbcTemplate jdbcTemplate, final RpslObject object, final String value) {
         final RpslObjectInfo reference = getReference(jdbcTemplate, value);
         if (reference == null) {
             throw new IllegalArgumentException("Referenced object does not exist: " + value);
         }
 
-        return addToIndex(jdbcTemplate, objectInfo, reference);
+        return reference;
     }
 
     int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObjectInfo reference) {
@@ -21,6 +21,25 @@ class IndexWithValue extends IndexStrategySimpleLookup {
         return jdbcTemplate.update(query, objectInfo.getObjectId(), value);
     }
 
+    @Override
+    public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value, final IndexBatch batch) {
+        final String query = String.format("INSERT INTO %s (object_id, %s) VALUES (?, ?)", lookupTableName, lookupColumnName);
+        batch.add(query, objectInfo.getObjectId(), value);
+        return 1;
+    }
+
+    @Override
+    public boolean removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
+        final String query = String.format("DELETE FROM %s WHERE object_id = ? AND %s = ?", lookupTableName, lookupColumnName);
+        jdbcTemplate.update(query, objectInfo.getObjectId(), value);
+        return true;
+    }
+
+    @Override
+    public boolean isIndexedByValueOnly() {
+        return true;
+    }
+
     @Override
     public List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value) {
         // FIXME: [AH] joining to last is very costly and unnecessary here; look for ways to drop this join
@@ -6,4 +6,10 @@ class Unindexed extends IndexStrategyAdapter {
     public Unindexed(final AttributeType attributeType) {
         super(attributeType);
     }
+
+    @Override
+    public boolean isIndexedByValueOnly() {
+        // netname is stored in the inetnum and inet6num index tables
+        return attributeType != AttributeType.NETNAME;
+    }
 }
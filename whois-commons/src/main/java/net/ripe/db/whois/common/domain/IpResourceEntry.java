@@ -2,6 +2,8 @@ package net.ripe.db.whois.common.domain;
 
 import net.ripe.db.whois.common.ip.IpInterval;
 
+import java.util.Objects;
+
 /**
  * Contains a single ip resource configuration entry.
  *
@@ -23,4 +25,20 @@ public class IpResourceEntry<V> {
     public V getValue() {
         return value;
     }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final IpResourceEntry<?> that = (IpResourceEntry<?>) o;
+
+        return Objects.equals(ipInterval, that.ipInterval) &&
+                Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ipInterval, value);
+    }
 }
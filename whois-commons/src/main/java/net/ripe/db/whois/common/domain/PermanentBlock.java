@@ -0,0 +1,57 @@
+package net.ripe.db.whois.common.domain;
+
+import net.ripe.db.whois.common.ip.IpInterval;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A permanent ban of a prefix, to be saved with the acl event that caused it.
+ */
+public class PermanentBlock {
+    private final IpInterval<?> ipInterval;
+    private final LocalDate date;
+    private final int limit;
+    private final String comment;
+
+    public PermanentBlock(final IpInterval<?> ipInterval, final LocalDate date, final int limit, final String comment) {
+        this.ipInterval = ipInterval;
+        this.date = date;
+        this.limit = limit;
+        this.comment = comment;
+    }
+
+    public IpInterval<?> getIpInterval() {
+        return ipInterval;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final PermanentBlock that = (PermanentBlock) o;
+
+        return Objects.equals(ipInterval, that.ipInterval) &&
+                Objects.equals(date, that.date) &&
+                limit == that.limit &&
+                Objects.equals(comment, that.comment);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ipInterval, date, limit, comment);
+    }
+}
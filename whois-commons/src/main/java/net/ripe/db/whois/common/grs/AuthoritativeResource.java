@@ -73,6 +73,27 @@ public class AuthoritativeResource {
         return inet6Ranges.size();
     }
 
+    /**
+     * @return the (disjoint) aut-num ranges, in ascending order
+     */
+    public Set<AsnRange> getAutNumRanges() {
+        return autNums.unmodifiableSet();
+    }
+
+    /**
+     * @return the (disjoint) inetnum ranges, in ascending order
+     */
+    public Set<Ipv4Range> getInetRanges() {
+        return inetRanges.unmodifiableSet();
+    }
+
+    /**
+     * @return the (disjoint) inet6num ranges, in ascending order
+     */
+    public Set<Ipv6Range> getInet6Ranges() {
+        return inet6Ranges.unmodifiableSet();
+    }
+
     boolean isEmpty() {
         return getNrAutNums() == 0 && getNrInetnums() == 0 && getNrInet6nums() == 0;
     }
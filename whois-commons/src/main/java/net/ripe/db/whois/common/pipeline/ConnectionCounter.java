@@ -1,40 +1,279 @@
 package net.ripe.db.whois.common.pipeline;
 
-import javax.annotation.Nullable;
+import com.google.common.collect.Lists;
+import com.google.common.net.InetAddresses;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+import java.net.Inet4Address;
 import java.net.InetAddress;
-import java.util.concurrent.ConcurrentHashMap;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
- * Count connections per IP address.
+ * Count connections per IP address (IPv6 addresses per /64 prefix), and the rate at which they are opened.
+ *
+ * Counters are kept in open-addressing tables of primitives, split into stripes that are locked independently, so
+ * counting does not box or allocate, and connections from different addresses rarely contend.
+ *
+ * The connection rate is an exponentially decaying count, with a time constant of a minute, so a steady rate of
+ * connections is reported as connections per minute.
  */
 public class ConnectionCounter {
+    private static final int STRIPES = 64;
+    private static final double RATE_TIME_CONSTANT_MS = TimeUnit.MINUTES.toMillis(1);
+    // an address without connections is forgotten once its rate decays below this
+    private static final double MIN_RATE = 0.01;
+
+    private final Stripe[] ipv4Stripes = new Stripe[STRIPES];
+    private final Stripe[] ipv6Stripes = new Stripe[STRIPES];
+    private final LongSupplier clock;
 
-    private final ConcurrentHashMap<InetAddress, Integer> connections = new ConcurrentHashMap<>();
+    public ConnectionCounter() {
+        this(System::currentTimeMillis);
+    }
+
+    ConnectionCounter(final LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            ipv4Stripes[i] = new Stripe();
+            ipv6Stripes[i] = new Stripe();
+        }
+    }
 
-    @Nullable
-    public Integer increment(final InetAddress remoteAddress) {
-        Integer count;
-        do {
-            count = connections.putIfAbsent(remoteAddress, 1);
-        } while (count != null && !connections.replace(remoteAddress, count, count + 1));
-        return count;
+    /**
+     * @return the number of connections before this one
+     */
+    public int increment(final InetAddress remoteAddress) {
+        final long key = key(remoteAddress);
+        return stripe(remoteAddress, key).increment(key, clock.getAsLong());
     }
 
     public void decrement(final InetAddress remoteAddress) {
-        Integer count;
-        for (; ; ) {
-            count = connections.get(remoteAddress);
-            if (count == null) {
-                break;
-            } else {
-                if (count == 1) {
-                    if (connections.remove(remoteAddress, 1)) {
-                        break;
+        final long key = key(remoteAddress);
+        stripe(remoteAddress, key).decrement(key);
+    }
+
+    public int getCount(final InetAddress remoteAddress) {
+        final long key = key(remoteAddress);
+        return stripe(remoteAddress, key).getCount(key);
+    }
+
+    /**
+     * @return the (decaying) number of connections opened in the last minute
+     */
+    public double getRate(final InetAddress remoteAddress) {
+        final long key = key(remoteAddress);
+        return stripe(remoteAddress, key).getRate(key, clock.getAsLong());
+    }
+
+    /**
+     * @return the addresses (IPv6 /64 prefixes) that opened the most connections in the last minute, highest rate first
+     */
+    public List<Talker> getTopTalkers(final int limit) {
+        final long now = clock.getAsLong();
+        final List<Talker> talkers = Lists.newArrayList();
+        for (final Stripe stripe : ipv4Stripes) {
+            stripe.collect(false, now, talkers);
+        }
+        for (final Stripe stripe : ipv6Stripes) {
+            stripe.collect(true, now, talkers);
+        }
+
+        talkers.sort(Comparator.comparingDouble(Talker::getRate).reversed());
+        return talkers.size() > limit ? Lists.newArrayList(talkers.subList(0, limit)) : talkers;
+    }
+
+    private static long key(final InetAddress remoteAddress) {
+        final byte[] address = remoteAddress.getAddress();
+        if (remoteAddress instanceof Inet4Address) {
+            return Ints.fromByteArray(address) & 0xFFFFFFFFL;
+        }
+
+        // the /64 prefix
+        return Longs.fromByteArray(address);
+    }
+
+    private Stripe stripe(final InetAddress remoteAddress, final long key) {
+        final Stripe[] stripes = remoteAddress instanceof Inet4Address ? ipv4Stripes : ipv6Stripes;
+        return stripes[(int) (mix(key) >>> 58)];
+    }
+
+    // 64-bit finalizer from MurmurHash3, the upper bits select the stripe and the lower bits the slot
+    private static long mix(final long key) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static double decay(final double rate, final long since, final long now) {
+        return now <= since ? rate : rate * Math.exp((since - now) / RATE_TIME_CONSTANT_MS);
+    }
+
+    public static final class Talker {
+        private final String prefix;
+        private final int connections;
+        private final double rate;
+
+        Talker(final String prefix, final int connections, final double rate) {
+            this.prefix = prefix;
+            this.connections = connections;
+            this.rate = rate;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d connections, %.1f/min", prefix, connections, rate);
+        }
+    }
+
+    /**
+     * Linear probing table. Entries are not removed individually, idle entries are dropped when the table is rehashed.
+     */
+    private static final class Stripe {
+        private static final int MIN_CAPACITY = 16;
+
+        private boolean[] used = new boolean[MIN_CAPACITY];
+        private long[] keys = new long[MIN_CAPACITY];
+        private int[] counts = new int[MIN_CAPACITY];
+        private double[] rates = new double[MIN_CAPACITY];
+        private long[] updated = new long[MIN_CAPACITY];
+        private int size;
+
+        synchronized int increment(final long key, final long now) {
+            int slot = find(key);
+            if (slot < 0) {
+                if (2 * (size + 1) > keys.length) {
+                    rehash(now);
+                }
+
+                slot = ~find(key);
+                used[slot] = true;
+                keys[slot] = key;
+                counts[slot] = 0;
+                rates[slot] = 0;
+                updated[slot] = now;
+                size++;
+            }
+
+            rates[slot] = decay(rates[slot], updated[slot], now) + 1;
+            updated[slot] = now;
+            return counts[slot]++;
+        }
+
+        synchronized void decrement(final long key) {
+            final int slot = find(key);
+            if (slot >= 0 && counts[slot] > 0) {
+                counts[slot]--;
+            }
+        }
+
+        synchronized int getCount(final long key) {
+            final int slot = find(key);
+            return slot < 0 ? 0 : counts[slot];
+        }
+
+        synchronized double getRate(final long key, final long now) {
+            final int slot = find(key);
+            return slot < 0 ? 0 : decay(rates[slot], updated[slot], now);
+        }
+
+        synchronized void collect(final boolean ipv6, final long now, final List<Talker> talkers) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    final double rate = decay(rates[slot], updated[slot], now);
+                    if (isLive(counts[slot], rate)) {
+                        talkers.add(new Talker(toPrefix(ipv6, keys[slot]), counts[slot], rate));
                     }
-                } else if (connections.replace(remoteAddress, count, count - 1)) {
-                    break;
                 }
             }
         }
+
+        /**
+         * @return the slot of the key, or the complement of the free slot where it is to be inserted
+         */
+        private int find(final long key) {
+            final int mask = keys.length - 1;
+            for (int slot = (int) mix(key) & mask; ; slot = (slot + 1) & mask) {
+                if (!used[slot]) {
+                    return ~slot;
+                }
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+        }
+
+        // drop idle entries, and resize to keep the table at most half full after inserting
+        private void rehash(final long now) {
+            final boolean[] oldUsed = used;
+            final long[] oldKeys = keys;
+            final int[] oldCounts = counts;
+            final double[] oldRates = rates;
+            final long[] oldUpdated = updated;
+
+            int live = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot] && isLive(oldCounts[slot], decay(oldRates[slot], oldUpdated[slot], now))) {
+                    live++;
+                }
+            }
+
+            final int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(4 * (live + 1) - 1) << 1);
+            used = new boolean[capacity];
+            keys = new long[capacity];
+            counts = new int[capacity];
+            rates = new double[capacity];
+            updated = new long[capacity];
+            size = 0;
+
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldUsed[slot] && isLive(oldCounts[slot], decay(oldRates[slot], oldUpdated[slot], now))) {
+                    final int newSlot = ~find(oldKeys[slot]);
+                    used[newSlot] = true;
+                    keys[newSlot] = oldKeys[slot];
+                    counts[newSlot] = oldCounts[slot];
+                    rates[newSlot] = oldRates[slot];
+                    updated[newSlot] = oldUpdated[slot];
+                    size++;
+                }
+            }
+        }
+
+        private static boolean isLive(final int count, final double rate) {
+            return count > 0 || rate >= MIN_RATE;
+        }
+
+        private static String toPrefix(final boolean ipv6, final long key) {
+            if (!ipv6) {
+                return InetAddresses.fromInteger((int) key).getHostAddress();
+            }
+
+            try {
+                return InetAddresses.toAddrString(InetAddress.getByAddress(Arrays.copyOf(Longs.toByteArray(key), 16))) + "/64";
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 }
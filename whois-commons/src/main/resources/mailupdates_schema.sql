@@ -34,6 +34,30 @@ CREATE TABLE `mailupdates` (
 ) ENGINE=InnoDB AUTO_INCREMENT=467880 DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `outgoing_message`
+--
+
+DROP TABLE IF EXISTS `outgoing_message`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `outgoing_message` (
+  `id` int(10) unsigned NOT NULL AUTO_INCREMENT,
+  `email` varchar(255) NOT NULL,
+  `subject` varchar(1024) NOT NULL,
+  `reply_to` varchar(255) NOT NULL DEFAULT '',
+  `message` longblob NOT NULL,
+  `created` int(10) unsigned NOT NULL,
+  `next_attempt` int(10) unsigned NOT NULL,
+  `attempts` int(10) unsigned NOT NULL DEFAULT '0',
+  `claim_uuid` varchar(80) DEFAULT NULL,
+  `claimed` int(10) unsigned DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `outgoing_message_email_idx` (`email`),
+  KEY `outgoing_message_claim_idx` (`claim_uuid`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `version`
 --
@@ -0,0 +1,146 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.base.Stopwatch;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Statements per update and update latency for an as-set with 2,000 mbrs-by-ref (each an index row referencing a
+ * maintainer) and 2,000 members, when adding and removing a single member and mbrs-by-ref.
+ *
+ * Compares re-indexing only the changed values with the delete and re-insert of all index rows (as every update did
+ * before). A JDBC batch counts as a single statement.
+ */
+@Category(ManualTest.class)
+public class JdbcRpslObjectOperationsManualIntegrationTest extends AbstractDaoIntegrationTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcRpslObjectOperationsManualIntegrationTest.class);
+
+    private static final int MAINTAINERS = 2_000;
+    private static final int UPDATES = 100;
+
+    @Autowired RpslObjectUpdateDao rpslObjectUpdateDao;
+
+    private RpslObjectInfo asSetInfo;
+    private RpslObject asSet;
+    private RpslObject updatedAsSet;
+
+    @Before
+    public void setup() {
+        sourceContext.setCurrentSourceToWhoisMaster();
+
+        for (int i = 0; i <= MAINTAINERS; i++) {
+            rpslObjectUpdateDao.createObject(RpslObject.parse("mntner: MNT-" + i + "\nsource: TEST"));
+        }
+
+        final StringBuilder builder = new StringBuilder("as-set: AS-BIG\nmnt-by: MNT-0\n");
+        for (int i = 1; i < MAINTAINERS; i++) {
+            builder.append("members: AS").append(i).append('\n');
+            builder.append("mbrs-by-ref: MNT-").append(i).append('\n');
+        }
+        asSet = RpslObject.parse(builder + "source: TEST");
+        updatedAsSet = RpslObject.parse(builder + "members: AS" + MAINTAINERS + "\nmbrs-by-ref: MNT-" + MAINTAINERS + "\nsource: TEST");
+
+        asSetInfo = rpslObjectUpdateDao.createObject(asSet);
+    }
+
+    @After
+    public void cleanup() {
+        sourceContext.removeCurrentSource();
+    }
+
+    @Test
+    public void update_large_object() {
+        final CountingDataSource dataSource = new CountingDataSource(whoisTemplate.getDataSource());
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < UPDATES; i++) {
+            JdbcRpslObjectOperations.updateTables(jdbcTemplate, asSetInfo, asSet, updatedAsSet);
+            JdbcRpslObjectOperations.updateTables(jdbcTemplate, asSetInfo, updatedAsSet, asSet);
+        }
+        final int statements = report("changed values", dataSource, stopwatch);
+
+        assertThat(countMbrsByRef(), is(MAINTAINERS - 1));
+        assertThat(statements, lessThan(10));
+    }
+
+    @Test
+    public void delete_and_insert_large_object() {
+        final CountingDataSource dataSource = new CountingDataSource(whoisTemplate.getDataSource());
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int i = 0; i < UPDATES; i++) {
+            JdbcRpslObjectOperations.deleteFromTables(jdbcTemplate, asSetInfo);
+            JdbcRpslObjectOperations.insertIntoTables(jdbcTemplate, asSetInfo, updatedAsSet);
+            JdbcRpslObjectOperations.deleteFromTables(jdbcTemplate, asSetInfo);
+            JdbcRpslObjectOperations.insertIntoTables(jdbcTemplate, asSetInfo, asSet);
+        }
+        report("delete and insert", dataSource, stopwatch);
+
+        assertThat(countMbrsByRef(), is(MAINTAINERS - 1));
+    }
+
+    private int countMbrsByRef() {
+        return whoisTemplate.queryForObject("SELECT COUNT(*) FROM mbrs_by_ref WHERE object_id = ?", Integer.class, asSetInfo.getObjectId());
+    }
+
+    private static int report(final String name, final CountingDataSource dataSource, final Stopwatch stopwatch) {
+        final int statements = dataSource.getStatements() / (2 * UPDATES);
+        LOGGER.info("{}: {} updates took {} ({} us/update, {} statements/update)",
+                name, 2 * UPDATES, stopwatch, stopwatch.elapsed(TimeUnit.MICROSECONDS) / (2 * UPDATES), statements);
+        return statements;
+    }
+
+    // counts the statements prepared (or created) on the connections of the data source
+    private static final class CountingDataSource extends DelegatingDataSource {
+        private int statements;
+
+        private CountingDataSource(final DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            final Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")) {
+                    statements++;
+                }
+
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+
+        int getStatements() {
+            return statements;
+        }
+    }
+}
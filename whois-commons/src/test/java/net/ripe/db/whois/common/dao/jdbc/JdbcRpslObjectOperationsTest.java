@@ -1,17 +1,26 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
 import com.google.common.collect.ImmutableList;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.endsWith;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -42,4 +51,17 @@ public class JdbcRpslObjectOperationsTest {
         }
     }
 
+    @Test
+    public void updateTables_changedValuesOnly() {
+        when(whoisTemplate.batchUpdate(eq("INSERT INTO upd_to (object_id, upd_to) VALUES (?, ?)"), anyList())).thenReturn(new int[]{1});
+
+        JdbcRpslObjectOperations.updateTables(whoisTemplate, new RpslObjectInfo(1, ObjectType.MNTNER, "TEST-MNT"),
+                RpslObject.parse("mntner: TEST-MNT\nupd-to: first@ripe.net\nupd-to: second@ripe.net\nsource: TEST"),
+                RpslObject.parse("mntner: TEST-MNT\nupd-to: first@ripe.net\nupd-to: third@ripe.net\nsource: TEST"));
+
+        verify(whoisTemplate).update("DELETE FROM upd_to WHERE object_id = ? AND upd_to = ?", 1, "second@ripe.net");
+        verify(whoisTemplate).batchUpdate(eq("INSERT INTO upd_to (object_id, upd_to) VALUES (?, ?)"),
+                argThat((List<Object[]> rows) -> rows.size() == 1 && rows.get(0)[1].equals("third@ripe.net")));
+        verify(whoisTemplate, never()).update("DELETE FROM upd_to WHERE object_id = ?", 1);
+    }
 }
@@ -14,6 +14,7 @@ import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.rpsl.RpslObjectBuilder;
 import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
 import net.ripe.db.whois.common.support.database.diff.Database;
 import net.ripe.db.whois.common.support.database.diff.DatabaseDiff;
@@ -629,6 +630,58 @@ public class JdbcRpslObjectUpdateDaoIntegrationTest extends AbstractDaoIntegrati
         );
     }
 
+    @Test
+    public void update_changedAttribute_only() {
+        final RpslObjectUpdateInfo oldMaintainer = subject.createObject(makeObject(ObjectType.MNTNER, "OLD-MNT"));
+        final RpslObjectUpdateInfo newMaintainer = subject.createObject(makeObject(ObjectType.MNTNER, "NEW-MNT"));
+
+        final RpslObjectUpdateInfo created = subject.createObject(makeObject(ObjectType.MNTNER, "TEST",
+                new RpslAttribute(AttributeType.UPD_TO, "UPD-TO"),
+                new RpslAttribute(AttributeType.MNT_BY, oldMaintainer.getKey())));
+
+        final Database oldDb = new Database(whoisTemplate);
+
+        subject.updateObject(created.getObjectId(), makeObject(ObjectType.MNTNER, "TEST",
+                new RpslAttribute(AttributeType.UPD_TO, "UPD-TO"),
+                new RpslAttribute(AttributeType.MNT_BY, newMaintainer.getKey())));
+
+        final DatabaseDiff diff = new DatabaseDiff(oldDb, new Database(whoisTemplate));
+
+        diff.getIdentical().get("upd_to",
+                with("object_id", created.getObjectId()),
+                with("upd_to", "UPD-TO"));
+        assertThat(diff.getIdentical().getTable("mntner"), hasSize(3));
+
+        diff.getRemoved().get("mnt_by",
+                with("object_id", created.getObjectId()),
+                with("mnt_by", oldMaintainer.getObjectId()));
+        diff.getAdded().get("mnt_by",
+                with("object_id", created.getObjectId()),
+                with("mnt_by", newMaintainer.getObjectId()));
+    }
+
+    @Test
+    public void update_changedAttribute_sharedTable() {
+        final RpslObjectUpdateInfo created = subject.createObject(makeObject(ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255"));
+
+        final RpslObject updatedObject = new RpslObjectBuilder(makeObject(ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255"))
+                .replaceAttribute(new RpslAttribute(AttributeType.NETNAME, "netname"), new RpslAttribute(AttributeType.NETNAME, "updated"))
+                .get();
+        subject.updateObject(created.getObjectId(), updatedObject);
+
+        assertThat(whoisTemplate.queryForObject("SELECT netname FROM inetnum WHERE object_id = ?", String.class, created.getObjectId()), is("updated"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void update_changedAttribute_missingReference() {
+        final RpslObjectUpdateInfo created = subject.createObject(makeObject(ObjectType.MNTNER, "TEST",
+                new RpslAttribute(AttributeType.UPD_TO, "UPD-TO")));
+
+        subject.updateObject(created.getObjectId(), makeObject(ObjectType.MNTNER, "TEST",
+                new RpslAttribute(AttributeType.UPD_TO, "UPD-TO"),
+                new RpslAttribute(AttributeType.MNT_BY, "UNKNOWN-MNT")));
+    }
+
     @Test
     public void attributes_complexExample() {
         final RpslObjectUpdateInfo objectA = subject.createObject(makeObject(ObjectType.PERSON, "A"));
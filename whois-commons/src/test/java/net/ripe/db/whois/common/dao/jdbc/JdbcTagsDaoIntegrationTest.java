@@ -15,8 +15,12 @@ import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -47,6 +51,42 @@ public class JdbcTagsDaoIntegrationTest extends AbstractDaoIntegrationTest {
         assertThat(tags.get(0).getValue(), is("25"));
     }
 
+    @Test
+    public void findTagsOfObjects() {
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(2, \"unref\", \"25\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(4, \"unref\", \"15\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(5, \"unref\", \"5\")");
+
+        final List<Tag> tags = subject.getTags(Lists.newArrayList(2, 3, 4));
+
+        assertThat(tags, containsInAnyOrder(new Tag(CIString.ciString("unref"), 2, "25"), new Tag(CIString.ciString("unref"), 4, "15")));
+        assertTrue(subject.getTags(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void findTagsCached() {
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(2, \"unref\", \"25\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(4, \"unref\", \"15\")");
+
+        final TagsCache tagsCache = new TagsCache(sourceContext, true, 600_000);
+        final JdbcTagsDao cachedSubject = new JdbcTagsDao(sourceAwareDataSource, tagsCache);
+        assertThat(cachedSubject.getTags(2), contains(new Tag(CIString.ciString("unref"), 2, "25")));
+
+        tagsCache.refresh();
+        databaseHelper.getWhoisTemplate().update("DELETE FROM tags WHERE object_id = 2");
+
+        assertThat(cachedSubject.getTags(2), contains(new Tag(CIString.ciString("unref"), 2, "25")));
+        assertThat(cachedSubject.getTags(Lists.newArrayList(2, 3, 4)), contains(new Tag(CIString.ciString("unref"), 2, "25"), new Tag(CIString.ciString("unref"), 4, "15")));
+
+        cachedSubject.createTag(new Tag(CIString.ciString("unref"), 3, "5"));
+
+        assertThat(cachedSubject.getTags(2), is(empty()));
+
+        tagsCache.refresh();
+
+        assertThat(cachedSubject.getTags(3), contains(new Tag(CIString.ciString("unref"), 3, "5")));
+    }
+
     @Test
     public void tagNotFound() {
         final List<Tag> tags = subject.getTags(3);
@@ -0,0 +1,55 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TagsCacheTest {
+    @Mock SourceContext sourceContext;
+
+    @Test
+    public void disabled() {
+        final TagsCache subject = new TagsCache(sourceContext, false, 600_000);
+
+        assertThat(subject.get(), is(nullValue()));
+        subject.modified();
+        subject.refresh();
+
+        verifyNoMoreInteractions(sourceContext);
+    }
+
+    @Test
+    public void tags_by_object_id() {
+        final Tag unref3 = new Tag(ciString("unref"), 3, "30");
+        final Tag unref1 = new Tag(ciString("unref"), 1, "10");
+        final Tag asnOnly3 = new Tag(ciString("ARIN-ASN-ONLY-RESOURCE"), 3);
+
+        final TagsCache.Tags subject = TagsCache.Tags.of(Lists.newArrayList(unref3, unref1, asnOnly3));
+
+        assertThat(subject.get(1), contains(unref1));
+        assertThat(subject.get(2), is(empty()));
+        assertThat(subject.get(3), contains(unref3, asnOnly3));
+        assertThat(subject.get(4), is(empty()));
+        assertThat(subject.toString(), is("3 tags of 2 objects"));
+    }
+
+    @Test
+    public void no_tags() {
+        final TagsCache.Tags subject = TagsCache.Tags.of(Lists.newArrayList());
+
+        assertThat(subject.get(1), is(empty()));
+    }
+}
@@ -0,0 +1,62 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IndexBatchTest {
+    @Mock JdbcTemplate jdbcTemplate;
+
+    private final IndexBatch subject = new IndexBatch();
+
+    @Test
+    public void empty() {
+        assertThat(subject.isEmpty(), is(true));
+        assertThat(subject.flush(jdbcTemplate), is(0));
+
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void flush_one_batch_per_statement() {
+        when(jdbcTemplate.batchUpdate(eq("insert into a"), anyList())).thenReturn(new int[]{1, 1});
+        when(jdbcTemplate.batchUpdate(eq("insert into b"), anyList())).thenReturn(new int[]{Statement.SUCCESS_NO_INFO});
+
+        subject.add("insert into a", 1, "one");
+        subject.add("insert into b", 1, "two");
+        subject.add("insert into a", 1, "three");
+
+        assertThat(subject.isEmpty(), is(false));
+        assertThat(subject.flush(jdbcTemplate), is(2));
+        assertThat(subject.isEmpty(), is(true));
+
+        verify(jdbcTemplate).batchUpdate(eq("insert into a"), argThat((List<Object[]> rows) -> rows.size() == 2 && rows.get(1)[1].equals("three")));
+        verify(jdbcTemplate).batchUpdate(eq("insert into b"), argThat((List<Object[]> rows) -> rows.size() == 1));
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void flush_row_not_inserted() {
+        when(jdbcTemplate.batchUpdate(eq("insert into a"), anyList())).thenReturn(new int[]{1, 0});
+
+        subject.add("insert into a", 1, "one");
+        subject.add("insert into a", 1, "two");
+
+        subject.flush(jdbcTemplate);
+    }
+}
@@ -48,4 +48,24 @@ public class IndexWithReferenceIntegrationTest extends IndexIntegrationTestBase
         final int added = subject.addToIndex(whoisTemplate, maintainer, null, "RIPE-MNT");
         assertThat(added, is(1));
     }
+
+    @Test
+    public void removeFromIndex_found() throws Exception {
+        IndexWithReference subject = new IndexWithReference(AttributeType.MNT_LOWER, "mnt_lower", "mnt_id");
+        final RpslObjectUpdateInfo maintainer = rpslObjectUpdateDao.createObject(RpslObject.parse("mntner: RIPE-MNT\nmnt-by:RIPE-MNT"));
+        final RpslObjectInfo objectInfo = new RpslObjectInfo(100, ObjectType.INETNUM, "10.0.0.0 - 10.255.255.255");
+        subject.addToIndex(whoisTemplate, objectInfo, maintainer);
+
+        assertThat(subject.removeFromIndex(whoisTemplate, objectInfo, null, "RIPE-MNT"), is(true));
+        assertThat(whoisTemplate.queryForObject("SELECT COUNT(*) FROM mnt_lower WHERE object_id = 100", Integer.class), is(0));
+    }
+
+    @Test
+    public void removeFromIndex_not_found() throws Exception {
+        IndexWithReference subject = new IndexWithReference(AttributeType.MNT_LOWER, "mnt_lower", "mnt_id");
+        rpslObjectUpdateDao.createObject(RpslObject.parse("mntner: RIPE-MNT\nmnt-by:RIPE-MNT"));
+        final RpslObjectInfo objectInfo = new RpslObjectInfo(100, ObjectType.INETNUM, "10.0.0.0 - 10.255.255.255");
+
+        assertThat(subject.removeFromIndex(whoisTemplate, objectInfo, null, "RIPE-MNT"), is(false));
+    }
 }
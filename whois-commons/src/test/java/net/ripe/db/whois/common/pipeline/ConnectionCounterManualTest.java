@@ -0,0 +1,79 @@
+package net.ripe.db.whois.common.pipeline;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.net.InetAddresses;
+import net.ripe.db.whois.common.ManualTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Connection open/close cycles by many threads, all from a single address, and each from its own address.
+ */
+@Category(ManualTest.class)
+public class ConnectionCounterManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionCounterManualTest.class);
+
+    private static final int THREADS = 32;
+    private static final int CYCLES_PER_THREAD = 1_000_000;
+
+    @Test
+    public void open_close_same_address() throws Exception {
+        final InetAddress address = InetAddresses.forString("10.0.0.1");
+        run("same address", thread -> address);
+    }
+
+    @Test
+    public void open_close_address_per_thread() throws Exception {
+        run("address per thread", thread -> InetAddresses.fromInteger(0x0a000000 + thread));
+    }
+
+    private void run(final String description, final AddressForThread addressForThread) throws Exception {
+        final ConnectionCounter subject = new ConnectionCounter();
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+
+            final List<Future<?>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final InetAddress address = addressForThread.get(thread);
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < CYCLES_PER_THREAD; i++) {
+                        subject.increment(address);
+                        subject.decrement(address);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+
+            stopwatch.stop();
+            final long cycles = (long) THREADS * CYCLES_PER_THREAD;
+            LOGGER.info("{}: {} open/close cycles by {} threads took {} ({} ns/cycle)",
+                    description, cycles, THREADS, stopwatch, stopwatch.elapsed(TimeUnit.NANOSECONDS) / cycles);
+
+            for (int thread = 0; thread < THREADS; thread++) {
+                assertThat(subject.getCount(addressForThread.get(thread)), is(0));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private interface AddressForThread {
+        InetAddress get(int thread);
+    }
+}
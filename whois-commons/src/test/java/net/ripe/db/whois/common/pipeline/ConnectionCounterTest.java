@@ -0,0 +1,131 @@
+package net.ripe.db.whois.common.pipeline;
+
+import com.google.common.net.InetAddresses;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class ConnectionCounterTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private ConnectionCounter subject;
+
+    @Before
+    public void setUp() {
+        subject = new ConnectionCounter(now::get);
+    }
+
+    @Test
+    public void increment_and_decrement() {
+        final InetAddress address = InetAddresses.forString("10.0.0.1");
+
+        assertThat(subject.increment(address), is(0));
+        assertThat(subject.increment(address), is(1));
+        assertThat(subject.getCount(address), is(2));
+        assertThat(subject.getCount(InetAddresses.forString("10.0.0.2")), is(0));
+
+        subject.decrement(address);
+        subject.decrement(address);
+        subject.decrement(address);
+
+        assertThat(subject.getCount(address), is(0));
+        assertThat(subject.increment(address), is(0));
+    }
+
+    @Test
+    public void ipv6_counted_per_prefix() {
+        assertThat(subject.increment(InetAddresses.forString("2001:db8::1")), is(0));
+        assertThat(subject.increment(InetAddresses.forString("2001:db8::ffff:1")), is(1));
+        assertThat(subject.increment(InetAddresses.forString("2001:db8:0:1::1")), is(0));
+        assertThat(subject.getCount(InetAddresses.forString("2001:db8::2")), is(2));
+    }
+
+    @Test
+    public void ipv4_and_ipv6_counted_separately() {
+        subject.increment(InetAddresses.forString("0.0.0.1"));
+
+        assertThat(subject.getCount(InetAddresses.forString("::1")), is(0));
+    }
+
+    @Test
+    public void rate_decays() {
+        final InetAddress address = InetAddresses.forString("10.0.0.1");
+        for (int i = 0; i < 10; i++) {
+            subject.increment(address);
+            subject.decrement(address);
+        }
+
+        assertThat(subject.getRate(address), closeTo(10, 0.001));
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(1));
+        assertThat(subject.getRate(address), closeTo(10 / Math.E, 0.001));
+    }
+
+    @Test
+    public void steady_rate_per_minute() {
+        final InetAddress address = InetAddresses.forString("10.0.0.1");
+        for (int i = 0; i < 1000; i++) {
+            subject.increment(address);
+            subject.decrement(address);
+            now.addAndGet(TimeUnit.SECONDS.toMillis(2));
+        }
+
+        assertThat(subject.getRate(address), closeTo(30, 1));
+    }
+
+    @Test
+    public void many_addresses() {
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(subject.increment(InetAddresses.fromInteger(i)), is(0));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(subject.getCount(InetAddresses.fromInteger(i)), is(1));
+        }
+    }
+
+    @Test
+    public void idle_addresses_are_forgotten() {
+        for (int i = 0; i < 10_000; i++) {
+            subject.increment(InetAddresses.fromInteger(i));
+            subject.decrement(InetAddresses.fromInteger(i));
+        }
+
+        final InetAddress connected = InetAddresses.forString("10.0.0.1");
+        subject.increment(connected);
+
+        now.addAndGet(TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < 100; i++) {
+            subject.increment(InetAddresses.forString("192.168.0." + i));
+        }
+
+        assertThat(subject.getCount(connected), is(1));
+        assertThat(subject.getTopTalkers(20_000).size() < 1000, is(true));
+    }
+
+    @Test
+    public void top_talkers() {
+        for (int i = 0; i < 3; i++) {
+            subject.increment(InetAddresses.forString("2001:db8::" + (i + 1)));
+        }
+        subject.increment(InetAddresses.forString("10.0.0.1"));
+        subject.increment(InetAddresses.forString("10.0.0.2"));
+        subject.increment(InetAddresses.forString("10.0.0.2"));
+
+        final List<ConnectionCounter.Talker> talkers = subject.getTopTalkers(2);
+
+        assertThat(talkers, hasSize(2));
+        assertThat(talkers.get(0).getPrefix(), is("2001:db8::/64"));
+        assertThat(talkers.get(0).getConnections(), is(3));
+        assertThat(talkers.get(0).getRate(), closeTo(3, 0.001));
+        assertThat(talkers.get(1).getPrefix(), is("10.0.0.2"));
+    }
+}
@@ -67,7 +67,7 @@ public class NrtmConnectionPerIpLimitHandler extends SimpleChannelUpstreamHandle
     }
 
     private boolean connectionsExceeded(final InetAddress remoteAddresss) {
-        final Integer count = connectionCounter.increment(remoteAddresss);
-        return (count != null && count > maxConnectionsPerIp);
+        final int count = connectionCounter.increment(remoteAddresss);
+        return count > maxConnectionsPerIp;
     }
 }
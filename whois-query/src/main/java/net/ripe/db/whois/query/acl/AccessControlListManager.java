@@ -80,13 +80,13 @@ public class AccessControlListManager {
     }
 
     public int getPersonalObjects(final InetAddress remoteAddress) {
-        if (isUnlimited(remoteAddress)) {
+        final int personalDataLimit = getPersonalDataLimit(remoteAddress);
+        if (personalDataLimit < 0) {
             return Integer.MAX_VALUE;
         }
 
         final InetAddress maskedAddress = mask(remoteAddress, IPV6_NETMASK);
         final int queried = personalObjectAccounting.getQueriedPersonalObjects(maskedAddress);
-        final int personalDataLimit = getPersonalDataLimit(remoteAddress);
 
         return personalDataLimit - queried;
     }
@@ -0,0 +1,126 @@
+package net.ripe.db.whois.query.acl;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import net.ripe.db.whois.common.domain.IpResourceTree;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.function.Function;
+
+/**
+ * Flattened, immutable ACL configuration for one address family.
+ *
+ * The address space is split into consecutive ranges with the same decision for all ACL attributes, so a lookup is a
+ * single binary search over the range starts. Each decision is packed into a long: the personal object limit in the
+ * lower 32 bits, and the flags above it.
+ *
+ * Addresses are stored as two unsigned longs (most and least significant), IPv4 addresses only use the least
+ * significant one.
+ */
+final class AclRangeTable {
+    private static final long DENIED = 1L << 32;
+    private static final long PROXY = 1L << 33;
+    private static final long UNLIMITED_CONNECTIONS = 1L << 34;
+
+    private final long[] startMsb;
+    private final long[] startLsb;
+    private final long[] decisions;
+
+    private AclRangeTable(final long[] startMsb, final long[] startLsb, final long[] decisions) {
+        this.startMsb = startMsb;
+        this.startLsb = startLsb;
+        this.decisions = decisions;
+    }
+
+    static AclRangeTable empty(final int defaultLimit) {
+        return new AclRangeTable(new long[]{0}, new long[]{0}, new long[]{decision(null, null, defaultLimit, null)});
+    }
+
+    /**
+     * @param boundaries the first address of every configured interval, and the address following every configured interval
+     * @param singleton  creates an interval for a single address in this address family
+     */
+    static AclRangeTable build(final NavigableSet<BigInteger> boundaries,
+                               final Function<BigInteger, IpInterval<?>> singleton,
+                               final IpResourceTree<Boolean> denied,
+                               final IpResourceTree<Boolean> proxy,
+                               final IpResourceTree<Integer> limit,
+                               final IpResourceTree<Boolean> unlimitedConnections,
+                               final int defaultLimit) {
+        boundaries.add(BigInteger.ZERO);
+
+        final List<Long> startMsb = Lists.newArrayListWithExpectedSize(boundaries.size());
+        final List<Long> startLsb = Lists.newArrayListWithExpectedSize(boundaries.size());
+        final List<Long> decisions = Lists.newArrayListWithExpectedSize(boundaries.size());
+
+        for (final BigInteger start : boundaries) {
+            final IpInterval<?> address = singleton.apply(start);
+            final Integer configuredLimit = limit.getValue(address);
+            final long decision = decision(denied.getValue(address), proxy.getValue(address), configuredLimit == null ? defaultLimit : configuredLimit, unlimitedConnections.getValue(address));
+
+            // adjacent ranges with the same decision are merged
+            if (decisions.isEmpty() || decisions.get(decisions.size() - 1) != decision) {
+                startMsb.add(Ipv6Resource.msb(start));
+                startLsb.add(Ipv6Resource.lsb(start));
+                decisions.add(decision);
+            }
+        }
+
+        return new AclRangeTable(Longs.toArray(startMsb), Longs.toArray(startLsb), Longs.toArray(decisions));
+    }
+
+    private static long decision(final Boolean denied, final Boolean proxy, final int limit, final Boolean unlimitedConnections) {
+        long decision = limit & 0xFFFFFFFFL;
+        if (denied != null && denied) {
+            decision |= DENIED;
+        }
+        if (proxy != null && proxy) {
+            decision |= PROXY;
+        }
+        if (unlimitedConnections != null && unlimitedConnections) {
+            decision |= UNLIMITED_CONNECTIONS;
+        }
+        return decision;
+    }
+
+    long lookup(final long msb, final long lsb) {
+        int low = 0;
+        int high = startMsb.length - 1;
+
+        // the last range starting at or before the address (the first range always starts at 0)
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (Ipv6Resource.compare(startMsb[mid], startLsb[mid], msb, lsb) <= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return decisions[low];
+    }
+
+    int size() {
+        return decisions.length;
+    }
+
+    static boolean isDenied(final long decision) {
+        return (decision & DENIED) != 0;
+    }
+
+    static boolean isProxy(final long decision) {
+        return (decision & PROXY) != 0;
+    }
+
+    static boolean isUnlimitedConnections(final long decision) {
+        return (decision & UNLIMITED_CONNECTIONS) != 0;
+    }
+
+    static int getLimit(final long decision) {
+        return (int) decision;
+    }
+}
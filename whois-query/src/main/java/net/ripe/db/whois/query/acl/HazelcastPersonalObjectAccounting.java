@@ -1,5 +1,7 @@
 package net.ripe.db.whois.query.acl;
 
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
@@ -7,15 +9,34 @@ import com.hazelcast.core.OperationTimeoutException;
 import net.ripe.db.whois.common.profiles.DeployedProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.net.InetAddress;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Personal objects are counted in node-local striped counters, so accounting does not lock on the query path, and
+ * never waits for Hazelcast.
+ *
+ * The local counts are periodically added to the cluster-wide counters in Hazelcast (in one batch, under a single map
+ * lock), and the cluster-wide counts of all known addresses are read back. Until then, a node does not see what other
+ * nodes accounted, and the cluster does not see what this node accounted. The sync is started early when the
+ * unreconciled count of an address reaches the maximum overshoot, so a client can exceed its limit by about the
+ * overshoot per node, plus what is accounted in a single sync interval.
+ */
 @DeployedProfile
 @Primary
 @Component
@@ -26,6 +47,17 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
 
     private static volatile HazelcastInstance instance;
 
+    private final ConcurrentMap<InetAddress, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${personal.accounting.sync.interval:1000}")
+    private int syncIntervalMs;
+
+    @Value("${personal.accounting.max.overshoot:50}")
+    private int maxOvershoot;
+
+    private ScheduledExecutorService executorService;
+    private final AtomicBoolean reconcileRequested = new AtomicBoolean();
+
     static synchronized void startHazelcast() {
         if (instance != null) {
             throw new IllegalStateException("Hazelcast already started");
@@ -45,15 +77,31 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
     @PostConstruct
     public void startService() {
         startHazelcast();
+
+        executorService = Executors.newSingleThreadScheduledExecutor();
+        executorService.scheduleWithFixedDelay(this::reconcileQuietly, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
     }
 
     @PreDestroy
     public void stopService() {
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        reconcile();
         shutdownHazelcast();
     }
 
     @Override
     public int getQueriedPersonalObjects(final InetAddress remoteAddress) {
+        final Counter counter = counters.get(remoteAddress);
+        if (counter != null) {
+            return counter.getBalance();
+        }
+
         Integer count = null;
         try {
             count = counterMap.get(remoteAddress);
@@ -71,27 +119,156 @@ public class HazelcastPersonalObjectAccounting implements PersonalObjectAccounti
 
     @Override
     public int accountPersonalObject(final InetAddress remoteAddress, final int amount) {
-        try {
-            Integer count = counterMap.tryLockAndGet(remoteAddress, 3, TimeUnit.SECONDS);
+        while (true) {
+            final Counter counter = counters.computeIfAbsent(remoteAddress, address -> new Counter());
+            counter.pending.add(amount);
 
-            if (count == null) {
-                count = amount;
-            } else {
-                count += amount;
+            if (counter.retired) {
+                // removed by the reconciler meanwhile, account on a new counter
+                counter.pending.add(-amount);
+                continue;
             }
 
-            counterMap.putAndUnlock(remoteAddress, count);
-            return count;
-        } catch (TimeoutException | IllegalStateException e) {
-            LOGGER.info("Unable to account personal object, allowed by default. Threw " + e.getClass().getName() + ": " + e.getMessage());
-        }
+            if (counter.pending.sum() >= maxOvershoot) {
+                requestReconcile();
+            }
 
-        return 0;
+            return counter.getBalance();
+        }
     }
 
     @Override
     public void resetAccounting() {
         LOGGER.debug("Reset person object counters ({} entries)", counterMap.size());
         counterMap.clear();
+        counters.clear();
+    }
+
+    // wakes up the reconciler early, without waiting for it
+    private void requestReconcile() {
+        if (executorService != null && reconcileRequested.compareAndSet(false, true)) {
+            try {
+                executorService.execute(this::reconcileQuietly);
+            } catch (RejectedExecutionException e) {
+                reconcileRequested.set(false);
+            }
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            LOGGER.error("Reconciling personal object accounting", e);
+        }
+    }
+
+    /**
+     * Add the local counts to the cluster-wide counters, and refresh the cluster-wide counts of all other known addresses.
+     */
+    void reconcile() {
+        reconcileRequested.set(false);
+
+        final Map<InetAddress, Long> deltas = Maps.newHashMap();
+        for (final Map.Entry<InetAddress, Counter> entry : counters.entrySet()) {
+            final long delta = entry.getValue().pending.sum();
+            if (delta != 0) {
+                deltas.put(entry.getKey(), delta);
+            }
+        }
+
+        if (!deltas.isEmpty() && !addToCluster(deltas)) {
+            // the local counts are kept, and reconciled later
+            return;
+        }
+
+        final Set<InetAddress> unchanged = Sets.newHashSet(Sets.difference(counters.keySet(), deltas.keySet()));
+        if (unchanged.isEmpty()) {
+            return;
+        }
+
+        final Map<InetAddress, Integer> counts;
+        try {
+            counts = counterMap.getAll(unchanged);
+        } catch (OperationTimeoutException | IllegalStateException e) {
+            LOGGER.info("Unable to read personal object counts. Threw {}: {}", e.getClass().getName(), e.getMessage());
+            return;
+        }
+
+        for (final InetAddress address : unchanged) {
+            final Counter counter = counters.get(address);
+            if (counter == null) {
+                continue;
+            }
+
+            final Integer count = counts.get(address);
+            if (count == null) {
+                // reset in the cluster, forget about it until it is accounted again
+                counters.computeIfPresent(address, (key, current) -> current == counter && counter.retire() ? null : current);
+            }
+            counter.reconciled = (count == null) ? 0 : count;
+        }
+    }
+
+    // adds all deltas with a single getAll and putAll, holding the map lock
+    private boolean addToCluster(final Map<InetAddress, Long> deltas) {
+        final Map<InetAddress, Integer> counts = Maps.newHashMapWithExpectedSize(deltas.size());
+        try {
+            if (!counterMap.lockMap(3, TimeUnit.SECONDS)) {
+                LOGGER.info("Unable to reconcile personal object accounting, the counters are locked");
+                return false;
+            }
+
+            try {
+                final Map<InetAddress, Integer> current = counterMap.getAll(deltas.keySet());
+                for (final Map.Entry<InetAddress, Long> entry : deltas.entrySet()) {
+                    final Integer count = current.get(entry.getKey());
+                    counts.put(entry.getKey(), (count == null ? 0 : count) + entry.getValue().intValue());
+                }
+
+                counterMap.putAll(counts);
+            } finally {
+                counterMap.unlockMap();
+            }
+        } catch (OperationTimeoutException | IllegalStateException e) {
+            LOGGER.info("Unable to reconcile personal object accounting. Threw {}: {}", e.getClass().getName(), e.getMessage());
+            return false;
+        }
+
+        for (final Map.Entry<InetAddress, Integer> entry : counts.entrySet()) {
+            final Counter counter = counters.get(entry.getKey());
+            if (counter != null) {
+                // accounting concurrently with this is never lost, only counted twice for a moment
+                counter.reconciled = entry.getValue();
+                counter.pending.add(-deltas.get(entry.getKey()));
+            }
+        }
+
+        return true;
+    }
+
+    private static final class Counter {
+        // accounted on this node, not yet added to the cluster-wide counter
+        private final LongAdder pending = new LongAdder();
+        // the cluster-wide counter, as of the last reconciliation
+        private volatile int reconciled;
+        // removed from the counters, accounting is retried on a new counter
+        private volatile boolean retired;
+
+        // retire the counter if nothing is pending; a concurrent accounting either shows up in the pending count (and
+        // the counter is kept), or sees the counter retired (and is retried)
+        boolean retire() {
+            retired = true;
+            if (pending.sum() == 0) {
+                return true;
+            }
+
+            retired = false;
+            return false;
+        }
+
+        int getBalance() {
+            return reconciled + (int) pending.sum();
+        }
     }
 }
@@ -1,8 +1,13 @@
 package net.ripe.db.whois.query.acl;
 
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import net.ripe.db.whois.common.domain.IpResourceEntry;
 import net.ripe.db.whois.common.domain.IpResourceTree;
 import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,9 +15,21 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-
+import java.util.NavigableSet;
+
+/**
+ * ACL configuration for addresses.
+ *
+ * The configuration for single addresses (i.e. for every connection and query) is read from a flattened range table
+ * per address family, with the decision for all ACL attributes in a single lookup. The configuration is rebuilt in the
+ * background and swapped in at once, but only if the ACL tables changed since the last reload.
+ */
 @Component
 public class IpResourceConfiguration {
 
@@ -22,12 +39,12 @@ public class IpResourceConfiguration {
 
     private static final int DEFAULT_LIMIT = 5000;
 
+    private static final BigInteger IPV4_END = BigInteger.valueOf(Ipv4Resource.MAX_RANGE.end());
+    private static final BigInteger IPV6_END = Ipv6Resource.MAX_RANGE.end();
+
     private final Loader loader;
 
-    private IpResourceTree<Boolean> denied;
-    private IpResourceTree<Boolean> proxy;
-    private IpResourceTree<Integer> limit;
-    private IpResourceTree<Boolean> unlimitedConnections;
+    private volatile Configuration configuration = new Configuration();
 
     @Autowired
     public IpResourceConfiguration(final Loader loader) {
@@ -35,68 +52,137 @@ public class IpResourceConfiguration {
     }
 
     public boolean isDenied(final InetAddress address) {
-        final Boolean result = denied.getValue(IpInterval.asIpInterval(address));
-        return result != null && result;
+        return AclRangeTable.isDenied(getDecision(address));
     }
 
     public boolean isDenied(final IpInterval address) {
-        final Boolean result = denied.getValue(address);
+        final Boolean result = configuration.denied.getValue(address);
         return result != null && result;
     }
 
     public boolean isProxy(final InetAddress address) {
-        final Boolean result = proxy.getValue(IpInterval.asIpInterval(address));
-        return result != null && result;
+        return AclRangeTable.isProxy(getDecision(address));
     }
 
     public boolean isProxy(final IpInterval address) {
-        final Boolean result = proxy.getValue(address);
+        final Boolean result = configuration.proxy.getValue(address);
         return result != null && result;
     }
 
     public int getLimit(final InetAddress address) {
-        final Integer result = limit.getValue(IpInterval.asIpInterval(address));
-        return result == null ? DEFAULT_LIMIT : result;
+        return AclRangeTable.getLimit(getDecision(address));
     }
 
     public int getLimit(final IpInterval address) {
-        final Integer result = limit.getValue(address);
+        final Integer result = configuration.limit.getValue(address);
         return result == null ? DEFAULT_LIMIT : result;
     }
 
     public boolean isUnlimitedConnections(final InetAddress address) {
-        final Boolean result = unlimitedConnections.getValue(IpInterval.asIpInterval(address));
-        return result != null && result;
+        return AclRangeTable.isUnlimitedConnections(getDecision(address));
     }
 
     public boolean isUnlimitedConnections(final IpInterval address) {
-        final Boolean result = unlimitedConnections.getValue(address);
+        final Boolean result = configuration.unlimitedConnections.getValue(address);
         return result != null && result;
     }
 
+    private long getDecision(final InetAddress address) {
+        final byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            return configuration.ipv4Table.lookup(0, Ints.fromByteArray(bytes) & 0xFFFFFFFFL);
+        }
+
+        return configuration.ipv6Table.lookup(Longs.fromByteArray(bytes), Longs.fromByteArray(Arrays.copyOfRange(bytes, 8, 16)));
+    }
+
     @PostConstruct
     @Scheduled(fixedDelay = TREE_UPDATE_IN_SECONDS * 1000)
     public synchronized void reload() {
         try {
-            denied = refreshEntries(loader.loadIpDenied());
-            proxy = refreshEntries(loader.loadIpProxy());
-            limit = refreshEntries(loader.loadIpLimit());
-            unlimitedConnections = refreshEntries(loader.loadUnlimitedConnections());
+            final List<IpResourceEntry<Boolean>> denied = loader.loadIpDenied();
+            final List<IpResourceEntry<Boolean>> proxy = loader.loadIpProxy();
+            final List<IpResourceEntry<Integer>> limit = loader.loadIpLimit();
+            final List<IpResourceEntry<Boolean>> unlimitedConnections = loader.loadUnlimitedConnections();
+
+            if (configuration.isLoadedFrom(denied, proxy, limit, unlimitedConnections)) {
+                LOGGER.debug("ACL unchanged");
+                return;
+            }
+
+            configuration = new Configuration(denied, proxy, limit, unlimitedConnections);
+            LOGGER.debug("ACL reloaded: {} IPv4 ranges, {} IPv6 ranges", configuration.ipv4Table.size(), configuration.ipv6Table.size());
         } catch (RuntimeException e) {
             LOGGER.warn("Refresh failed due to {}: {}", e.getClass().getName(), e.getMessage());
         }
     }
 
-    private <V> IpResourceTree<V> refreshEntries(final List<IpResourceEntry<V>> entries) {
+    private static <V> IpResourceTree<V> refreshEntries(final List<IpResourceEntry<V>> entries, final NavigableSet<BigInteger> ipv4Boundaries, final NavigableSet<BigInteger> ipv6Boundaries) {
         final IpResourceTree<V> temp = new IpResourceTree<>();
 
         for (final IpResourceEntry<V> entry : entries) {
-            temp.add(entry.getIpInterval(), entry.getValue());
+            final IpInterval<?> ipInterval = entry.getIpInterval();
+            temp.add(ipInterval, entry.getValue());
+
+            if (ipInterval instanceof Ipv4Resource) {
+                addBoundaries(BigInteger.valueOf(((Ipv4Resource) ipInterval).begin()), BigInteger.valueOf(((Ipv4Resource) ipInterval).end()), IPV4_END, ipv4Boundaries);
+            } else {
+                addBoundaries(((Ipv6Resource) ipInterval).begin(), ((Ipv6Resource) ipInterval).end(), IPV6_END, ipv6Boundaries);
+            }
         }
 
         return temp;
     }
 
+    private static void addBoundaries(final BigInteger begin, final BigInteger end, final BigInteger maxEnd, final NavigableSet<BigInteger> boundaries) {
+        boundaries.add(begin);
+        if (end.compareTo(maxEnd) < 0) {
+            boundaries.add(end.add(BigInteger.ONE));
+        }
+    }
+
+    private static final class Configuration {
+        private final List<?>[] entries;
+
+        // for interval lookups
+        private final IpResourceTree<Boolean> denied;
+        private final IpResourceTree<Boolean> proxy;
+        private final IpResourceTree<Integer> limit;
+        private final IpResourceTree<Boolean> unlimitedConnections;
+
+        // for address lookups
+        private final AclRangeTable ipv4Table;
+        private final AclRangeTable ipv6Table;
+
+        private Configuration() {
+            this(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+        }
+
+        private Configuration(final List<IpResourceEntry<Boolean>> denied,
+                              final List<IpResourceEntry<Boolean>> proxy,
+                              final List<IpResourceEntry<Integer>> limit,
+                              final List<IpResourceEntry<Boolean>> unlimitedConnections) {
+            this.entries = new List<?>[]{denied, proxy, limit, unlimitedConnections};
+
+            final NavigableSet<BigInteger> ipv4Boundaries = Sets.newTreeSet();
+            final NavigableSet<BigInteger> ipv6Boundaries = Sets.newTreeSet();
+
+            this.denied = refreshEntries(denied, ipv4Boundaries, ipv6Boundaries);
+            this.proxy = refreshEntries(proxy, ipv4Boundaries, ipv6Boundaries);
+            this.limit = refreshEntries(limit, ipv4Boundaries, ipv6Boundaries);
+            this.unlimitedConnections = refreshEntries(unlimitedConnections, ipv4Boundaries, ipv6Boundaries);
+
+            this.ipv4Table = AclRangeTable.build(ipv4Boundaries, address -> new Ipv4Resource(address.longValue(), address.longValue()),
+                    this.denied, this.proxy, this.limit, this.unlimitedConnections, DEFAULT_LIMIT);
+            this.ipv6Table = AclRangeTable.build(ipv6Boundaries, address -> new Ipv6Resource(address, address),
+                    this.denied, this.proxy, this.limit, this.unlimitedConnections, DEFAULT_LIMIT);
+        }
+
+        private boolean isLoadedFrom(final List<?>... entries) {
+            return Arrays.equals(this.entries, entries);
+        }
+    }
+
     /**
      * Implement the Loader interface to load the values into the IpResourceConfiguration.
      */
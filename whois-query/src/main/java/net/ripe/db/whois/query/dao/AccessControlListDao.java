@@ -2,19 +2,32 @@ package net.ripe.db.whois.query.dao;
 
 import net.ripe.db.whois.common.domain.BlockEvent;
 import net.ripe.db.whois.common.domain.BlockEvents;
+import net.ripe.db.whois.common.domain.PermanentBlock;
 import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.query.acl.IpResourceConfiguration;
 import java.time.LocalDate;
 
 import java.util.List;
+import java.util.function.ObjIntConsumer;
 
 public interface AccessControlListDao extends IpResourceConfiguration.Loader {
     void saveAclEvent(IpInterval<?> interval, LocalDate date, int limit, BlockEvent.Type type);
 
     List<BlockEvents> getTemporaryBlocks(LocalDate blockTime);
 
+    /**
+     * Streams every prefix with at least minimumCount temporary blocks since blockTime, counting (like
+     * {@link BlockEvents#getTemporaryBlockCount()}) only the temporary blocks after its last unblock or permanent block.
+     */
+    void getTemporaryBlockCounts(LocalDate blockTime, int minimumCount, ObjIntConsumer<String> temporaryBlockCountHandler);
+
     void savePermanentBlock(IpInterval<?> interval, LocalDate date, int limit, String comment);
 
+    /**
+     * Saves the permanent blocks in a single transaction, so either all or none of them are saved.
+     */
+    void savePermanentBlocks(List<PermanentBlock> permanentBlocks);
+
     void removePermanentBlocksBefore(LocalDate date);
 
     void removeBlockEventsBefore(LocalDate date);
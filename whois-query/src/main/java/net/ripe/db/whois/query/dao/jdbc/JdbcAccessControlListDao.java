@@ -3,9 +3,11 @@ package net.ripe.db.whois.query.dao.jdbc;
 import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.DateUtil;
 import net.ripe.db.whois.common.aspects.RetryFor;
+import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
 import net.ripe.db.whois.common.domain.BlockEvent;
 import net.ripe.db.whois.common.domain.BlockEvents;
 import net.ripe.db.whois.common.domain.IpResourceEntry;
+import net.ripe.db.whois.common.domain.PermanentBlock;
 import net.ripe.db.whois.common.domain.Timestamp;
 import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.query.dao.AccessControlListDao;
@@ -16,10 +18,14 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.sql.DataSource;
 import java.sql.ResultSet;
@@ -27,9 +33,11 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 @Repository
 @RetryFor(RecoverableDataAccessException.class)
@@ -37,10 +45,12 @@ public class JdbcAccessControlListDao implements AccessControlListDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(AccessControlListDao.class);
 
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
     public JdbcAccessControlListDao(@Qualifier("aclDataSource") DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
     }
 
     @Override
@@ -97,6 +107,48 @@ public class JdbcAccessControlListDao implements AccessControlListDao {
         );
     }
 
+    @Override
+    public void getTemporaryBlockCounts(final LocalDate blockTime, final int minimumCount, final ObjIntConsumer<String> temporaryBlockCountHandler) {
+        JdbcStreamingHelper.executeStreaming(
+                jdbcTemplate,
+                "SELECT e.prefix, COUNT(*) " +
+                        "FROM acl_event e " +
+                        "WHERE e.event_time >= ? " +
+                        "AND e.event_type = 'BLOCK_TEMPORARY' " +
+                        "AND NOT EXISTS (" +
+                        "   SELECT 1 FROM acl_event later " +
+                        "   WHERE later.prefix = e.prefix " +
+                        "   AND later.event_time > e.event_time " +
+                        "   AND later.event_type <> 'BLOCK_TEMPORARY') " +
+                        "GROUP BY e.prefix " +
+                        "HAVING COUNT(*) >= ?",
+                new ArgumentPreparedStatementSetter(new Object[]{DateUtil.toDate(blockTime), minimumCount}),
+                (RowCallbackHandler) rs -> temporaryBlockCountHandler.accept(rs.getString(1), rs.getInt(2)));
+    }
+
+    @Override
+    public void savePermanentBlocks(final List<PermanentBlock> permanentBlocks) {
+        if (permanentBlocks.isEmpty()) {
+            return;
+        }
+
+        final List<Object[]> aclEvents = new ArrayList<>(permanentBlocks.size());
+        final List<Object[]> aclDenied = new ArrayList<>(permanentBlocks.size());
+        for (final PermanentBlock permanentBlock : permanentBlocks) {
+            final String prefix = permanentBlock.getIpInterval().toString();
+            final Date date = DateUtil.toDate(permanentBlock.getDate());
+
+            aclEvents.add(new Object[]{prefix, date, permanentBlock.getLimit(), BlockEvent.Type.BLOCK_PERMANENTLY.name()});
+            aclDenied.add(new Object[]{prefix, permanentBlock.getComment(), date});
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // like saveAclEvent, keep an existing event for the same prefix and time (e.g. a temporary block today)
+            jdbcTemplate.batchUpdate("INSERT IGNORE INTO acl_event (prefix, event_time, daily_limit, event_type) VALUES (?, ?, ?, ?)", aclEvents);
+            jdbcTemplate.batchUpdate("INSERT INTO acl_denied (prefix, comment, denied_date) VALUES (?, ?, ?)", aclDenied);
+        });
+    }
+
     @Override
     public void savePermanentBlock(final IpInterval<?> ipInterval, final LocalDate date, final int limit, final String comment) {
         String prefix = ipInterval.toString();
@@ -0,0 +1,406 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
+import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategies;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategy;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
+/**
+ * In-memory index of the objects referencing a key (e.g. all objects maintained by a mntner) in the main source,
+ * for the configured attributes, so inverse lookups don't have to join the index table with the last table.
+ *
+ * The index is built in the background and kept up to date from the serials table (like the IP trees). Until it is
+ * built, or for attributes which are not indexed, lookups return nothing and the database is queried instead.
+ */
+@Component
+class InverseIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InverseIndex.class);
+
+    // attributes referencing the primary key of another object
+    static final Set<AttributeType> SUPPORTED_ATTRIBUTES = Collections.unmodifiableSet(EnumSet.of(
+            AttributeType.ABUSE_C, AttributeType.ADMIN_C, AttributeType.AUTHOR, AttributeType.MBRS_BY_REF,
+            AttributeType.MNT_BY, AttributeType.MNT_DOMAINS, AttributeType.MNT_IRT, AttributeType.MNT_LOWER,
+            AttributeType.MNT_REF, AttributeType.ORG, AttributeType.PING_HDL, AttributeType.SPONSORING_ORG,
+            AttributeType.TECH_C, AttributeType.ZONE_C));
+
+    private static final int UPDATE_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final List<AttributeType> attributeTypes;
+
+    private volatile Index index;
+
+    @Autowired
+    InverseIndex(@Qualifier("whoisSlaveDataSource") final DataSource dataSource,
+                 @Value("${whois.inverse.index.attributes:}") final String attributes) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.attributeTypes = parseAttributes(attributes);
+    }
+
+    static List<AttributeType> parseAttributes(final String attributes) {
+        final List<AttributeType> result = Lists.newArrayList();
+        for (final String attribute : Splitter.on(',').trimResults().omitEmptyStrings().split(attributes)) {
+            final AttributeType attributeType = AttributeType.getByName(attribute);
+            if (!SUPPORTED_ATTRIBUTES.contains(attributeType)) {
+                throw new IllegalArgumentException("Inverse index not supported for attribute: " + attribute);
+            }
+
+            if (!result.contains(attributeType)) {
+                result.add(attributeType);
+            }
+        }
+
+        return ImmutableList.copyOf(result);
+    }
+
+    boolean isEnabled() {
+        return !attributeTypes.isEmpty();
+    }
+
+    /**
+     * @return the objects referencing the given value in the attribute, or nothing if the attribute is not indexed (yet)
+     */
+    Optional<List<RpslObjectInfo>> findByAttribute(final AttributeType attributeType, final String value) {
+        final Index current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+
+        return current.find(attributeType, ciString(value));
+    }
+
+    @Scheduled(fixedDelayString = "${whois.inverse.index.update.interval.msecs:10000}")
+    public void scheduledUpdate() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            update();
+        } catch (DataAccessException e) {
+            LOGGER.warn("Unable to update inverse index due to {}: {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    void update() {
+        final Index current = index;
+        final int toInclusive = JdbcRpslObjectOperations.getSerials(jdbcTemplate).getEnd();
+
+        if (current == null || current.lastSerial > toInclusive) {
+            rebuild(toInclusive);
+        } else if (current.lastSerial < toInclusive) {
+            update(current, toInclusive);
+        }
+    }
+
+    private void rebuild(final int lastSerial) {
+        LOGGER.info("Building inverse index for {}", attributeTypes);
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        // changes made while the index is built are applied again by the next update
+        final Index.Builder builder = new Index.Builder(attributeTypes);
+        for (int attributeIndex = 0; attributeIndex < attributeTypes.size(); attributeIndex++) {
+            final int currentAttributeIndex = attributeIndex;
+            JdbcStreamingHelper.executeStreaming(jdbcTemplate, getQuery(attributeTypes.get(attributeIndex), ""),
+                    (RowCallbackHandler) rs -> builder.add(currentAttributeIndex, rs.getInt(1), ObjectTypeIds.getType(rs.getInt(2)), rs.getString(3), ciString(rs.getString(4))));
+        }
+
+        final Index built = builder.build(lastSerial);
+        index = built;
+
+        LOGGER.info("Finished building inverse index in {} ({})", stopwatch, built);
+    }
+
+    private void update(final Index current, final int toInclusive) {
+        final List<Integer> objectIds = jdbcTemplate.queryForList("" +
+                        "SELECT DISTINCT object_id " +
+                        "FROM serials " +
+                        "WHERE serial_id > ? " +
+                        "AND serial_id <= ?",
+                Integer.class,
+                current.lastSerial, toInclusive);
+
+        final NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        for (final List<Integer> batch : Lists.partition(objectIds, UPDATE_BATCH_SIZE)) {
+            final Map<Integer, IndexedObject> updated = Maps.newHashMapWithExpectedSize(batch.size());
+            for (int attributeIndex = 0; attributeIndex < attributeTypes.size(); attributeIndex++) {
+                final int currentAttributeIndex = attributeIndex;
+                namedParameterJdbcTemplate.query(getQuery(attributeTypes.get(attributeIndex), "AND l.object_id IN (:objectIds)"),
+                        Collections.singletonMap("objectIds", batch),
+                        (RowCallbackHandler) rs -> {
+                            final ObjectType objectType = ObjectTypeIds.getType(rs.getInt(2));
+                            final String pkey = rs.getString(3);
+                            updated.computeIfAbsent(rs.getInt(1), objectId -> new IndexedObject(objectType, pkey, attributeTypes.size()))
+                                    .addKey(currentAttributeIndex, ciString(rs.getString(4)));
+                        });
+            }
+
+            for (final Integer objectId : batch) {
+                current.replace(objectId, updated.get(objectId));
+            }
+        }
+
+        current.lastSerial = toInclusive;
+        LOGGER.debug("Updated inverse index to serial {} ({} objects changed)", toInclusive, objectIds.size());
+    }
+
+    private static String getQuery(final AttributeType attributeType, final String condition) {
+        final IndexStrategy indexStrategy = IndexStrategies.get(attributeType);
+
+        return MessageFormat.format("" +
+                        "SELECT l.object_id, l.object_type, l.pkey, r.pkey " +
+                        "FROM {0} " +
+                        "JOIN last l ON l.object_id = {0}.object_id " +
+                        "JOIN last r ON r.object_id = {0}.{1} " +
+                        "WHERE l.sequence_id != 0 {2}",
+                indexStrategy.getLookupTableName(),
+                indexStrategy.getLookupColumnName(),
+                condition);
+    }
+
+    /**
+     * The keys referenced by an object, per indexed attribute.
+     */
+    static final class IndexedObject {
+        private static final CIString[] NO_KEYS = {};
+
+        final ObjectType objectType;
+        final String pkey;
+        final CIString[][] keys;
+
+        IndexedObject(final ObjectType objectType, final String pkey, final int nrAttributes) {
+            this.objectType = objectType;
+            this.pkey = pkey;
+            this.keys = new CIString[nrAttributes][];
+            Arrays.fill(keys, NO_KEYS);
+        }
+
+        void addKey(final int attributeIndex, final CIString key) {
+            final CIString[] current = keys[attributeIndex];
+            for (final CIString existing : current) {
+                if (existing.equals(key)) {
+                    return;
+                }
+            }
+
+            final CIString[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = key;
+            keys[attributeIndex] = extended;
+        }
+    }
+
+    /**
+     * Sorted object ids per referenced key (per attribute), and the type and primary key of every indexed object.
+     *
+     * Updates are done by a single thread, replacing the object id arrays so they can be read concurrently.
+     */
+    static final class Index {
+        private final List<AttributeType> attributeTypes;
+        private final List<ConcurrentMap<CIString, int[]>> objectIdsByKey;
+        private final ConcurrentMap<Integer, IndexedObject> objects;
+
+        volatile int lastSerial;
+
+        private Index(final List<AttributeType> attributeTypes, final List<ConcurrentMap<CIString, int[]>> objectIdsByKey, final ConcurrentMap<Integer, IndexedObject> objects, final int lastSerial) {
+            this.attributeTypes = attributeTypes;
+            this.objectIdsByKey = objectIdsByKey;
+            this.objects = objects;
+            this.lastSerial = lastSerial;
+        }
+
+        Optional<List<RpslObjectInfo>> find(final AttributeType attributeType, final CIString key) {
+            final int attributeIndex = attributeTypes.indexOf(attributeType);
+            if (attributeIndex < 0) {
+                return Optional.empty();
+            }
+
+            final int[] objectIds = objectIdsByKey.get(attributeIndex).get(key);
+            if (objectIds == null) {
+                return Optional.of(Collections.emptyList());
+            }
+
+            final List<RpslObjectInfo> result = Lists.newArrayListWithExpectedSize(objectIds.length);
+            for (final int objectId : objectIds) {
+                final IndexedObject object = objects.get(objectId);
+                if (object != null) {
+                    result.add(new RpslObjectInfo(objectId, object.objectType, object.pkey));
+                }
+            }
+
+            return Optional.of(result);
+        }
+
+        void replace(final int objectId, @Nullable final IndexedObject next) {
+            final IndexedObject previous = (next == null) ? objects.remove(objectId) : objects.put(objectId, next);
+
+            for (int attributeIndex = 0; attributeIndex < attributeTypes.size(); attributeIndex++) {
+                final ConcurrentMap<CIString, int[]> objectIdsForAttribute = objectIdsByKey.get(attributeIndex);
+                final List<CIString> previousKeys = (previous == null) ? Collections.emptyList() : Arrays.asList(previous.keys[attributeIndex]);
+                final List<CIString> nextKeys = (next == null) ? Collections.emptyList() : Arrays.asList(next.keys[attributeIndex]);
+
+                for (final CIString key : previousKeys) {
+                    if (!nextKeys.contains(key)) {
+                        objectIdsForAttribute.computeIfPresent(key, (k, objectIds) -> remove(objectIds, objectId));
+                    }
+                }
+
+                for (final CIString key : nextKeys) {
+                    if (!previousKeys.contains(key)) {
+                        objectIdsForAttribute.merge(key, new int[]{objectId}, (objectIds, added) -> insert(objectIds, objectId));
+                    }
+                }
+            }
+        }
+
+        int getNrObjects() {
+            return objects.size();
+        }
+
+        int getNrKeys(final AttributeType attributeType) {
+            return objectIdsByKey.get(attributeTypes.indexOf(attributeType)).size();
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            builder.append(objects.size()).append(" objects");
+            for (int attributeIndex = 0; attributeIndex < attributeTypes.size(); attributeIndex++) {
+                builder.append(", ").append(objectIdsByKey.get(attributeIndex).size()).append(' ').append(attributeTypes.get(attributeIndex).getName()).append(" keys");
+            }
+            return builder.append(", serial ").append(lastSerial).toString();
+        }
+
+        @Nullable
+        static int[] remove(final int[] objectIds, final int objectId) {
+            final int index = Arrays.binarySearch(objectIds, objectId);
+            if (index < 0) {
+                return objectIds;
+            }
+
+            if (objectIds.length == 1) {
+                return null;
+            }
+
+            final int[] result = new int[objectIds.length - 1];
+            System.arraycopy(objectIds, 0, result, 0, index);
+            System.arraycopy(objectIds, index + 1, result, index, result.length - index);
+            return result;
+        }
+
+        static int[] insert(final int[] objectIds, final int objectId) {
+            final int index = Arrays.binarySearch(objectIds, objectId);
+            if (index >= 0) {
+                return objectIds;
+            }
+
+            final int insertionPoint = -(index + 1);
+            final int[] result = new int[objectIds.length + 1];
+            System.arraycopy(objectIds, 0, result, 0, insertionPoint);
+            result[insertionPoint] = objectId;
+            System.arraycopy(objectIds, insertionPoint, result, insertionPoint + 1, objectIds.length - insertionPoint);
+            return result;
+        }
+
+        static final class Builder {
+            private final List<AttributeType> attributeTypes;
+            private final List<Map<CIString, ObjectIds>> objectIdsByKey;
+            private final Map<Integer, IndexedObject> objects = Maps.newHashMap();
+
+            Builder(final List<AttributeType> attributeTypes) {
+                this.attributeTypes = attributeTypes;
+                this.objectIdsByKey = Lists.newArrayListWithExpectedSize(attributeTypes.size());
+                for (int attributeIndex = 0; attributeIndex < attributeTypes.size(); attributeIndex++) {
+                    objectIdsByKey.add(Maps.newHashMap());
+                }
+            }
+
+            void add(final int attributeIndex, final int objectId, final ObjectType objectType, final String pkey, final CIString key) {
+                // share a single instance of every key between the objects referencing it
+                final ObjectIds objectIds = objectIdsByKey.get(attributeIndex).computeIfAbsent(key, ObjectIds::new);
+                objectIds.add(objectId);
+
+                objects.computeIfAbsent(objectId, id -> new IndexedObject(objectType, pkey, attributeTypes.size())).addKey(attributeIndex, objectIds.key);
+            }
+
+            Index build(final int lastSerial) {
+                final List<ConcurrentMap<CIString, int[]>> result = Lists.newArrayListWithExpectedSize(attributeTypes.size());
+                for (final Map<CIString, ObjectIds> objectIdsForAttribute : objectIdsByKey) {
+                    final ConcurrentMap<CIString, int[]> objectIdsForKey = new ConcurrentHashMap<>(objectIdsForAttribute.size());
+                    for (final ObjectIds objectIds : objectIdsForAttribute.values()) {
+                        objectIdsForKey.put(objectIds.key, objectIds.toSortedArray());
+                    }
+                    result.add(objectIdsForKey);
+                }
+
+                return new Index(attributeTypes, result, new ConcurrentHashMap<>(objects), lastSerial);
+            }
+        }
+
+        private static final class ObjectIds {
+            private final CIString key;
+            private int[] objectIds = new int[1];
+            private int size;
+
+            private ObjectIds(final CIString key) {
+                this.key = key;
+            }
+
+            void add(final int objectId) {
+                if (size == objectIds.length) {
+                    objectIds = Arrays.copyOf(objectIds, size * 2);
+                }
+                objectIds[size++] = objectId;
+            }
+
+            int[] toSortedArray() {
+                final int[] result = Arrays.copyOf(objectIds, size);
+                Arrays.sort(result);
+
+                int distinct = 0;
+                for (int i = 0; i < result.length; i++) {
+                    if (i == 0 || result[i] != result[i - 1]) {
+                        result[distinct++] = result[i];
+                    }
+                }
+
+                return distinct == result.length ? result : Arrays.copyOf(result, distinct);
+            }
+        }
+    }
+}
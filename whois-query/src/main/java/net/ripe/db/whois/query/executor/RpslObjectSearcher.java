@@ -30,6 +30,8 @@ import net.ripe.db.whois.query.dao.InetnumDao;
 import net.ripe.db.whois.query.domain.MessageObject;
 import net.ripe.db.whois.query.filter.AttributeFilter;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryStage;
+import net.ripe.db.whois.query.stats.QueryStageTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +44,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Component
@@ -66,6 +69,7 @@ class RpslObjectSearcher {
     private final Ipv4DomainTree ipv4DomainTree;
     private final Ipv6DomainTree ipv6DomainTree;
     private final Set<AttributeFilter> attributeFilters;
+    private final InverseIndex inverseIndex;
 
     @Autowired
     public RpslObjectSearcher(
@@ -78,7 +82,8 @@ class RpslObjectSearcher {
             final Ipv6RouteTree route6Tree,
             final Ipv4DomainTree ipv4DomainTree,
             final Ipv6DomainTree ipv6DomainTree,
-            final Set<AttributeFilter> attributeFilters) {
+            final Set<AttributeFilter> attributeFilters,
+            final InverseIndex inverseIndex) {
         this.rpslObjectDao = rpslObjectDao;
         this.inetnumDao = inetnumDao;
         this.inet6numDao = inet6numDao;
@@ -89,6 +94,7 @@ class RpslObjectSearcher {
         this.ipv4DomainTree = ipv4DomainTree;
         this.ipv6DomainTree = ipv6DomainTree;
         this.attributeFilters = attributeFilters;
+        this.inverseIndex = inverseIndex;
     }
 
     public Iterable<? extends ResponseObject> search(final Query query, final SourceContext sourceContext) {
@@ -99,7 +105,7 @@ class RpslObjectSearcher {
         }
 
         if (query.isInverse()) {
-            result = indexLookupReverse(query);
+            result = indexLookupReverse(query, sourceContext);
         } else if (query.isMatchPrimaryKeyOnly()) {
             result = indexLookupDirect(query);
         } else {
@@ -273,7 +279,7 @@ class RpslObjectSearcher {
         return result;
     }
 
-    private Iterable<ResponseObject> indexLookupReverse(final Query query) {
+    private Iterable<ResponseObject> indexLookupReverse(final Query query, final SourceContext sourceContext) {
         final List<ResponseObject> errors = Lists.newArrayList();
         for (final AttributeType attributeType : query.getAttributeTypes()) {
             if (!(INVERSE_ATTRIBUTE_TYPES.contains(attributeType) || (query.isTrusted() && INVERSE_ATTRIBUTE_TYPES_OVERRIDE.contains(attributeType)))) {
@@ -290,7 +296,7 @@ class RpslObjectSearcher {
         final Set<RpslObjectInfo> result = Sets.newTreeSet();
         for (final AttributeType attributeType : query.getAttributeTypes()) {
             final String searchValue = query.getSearchValue();
-            final Collection<RpslObjectInfo> objectInfos = rpslObjectDao.findByAttribute(attributeType, searchValue);
+            final Collection<RpslObjectInfo> objectInfos = findByAttribute(attributeType, searchValue, sourceContext);
             for (final RpslObjectInfo objectInfo : objectInfos) {
                 if (objectTypes.contains(objectInfo.getObjectType())) {
                     result.add(objectInfo);
@@ -301,7 +307,18 @@ class RpslObjectSearcher {
         return proxy(result);
     }
 
+    private Collection<RpslObjectInfo> findByAttribute(final AttributeType attributeType, final String searchValue, final SourceContext sourceContext) {
+        if (sourceContext.isMain()) {
+            final Optional<List<RpslObjectInfo>> objectInfos = inverseIndex.findByAttribute(attributeType, searchValue);
+            if (objectInfos.isPresent()) {
+                return objectInfos.get();
+            }
+        }
+
+        return rpslObjectDao.findByAttribute(attributeType, searchValue);
+    }
+
     private Iterable<ResponseObject> proxy(final Iterable<? extends Identifiable> identifiables) {
-        return CollectionHelper.iterateProxy(rpslObjectDao, identifiables);
+        return CollectionHelper.iterateProxy(QueryStageTimer.timed(QueryStage.LOAD, rpslObjectDao), identifiables);
     }
 }
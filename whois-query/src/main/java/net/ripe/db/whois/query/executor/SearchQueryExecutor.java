@@ -13,6 +13,8 @@ import net.ripe.db.whois.query.domain.MessageObject;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.planner.RpslResponseDecorator;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryStage;
+import net.ripe.db.whois.query.stats.QueryStageTimer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -62,15 +64,23 @@ public class SearchQueryExecutor implements QueryExecutor {
         for (final Source source : sources) {
             try {
                 sourceContext.setCurrent(source);
-                final Iterable<? extends ResponseObject> searchResults = rpslObjectSearcher.search(query, sourceContext);
+                QueryStageTimer.setSource(source.getName().toString());
 
-                for (final ResponseObject responseObject : rpslResponseDecorator.getResponse(query, searchResults)) {
+                final Iterable<? extends ResponseObject> searchResults = search(query);
 
-                    responseHandler.handle(responseObject);
+                // iterating also completes lazy searches, only object loads, ACL checks and encoding are accounted separately
+                final QueryStage previous = QueryStageTimer.enter(QueryStage.DECORATE);
+                try {
+                    for (final ResponseObject responseObject : rpslResponseDecorator.getResponse(query, searchResults)) {
 
-                    if (!(responseObject instanceof MessageObject)) {
-                        noResults = false;
+                        responseHandler.handle(responseObject);
+
+                        if (!(responseObject instanceof MessageObject)) {
+                            noResults = false;
+                        }
                     }
+                } finally {
+                    QueryStageTimer.exit(previous);
                 }
             } catch (IllegalSourceException e) {
                 responseHandler.handle(new MessageObject(QueryMessages.unknownSource(source.getName())));
@@ -79,12 +89,22 @@ public class SearchQueryExecutor implements QueryExecutor {
                 sourceContext.removeCurrentSource();
             }
         }
+        QueryStageTimer.setSource(null);
 
         if (noResults) {
             responseHandler.handle(new MessageObject(QueryMessages.noResults(Joiner.on(',').join(Iterables.transform(sources, source -> source.getName().toUpperCase())))));
         }
     }
 
+    private Iterable<? extends ResponseObject> search(final Query query) {
+        final QueryStage previous = QueryStageTimer.enter(QueryStage.SEARCH);
+        try {
+            return rpslObjectSearcher.search(query, sourceContext);
+        } finally {
+            QueryStageTimer.exit(previous);
+        }
+    }
+
     private Set<Source> getSources(final Query query) {
         final Set<Source> sources = Sets.newLinkedHashSet();
 
@@ -1,12 +1,9 @@
 package net.ripe.db.whois.query.executor;
 
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.VersionDao;
 import net.ripe.db.whois.common.dao.VersionInfo;
 import net.ripe.db.whois.common.dao.VersionLookupResult;
-import net.ripe.db.whois.common.domain.ResponseObject;
 import net.ripe.db.whois.common.domain.serials.Operation;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -30,7 +27,6 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -68,127 +64,96 @@ public class VersionQueryExecutor implements QueryExecutor {
 
     @Override
     public void execute(final Query query, final ResponseHandler responseHandler) {
-        final Iterable<? extends ResponseObject> responseObjects = getResponseObjects(query);
-
-        for (final ResponseObject responseObject : decorate(query, responseObjects)) {
-            responseHandler.handle(responseObject);
+        final Collection<VersionLookupResult> versionLookupResults = getVersionInfo(query);
+        if (versionLookupResults.isEmpty()) {
+            responseHandler.handle(new MessageObject(QueryMessages.noResults(sourceContext.getCurrentSource().getName())));
+            return;
         }
-    }
 
-    private Iterable<? extends ResponseObject> decorate(final Query query, Iterable<? extends ResponseObject> responseObjects) {
-        final Iterable<ResponseObject> objects = Iterables.transform(responseObjects, responseObject -> {
-                if (responseObject instanceof RpslObject) {
-                    ResponseObject filtered = filter((RpslObject) responseObject);
-                    if (query.isObjectVersion()) {
-                        filtered = new VersionWithRpslResponseObject((RpslObject) filtered, query.getObjectVersion());
-                    }
-                    return filtered;
-                }
-                return responseObject;
-            });
-
-        if (Iterables.isEmpty(objects)) {
-            return Collections.singletonList(new MessageObject(QueryMessages.noResults(sourceContext.getCurrentSource().getName())));
+        // responses are handled as they are created, only the requested versions are read from the database
+        final String searchKey = query.getSearchValue();
+        for (final VersionLookupResult versionLookupResult : versionLookupResults) {
+            streamVersions(query, searchKey, versionLookupResult, responseHandler);
         }
-        return objects;
     }
 
-    // TODO: [AH] make this streaming, too; objects could have thousands of versions
-    protected Iterable<? extends ResponseObject> getResponseObjects(final Query query) {
-        Collection<VersionLookupResult> versionLookupResults = getVersionInfo(query);
+    private void streamVersions(final Query query, final String searchKey, final VersionLookupResult versionLookupResult, final ResponseHandler responseHandler) {
+        final ObjectType objectType = versionLookupResult.getObjectType();
 
-        // common & sanity checks
-        if (versionLookupResults.isEmpty()) {
-            return Collections.emptyList();
+        if (NO_VERSION_HISTORY_FOR.contains(objectType)) {
+            responseHandler.handle(new MessageObject(QueryMessages.versionPersonRole(objectType.getName().toUpperCase(), searchKey)));
+            return;
         }
 
-        final String searchKey = query.getSearchValue();
-        final List<ResponseObject> results = new ArrayList<>();
-        for (VersionLookupResult versionLookupResult : versionLookupResults) {
-            final ObjectType objectType = versionLookupResult.getObjectType();
-
-            if (NO_VERSION_HISTORY_FOR.contains(objectType)) {
-                results.add(new MessageObject(QueryMessages.versionPersonRole(objectType.getName().toUpperCase(), searchKey)));
-                continue;
-            }
-
-            final List<VersionInfo> versionInfos = versionLookupResult.getMostRecentlyCreatedVersions();
-            final VersionDateTime lastDeletionTimestamp = versionLookupResult.getLastDeletionTimestamp();
-            if (versionInfos.isEmpty() && lastDeletionTimestamp != null) {
-                results.add(new MessageObject(QueryMessages.versionListStart(objectType.getName().toUpperCase(), searchKey)));
-                results.add(new DeletedVersionResponseObject(lastDeletionTimestamp, objectType, searchKey));
-                continue;
-            }
+        final List<VersionInfo> versionInfos = versionLookupResult.getMostRecentlyCreatedVersions();
+        final VersionDateTime lastDeletionTimestamp = versionLookupResult.getLastDeletionTimestamp();
+        if (versionInfos.isEmpty() && lastDeletionTimestamp != null) {
+            responseHandler.handle(new MessageObject(QueryMessages.versionListStart(objectType.getName().toUpperCase(), searchKey)));
+            responseHandler.handle(new DeletedVersionResponseObject(lastDeletionTimestamp, objectType, searchKey));
+            return;
+        }
 
-            final int version = query.getObjectVersion();
-            final int[] versions = query.getObjectVersions();
+        final int version = query.getObjectVersion();
+        final int[] versions = query.getObjectVersions();
 
-            if (version > versionInfos.size() || versions[0] > versionInfos.size() || versions[1] > versionInfos.size()) {
-                results.add(new MessageObject(QueryMessages.versionOutOfRange(versionInfos.size())));
-                continue;
-            }
+        if (version > versionInfos.size() || versions[0] > versionInfos.size() || versions[1] > versionInfos.size()) {
+            responseHandler.handle(new MessageObject(QueryMessages.versionOutOfRange(versionInfos.size())));
+            return;
+        }
 
-            // all good, dispatch
-            if (query.isVersionList()) {
-                Iterables.addAll(results, getAllVersions(versionLookupResult, searchKey));
-            } else if (query.isVersionDiff()) {
-                Iterables.addAll(results, getVersionDiffs(versionLookupResult, versions));
-            } else {
-                Iterables.addAll(results, getVersion(versionLookupResult, version));
-            }
+        // all good, dispatch
+        if (query.isVersionList()) {
+            streamAllVersions(versionLookupResult, searchKey, responseHandler);
+        } else if (query.isVersionDiff()) {
+            streamVersionDiff(versionLookupResult, versions, responseHandler);
+        } else {
+            streamVersion(versionLookupResult, version, responseHandler);
         }
-        return results;
     }
 
-    private Iterable<? extends ResponseObject> getAllVersions(final VersionLookupResult res, final String searchKey) {
+    private void streamAllVersions(final VersionLookupResult res, final String searchKey, final ResponseHandler responseHandler) {
         final ObjectType objectType = res.getObjectType();
-        final List<ResponseObject> messages = Lists.newArrayList();
-        messages.add(new MessageObject(QueryMessages.versionListStart(objectType.getName().toUpperCase(), searchKey)));
+        responseHandler.handle(new MessageObject(QueryMessages.versionListStart(objectType.getName().toUpperCase(), searchKey)));
 
         final VersionDateTime lastDeletionTimestamp = res.getLastDeletionTimestamp();
         final String pkey = res.getPkey();
         if (lastDeletionTimestamp != null) {
-            messages.add(new DeletedVersionResponseObject(lastDeletionTimestamp, objectType, pkey));
+            responseHandler.handle(new DeletedVersionResponseObject(lastDeletionTimestamp, objectType, pkey));
         }
 
         final List<VersionInfo> versionInfos = res.getMostRecentlyCreatedVersions();
         int versionPadding = getPadding(versionInfos);
 
-        messages.add(new MessageObject(String.format("%-" + versionPadding + "s  %-16s  %-7s\n", VERSION_HEADER, DATE_HEADER, OPERATION_HEADER)));
+        responseHandler.handle(new MessageObject(String.format("%-" + versionPadding + "s  %-16s  %-7s\n", VERSION_HEADER, DATE_HEADER, OPERATION_HEADER)));
 
         for (int i = 0; i < versionInfos.size(); i++) {
             final VersionInfo versionInfo = versionInfos.get(i);
-            messages.add(new VersionResponseObject(versionPadding, versionInfo.getOperation(), i + 1, versionInfo.getTimestamp(), objectType, pkey));
+            responseHandler.handle(new VersionResponseObject(versionPadding, versionInfo.getOperation(), i + 1, versionInfo.getTimestamp(), objectType, pkey));
         }
 
-        messages.add(new MessageObject(""));
-
-        return messages;
+        responseHandler.handle(new MessageObject(""));
     }
 
-    private Iterable<? extends ResponseObject> getVersion(final VersionLookupResult res, final int version) {
+    private void streamVersion(final VersionLookupResult res, final int version, final ResponseHandler responseHandler) {
         final List<VersionInfo> versionInfos = res.getMostRecentlyCreatedVersions();
         final VersionInfo info = versionInfos.get(version - 1);
         final RpslObject rpslObject = versionDao.getRpslObject(info);
 
-        return Lists.newArrayList(
-                new MessageObject(QueryMessages.versionInformation(version,
-                        (version == versionInfos.size()),
-                        rpslObject.getKey(),
-                        info.getOperation() == Operation.UPDATE ? "UPDATE" : "DELETE",
-                        info.getTimestamp().toString())),
-                rpslObject
-        );
+        responseHandler.handle(new MessageObject(QueryMessages.versionInformation(version,
+                (version == versionInfos.size()),
+                rpslObject.getKey(),
+                info.getOperation() == Operation.UPDATE ? "UPDATE" : "DELETE",
+                info.getTimestamp().toString())));
+        responseHandler.handle(new VersionWithRpslResponseObject(filter(rpslObject), version));
     }
 
-    private Iterable<? extends ResponseObject> getVersionDiffs(final VersionLookupResult res, final int[] versions) {
+    private void streamVersionDiff(final VersionLookupResult res, final int[] versions, final ResponseHandler responseHandler) {
         final List<VersionInfo> versionInfos = res.getMostRecentlyCreatedVersions();
         final RpslObject firstObject = filter(versionDao.getRpslObject(versionInfos.get(versions[0] - 1)));
-        final RpslObject secondObject = filter(versionDao.getRpslObject(versionInfos.get(versions[1] - 1)));
+        responseHandler.handle(new MessageObject(QueryMessages.versionDifferenceHeader(versions[0], versions[1], firstObject.getKey())));
 
-        return Lists.newArrayList(
-                new MessageObject(QueryMessages.versionDifferenceHeader(versions[0], versions[1], firstObject.getKey())),
-                new MessageObject(RpslObjectFilter.diff(firstObject, secondObject)));
+        final RpslObject secondObject = filter(versionDao.getRpslObject(versionInfos.get(versions[1] - 1)));
+        responseHandler.handle(new MessageObject(RpslObjectFilter.diff(firstObject, secondObject)));
     }
 
     private Collection<ObjectType> getObjectType(final Query query) {
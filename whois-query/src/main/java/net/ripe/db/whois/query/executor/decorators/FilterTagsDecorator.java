@@ -1,6 +1,10 @@
 package net.ripe.db.whois.query.executor.decorators;
 
-import net.ripe.db.whois.common.collect.IterableTransformer;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.ResponseObject;
@@ -14,16 +18,20 @@ import net.ripe.db.whois.query.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Deque;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 /*
 Tagging, merged in one class to avoid multiple DAO lookups for tags, keeping it lightweight
+
+Tags are looked up for a window of objects at a time, so the result is still streamed
 */
 
 @Component
 public class FilterTagsDecorator implements ResponseDecorator {
+    static final int WINDOW_SIZE = 100;
+
     private final TagsDao tagsDao;
 
     @Autowired
@@ -43,23 +51,25 @@ public class FilterTagsDecorator implements ResponseDecorator {
         final Set<CIString> includeArguments = query.getOptionValuesCI(QueryFlag.FILTER_TAG_INCLUDE);
         final Set<CIString> excludeArguments = query.getOptionValuesCI(QueryFlag.FILTER_TAG_EXCLUDE);
 
-        final IterableTransformer<ResponseObject> responseObjects = new IterableTransformer<ResponseObject>(input) {
-            @Override
-            public void apply(final ResponseObject input, final Deque<ResponseObject> result) {
-                if (!(input instanceof RpslObject)) {
-                    result.add(input);
-                    return;
+        final Iterable<ResponseObject> responseObjects = Iterables.concat(Iterables.transform(Iterables.partition(input, WINDOW_SIZE), window -> {
+            final ListMultimap<Integer, Tag> tagsByObjectId = getTags(window);
+            final List<ResponseObject> result = Lists.newArrayListWithExpectedSize(window.size());
+
+            for (final ResponseObject responseObject : window) {
+                if (!(responseObject instanceof RpslObject)) {
+                    result.add(responseObject);
+                    continue;
                 }
 
-                final RpslObject object = (RpslObject) input;
-                final List<Tag> tags = tagsDao.getTags(object.getObjectId());
+                final RpslObject object = (RpslObject) responseObject;
+                final List<Tag> tags = tagsByObjectId.get(object.getObjectId());
 
                 if (hasInclude && !containsTag(tags, includeArguments)) {
-                    return;
+                    continue;
                 }
 
                 if (hasExclude && containsTag(tags, excludeArguments)) {
-                    return;
+                    continue;
                 }
 
                 result.add(object);
@@ -68,15 +78,28 @@ public class FilterTagsDecorator implements ResponseDecorator {
                     result.add(new TagResponseObject(object.getKey(), tags));
                 }
             }
-        };
+
+            return result;
+        }));
 
         if (hasInclude || hasExclude) {
-            responseObjects.setHeader(new MessageObject(QueryMessages.filterTagNote(includeArguments, excludeArguments)));
+            return Iterables.concat(Collections.singletonList(new MessageObject(QueryMessages.filterTagNote(includeArguments, excludeArguments))), responseObjects);
         }
 
         return responseObjects;
     }
 
+    private ListMultimap<Integer, Tag> getTags(final List<? extends ResponseObject> window) {
+        final Set<Integer> objectIds = Sets.newHashSetWithExpectedSize(window.size());
+        for (final ResponseObject responseObject : window) {
+            if (responseObject instanceof RpslObject) {
+                objectIds.add(((RpslObject) responseObject).getObjectId());
+            }
+        }
+
+        return Multimaps.index(tagsDao.getTags(objectIds), Tag::getObjectId);
+    }
+
     private static boolean containsTag(List<Tag> objectTags, Set<CIString> tagsFromQuery) {
         if (objectTags.isEmpty()) {
             return false;
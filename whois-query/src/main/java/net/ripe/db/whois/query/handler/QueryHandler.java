@@ -13,6 +13,9 @@ import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.executor.QueryExecutor;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryLatencyStats;
+import net.ripe.db.whois.query.stats.QueryStage;
+import net.ripe.db.whois.query.stats.QueryStageTimer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -26,16 +29,19 @@ public class QueryHandler {
     private final WhoisLog whoisLog;
     private final AccessControlListManager accessControlListManager;
     private final BasicSourceContext sourceContext;
+    private final QueryLatencyStats queryLatencyStats;
     private final List<QueryExecutor> queryExecutors;
 
     @Autowired
     public QueryHandler(final WhoisLog whoisLog,
                         final AccessControlListManager accessControlListManager,
                         final BasicSourceContext sourceContext,
+                        final QueryLatencyStats queryLatencyStats,
                         final QueryExecutor... queryExecutors) {
         this.whoisLog = whoisLog;
         this.accessControlListManager = accessControlListManager;
         this.sourceContext = sourceContext;
+        this.queryLatencyStats = queryLatencyStats;
         this.queryExecutors = Lists.newArrayList(queryExecutors);
     }
 
@@ -51,6 +57,7 @@ public class QueryHandler {
 
             @Override
             public void run() {
+                final QueryStageTimer timer = queryLatencyStats.start(query);
                 try {
                     final QueryExecutor queryExecutor = getQueryExecutor();
                     initAcl(queryExecutor);
@@ -63,6 +70,7 @@ public class QueryHandler {
                     logQuery(QueryCompletionInfo.EXCEPTION);
                     throw e;
                 } finally {
+                    queryLatencyStats.finish(timer);
                     if (accountedObjects > 0) {
                         accessControlListManager.accountPersonalObjects(accountingAddress, accountedObjects);
                     }
@@ -80,6 +88,15 @@ public class QueryHandler {
             }
 
             private void initAcl(final QueryExecutor queryExecutor) {
+                final QueryStage previous = QueryStageTimer.enter(QueryStage.ACL);
+                try {
+                    checkAcl(queryExecutor);
+                } finally {
+                    QueryStageTimer.exit(previous);
+                }
+            }
+
+            private void checkAcl(final QueryExecutor queryExecutor) {
                 if (queryExecutor.isAclSupported()) {
                     checkBlocked(remoteAddress);
 
@@ -116,7 +133,15 @@ public class QueryHandler {
                     @Override
                     public void handle(final ResponseObject responseObject) {
                         if (responseObject instanceof RpslObject) {
-                            if (useAcl && accessControlListManager.requiresAcl((RpslObject) responseObject, sourceContext.getCurrentSource())) {
+                            account((RpslObject) responseObject);
+                        }
+                        responseHandler.handle(responseObject);
+                    }
+
+                    private void account(final RpslObject rpslObject) {
+                        final QueryStage previous = QueryStageTimer.enter(QueryStage.ACL);
+                        try {
+                            if (useAcl && accessControlListManager.requiresAcl(rpslObject, sourceContext.getCurrentSource())) {
                                 if (accountingLimit == -1) {
                                     accountingLimit = accessControlListManager.getPersonalObjects(accountingAddress);
                                 }
@@ -127,8 +152,9 @@ public class QueryHandler {
                             } else {
                                 notAccountedObjects++;
                             }
+                        } finally {
+                            QueryStageTimer.exit(previous);
                         }
-                        responseHandler.handle(responseObject);
                     }
                 });
             }
@@ -1,20 +1,66 @@
 package net.ripe.db.whois.query.handler;
 
+import net.ripe.db.whois.common.ApplicationService;
 import net.ripe.db.whois.common.profiles.WhoisProfile;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import java.net.InetAddress;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Logs a line for every query served.
+ *
+ * Once started, query threads only queue the query result, and a background thread formats and writes the queued
+ * results in batches. If the queue is full, the result is either logged on the query thread or discarded (and
+ * counted). The log lines are the same as when logging directly.
+ */
 @Component
 @Profile(WhoisProfile.DEPLOYED)
-public class WhoisLog {
-    private final Logger logger = LoggerFactory.getLogger(WhoisLog.class);
+public class WhoisLog implements ApplicationService {
+    // not the query log itself, which is parsed
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhoisLog.class.getPackage().getName());
+
+    private final Logger logger;
+
+    private final Queue<QueryResult> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    @Value("${whois.log.queue.size:65536}")
+    private int queueSize;
+
+    @Value("${whois.log.queue.interval:100}")
+    private int intervalMs;
+
+    @Value("${whois.log.queue.batch.size:1024}")
+    private int batchSize;
+
+    @Value("${whois.log.queue.discard:false}")
+    private boolean discardOnOverflow;
+
+    private volatile ScheduledExecutorService executorService;
+
+    public WhoisLog() {
+        this(LoggerFactory.getLogger(WhoisLog.class));
+    }
+
+    WhoisLog(final Logger logger) {
+        this.logger = logger;
+    }
 
     protected String formatMessage(final String api, final int personalObjects, final int nonPersonalObjects, @Nullable final QueryCompletionInfo completionInfo, final long executionTime, @Nullable final InetAddress remoteAddress, final Integer channelId, final String queryString) {
         return MessageFormatter.arrayFormat("{} PW-{}-INFO <{}+{}+0> {} {}ms [{}] --  {}",
@@ -31,6 +77,129 @@ public class WhoisLog {
     }
 
     public void logQueryResult(final String api, final int personalObjects, final int nonPersonalObjects, @Nullable final QueryCompletionInfo completionInfo, final long executionTime, @Nullable final InetAddress remoteAddress, final Integer channelId, final String queryString) {
-        logger.info(formatMessage(api, personalObjects, nonPersonalObjects, completionInfo, executionTime, remoteAddress, channelId, queryString));
+        final QueryResult queryResult = new QueryResult(api, personalObjects, nonPersonalObjects, completionInfo, executionTime, remoteAddress, channelId, queryString);
+
+        if (executorService == null) {
+            log(queryResult);
+        } else if (queued.incrementAndGet() <= queueSize) {
+            queue.offer(queryResult);
+        } else {
+            queued.decrementAndGet();
+            if (discardOnOverflow) {
+                discarded.increment();
+            } else {
+                overflowed.increment();
+                log(queryResult);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (queueSize < 1) {
+            return;
+        }
+
+        if (executorService != null) {
+            throw new IllegalStateException("Already started");
+        }
+
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "WhoisLog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOGGER.error("Writing query log", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        executorService = executor;
+    }
+
+    @Override
+    public void stop(final boolean force) {
+        if (!force || executorService == null) {
+            return;
+        }
+
+        // queries are logged directly from now on, and anything still queued is written
+        final ScheduledExecutorService executor = executorService;
+        executorService = null;
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+
+        if (getDiscarded() > 0) {
+            LOGGER.warn("Discarded {} query log lines on a full queue", getDiscarded());
+        }
+    }
+
+    /**
+     * Write all queued query results, in batches.
+     * @return the number of query results written
+     */
+    int flush() {
+        int written = 0;
+        for (;;) {
+            int batch = 0;
+            QueryResult queryResult;
+            while (batch < batchSize && (queryResult = queue.poll()) != null) {
+                log(queryResult);
+                batch++;
+            }
+
+            queued.addAndGet(-batch);
+            written += batch;
+
+            if (batch < batchSize) {
+                return written;
+            }
+        }
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getOverflowed() {
+        return overflowed.sum();
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    private void log(final QueryResult queryResult) {
+        logger.info(formatMessage(queryResult.api, queryResult.personalObjects, queryResult.nonPersonalObjects, queryResult.completionInfo, queryResult.executionTime, queryResult.remoteAddress, queryResult.channelId, queryResult.queryString));
+    }
+
+    private static final class QueryResult {
+        private final String api;
+        private final int personalObjects;
+        private final int nonPersonalObjects;
+        private final QueryCompletionInfo completionInfo;
+        private final long executionTime;
+        private final InetAddress remoteAddress;
+        private final Integer channelId;
+        private final String queryString;
+
+        private QueryResult(final String api, final int personalObjects, final int nonPersonalObjects, @Nullable final QueryCompletionInfo completionInfo, final long executionTime, @Nullable final InetAddress remoteAddress, final Integer channelId, final String queryString) {
+            this.api = api;
+            this.personalObjects = personalObjects;
+            this.nonPersonalObjects = nonPersonalObjects;
+            this.completionInfo = completionInfo;
+            this.executionTime = executionTime;
+            this.remoteAddress = remoteAddress;
+            this.channelId = channelId;
+            this.queryString = queryString;
+        }
     }
 }
@@ -0,0 +1,38 @@
+package net.ripe.db.whois.query.handler;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "WhoisLog", description = "Query log")
+public class WhoisLogJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WhoisLogJmx.class);
+
+    private final WhoisLog whoisLog;
+
+    @Autowired
+    public WhoisLogJmx(final WhoisLog whoisLog) {
+        super(LOGGER);
+        this.whoisLog = whoisLog;
+    }
+
+    @ManagedOperation(description = "Query log lines waiting to be written")
+    public int getQueued() {
+        return whoisLog.getQueued();
+    }
+
+    @ManagedOperation(description = "Query log lines written on the query thread because the queue was full")
+    public long getOverflowed() {
+        return whoisLog.getOverflowed();
+    }
+
+    @ManagedOperation(description = "Query log lines discarded because the queue was full")
+    public long getDiscarded() {
+        return whoisLog.getDiscarded();
+    }
+}
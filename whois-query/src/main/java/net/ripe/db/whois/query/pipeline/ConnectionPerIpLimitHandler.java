@@ -1,6 +1,7 @@
 package net.ripe.db.whois.query.pipeline;
 
 import net.ripe.db.whois.common.ApplicationVersion;
+import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.pipeline.ChannelUtil;
 import net.ripe.db.whois.common.pipeline.ConnectionCounter;
 import net.ripe.db.whois.query.QueryMessages;
@@ -19,10 +20,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.CheckForNull;
 import java.net.InetAddress;
+import java.util.List;
 
 /**
- * Handler that immediately closes a channel if the maximum number of open connections is reached for an IP address.
+ * Handler that immediately closes a channel if the maximum number of open connections is reached for an IP address
+ * (IPv6 addresses are counted per /64 prefix), or if the address opens connections faster than the maximum rate.
  */
 @Component
 @ChannelHandler.Sharable
@@ -34,6 +38,7 @@ public class ConnectionPerIpLimitHandler extends SimpleChannelUpstreamHandler {
     private final WhoisLog whoisLog;
     private final ConnectionCounter connectionCounter;
     private final int maxConnectionsPerIp;
+    private final int maxConnectionRatePerIp;
     private final ApplicationVersion applicationVersion;
 
     @Autowired
@@ -41,10 +46,12 @@ public class ConnectionPerIpLimitHandler extends SimpleChannelUpstreamHandler {
             final IpResourceConfiguration ipResourceConfiguration,
             final WhoisLog whoisLog,
             @Value("${whois.limit.connectionsPerIp:3}") final int maxConnectionsPerIp,
+            @Value("${whois.limit.connectionRatePerIp:0}") final int maxConnectionRatePerIp,
             final ApplicationVersion applicationVersion) {
         this.ipResourceConfiguration = ipResourceConfiguration;
         this.whoisLog = whoisLog;
         this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.maxConnectionRatePerIp = maxConnectionRatePerIp;
         this.applicationVersion = applicationVersion;
         this.connectionCounter = new ConnectionCounter();
     }
@@ -54,10 +61,11 @@ public class ConnectionPerIpLimitHandler extends SimpleChannelUpstreamHandler {
         final Channel channel = ctx.getChannel();
         final InetAddress remoteAddress = ChannelUtil.getRemoteAddress(channel);
 
-        if (limitConnections(remoteAddress) && connectionsExceeded(remoteAddress)) {
+        final Message limitExceeded = limitConnections(remoteAddress) ? connectionsExceeded(remoteAddress) : null;
+        if (limitExceeded != null) {
             whoisLog.logQueryResult("QRY", 0, 0, QueryCompletionInfo.REJECTED, 0, remoteAddress, channel.getId(), "");
             channel.write(QueryMessages.termsAndConditions());
-            channel.write(QueryMessages.connectionsExceeded(maxConnectionsPerIp));
+            channel.write(limitExceeded);
             channel.write(QueryMessages.servedByNotice(applicationVersion.getVersion())).addListener(ChannelFutureListener.CLOSE);
             return;
         }
@@ -88,8 +96,23 @@ public class ConnectionPerIpLimitHandler extends SimpleChannelUpstreamHandler {
         return maxConnectionsPerIp > 0;
     }
 
-    private boolean connectionsExceeded(final InetAddress remoteAddress) {
-        final Integer count = connectionCounter.increment(remoteAddress);
-        return (count != null && count >= maxConnectionsPerIp);
+    // the message for the limit that was exceeded, or null if the connection is allowed
+    @CheckForNull
+    private Message connectionsExceeded(final InetAddress remoteAddress) {
+        final int count = connectionCounter.increment(remoteAddress);
+        if (count >= maxConnectionsPerIp) {
+            return QueryMessages.connectionsExceeded(maxConnectionsPerIp);
+        }
+
+        // soft limit against connection storms, the connection is counted in the rate
+        if (maxConnectionRatePerIp > 0 && connectionCounter.getRate(remoteAddress) > maxConnectionRatePerIp) {
+            return QueryMessages.connectionRateExceeded(maxConnectionRatePerIp);
+        }
+
+        return null;
+    }
+
+    List<ConnectionCounter.Talker> getTopTalkers(final int limit) {
+        return connectionCounter.getTopTalkers(limit);
     }
 }
@@ -0,0 +1,34 @@
+package net.ripe.db.whois.query.pipeline;
+
+import com.google.common.base.Joiner;
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "ConnectionPerIpLimit", description = "Query connections per IP address")
+public class ConnectionPerIpLimitJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPerIpLimitJmx.class);
+
+    private final ConnectionPerIpLimitHandler connectionPerIpLimitHandler;
+
+    @Autowired
+    public ConnectionPerIpLimitJmx(final ConnectionPerIpLimitHandler connectionPerIpLimitHandler) {
+        super(LOGGER);
+        this.connectionPerIpLimitHandler = connectionPerIpLimitHandler;
+    }
+
+    @ManagedOperation(description = "Addresses (IPv6 /64 prefixes) opening the most connections per minute")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "count", description = "The number of addresses to list")
+    })
+    public String getTopTalkers(final int count) {
+        return Joiner.on('\n').join(connectionPerIpLimitHandler.getTopTalkers(count));
+    }
+}
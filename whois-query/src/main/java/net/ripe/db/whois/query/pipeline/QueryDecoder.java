@@ -3,6 +3,7 @@ package net.ripe.db.whois.query.pipeline;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.query.acl.AccessControlListManager;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryLatencyStats;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -17,15 +18,19 @@ import java.net.InetSocketAddress;
 public class QueryDecoder extends OneToOneDecoder {
 
     private final AccessControlListManager accessControlListManager;
+    private final QueryLatencyStats queryLatencyStats;
 
     @Autowired
-    public QueryDecoder(final AccessControlListManager accessControlListManager) {
+    public QueryDecoder(final AccessControlListManager accessControlListManager, final QueryLatencyStats queryLatencyStats) {
         this.accessControlListManager = accessControlListManager;
+        this.queryLatencyStats = queryLatencyStats;
     }
 
     @Override
     protected Object decode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) {
+        final long start = System.nanoTime();
         final Query query = Query.parse((String) msg, Query.Origin.LEGACY, isTrusted(channel));
+        queryLatencyStats.recordParse(query, System.nanoTime() - start);
 
         for (final Message warning : query.getWarnings()) {
             channel.write(warning);
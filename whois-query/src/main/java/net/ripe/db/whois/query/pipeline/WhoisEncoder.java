@@ -2,6 +2,8 @@ package net.ripe.db.whois.query.pipeline;
 
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.query.stats.QueryStage;
+import net.ripe.db.whois.query.stats.QueryStageTimer;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -22,6 +24,15 @@ public class WhoisEncoder extends OneToOneEncoder {
 
     @Override
     protected Object encode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) throws IOException {
+        final QueryStage previous = QueryStageTimer.enter(QueryStage.ENCODE);
+        try {
+            return encode(msg);
+        } finally {
+            QueryStageTimer.exit(previous);
+        }
+    }
+
+    private static Object encode(final Object msg) throws IOException {
         if (msg instanceof ResponseObject) {
             final ChannelBuffer result = ChannelBuffers.dynamicBuffer(DEFAULT_BUFFER_SIZE);
             final ChannelBufferOutputStream out = new ChannelBufferOutputStream(result);
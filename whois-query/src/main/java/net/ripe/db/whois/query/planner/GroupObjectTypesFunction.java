@@ -7,6 +7,8 @@ import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.domain.ResponseObject;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryStage;
+import net.ripe.db.whois.query.stats.QueryStageTimer;
 
 import java.util.Collections;
 import java.util.Set;
@@ -40,6 +42,6 @@ public final class GroupObjectTypesFunction implements GroupFunction {
 
     @Override
     public Iterable<ResponseObject> getGroupedAfter() {
-        return CollectionHelper.iterateProxy(rpslObjectDao, relatedTo);
+        return CollectionHelper.iterateProxy(QueryStageTimer.timed(QueryStage.LOAD, rpslObjectDao), relatedTo);
     }
 }
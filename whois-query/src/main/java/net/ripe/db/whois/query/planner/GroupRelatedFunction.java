@@ -10,6 +10,8 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.QueryMessages;
 import net.ripe.db.whois.query.domain.MessageObject;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryStage;
+import net.ripe.db.whois.query.stats.QueryStageTimer;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -41,7 +43,7 @@ class GroupRelatedFunction implements GroupFunction {
                 }
             }
 
-            return Iterables.concat(result, CollectionHelper.iterateProxy(rpslObjectDao, relatedTo));
+            return Iterables.concat(result, CollectionHelper.iterateProxy(QueryStageTimer.timed(QueryStage.LOAD, rpslObjectDao), relatedTo));
         }
 
         return Collections.singletonList(input);
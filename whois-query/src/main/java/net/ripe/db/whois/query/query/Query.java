@@ -1,5 +1,7 @@
 package net.ripe.db.whois.query.query;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.net.InetAddresses;
@@ -48,8 +50,17 @@ public class Query {
             new VersionValidator(),
             new InverseValidator());
 
+    // automated clients repeat identical queries, so the parsed state is shared between copies for different requests:
+    // it is not changed after parsing (the sets are unmodifiable and the search key is immutable), except for the
+    // messages, which every copy gets its own of
+    private static final int PARSED_QUERY_CACHE_SIZE = 10_000;
+    private static final int MAX_CACHED_QUERY_LENGTH = 256;
+    private static final Cache<List<Object>, Query> PARSED_QUERIES = CacheBuilder.newBuilder()
+            .maximumSize(PARSED_QUERY_CACHE_SIZE)
+            .build();
+
     private final QueryParser queryParser;
-    private final Messages messages = new Messages();
+    private final Messages messages;
 
     private final Set<String> sources;
     private final Set<ObjectType> objectTypeFilter;
@@ -67,6 +78,7 @@ public class Query {
     private boolean matchPrimaryKeyOnly;
 
     private Query(final String query, final Origin origin, final boolean trusted) {
+        messages = new Messages();
         try {
             queryParser = new QueryParser(query);
         } catch (IllegalArgumentExceptionMessage e) {
@@ -83,13 +95,47 @@ public class Query {
         this.trusted = trusted;
     }
 
+    // shares the parsed state, but not the messages or the fields set after parsing
+    private Query(final Query parsed) {
+        queryParser = parsed.queryParser;
+        messages = new Messages();
+        for (final Message message : parsed.messages.getAllMessages()) {
+            messages.add(message);
+        }
+        searchKey = parsed.searchKey;
+        sources = parsed.sources;
+        suppliedObjectTypes = parsed.suppliedObjectTypes;
+        objectTypeFilter = parsed.objectTypeFilter;
+        attributeTypeFilter = parsed.attributeTypeFilter;
+        matchOperation = parsed.matchOperation;
+        origin = parsed.origin;
+        trusted = parsed.trusted;
+    }
+
     public static Query parse(final String args) {
         return parse(args, Origin.LEGACY, false);
     }
 
     public static Query parse(final String args, final Origin origin, final boolean trusted) {
+        final String query = args.trim();
+        if (query.length() > MAX_CACHED_QUERY_LENGTH) {
+            return parseQuery(query, origin, trusted);
+        }
+
+        final List<Object> key = Arrays.asList(query, origin, trusted);
+        Query parsed = PARSED_QUERIES.getIfPresent(key);
+        if (parsed == null) {
+            // invalid queries throw, and are not cached
+            parsed = parseQuery(query, origin, trusted);
+            PARSED_QUERIES.put(key, parsed);
+        }
+
+        return new Query(parsed);
+    }
+
+    private static Query parseQuery(final String args, final Origin origin, final boolean trusted) {
         try {
-            final Query query = new Query(args.trim(), origin, trusted);
+            final Query query = new Query(args, origin, trusted);
 
             for (final QueryValidator queryValidator : QUERY_VALIDATORS) {
                 queryValidator.validate(query, query.messages);
@@ -134,7 +180,7 @@ public class Query {
     }
 
     public Collection<Message> getWarnings() {
-        return messages.getMessages(Messages.Type.WARNING);
+        return Collections.unmodifiableCollection(messages.getMessages(Messages.Type.WARNING));
     }
 
     public boolean isAllSources() {
@@ -9,29 +9,48 @@ import net.ripe.db.whois.common.rpsl.attrs.AttributeParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.CheckForNull;
 import java.util.regex.Pattern;
 
+// immutable, as parsed queries (and their search key) are shared between query threads
 class SearchKey {
     private static final Logger LOGGER = LoggerFactory.getLogger(SearchKey.class);
     public static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
 
-    private String value;
+    private final String value;
 
-    private IpInterval<?> ipKey;
-    private IpInterval<?> ipKeyReverse;
+    private final IpInterval<?> ipKey;
+    private final IpInterval<?> ipKeyReverse;
 
-    private String origin;
+    private final String origin;
 
-    private AsBlockRange asBlockRange;
-    private boolean parsedAsBlockRange;
+    private final AsBlockRange asBlockRange;
 
     SearchKey(final String value) {
         final String cleanValue = WHITESPACE_PATTERN.matcher(value.trim()).replaceAll(" ");
+        final Parsed parsed = parse(cleanValue);
+
+        this.value = parsed.value;
+        this.ipKey = parsed.ipKey;
+        this.ipKeyReverse = parsed.ipKeyReverse;
+        this.origin = parsed.origin;
+        this.asBlockRange = parseAsBlockRange(parsed.value);
+    }
+
+    private static final class Parsed {
+        private String value;
+        private IpInterval<?> ipKey;
+        private IpInterval<?> ipKeyReverse;
+        private String origin;
+    }
+
+    private static Parsed parse(final String cleanValue) {
+        final Parsed parsed = new Parsed();
 
         try {
-            ipKey = IpInterval.parse(cleanValue);
-            this.value = ipKey instanceof Ipv4Resource ? ((Ipv4Resource) ipKey).toRangeString() : ipKey.toString();
-            return;
+            parsed.ipKey = IpInterval.parse(cleanValue);
+            parsed.value = parsed.ipKey instanceof Ipv4Resource ? ((Ipv4Resource) parsed.ipKey).toRangeString() : parsed.ipKey.toString();
+            return parsed;
         } catch (RuntimeException e) {
             LOGGER.debug(e.getMessage(), e);
         }
@@ -40,28 +59,40 @@ class SearchKey {
             // TODO: [AH] route parsing should be extracted from iptrees, same way as Ipv4/6Resource
             if (cleanValue.indexOf(':') == -1) {
                 final Ipv4RouteEntry routeEntry = Ipv4RouteEntry.parse(cleanValue, 0);
-                ipKey = routeEntry.getKey();
-                origin = routeEntry.getOrigin();
+                parsed.ipKey = routeEntry.getKey();
+                parsed.origin = routeEntry.getOrigin();
             } else {
                 final Ipv6RouteEntry routeEntry = Ipv6RouteEntry.parse(cleanValue, 0);
-                ipKey = routeEntry.getKey();
-                origin = routeEntry.getOrigin();
+                parsed.ipKey = routeEntry.getKey();
+                parsed.origin = routeEntry.getOrigin();
             }
-            this.value = cleanValue;
-            return;
+            parsed.value = cleanValue;
+            return parsed;
         } catch (RuntimeException e) {
             LOGGER.debug(e.getMessage(), e);
         }
 
         try {
-            this.value = IpInterval.removeTrailingDot(cleanValue);
-            ipKeyReverse = IpInterval.parseReverseDomain(this.value);
-            return;
+            parsed.value = IpInterval.removeTrailingDot(cleanValue);
+            parsed.ipKeyReverse = IpInterval.parseReverseDomain(parsed.value);
+            return parsed;
         } catch (RuntimeException e) {
             LOGGER.debug(e.getMessage(), e);
         }
 
-        this.value = cleanValue;
+        parsed.value = cleanValue;
+        return parsed;
+    }
+
+    @CheckForNull
+    private static AsBlockRange parseAsBlockRange(final String value) {
+        try {
+            // support for 'AS222' specification of as-block (meaning 'AS222-AS222')
+            final String sanitizedAsBlock = value.indexOf('-') == -1 ? value + "-" + value : value;
+            return AsBlockRange.parse(sanitizedAsBlock);
+        } catch (AttributeParseException e) {
+            return null;
+        }
     }
 
     public String getValue() {
@@ -77,18 +108,6 @@ class SearchKey {
     }
 
     public AsBlockRange getAsBlockRangeOrNull() {
-        if (!parsedAsBlockRange) {
-            parsedAsBlockRange = true;
-
-            try {
-                // support for 'AS222' specification of as-block (meaning 'AS222-AS222')
-                final String sanitizedAsBlock = value.indexOf('-') == -1 ? value + "-" + value : value;
-                asBlockRange = AsBlockRange.parse(sanitizedAsBlock);
-            } catch (AttributeParseException e) {
-                asBlockRange = null;
-            }
-        }
-
         return asBlockRange;
     }
 
@@ -0,0 +1,152 @@
+package net.ripe.db.whois.query.stats;
+
+import net.ripe.db.whois.query.query.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the stages of query execution, per query type and per source.
+ *
+ * When disabled, queries are not timed at all.
+ */
+@Component
+public class QueryLatencyStats {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ConcurrentMap<String, LatencyHistogram[]> byQueryType = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram[]> bySource = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+
+    public QueryLatencyStats(@Value("${whois.query.stats.enabled:false}") final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Start timing the stages of a query executed by the current thread.
+     * @return the timer, to finish when the query is done (or null if disabled)
+     */
+    @CheckForNull
+    public QueryStageTimer start(final Query query) {
+        if (!enabled) {
+            return null;
+        }
+
+        final QueryStageTimer timer = new QueryStageTimer(this, getQueryType(query));
+        timer.start();
+        return timer;
+    }
+
+    public void finish(@Nullable final QueryStageTimer timer) {
+        if (timer != null) {
+            timer.finish();
+        }
+    }
+
+    public void recordParse(final Query query, final long nanos) {
+        if (enabled) {
+            record(QueryStage.PARSE, getQueryType(query), null, nanos);
+        }
+    }
+
+    void record(final QueryStage stage, @Nullable final String queryType, @Nullable final String source, final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        if (queryType != null) {
+            getHistograms(byQueryType, queryType)[stage.ordinal()].record(micros);
+        }
+        if (source != null) {
+            getHistograms(bySource, source)[stage.ordinal()].record(micros);
+        }
+    }
+
+    public void reset() {
+        byQueryType.clear();
+        bySource.clear();
+    }
+
+    /**
+     * @return the latency percentiles (in microseconds) of every stage, per query type and per source
+     */
+    public String getStats() {
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-20s %-8s %10s %10s %10s", "", "stage", "count", "mean", "max"));
+        for (final double percentile : PERCENTILES) {
+            builder.append(String.format(" %10s", "p" + percentile));
+        }
+        builder.append('\n');
+
+        appendStats(builder, "type", byQueryType);
+        appendStats(builder, "source", bySource);
+        return builder.toString();
+    }
+
+    private static void appendStats(final StringBuilder builder, final String dimension, final Map<String, LatencyHistogram[]> histograms) {
+        final SortedMap<String, LatencyHistogram[]> sorted = new TreeMap<>(histograms);
+        for (final Map.Entry<String, LatencyHistogram[]> entry : sorted.entrySet()) {
+            for (final QueryStage stage : QueryStage.values()) {
+                final LatencyHistogram histogram = entry.getValue()[stage.ordinal()];
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+
+                builder.append(String.format("%-20s %-8s %10d %10d %10d", dimension + "=" + entry.getKey(), stage, histogram.getCount(), histogram.getMean(), histogram.getMax()));
+                for (final double percentile : PERCENTILES) {
+                    builder.append(String.format(" %10d", histogram.getValueAtPercentile(percentile)));
+                }
+                builder.append('\n');
+            }
+        }
+    }
+
+    private static LatencyHistogram[] getHistograms(final ConcurrentMap<String, LatencyHistogram[]> histograms, final String key) {
+        final LatencyHistogram[] result = histograms.get(key);
+        if (result != null) {
+            return result;
+        }
+
+        return histograms.computeIfAbsent(key, k -> {
+            final LatencyHistogram[] created = new LatencyHistogram[QueryStage.values().length];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = new LatencyHistogram();
+            }
+            return created;
+        });
+    }
+
+    static String getQueryType(final Query query) {
+        if (query.isVersionList() || query.isObjectVersion() || query.isVersionDiff()) {
+            return "version";
+        }
+
+        if (query.isSystemInfo() || query.isTemplate() || query.isVerbose() || query.isHelp()) {
+            return "info";
+        }
+
+        if (query.isInverse()) {
+            return "inverse";
+        }
+
+        if (query.getIpKeyOrNull() != null) {
+            return "ip";
+        }
+
+        return "lookup";
+    }
+}
@@ -0,0 +1,49 @@
+package net.ripe.db.whois.query.stats;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "QueryLatencyStats", description = "Latency of query execution stages")
+public class QueryLatencyStatsJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryLatencyStatsJmx.class);
+
+    private final QueryLatencyStats queryLatencyStats;
+
+    @Autowired
+    public QueryLatencyStatsJmx(final QueryLatencyStats queryLatencyStats) {
+        super(LOGGER);
+        this.queryLatencyStats = queryLatencyStats;
+    }
+
+    @ManagedOperation(description = "Latency percentiles (in microseconds) per stage, per query type and per source")
+    public String getStats() {
+        return queryLatencyStats.getStats();
+    }
+
+    @ManagedOperation(description = "Enable or disable timing query execution stages")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "enabled", description = "Time query execution stages")
+    })
+    public String setEnabled(final boolean enabled) {
+        return invokeOperation("Set query latency stats enabled", String.valueOf(enabled), () -> {
+            queryLatencyStats.setEnabled(enabled);
+            return "Query latency stats " + (enabled ? "enabled" : "disabled");
+        });
+    }
+
+    @ManagedOperation(description = "Discard all recorded latencies")
+    public String reset() {
+        return invokeOperation("Reset query latency stats", "", () -> {
+            queryLatencyStats.reset();
+            return "Query latency stats reset";
+        });
+    }
+}
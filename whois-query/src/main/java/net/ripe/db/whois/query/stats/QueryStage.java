@@ -0,0 +1,11 @@
+package net.ripe.db.whois.query.stats;
+
+public enum QueryStage {
+    PARSE,
+    ACL,
+    SEARCH,
+    LOAD,
+    DECORATE,
+    ENCODE,
+    TOTAL
+}
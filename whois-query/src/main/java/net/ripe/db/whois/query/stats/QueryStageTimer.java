@@ -0,0 +1,114 @@
+package net.ripe.db.whois.query.stats;
+
+import net.ripe.db.whois.common.collect.ProxyLoader;
+
+import javax.annotation.Nullable;
+
+/**
+ * Times the stages of the query executed by the current thread.
+ *
+ * Stages may be nested (e.g. loading objects while iterating over decorated results), the time spent in a nested
+ * stage is only accounted to the nested stage. If no query is timed, entering and exiting a stage does nothing.
+ */
+public final class QueryStageTimer {
+    private static final ThreadLocal<QueryStageTimer> CURRENT = new ThreadLocal<>();
+    private static final QueryStage[] STAGES = QueryStage.values();
+
+    private final QueryLatencyStats stats;
+    private final String queryType;
+    private final long start;
+
+    private final long[] nanos = new long[STAGES.length];
+    private final long[] sourceStart = new long[STAGES.length];
+    private String source;
+
+    private QueryStage stage;
+    private long mark;
+
+    QueryStageTimer(final QueryLatencyStats stats, final String queryType) {
+        this.stats = stats;
+        this.queryType = queryType;
+        this.start = System.nanoTime();
+        this.mark = start;
+    }
+
+    /**
+     * Enter a stage.
+     * @return the stage to return to on exit
+     */
+    @Nullable
+    public static QueryStage enter(final QueryStage stage) {
+        final QueryStageTimer timer = CURRENT.get();
+        return timer == null ? null : timer.switchTo(stage);
+    }
+
+    public static void exit(@Nullable final QueryStage previous) {
+        final QueryStageTimer timer = CURRENT.get();
+        if (timer != null) {
+            timer.switchTo(previous);
+        }
+    }
+
+    /**
+     * Account the stages from now on to the given source.
+     */
+    public static void setSource(@Nullable final String source) {
+        final QueryStageTimer timer = CURRENT.get();
+        if (timer != null) {
+            timer.switchTo(timer.stage);
+            timer.recordSource();
+            timer.source = source;
+        }
+    }
+
+    public static <P, R> ProxyLoader<P, R> timed(final QueryStage stage, final ProxyLoader<P, R> loader) {
+        return (proxy, result) -> {
+            final QueryStage previous = enter(stage);
+            try {
+                loader.load(proxy, result);
+            } finally {
+                exit(previous);
+            }
+        };
+    }
+
+    void start() {
+        CURRENT.set(this);
+    }
+
+    void finish() {
+        CURRENT.remove();
+
+        switchTo(null);
+        recordSource();
+
+        for (final QueryStage queryStage : STAGES) {
+            if (nanos[queryStage.ordinal()] > 0) {
+                stats.record(queryStage, queryType, null, nanos[queryStage.ordinal()]);
+            }
+        }
+        stats.record(QueryStage.TOTAL, queryType, null, System.nanoTime() - start);
+    }
+
+    private QueryStage switchTo(@Nullable final QueryStage next) {
+        final long now = System.nanoTime();
+        if (stage != null) {
+            nanos[stage.ordinal()] += now - mark;
+        }
+
+        final QueryStage previous = stage;
+        stage = next;
+        mark = now;
+        return previous;
+    }
+
+    private void recordSource() {
+        for (int i = 0; i < nanos.length; i++) {
+            final long elapsed = nanos[i] - sourceStart[i];
+            if (source != null && elapsed > 0) {
+                stats.record(STAGES[i], null, source, elapsed);
+            }
+            sourceStart[i] = nanos[i];
+        }
+    }
+}
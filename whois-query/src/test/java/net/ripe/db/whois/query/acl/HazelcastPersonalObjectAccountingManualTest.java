@@ -0,0 +1,90 @@
+package net.ripe.db.whois.query.acl;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.ManualTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Many threads accounting personal objects for the same address.
+ *
+ * With a maximum overshoot of 0 every accounting locks the counter in Hazelcast (as every accounting did before the
+ * counts were kept locally), otherwise only one in every max overshoot accountings does.
+ */
+@Category(ManualTest.class)
+public class HazelcastPersonalObjectAccountingManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HazelcastPersonalObjectAccountingManualTest.class);
+
+    private static final int THREADS = 32;
+    private static final int ACCOUNTINGS_PER_THREAD = 10_000;
+
+    @BeforeClass
+    public static void startHazelcast() {
+        HazelcastPersonalObjectAccounting.startHazelcast();
+    }
+
+    @AfterClass
+    public static void shutdownHazelcast() {
+        HazelcastPersonalObjectAccounting.shutdownHazelcast();
+    }
+
+    @Test
+    public void contention_lock_per_accounting() throws Exception {
+        run(0);
+    }
+
+    @Test
+    public void contention_local_counters() throws Exception {
+        run(50);
+    }
+
+    private void run(final int maxOvershoot) throws Exception {
+        final HazelcastPersonalObjectAccounting subject = new HazelcastPersonalObjectAccounting();
+        ReflectionTestUtils.setField(subject, "maxOvershoot", maxOvershoot);
+        subject.resetAccounting();
+
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+        final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+
+            final List<Future<?>> futures = Lists.newArrayList();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < ACCOUNTINGS_PER_THREAD; i++) {
+                        subject.accountPersonalObject(address, 1);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+
+            stopwatch.stop();
+            subject.reconcile();
+
+            final int accountings = THREADS * ACCOUNTINGS_PER_THREAD;
+            assertThat(subject.getQueriedPersonalObjects(address), is(accountings));
+            LOGGER.info("Max overshoot {}: {} accountings by {} threads took {} ({} ns/accounting)",
+                    maxOvershoot, accountings, THREADS, stopwatch, stopwatch.elapsed(TimeUnit.NANOSECONDS) / accountings);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package net.ripe.db.whois.query.acl;
 
+import com.jayway.awaitility.Awaitility;
 import net.ripe.db.whois.common.DateTimeProvider;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -9,10 +10,14 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -82,4 +87,79 @@ public class HazelcastPersonalObjectAccountingTest {
 
         assertThat(subject.getQueriedPersonalObjects(ipv4Address), is(0));
     }
+
+    @Test
+    public void test_accounted_locally_until_reconciled() {
+        final HazelcastPersonalObjectAccounting node = createNode(10);
+        final HazelcastPersonalObjectAccounting otherNode = createNode(10);
+
+        assertThat(node.accountPersonalObject(ipv4Address, 5), is(5));
+        assertThat(node.getQueriedPersonalObjects(ipv4Address), is(5));
+        assertThat(otherNode.getQueriedPersonalObjects(ipv4Address), is(0));
+
+        node.reconcile();
+
+        assertThat(otherNode.getQueriedPersonalObjects(ipv4Address), is(5));
+    }
+
+    @Test
+    public void test_reconciled_early_at_max_overshoot() {
+        final HazelcastPersonalObjectAccounting node = createNode(10);
+        final HazelcastPersonalObjectAccounting otherNode = createNode(10);
+        final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+        ReflectionTestUtils.setField(node, "executorService", executorService);
+        try {
+            node.accountPersonalObject(ipv4Address, 9);
+            assertThat(otherNode.getQueriedPersonalObjects(ipv4Address), is(0));
+
+            assertThat(node.accountPersonalObject(ipv4Address, 1), is(10));
+            Awaitility.await().atMost(5, TimeUnit.SECONDS).until(() -> otherNode.getQueriedPersonalObjects(ipv4Address), is(10));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_reconcile_reads_other_nodes() {
+        final HazelcastPersonalObjectAccounting node = createNode(10);
+        final HazelcastPersonalObjectAccounting otherNode = createNode(10);
+
+        node.accountPersonalObject(ipv4Address, 2);
+        otherNode.accountPersonalObject(ipv4Address, 3);
+        assertThat(node.getQueriedPersonalObjects(ipv4Address), is(2));
+
+        node.reconcile();
+        otherNode.reconcile();
+        assertThat(otherNode.getQueriedPersonalObjects(ipv4Address), is(5));
+        assertThat(node.getQueriedPersonalObjects(ipv4Address), is(2));
+
+        node.reconcile();
+        assertThat(node.getQueriedPersonalObjects(ipv4Address), is(5));
+    }
+
+    @Test
+    public void test_reconcile_after_reset_on_other_node() {
+        final HazelcastPersonalObjectAccounting node = createNode(10);
+        final HazelcastPersonalObjectAccounting otherNode = createNode(10);
+
+        node.accountPersonalObject(ipv4Address, 5);
+        node.reconcile();
+
+        otherNode.resetAccounting();
+        assertThat(node.getQueriedPersonalObjects(ipv4Address), is(5));
+
+        node.reconcile();
+        assertThat(node.getQueriedPersonalObjects(ipv4Address), is(0));
+
+        assertThat(node.accountPersonalObject(ipv4Address, 1), is(1));
+        node.reconcile();
+        assertThat(otherNode.getQueriedPersonalObjects(ipv4Address), is(1));
+    }
+
+    // shares the hazelcast instance, but keeps its own local counters
+    private static HazelcastPersonalObjectAccounting createNode(final int maxOvershoot) {
+        final HazelcastPersonalObjectAccounting node = new HazelcastPersonalObjectAccounting();
+        ReflectionTestUtils.setField(node, "maxOvershoot", maxOvershoot);
+        return node;
+    }
 }
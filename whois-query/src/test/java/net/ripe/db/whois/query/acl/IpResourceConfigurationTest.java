@@ -102,4 +102,80 @@ public class IpResourceConfigurationTest {
 
         assertThat(subject.isUnlimitedConnections(inetAddress), is(true));
     }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_most_specific_range_per_attribute() throws Exception {
+        when(loader.loadIpLimit()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("10.0.0.0/8"), 100),
+                new IpResourceEntry<>(IpInterval.parse("10.1.0.0/16"), -1)));
+        when(loader.loadIpDenied()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("10.0.0.0/16"), true),
+                new IpResourceEntry<>(IpInterval.parse("10.0.1.0/24"), false)));
+        when(loader.loadIpProxy()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("10.0.0.128/25"), true)));
+
+        subject.reload();
+
+        assertThat(subject.getLimit(InetAddress.getByName("9.255.255.255")), is(5000));
+        assertThat(subject.getLimit(InetAddress.getByName("10.0.0.0")), is(100));
+        assertThat(subject.isDenied(InetAddress.getByName("10.0.0.0")), is(true));
+        assertThat(subject.isProxy(InetAddress.getByName("10.0.0.127")), is(false));
+        assertThat(subject.isProxy(InetAddress.getByName("10.0.0.128")), is(true));
+        assertThat(subject.isDenied(InetAddress.getByName("10.0.0.255")), is(true));
+        assertThat(subject.isProxy(InetAddress.getByName("10.0.1.0")), is(false));
+        assertThat(subject.isDenied(InetAddress.getByName("10.0.1.0")), is(false));
+        assertThat(subject.isDenied(InetAddress.getByName("10.0.2.0")), is(true));
+        assertThat(subject.isDenied(InetAddress.getByName("10.1.0.0")), is(false));
+        assertThat(subject.getLimit(InetAddress.getByName("10.1.255.255")), is(-1));
+        assertThat(subject.getLimit(InetAddress.getByName("10.2.0.0")), is(100));
+        assertThat(subject.getLimit(InetAddress.getByName("11.0.0.0")), is(5000));
+        assertThat(subject.getLimit(InetAddress.getByName("255.255.255.255")), is(5000));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_ipv6() throws Exception {
+        when(loader.loadIpLimit()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("2001:db8::/32"), 10),
+                new IpResourceEntry<>(IpInterval.parse("ffff::/16"), 20)));
+        when(loader.loadUnlimitedConnections()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("2001:db8::1/128"), true)));
+
+        subject.reload();
+
+        assertThat(subject.getLimit(InetAddress.getByName("2001:db7:ffff:ffff:ffff:ffff:ffff:ffff")), is(5000));
+        assertThat(subject.getLimit(InetAddress.getByName("2001:db8::")), is(10));
+        assertThat(subject.isUnlimitedConnections(InetAddress.getByName("2001:db8::")), is(false));
+        assertThat(subject.isUnlimitedConnections(InetAddress.getByName("2001:db8::1")), is(true));
+        assertThat(subject.isUnlimitedConnections(InetAddress.getByName("2001:db8::2")), is(false));
+        assertThat(subject.getLimit(InetAddress.getByName("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff")), is(10));
+        assertThat(subject.getLimit(InetAddress.getByName("2001:db9::")), is(5000));
+        assertThat(subject.getLimit(InetAddress.getByName("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")), is(20));
+        assertThat(subject.getLimit(inetAddress), is(5000));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_interval() throws Exception {
+        when(loader.loadIpDenied()).thenReturn(Arrays.asList(
+                new IpResourceEntry<>(IpInterval.parse("10.0.0.0/8"), true)));
+
+        subject.reload();
+
+        assertThat(subject.isDenied(IpInterval.parse("10.1.0.0/16")), is(true));
+        assertThat(subject.isDenied(IpInterval.parse("10.0.0.0/7")), is(false));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void test_failed_reload_keeps_configuration() throws Exception {
+        when(loader.loadIpDenied()).thenReturn(Arrays.asList(new IpResourceEntry<>(IpInterval.asIpInterval(inetAddress), true)));
+        subject.reload();
+
+        when(loader.loadIpDenied()).thenThrow(new IllegalStateException("database down"));
+        subject.reload();
+
+        assertThat(subject.isDenied(inetAddress), is(true));
+    }
 }
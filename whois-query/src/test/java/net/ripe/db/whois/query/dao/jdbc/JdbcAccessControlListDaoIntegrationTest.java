@@ -4,6 +4,7 @@ import net.ripe.db.whois.common.IntegrationTest;
 import net.ripe.db.whois.common.domain.BlockEvent;
 import net.ripe.db.whois.common.domain.BlockEvents;
 import net.ripe.db.whois.common.domain.IpResourceEntry;
+import net.ripe.db.whois.common.domain.PermanentBlock;
 import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.ip.Ipv6Resource;
@@ -12,11 +13,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -170,6 +175,59 @@ public class JdbcAccessControlListDaoIntegrationTest extends AbstractQueryDaoInt
         }
     }
 
+    @Test
+    public void get_temporary_block_counts_empty() {
+        final Map<String, Integer> temporaryBlockCounts = getTemporaryBlockCounts(LocalDate.now(), 1);
+
+        assertThat(temporaryBlockCounts.entrySet(), is(empty()));
+    }
+
+    @Test
+    public void get_temporary_block_counts_after_time() {
+        saveAclEvent(inetAddress1, 0, BlockEvent.Type.BLOCK_TEMPORARY);
+        final LocalDate blockTime = saveAclEvent(inetAddress1, 1, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress1, 2, BlockEvent.Type.BLOCK_TEMPORARY);
+
+        final Map<String, Integer> temporaryBlockCounts = getTemporaryBlockCounts(blockTime, 1);
+
+        assertThat(temporaryBlockCounts, is(Collections.singletonMap("128.0.0.1/32", 2)));
+    }
+
+    @Test
+    public void get_temporary_block_counts_after_unblock() {
+        final LocalDate blockTime = saveAclEvent(inetAddress1, 0, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress1, 1, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress1, 2, BlockEvent.Type.UNBLOCK);
+        saveAclEvent(inetAddress1, 3, BlockEvent.Type.BLOCK_TEMPORARY);
+
+        saveAclEvent(inetAddress2, 1, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress2, 2, BlockEvent.Type.BLOCK_PERMANENTLY);
+
+        final Map<String, Integer> temporaryBlockCounts = getTemporaryBlockCounts(blockTime, 1);
+
+        assertThat(temporaryBlockCounts, is(Collections.singletonMap("128.0.0.1/32", 1)));
+    }
+
+    @Test
+    public void get_temporary_block_counts_minimum_count() {
+        final LocalDate blockTime = saveAclEvent(inetAddress1, 0, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress1, 1, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress1, 3, BlockEvent.Type.BLOCK_TEMPORARY);
+
+        saveAclEvent(inetAddress2, 1, BlockEvent.Type.BLOCK_TEMPORARY);
+        saveAclEvent(inetAddress2, 2, BlockEvent.Type.BLOCK_TEMPORARY);
+
+        final Map<String, Integer> temporaryBlockCounts = getTemporaryBlockCounts(blockTime, 3);
+
+        assertThat(temporaryBlockCounts, is(Collections.singletonMap("128.0.0.1/32", 3)));
+    }
+
+    private Map<String, Integer> getTemporaryBlockCounts(final LocalDate blockTime, final int minimumCount) {
+        final Map<String, Integer> temporaryBlockCounts = new HashMap<>();
+        subject.getTemporaryBlockCounts(blockTime, minimumCount, temporaryBlockCounts::put);
+        return temporaryBlockCounts;
+    }
+
     private LocalDate saveAclEvent(InetAddress inetAddress, int day, BlockEvent.Type type) {
         final LocalDate blockTime = LocalDate.now().minusYears(1).plusDays(day);
         subject.saveAclEvent(IpInterval.asIpInterval(inetAddress), blockTime, 1, type);
@@ -333,4 +391,46 @@ public class JdbcAccessControlListDaoIntegrationTest extends AbstractQueryDaoInt
         assertThat(aclEvent.get("event_type"), is(BlockEvent.Type.BLOCK_PERMANENTLY.name()));
     }
 
+    @Test
+    public void save_permanent_blocks() {
+        final LocalDate blockTime = LocalDate.now();
+        subject.saveAclEvent(Ipv4Resource.parse("128.0.0.1/32"), blockTime, 10, BlockEvent.Type.BLOCK_TEMPORARY);
+
+        subject.savePermanentBlocks(Arrays.asList(
+                new PermanentBlock(Ipv4Resource.parse("128.0.0.1/32"), blockTime, 10, "permanent block"),
+                new PermanentBlock(Ipv6Resource.parse("2a03:f480:1:c:0:0:0:0/64"), blockTime, 20, "permanent block")));
+
+        final List<IpResourceEntry<Boolean>> entries = subject.loadIpDenied();
+        assertThat(entries, hasSize(2));
+
+        final List<Map<String, Object>> aclEvents = databaseHelper.listAclEvents();
+        assertThat(aclEvents, hasSize(2));
+        for (final Map<String, Object> aclEvent : aclEvents) {
+            if (aclEvent.get("prefix").equals("128.0.0.1/32")) {
+                assertThat(aclEvent.get("event_type"), is(BlockEvent.Type.BLOCK_TEMPORARY.name()));
+            } else {
+                assertThat(aclEvent.get("prefix"), is("2a03:f480:1:c::/64"));
+                assertThat(aclEvent.get("daily_limit"), is(20));
+                assertThat(aclEvent.get("event_type"), is(BlockEvent.Type.BLOCK_PERMANENTLY.name()));
+            }
+        }
+    }
+
+    @Test
+    public void save_permanent_blocks_rolled_back_on_failure() {
+        final LocalDate blockTime = LocalDate.now();
+        databaseHelper.insertAclIpDenied("128.0.0.2/32");
+
+        try {
+            subject.savePermanentBlocks(Arrays.asList(
+                    new PermanentBlock(Ipv4Resource.parse("128.0.0.1/32"), blockTime, 10, "permanent block"),
+                    new PermanentBlock(Ipv4Resource.parse("128.0.0.2/32"), blockTime, 10, "permanent block")));
+            fail("Expected duplicate key");
+        } catch (DataIntegrityViolationException expected) {
+            // the existing ban is kept
+        }
+
+        assertThat(subject.loadIpDenied(), hasSize(1));
+        assertThat(databaseHelper.listAclEvents(), is(empty()));
+    }
 }
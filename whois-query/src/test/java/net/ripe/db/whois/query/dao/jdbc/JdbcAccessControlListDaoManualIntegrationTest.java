@@ -0,0 +1,134 @@
+package net.ripe.db.whois.query.dao.jdbc;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.DateUtil;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.domain.BlockEvent;
+import net.ripe.db.whois.common.domain.BlockEvents;
+import net.ripe.db.whois.query.dao.AccessControlListDao;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Find the prefixes to ban permanently among millions of generated acl events, measuring runtime and peak heap when
+ * loading every block event (getTemporaryBlocks) and when counting the temporary blocks in the database
+ * (getTemporaryBlockCounts). Peak heap is sampled, so it is an approximation.
+ */
+@Category(ManualTest.class)
+public class JdbcAccessControlListDaoManualIntegrationTest extends AbstractQueryDaoIntegrationTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcAccessControlListDaoManualIntegrationTest.class);
+
+    private static final int PREFIXES = 500_000;
+    private static final int DAYS = 30;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Autowired AccessControlListDao subject;
+
+    private final Random random = new Random(1);
+    private LocalDate blockTime;
+    private int expectedPermanentBlocks;
+
+    @Before
+    public void setup() {
+        blockTime = LocalDate.now().minusDays(DAYS);
+
+        final List<Object[]> aclEvents = Lists.newArrayListWithCapacity(BATCH_SIZE);
+        int events = 0;
+        for (int prefix = 0; prefix < PREFIXES; prefix++) {
+            // most prefixes are blocked a few times, some every day (and some of those are unblocked halfway)
+            final boolean frequent = random.nextInt(50) == 0;
+            final int unblockDay = frequent && random.nextBoolean() ? DAYS / 2 : -1;
+            int temporaryBlocks = 0;
+
+            for (int day = 0; day < DAYS; day++) {
+                final BlockEvent.Type type;
+                if (day == unblockDay) {
+                    type = BlockEvent.Type.UNBLOCK;
+                    temporaryBlocks = 0;
+                } else if (frequent || random.nextInt(5) == 0) {
+                    type = BlockEvent.Type.BLOCK_TEMPORARY;
+                    temporaryBlocks++;
+                } else {
+                    continue;
+                }
+
+                aclEvents.add(new Object[]{createPrefix(prefix), DateUtil.toDate(blockTime.plusDays(day)), 5000, type.name()});
+                if (aclEvents.size() == BATCH_SIZE) {
+                    databaseHelper.getAclTemplate().batchUpdate("INSERT INTO acl_event (prefix, event_time, daily_limit, event_type) VALUES (?, ?, ?, ?)", aclEvents);
+                    events += aclEvents.size();
+                    aclEvents.clear();
+                }
+            }
+
+            if (temporaryBlocks >= BlockEvents.NR_TEMP_BLOCKS_BEFORE_PERMANENT) {
+                expectedPermanentBlocks++;
+            }
+        }
+
+        databaseHelper.getAclTemplate().batchUpdate("INSERT INTO acl_event (prefix, event_time, daily_limit, event_type) VALUES (?, ?, ?, ?)", aclEvents);
+        events += aclEvents.size();
+
+        LOGGER.info("Generated {} acl events for {} prefixes, {} to ban permanently", events, PREFIXES, expectedPermanentBlocks);
+    }
+
+    @Test
+    public void get_temporary_blocks() {
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long baseline = runtime.totalMemory() - runtime.freeMemory();
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final List<BlockEvents> temporaryBlocks = subject.getTemporaryBlocks(blockTime);
+        final long peak = runtime.totalMemory() - runtime.freeMemory();
+
+        int permanentBlocks = 0;
+        for (final BlockEvents blockEvents : temporaryBlocks) {
+            if (blockEvents.isPermanentBlockRequired()) {
+                permanentBlocks++;
+            }
+        }
+
+        LOGGER.info("getTemporaryBlocks: {} prefixes to ban permanently in {}, heap +{} MB",
+                permanentBlocks, stopwatch, (peak - baseline) / (1024 * 1024));
+
+        assertThat(permanentBlocks, is(expectedPermanentBlocks));
+    }
+
+    @Test
+    public void get_temporary_block_counts() {
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long baseline = runtime.totalMemory() - runtime.freeMemory();
+        final long[] peak = {baseline};
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final AtomicInteger permanentBlocks = new AtomicInteger();
+        subject.getTemporaryBlockCounts(blockTime, BlockEvents.NR_TEMP_BLOCKS_BEFORE_PERMANENT, (prefix, temporaryBlockCount) -> {
+            if (permanentBlocks.incrementAndGet() % 100 == 0) {
+                peak[0] = Math.max(peak[0], runtime.totalMemory() - runtime.freeMemory());
+            }
+        });
+
+        LOGGER.info("getTemporaryBlockCounts: {} prefixes to ban permanently in {}, peak heap +{} MB",
+                permanentBlocks.get(), stopwatch, (peak[0] - baseline) / (1024 * 1024));
+
+        assertThat(permanentBlocks.get(), is(expectedPermanentBlocks));
+    }
+
+    private static String createPrefix(final int prefix) {
+        return String.format("10.%d.%d.%d/32", prefix >> 16, (prefix >> 8) & 0xff, prefix & 0xff);
+    }
+}
@@ -0,0 +1,88 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
+/**
+ * Memory footprint of an inverse index on mnt-by and org for a database sized like the RIPE database, and the latency
+ * of lookups (for the most popular maintainer and for random ones) and of updates.
+ *
+ * Compare with the SQL path by timing the same inverse queries (e.g. -i mnt-by) against a loaded database.
+ */
+@Category(ManualTest.class)
+public class InverseIndexManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InverseIndexManualTest.class);
+
+    private static final List<AttributeType> ATTRIBUTE_TYPES = ImmutableList.of(AttributeType.MNT_BY, AttributeType.ORG);
+    private static final int OBJECTS = 4_000_000;
+    private static final int MAINTAINERS = 60_000;
+    private static final int ORGANISATIONS = 100_000;
+    private static final int POPULAR_OBJECTS = 500_000;
+    private static final int LOOKUPS = 10_000;
+    private static final int UPDATES = 1_000;
+
+    @Test
+    public void footprint_and_latency() {
+        final Random random = new Random(0);
+        final Runtime runtime = Runtime.getRuntime();
+
+        System.gc();
+        final long baseline = runtime.totalMemory() - runtime.freeMemory();
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        final InverseIndex.Index.Builder builder = new InverseIndex.Index.Builder(ATTRIBUTE_TYPES);
+        for (int objectId = 1; objectId <= OBJECTS; objectId++) {
+            final String pkey = "10." + (objectId >> 16) + "." + ((objectId >> 8) & 0xff) + "." + (objectId & 0xff) + " - 10.0.0.255";
+            final int maintainer = objectId <= POPULAR_OBJECTS ? 0 : random.nextInt(MAINTAINERS);
+            builder.add(0, objectId, ObjectType.INETNUM, pkey, ciString("MAINT" + maintainer + "-MNT"));
+            if (objectId % 2 == 0) {
+                builder.add(0, objectId, ObjectType.INETNUM, pkey, ciString("MAINT" + random.nextInt(MAINTAINERS) + "-MNT"));
+            }
+            if (objectId % 3 == 0) {
+                builder.add(1, objectId, ObjectType.INETNUM, pkey, ciString("ORG-T" + random.nextInt(ORGANISATIONS) + "-TEST"));
+            }
+        }
+        final InverseIndex.Index index = builder.build(1);
+        LOGGER.info("Built index of {} in {}", index, stopwatch);
+
+        System.gc();
+        LOGGER.info("Heap used by index: {} MB", (runtime.totalMemory() - runtime.freeMemory() - baseline) / (1024 * 1024));
+
+        final CIString popular = ciString("MAINT0-MNT");
+        for (int round = 0; round < 5; round++) {
+            stopwatch = Stopwatch.createStarted();
+            final int found = index.find(AttributeType.MNT_BY, popular).get().size();
+            LOGGER.info("Lookup of {} objects for popular maintainer took {} us", found, stopwatch.elapsed(TimeUnit.MICROSECONDS));
+        }
+
+        stopwatch = Stopwatch.createStarted();
+        long found = 0;
+        for (int lookup = 0; lookup < LOOKUPS; lookup++) {
+            found += index.find(AttributeType.MNT_BY, ciString("MAINT" + (1 + random.nextInt(MAINTAINERS - 1)) + "-MNT")).get().size();
+        }
+        LOGGER.info("{} lookups of random maintainers ({} objects) took {} us per lookup", LOOKUPS, found, stopwatch.elapsed(TimeUnit.MICROSECONDS) / LOOKUPS);
+
+        stopwatch = Stopwatch.createStarted();
+        for (int update = 0; update < UPDATES; update++) {
+            final InverseIndex.IndexedObject object = new InverseIndex.IndexedObject(ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255", ATTRIBUTE_TYPES.size());
+            object.addKey(0, popular);
+            object.addKey(0, ciString("MAINT" + random.nextInt(MAINTAINERS) + "-MNT"));
+            index.replace(OBJECTS + update, object);
+        }
+        LOGGER.info("{} updates of objects maintained by the popular maintainer took {} us per update", UPDATES, stopwatch.elapsed(TimeUnit.MICROSECONDS) / UPDATES);
+    }
+}
@@ -0,0 +1,104 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.collect.ImmutableList;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class InverseIndexTest {
+    private static final List<AttributeType> ATTRIBUTE_TYPES = ImmutableList.of(AttributeType.MNT_BY, AttributeType.ORG);
+
+    private InverseIndex.Index subject;
+
+    @Before
+    public void setUp() {
+        final InverseIndex.Index.Builder builder = new InverseIndex.Index.Builder(ATTRIBUTE_TYPES);
+        builder.add(0, 3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255", ciString("TEST-MNT"));
+        builder.add(0, 1, ObjectType.MNTNER, "TEST-MNT", ciString("TEST-MNT"));
+        builder.add(0, 3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255", ciString("OTHER-MNT"));
+        builder.add(1, 3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255", ciString("ORG-TEST1-TEST"));
+        builder.add(0, 2, ObjectType.ORGANISATION, "ORG-TEST1-TEST", ciString("test-mnt"));
+
+        subject = builder.build(10);
+    }
+
+    @Test
+    public void parse_attributes() {
+        assertThat(InverseIndex.parseAttributes(""), is(empty()));
+        assertThat(InverseIndex.parseAttributes("mnt-by, org,mnt-by"), contains(AttributeType.MNT_BY, AttributeType.ORG));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_unsupported_attribute() {
+        InverseIndex.parseAttributes("mnt-by,e-mail");
+    }
+
+    @Test
+    public void find() {
+        assertThat(subject.find(AttributeType.MNT_BY, ciString("test-mnt")).get(), contains(
+                new RpslObjectInfo(1, ObjectType.MNTNER, "TEST-MNT"),
+                new RpslObjectInfo(2, ObjectType.ORGANISATION, "ORG-TEST1-TEST"),
+                new RpslObjectInfo(3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255")));
+        assertThat(subject.find(AttributeType.ORG, ciString("ORG-TEST1-TEST")).get(), contains(new RpslObjectInfo(3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255")));
+        assertThat(subject.find(AttributeType.ORG, ciString("ORG-UNKNOWN-TEST")).get(), is(empty()));
+    }
+
+    @Test
+    public void find_not_indexed() {
+        assertThat(subject.find(AttributeType.ADMIN_C, ciString("TEST-MNT")), is(Optional.empty()));
+    }
+
+    @Test
+    public void replace_object() {
+        final InverseIndex.IndexedObject updated = new InverseIndex.IndexedObject(ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255", ATTRIBUTE_TYPES.size());
+        updated.addKey(0, ciString("OTHER-MNT"));
+        updated.addKey(0, ciString("NEW-MNT"));
+
+        subject.replace(3, updated);
+
+        assertThat(subject.find(AttributeType.MNT_BY, ciString("TEST-MNT")).get(), contains(
+                new RpslObjectInfo(1, ObjectType.MNTNER, "TEST-MNT"),
+                new RpslObjectInfo(2, ObjectType.ORGANISATION, "ORG-TEST1-TEST")));
+        assertThat(subject.find(AttributeType.MNT_BY, ciString("OTHER-MNT")).get(), contains(new RpslObjectInfo(3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255")));
+        assertThat(subject.find(AttributeType.MNT_BY, ciString("NEW-MNT")).get(), contains(new RpslObjectInfo(3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255")));
+        assertThat(subject.find(AttributeType.ORG, ciString("ORG-TEST1-TEST")).get(), is(empty()));
+        assertThat(subject.getNrKeys(AttributeType.ORG), is(0));
+    }
+
+    @Test
+    public void add_and_delete_object() {
+        final InverseIndex.IndexedObject created = new InverseIndex.IndexedObject(ObjectType.PERSON, "TP1-TEST", ATTRIBUTE_TYPES.size());
+        created.addKey(0, ciString("TEST-MNT"));
+
+        subject.replace(0, created);
+        subject.replace(1, null);
+
+        assertThat(subject.find(AttributeType.MNT_BY, ciString("TEST-MNT")).get(), contains(
+                new RpslObjectInfo(0, ObjectType.PERSON, "TP1-TEST"),
+                new RpslObjectInfo(2, ObjectType.ORGANISATION, "ORG-TEST1-TEST"),
+                new RpslObjectInfo(3, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255")));
+        assertThat(subject.getNrObjects(), is(3));
+    }
+
+    @Test
+    public void insert_and_remove_object_ids() {
+        assertThat(InverseIndex.Index.insert(new int[]{1, 5}, 3), is(new int[]{1, 3, 5}));
+        assertThat(InverseIndex.Index.insert(new int[]{1, 5}, 7), is(new int[]{1, 5, 7}));
+        assertThat(InverseIndex.Index.insert(new int[]{1, 5}, 5), is(new int[]{1, 5}));
+        assertThat(InverseIndex.Index.remove(new int[]{1, 3, 5}, 3), is(new int[]{1, 5}));
+        assertThat(InverseIndex.Index.remove(new int[]{1, 5}, 3), is(new int[]{1, 5}));
+        assertThat(InverseIndex.Index.remove(new int[]{1}, 1), is(nullValue()));
+    }
+}
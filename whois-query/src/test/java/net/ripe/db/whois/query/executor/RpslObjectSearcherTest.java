@@ -37,6 +37,7 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -46,6 +47,9 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertNotNull;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -64,6 +68,7 @@ public class RpslObjectSearcherTest {
     @Mock Ipv6DomainTree ipv6DomainTree;
     @Mock Set<AttributeFilter> attributeFilters;
     @Mock SourceContext sourceContext;
+    @Mock InverseIndex inverseIndex;
     @InjectMocks RpslObjectSearcher subject;
 
     @Before
@@ -195,6 +200,34 @@ public class RpslObjectSearcherTest {
         assertQueryResult("-r -T organisation -i mnt-by,mnt-ref,org aardvark", organisation);
     }
 
+    @Test
+    public void inverse_lookup_in_memory_index() {
+        final RpslObject mntner = RpslObject.parse("mntner:aardvark");
+        final RpslObject organisation = RpslObject.parse("organisation:aardvark");
+
+        mockRpslObjects(mntner, organisation);
+
+        when(sourceContext.isMain()).thenReturn(true);
+        when(inverseIndex.findByAttribute(AttributeType.MNT_BY, "aardvark")).thenReturn(Optional.of(infosFor(mntner)));
+        when(rpslObjectDao.findByAttribute(AttributeType.ORG, "aardvark")).thenReturn(infosFor(organisation));
+
+        assertQueryResult("-r -i mnt-by,org aardvark", mntner, organisation);
+        verify(rpslObjectDao, never()).findByAttribute(AttributeType.MNT_BY, "aardvark");
+    }
+
+    @Test
+    public void inverse_lookup_in_memory_index_main_source_only() {
+        final RpslObject mntner = RpslObject.parse("mntner:aardvark");
+
+        mockRpslObjects(mntner);
+
+        when(sourceContext.isMain()).thenReturn(false);
+        when(rpslObjectDao.findByAttribute(AttributeType.MNT_BY, "aardvark")).thenReturn(infosFor(mntner));
+
+        assertQueryResult("-r -i mnt-by aardvark", mntner);
+        verifyNoMoreInteractions(inverseIndex);
+    }
+
     private void mockRpslObjects(final RpslObject... rpslObjects) {
         for (final RpslObject rpslObject : rpslObjects) {
             final int id = rpslObjectId.getAndIncrement();
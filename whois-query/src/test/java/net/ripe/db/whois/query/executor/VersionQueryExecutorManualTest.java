@@ -0,0 +1,133 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.dao.VersionDao;
+import net.ripe.db.whois.common.dao.VersionDateTime;
+import net.ripe.db.whois.common.dao.VersionInfo;
+import net.ripe.db.whois.common.dao.VersionLookupResult;
+import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.BasicSourceContext;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.query.domain.ResponseHandler;
+import net.ripe.db.whois.query.query.Query;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Query the versions of an object with 10k versions, measuring the time to the first response object (as written to
+ * the client) and to the last.
+ */
+@Category(ManualTest.class)
+public class VersionQueryExecutorManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VersionQueryExecutorManualTest.class);
+
+    private static final int VERSIONS = 10_000;
+    private static final int ROUNDS = 20;
+
+    private VersionQueryExecutor subject;
+
+    @Before
+    public void setUp() {
+        final List<VersionInfo> versionInfos = Lists.newArrayListWithExpectedSize(VERSIONS);
+        for (int sequenceId = 1; sequenceId <= VERSIONS; sequenceId++) {
+            versionInfos.add(new VersionInfo(sequenceId == VERSIONS, 1, sequenceId, 1_300_000_000L + sequenceId * 60L, Operation.UPDATE));
+        }
+        final VersionLookupResult versionLookupResult = new VersionLookupResult(versionInfos, ObjectType.MNTNER, "TEST-MNT");
+
+        final VersionDao versionDao = new VersionDao() {
+            @Override
+            public RpslObject getRpslObject(final VersionInfo info) {
+                return RpslObject.parse("" +
+                        "mntner:  TEST-MNT\n" +
+                        "descr:   version " + info.getSequenceId() + "\n" +
+                        "auth:    MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7.\n" +
+                        "mnt-by:  TEST-MNT\n" +
+                        "source:  TEST");
+            }
+
+            @Override
+            public VersionLookupResult findByKey(final ObjectType type, final String searchKey) {
+                return versionLookupResult;
+            }
+
+            @Override
+            public Set<ObjectType> getObjectType(final String searchKey) {
+                return Collections.singleton(ObjectType.MNTNER);
+            }
+
+            @Override
+            public List<VersionInfo> getVersionsForTimestamp(final ObjectType type, final String searchKey, final VersionDateTime timestamp) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        final BasicSourceContext sourceContext = mock(BasicSourceContext.class);
+        when(sourceContext.getCurrentSource()).thenReturn(Source.slave("TEST"));
+
+        subject = new VersionQueryExecutor(sourceContext, versionDao);
+    }
+
+    @Test
+    public void list_versions() {
+        run(Query.parse("--list-versions TEST-MNT"));
+    }
+
+    @Test
+    public void show_version() {
+        run(Query.parse("--show-version 5000 TEST-MNT"));
+    }
+
+    @Test
+    public void diff_versions() {
+        run(Query.parse("--diff-versions 1:10000 TEST-MNT"));
+    }
+
+    private void run(final Query query) {
+        for (int round = 0; round < ROUNDS; round++) {
+            final TimingResponseHandler responseHandler = new TimingResponseHandler();
+            subject.execute(query, responseHandler);
+
+            LOGGER.info("{} round {}: {} response objects, first after {} us, last after {} us",
+                    query, round, responseHandler.count, responseHandler.firstMicros, responseHandler.lastMicros);
+        }
+    }
+
+    private static class TimingResponseHandler implements ResponseHandler {
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+        private int count;
+        private long firstMicros;
+        private long lastMicros;
+
+        @Override
+        public String getApi() {
+            return "BENCHMARK";
+        }
+
+        @Override
+        public void handle(final ResponseObject responseObject) {
+            // as written to the client
+            responseObject.toByteArray();
+
+            lastMicros = stopwatch.elapsed(TimeUnit.MICROSECONDS);
+            if (count++ == 0) {
+                firstMicros = lastMicros;
+            }
+        }
+    }
+}
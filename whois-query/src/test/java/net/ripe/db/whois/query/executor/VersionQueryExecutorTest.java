@@ -9,12 +9,14 @@ import net.ripe.db.whois.common.dao.VersionInfo;
 import net.ripe.db.whois.common.dao.VersionLookupResult;
 import net.ripe.db.whois.common.domain.ResponseObject;
 import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import net.ripe.db.whois.query.QueryMessages;
 import net.ripe.db.whois.query.domain.QueryException;
+import net.ripe.db.whois.query.domain.VersionWithRpslResponseObject;
 import net.ripe.db.whois.query.query.Query;
 import org.junit.Before;
 import org.junit.Test;
@@ -221,6 +223,54 @@ public class VersionQueryExecutorTest {
         assertThat(new String(iterator.next().toByteArray()), is(QueryMessages.versionPersonRole("PERSON", "TP1-TEST").toString()));
     }
 
+    @Test
+    public void showVersion() {
+        when(versionDao.getObjectType("AS2050")).thenReturn(Collections.singleton(ObjectType.AUT_NUM));
+        setupVersionMock(versionInfo1, 1, "2011-08-01T14:56:25");
+        setupVersionMock(versionInfo2, 2, "2012-04-10T13:58:02");
+        when(versionDao.findByKey(ObjectType.AUT_NUM, "AS2050")).thenReturn(new VersionLookupResult(Lists.newArrayList(versionInfo1, versionInfo2), ObjectType.AUT_NUM, "AS2050"));
+        when(versionDao.getRpslObject(versionInfo1)).thenReturn(RpslObject.parse("" +
+                "aut-num: AS2050\n" +
+                "e-mail:  noreply@ripe.net\n" +
+                "source:  TEST"));
+
+        final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+        subject.execute(Query.parse("--show-version 1 AS2050"), responseHandler);
+
+        final List<ResponseObject> responseObjects = responseHandler.getResponseObjects();
+        assertThat(responseObjects, hasSize(2));
+        assertThat(responseObjects.get(0).toString(), containsString("Version 1 of object \"AS2050\""));
+        final VersionWithRpslResponseObject version = (VersionWithRpslResponseObject) responseObjects.get(1);
+        assertThat(version.getVersion(), is(1));
+        assertThat(version.getRpslObject().containsAttribute(AttributeType.E_MAIL), is(false));
+        assertThat(version.getRpslObject().toString(), containsString("# Filtered"));
+    }
+
+    @Test
+    public void diffVersions() {
+        when(versionDao.getObjectType("AS2050")).thenReturn(Collections.singleton(ObjectType.AUT_NUM));
+        setupVersionMock(versionInfo1, 1, "2011-08-01T14:56:25");
+        setupVersionMock(versionInfo2, 2, "2012-04-10T13:58:02");
+        when(versionDao.findByKey(ObjectType.AUT_NUM, "AS2050")).thenReturn(new VersionLookupResult(Lists.newArrayList(versionInfo1, versionInfo2), ObjectType.AUT_NUM, "AS2050"));
+        when(versionDao.getRpslObject(versionInfo1)).thenReturn(RpslObject.parse("" +
+                "aut-num: AS2050\n" +
+                "remarks: first\n" +
+                "source:  TEST"));
+        when(versionDao.getRpslObject(versionInfo2)).thenReturn(RpslObject.parse("" +
+                "aut-num: AS2050\n" +
+                "remarks: second\n" +
+                "source:  TEST"));
+
+        final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+        subject.execute(Query.parse("--diff-versions 1:2 AS2050"), responseHandler);
+
+        final List<ResponseObject> responseObjects = responseHandler.getResponseObjects();
+        assertThat(responseObjects, hasSize(2));
+        assertThat(responseObjects.get(0).toString(), containsString("Difference between version 1 and 2 of object \"AS2050\""));
+        assertThat(responseObjects.get(1).toString(), matchesPattern("-remarks:\\s+first"));
+        assertThat(responseObjects.get(1).toString(), matchesPattern("\\+remarks:\\s+second"));
+    }
+
     private void setupVersionMock(final VersionInfo mock, final int objectId, final String timestamp) {
         when(mock.getObjectId()).thenReturn(objectId);
         when(mock.getOperation()).thenReturn(Operation.UPDATE);
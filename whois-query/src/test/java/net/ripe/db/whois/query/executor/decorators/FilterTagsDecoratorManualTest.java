@@ -0,0 +1,97 @@
+package net.ripe.db.whois.query.executor.decorators;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.query.query.Query;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Decorate a large (lazily generated) result with tag info, with a simulated database round trip for every tag lookup,
+ * measuring the time to the first and last response object, the number of lookups and the peak heap usage.
+ */
+@Category(ManualTest.class)
+public class FilterTagsDecoratorManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilterTagsDecoratorManualTest.class);
+
+    private static final int OBJECTS = 100_000;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void show_tag_info() {
+        run(Query.parse("--show-tag-info -i mnt-by TEST-MNT"));
+    }
+
+    @Test
+    public void filter_tag_include() {
+        run(Query.parse("--filter-tag-include unref -i mnt-by TEST-MNT"));
+    }
+
+    private void run(final Query query) {
+        final AtomicInteger lookups = new AtomicInteger();
+        final TagsDao tagsDao = mock(TagsDao.class);
+        when(tagsDao.getTags(anyCollection())).thenAnswer(invocation -> {
+            lookups.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+
+            final List<Tag> tags = Lists.newArrayList();
+            for (final Integer objectId : invocation.<Collection<Integer>>getArgument(0)) {
+                if (objectId % 3 == 0) {
+                    tags.add(new Tag(CIString.ciString("unref"), objectId, "30"));
+                }
+            }
+            return tags;
+        });
+
+        final FilterTagsDecorator subject = new FilterTagsDecorator(tagsDao);
+        final Iterable<RpslObject> objects = Iterables.transform(ContiguousSet.create(Range.closed(1, OBJECTS), DiscreteDomain.integers()),
+                objectId -> RpslObject.parse(objectId, "mntner: TEST" + objectId + "-MNT\nmnt-by: TEST-MNT\nsource: TEST"));
+
+        final Runtime runtime = Runtime.getRuntime();
+        for (int round = 0; round < ROUNDS; round++) {
+            lookups.set(0);
+            System.gc();
+            final long baseline = runtime.totalMemory() - runtime.freeMemory();
+            long peak = baseline;
+            long firstMicros = -1;
+            int count = 0;
+
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            for (final ResponseObject responseObject : subject.decorate(query, objects)) {
+                responseObject.toByteArray();
+                if (firstMicros < 0) {
+                    firstMicros = stopwatch.elapsed(TimeUnit.MICROSECONDS);
+                }
+                if (++count % 1_000 == 0) {
+                    peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                }
+            }
+
+            LOGGER.info("{} round {}: {} response objects, {} tag lookups, first after {} us, last after {} ms, peak heap +{} KB",
+                    query, round, count, lookups.get(), firstMicros, stopwatch.elapsed(TimeUnit.MILLISECONDS), (peak - baseline) / 1024);
+        }
+    }
+}
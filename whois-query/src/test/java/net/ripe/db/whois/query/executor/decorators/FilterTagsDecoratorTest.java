@@ -1,6 +1,7 @@
 package net.ripe.db.whois.query.executor.decorators;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.TagsDao;
@@ -8,6 +9,8 @@ import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.ResponseObject;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.query.domain.MessageObject;
+import net.ripe.db.whois.query.domain.TagResponseObject;
 import net.ripe.db.whois.query.query.Query;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,11 +18,19 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertFalse;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -33,7 +44,7 @@ public class FilterTagsDecoratorTest {
 
     @Test
     public void unrefInfo_for_unreferenced_role() {
-        when(tagsDao.getTags(1)).thenReturn(Lists.newArrayList(new Tag(CIString.ciString("unref"), 1, "34")));
+        when(tagsDao.getTags(ImmutableSet.of(1))).thenReturn(Lists.newArrayList(new Tag(CIString.ciString("unref"), 1, "34")));
         final RpslObject role = RpslObject.parse(1, "role: Test Role\nnic-hdl: TR1-TEST");
         final Query query = Query.parse("--show-tag-info TR1-TEST");
 
@@ -48,7 +59,7 @@ public class FilterTagsDecoratorTest {
 
     @Test
     public void no_unrefInfo_for_referenced_mntner() {
-        when(tagsDao.getTags(1)).thenReturn(Lists.<Tag>newArrayList());
+        when(tagsDao.getTags(ImmutableSet.of(1))).thenReturn(Lists.<Tag>newArrayList());
         final Query query = Query.parse("--show-tag-info TEST-MNT");
 
         final RpslObject mntner = RpslObject.parse(1, "mntner: TEST-MNT");
@@ -60,5 +71,43 @@ public class FilterTagsDecoratorTest {
         assertFalse(iterator.hasNext());
     }
 
+    @Test
+    public void tags_looked_up_per_window() {
+        final List<RpslObject> objects = Lists.newArrayList();
+        for (int objectId = 1; objectId <= FilterTagsDecorator.WINDOW_SIZE + 1; objectId++) {
+            objects.add(RpslObject.parse(objectId, "mntner: TEST" + objectId + "-MNT"));
+        }
+        when(tagsDao.getTags(anyCollection())).thenAnswer(invocation -> {
+            final List<Tag> tags = Lists.newArrayList();
+            for (final Integer objectId : invocation.<Collection<Integer>>getArgument(0)) {
+                if (objectId % 2 == 0) {
+                    tags.add(new Tag(CIString.ciString("unref"), objectId, "10"));
+                }
+            }
+            return tags;
+        });
+
+        final List<ResponseObject> result = Lists.newArrayList(subject.decorate(Query.parse("--show-tag-info TEST-MNT"), objects));
+
+        verify(tagsDao, times(2)).getTags(anyCollection());
+        assertThat(result, hasSize(objects.size() + objects.size() / 2));
+        assertThat(result.get(0), is(objects.get(0)));
+        assertThat(result.get(1), is(objects.get(1)));
+        assertThat(result.get(2), instanceOf(TagResponseObject.class));
+    }
 
+    @Test
+    public void include_filter_keeps_order() {
+        final RpslObject tagged = RpslObject.parse(1, "mntner: TAGGED-MNT");
+        final RpslObject untagged = RpslObject.parse(2, "mntner: UNTAGGED-MNT");
+        final MessageObject message = new MessageObject("message");
+        when(tagsDao.getTags(ImmutableSet.of(1, 2))).thenReturn(Lists.newArrayList(new Tag(CIString.ciString("unref"), 1, "34")));
+
+        final Iterable<? extends ResponseObject> result = subject.decorate(Query.parse("--filter-tag-include unref TEST-MNT"), ImmutableList.of(untagged, message, tagged));
+
+        final List<ResponseObject> responseObjects = Lists.newArrayList(result);
+        assertThat(responseObjects, hasSize(3));
+        assertThat(responseObjects.get(0), instanceOf(MessageObject.class));
+        assertThat(responseObjects.subList(1, 3), contains(message, tagged));
+    }
 }
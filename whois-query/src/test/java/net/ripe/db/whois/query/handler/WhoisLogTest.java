@@ -0,0 +1,124 @@
+package net.ripe.db.whois.query.handler;
+
+import net.ripe.db.whois.query.domain.QueryCompletionInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.Logger;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WhoisLogTest {
+    @Mock Logger logger;
+
+    private WhoisLog subject;
+    private InetAddress remoteAddress;
+
+    @Before
+    public void setUp() throws Exception {
+        subject = new WhoisLog(logger);
+        ReflectionTestUtils.setField(subject, "queueSize", 2);
+        ReflectionTestUtils.setField(subject, "intervalMs", 60_000);
+        ReflectionTestUtils.setField(subject, "batchSize", 1);
+
+        remoteAddress = InetAddress.getByName("10.0.0.1");
+    }
+
+    @After
+    public void tearDown() {
+        subject.stop(true);
+    }
+
+    @Test
+    public void not_started_logs_directly() {
+        subject.logQueryResult("QRY", 1, 2, null, 3, remoteAddress, 4, "-rBG 10.0.0.0");
+
+        verify(logger).info("         4 PW-QRY-INFO <1+2+0>  3ms [10.0.0.1] --  -rBG 10.0.0.0");
+    }
+
+    @Test
+    public void started_logs_when_flushed() {
+        subject.start();
+
+        subject.logQueryResult("API", 0, 1, QueryCompletionInfo.REJECTED, 5, null, 12345, "AS3333");
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 6, "");
+        verify(logger, never()).info(anyString());
+        assertThat(subject.getQueued(), is(2));
+
+        assertThat(subject.flush(), is(2));
+
+        final InOrder inOrder = inOrder(logger);
+        inOrder.verify(logger).info("     12345 PW-API-INFO <0+1+0> REJECTED 5ms [NONE] --  AS3333");
+        inOrder.verify(logger).info("         6 PW-QRY-INFO <0+0+0>  0ms [10.0.0.1] --  ");
+        assertThat(subject.getQueued(), is(0));
+    }
+
+    @Test
+    public void full_queue_logs_directly() {
+        subject.start();
+
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 1, "first");
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 2, "second");
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 3, "third");
+
+        verify(logger).info("         3 PW-QRY-INFO <0+0+0>  0ms [10.0.0.1] --  third");
+        assertThat(subject.getOverflowed(), is(1L));
+        assertThat(subject.getDiscarded(), is(0L));
+        assertThat(subject.flush(), is(2));
+    }
+
+    @Test
+    public void full_queue_discards() {
+        ReflectionTestUtils.setField(subject, "discardOnOverflow", true);
+        subject.start();
+
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 1, "first");
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 2, "second");
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 3, "third");
+
+        verify(logger, never()).info(anyString());
+        assertThat(subject.getOverflowed(), is(0L));
+        assertThat(subject.getDiscarded(), is(1L));
+        assertThat(subject.flush(), is(2));
+    }
+
+    @Test
+    public void stop_writes_queued() {
+        subject.start();
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 1, "first");
+
+        subject.stop(false);
+        verify(logger, never()).info(anyString());
+
+        subject.stop(true);
+        verify(logger).info("         1 PW-QRY-INFO <0+0+0>  0ms [10.0.0.1] --  first");
+
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 2, "second");
+        verify(logger, times(2)).info(anyString());
+    }
+
+    @Test
+    public void written_in_background() {
+        ReflectionTestUtils.setField(subject, "intervalMs", 10);
+        subject.start();
+
+        subject.logQueryResult("QRY", 0, 0, null, 0, remoteAddress, 1, "first");
+
+        verify(logger, timeout(5_000)).info("         1 PW-QRY-INFO <0+0+0>  0ms [10.0.0.1] --  first");
+    }
+}
@@ -46,7 +46,7 @@ public class ConnectionPerIpLimitHandlerTest {
 
     @Before
     public void setUp() {
-        this.subject = new ConnectionPerIpLimitHandler(ipResourceConfiguration, whoisLog, MAX_CONNECTIONS_PER_IP, applicationVersion);
+        this.subject = new ConnectionPerIpLimitHandler(ipResourceConfiguration, whoisLog, MAX_CONNECTIONS_PER_IP, 0, applicationVersion);
 
         when(ctx.getChannel()).thenReturn(channel);
 
@@ -90,7 +90,7 @@ public class ConnectionPerIpLimitHandlerTest {
 
     @Test
     public void multiple_connected_limit_disabled() throws Exception {
-        this.subject = new ConnectionPerIpLimitHandler(ipResourceConfiguration, whoisLog, 0, applicationVersion);
+        this.subject = new ConnectionPerIpLimitHandler(ipResourceConfiguration, whoisLog, 0, 0, applicationVersion);
 
         final InetSocketAddress remoteAddress = new InetSocketAddress("10.0.0.0", 43);
         when(channel.getRemoteAddress()).thenReturn(remoteAddress);
@@ -190,4 +190,41 @@ public class ConnectionPerIpLimitHandlerTest {
         verify(channel, never()).write(any());
         verify(channelFuture, never()).addListener(ChannelFutureListener.CLOSE);
     }
+
+    @Test
+    public void connection_rate_exceeded() throws Exception {
+        this.subject = new ConnectionPerIpLimitHandler(ipResourceConfiguration, whoisLog, MAX_CONNECTIONS_PER_IP, 2, applicationVersion);
+
+        final InetSocketAddress remoteAddress = new InetSocketAddress("10.0.0.0", 43);
+        when(channel.getRemoteAddress()).thenReturn(remoteAddress);
+
+        final ChannelEvent openEvent = new UpstreamChannelStateEvent(channel, ChannelState.OPEN, Boolean.TRUE);
+        final ChannelEvent closeEvent = new UpstreamChannelStateEvent(channel, ChannelState.OPEN, Boolean.FALSE);
+        subject.handleUpstream(ctx, openEvent);
+        subject.handleUpstream(ctx, closeEvent);
+        subject.handleUpstream(ctx, openEvent);
+        subject.handleUpstream(ctx, closeEvent);
+        subject.handleUpstream(ctx, openEvent);
+
+        verify(ctx, times(2)).sendUpstream(openEvent);
+        verify(channel, times(1)).write(argThat(argument -> QueryMessages.connectionRateExceeded(2).equals(argument)));
+        verify(channel, never()).write(argThat(argument -> QueryMessages.connectionsExceeded(MAX_CONNECTIONS_PER_IP).equals(argument)));
+        verify(channelFuture, times(1)).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    @Test
+    public void ipv6_counted_per_prefix() throws Exception {
+        when(channel.getRemoteAddress()).thenReturn(
+                new InetSocketAddress("2001:db8::1", 43),
+                new InetSocketAddress("2001:db8::2", 43),
+                new InetSocketAddress("2001:db8::3", 43));
+
+        final ChannelEvent openEvent = new UpstreamChannelStateEvent(channel, ChannelState.OPEN, Boolean.TRUE);
+        subject.handleUpstream(ctx, openEvent);
+        subject.handleUpstream(ctx, openEvent);
+        subject.handleUpstream(ctx, openEvent);
+
+        verify(ctx, times(2)).sendUpstream(openEvent);
+        verify(channelFuture, times(1)).addListener(ChannelFutureListener.CLOSE);
+    }
 }
@@ -6,6 +6,7 @@ import net.ripe.db.whois.query.acl.AccessControlListManager;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.stats.QueryLatencyStats;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
@@ -39,6 +40,7 @@ public class QueryDecoderTest {
     @Mock private ChannelPipeline channelPipelineMock;
     @Mock private ChannelHandlerContext channelHandlerContextMock;
     @Mock private AccessControlListManager accessControlListManager;
+    @Mock private QueryLatencyStats queryLatencyStats;
     @InjectMocks private QueryDecoder subject;
 
     private List<Object> writtenBuffer = Lists.newArrayList();
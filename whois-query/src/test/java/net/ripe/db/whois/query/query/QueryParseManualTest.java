@@ -0,0 +1,58 @@
+package net.ripe.db.whois.query.query;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.ManualTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Parse a representative mix of queries, either all distinct (every parse misses the cache) or repeating a small set
+ * (as automated clients do).
+ */
+@Category(ManualTest.class)
+public class QueryParseManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryParseManualTest.class);
+
+    private static final int QUERIES = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void distinct_queries() {
+        run("distinct", i -> String.format("-rBG -T inetnum 10.%d.%d.0/24", (i >> 8) & 0xff, i & 0xff) + (i >> 16));
+    }
+
+    @Test
+    public void repeated_queries() {
+        final List<String> queries = Lists.newArrayList(
+                "-rBG -T inetnum 193.0.0.0/21",
+                "-r -T aut-num AS3333",
+                "-i mnt-by RIPE-NCC-HM-MNT",
+                "-k -r -T route 193.0.0.0/21",
+                "--abuse-contact 193.0.0.1");
+        run("repeated", i -> queries.get(i % queries.size()));
+    }
+
+    @Test
+    public void search_key_only_queries() {
+        run("search key only", i -> String.format("AS%d", i));
+    }
+
+    private static void run(final String name, final IntFunction<String> queries) {
+        for (int round = 0; round < ROUNDS; round++) {
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            for (int i = 0; i < QUERIES; i++) {
+                Query.parse(queries.apply(i));
+            }
+
+            final long elapsed = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+            LOGGER.info("{} round {}: {} queries in {} ({} ns/query)", name, round, QUERIES, stopwatch, elapsed / QUERIES);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package net.ripe.db.whois.query.query;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.attrs.AsBlockRange;
 import net.ripe.db.whois.query.QueryFlag;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.domain.QueryException;
@@ -10,7 +12,12 @@ import net.ripe.db.whois.query.QueryMessages;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -961,4 +968,79 @@ public class QueryTest {
         assertThat(query.isAllSources(), is(false));
         assertThat(query.isResource(), is(true));
     }
+
+    @Test
+    public void identical_queries_parsed_once() {
+        final Query first = Query.parse("-rBG 193.0.0.1\n");
+        final Query second = Query.parse("-rBG 193.0.0.1");
+
+        assertThat(second, not(Matchers.sameInstance(first)));
+        assertThat(second, is(first));
+        assertThat(second.getSearchValue(), is("193.0.0.1"));
+        assertThat(second.isReturningReferencedObjects(), is(false));
+        assertThat(second.isGrouping(), is(false));
+        assertThat(second.getObjectTypes(), is(first.getObjectTypes()));
+    }
+
+    @Test
+    public void identical_queries_do_not_share_fields_set_after_parsing() {
+        final Query first = Query.parse("AS3333", "token", Collections.singletonList("password"), false);
+        first.setMatchPrimaryKeyOnly(true);
+
+        final Query second = Query.parse("AS3333", Query.Origin.REST, false);
+
+        assertThat(second.isMatchPrimaryKeyOnly(), is(false));
+        assertThat(second.getSsoToken(), is(nullValue()));
+        assertThat(second.getPasswords(), is(nullValue()));
+    }
+
+    @Test
+    public void identical_queries_origin_and_trust() {
+        final Query legacy = Query.parse("AS3333", Query.Origin.LEGACY, false);
+        final Query trusted = Query.parse("AS3333", Query.Origin.REST, true);
+
+        assertThat(legacy.via(Query.Origin.LEGACY), is(true));
+        assertThat(legacy.isTrusted(), is(false));
+        assertThat(trusted.via(Query.Origin.REST), is(true));
+        assertThat(trusted.isTrusted(), is(true));
+    }
+
+    @Test
+    public void identical_invalid_queries_fail_every_time() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                Query.parse("-T nonexistant foo");
+                fail("Expected exception");
+            } catch (QueryException e) {
+                assertThat(e.getCompletionInfo(), is(QueryCompletionInfo.PARAMETER_ERROR));
+            }
+        }
+    }
+
+    @Test
+    public void identical_queries_keep_warnings() {
+        final Query first = Query.parse("-m test");
+        final Query second = Query.parse("-m test");
+
+        assertThat(second.getWarnings(), contains(QueryMessages.uselessIpFlagPassed()));
+        assertThat(first.getWarnings(), contains(QueryMessages.uselessIpFlagPassed()));
+    }
+
+    @Test
+    public void identical_queries_share_as_block_range() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<AsBlockRange>> ranges = Lists.newArrayList();
+            for (int i = 0; i < 100; i++) {
+                ranges.add(executorService.submit(() -> Query.parse("AS10-AS20").getAsBlockRangeOrNull()));
+            }
+
+            for (final Future<AsBlockRange> range : ranges) {
+                assertThat(range.get().getBegin(), is(10L));
+                assertThat(range.get().getEnd(), is(20L));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package net.ripe.db.whois.query.stats;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class LatencyHistogramTest {
+    private final LatencyHistogram subject = new LatencyHistogram();
+
+    @Test
+    public void empty() {
+        assertThat(subject.getCount(), is(0L));
+        assertThat(subject.getMean(), is(0L));
+        assertThat(subject.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void small_values_exact() {
+        for (int value = 1; value <= 10; value++) {
+            subject.record(value);
+        }
+
+        assertThat(subject.getCount(), is(10L));
+        assertThat(subject.getMean(), is(5L));
+        assertThat(subject.getMax(), is(10L));
+        assertThat(subject.getValueAtPercentile(50), is(5L));
+        assertThat(subject.getValueAtPercentile(90), is(9L));
+        assertThat(subject.getValueAtPercentile(100), is(10L));
+    }
+
+    @Test
+    public void large_values_within_bucket() {
+        for (int value = 1; value <= 1000; value++) {
+            subject.record(value);
+        }
+
+        assertThat(subject.getValueAtPercentile(50), is(503L));
+        assertThat(subject.getValueAtPercentile(99), is(991L));
+        assertThat(subject.getValueAtPercentile(100), is(1000L));
+    }
+
+    @Test
+    public void out_of_range_clamped() {
+        subject.record(-1);
+        subject.record(Long.MAX_VALUE);
+
+        assertThat(subject.getCount(), is(2L));
+        assertThat(subject.getMax(), is(LatencyHistogram.MAX_VALUE));
+        assertThat(subject.getValueAtPercentile(50), is(0L));
+    }
+
+    @Test
+    public void buckets_are_contiguous() {
+        for (int index = 1; index < 1024; index++) {
+            assertThat(LatencyHistogram.index(LatencyHistogram.highestValue(index - 1) + 1), is(index));
+            assertThat(LatencyHistogram.index(LatencyHistogram.highestValue(index)), is(index));
+        }
+
+        assertThat(LatencyHistogram.index(LatencyHistogram.MAX_VALUE), is(1023));
+    }
+}
@@ -0,0 +1,93 @@
+package net.ripe.db.whois.query.stats;
+
+import net.ripe.db.whois.query.query.Query;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+public class QueryLatencyStatsTest {
+
+    @Test
+    public void disabled() {
+        final QueryLatencyStats subject = new QueryLatencyStats(false);
+        final Query query = Query.parse("AS3333");
+
+        final QueryStageTimer timer = subject.start(query);
+        assertThat(timer, is(nullValue()));
+        assertThat(QueryStageTimer.enter(QueryStage.SEARCH), is(nullValue()));
+        QueryStageTimer.exit(null);
+        subject.recordParse(query, 1000);
+        subject.finish(timer);
+
+        assertThat(subject.getStats(), not(containsString("type=")));
+    }
+
+    @Test
+    public void nested_stages_per_type_and_source() throws Exception {
+        final QueryLatencyStats subject = new QueryLatencyStats(true);
+        final Query query = Query.parse("-i mnt-by TEST-MNT");
+
+        subject.recordParse(query, 1000);
+
+        final QueryStageTimer timer = subject.start(query);
+        QueryStageTimer.setSource("TEST");
+        time(QueryStage.SEARCH, () -> {});
+        time(QueryStage.DECORATE, () -> time(QueryStage.LOAD, () -> {}));
+        QueryStageTimer.setSource(null);
+        subject.finish(timer);
+
+        assertThat(QueryStageTimer.enter(QueryStage.SEARCH), is(nullValue()));
+
+        final String stats = subject.getStats();
+        assertThat(stats, containsString("type=inverse         PARSE             1          1          1"));
+        assertThat(stats, containsString("type=inverse         SEARCH            1"));
+        assertThat(stats, containsString("type=inverse         LOAD              1"));
+        assertThat(stats, containsString("type=inverse         DECORATE          1"));
+        assertThat(stats, containsString("type=inverse         TOTAL             1"));
+        assertThat(stats, not(containsString("type=inverse         ACL")));
+        assertThat(stats, containsString("source=TEST          SEARCH            1"));
+        assertThat(stats, containsString("source=TEST          LOAD              1"));
+        assertThat(stats, not(containsString("source=TEST          PARSE")));
+    }
+
+    @Test
+    public void reset() {
+        final QueryLatencyStats subject = new QueryLatencyStats(true);
+        subject.recordParse(Query.parse("AS3333"), 1000);
+
+        subject.reset();
+
+        assertThat(subject.getStats(), not(containsString("type=")));
+    }
+
+    @Test
+    public void query_types() {
+        assertThat(QueryLatencyStats.getQueryType(Query.parse("AS3333")), is("lookup"));
+        assertThat(QueryLatencyStats.getQueryType(Query.parse("10.0.0.0/8")), is("ip"));
+        assertThat(QueryLatencyStats.getQueryType(Query.parse("-i mnt-by TEST-MNT")), is("inverse"));
+        assertThat(QueryLatencyStats.getQueryType(Query.parse("--list-versions AS3333")), is("version"));
+        assertThat(QueryLatencyStats.getQueryType(Query.parse("-t person")), is("info"));
+    }
+
+    private static void time(final QueryStage stage, final Runnable runnable) {
+        final QueryStage previous = QueryStageTimer.enter(stage);
+        try {
+            sleep();
+            runnable.run();
+        } finally {
+            QueryStageTimer.exit(previous);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,94 +1,392 @@
 package net.ripe.db.whois.common.io;
 
-import org.apache.commons.lang.StringUtils;
-
-import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.GZIPInputStream;
 
+/**
+ * Reads the objects from a dump (or split) file: objects are separated by blank lines, and lines starting with '#' or
+ * '%' are skipped. Files are latin-1, so a byte is a character and objects are decoded straight from the bytes,
+ * without intermediate line Strings.
+ * <p>
+ * Plain files are memory mapped a window at a time, and the {@link #spliterator()} splits them at object boundaries,
+ * so objects can be parsed in parallel with {@code stream().parallel()}. Gzipped files are read sequentially.
+ */
 public class RpslObjectFileReader implements Iterable<String> {
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+    private static final int GZIP_BUFFER_SIZE = 1024 * 1024;
+    private static final int AVERAGE_OBJECT_SIZE = 512;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
     private final String fileName;
+    private final int windowSize;
 
     public RpslObjectFileReader(final String fileName) {
+        this(fileName, WINDOW_SIZE);
+    }
+
+    RpslObjectFileReader(final String fileName, final int windowSize) {
         this.fileName = fileName;
+        this.windowSize = windowSize;
     }
 
     @Override
     public Iterator<String> iterator() {
-        return new StringIterator(fileName);
+        return Spliterators.iterator(spliterator());
+    }
+
+    @Override
+    public Spliterator<String> spliterator() {
+        try {
+            if (fileName.endsWith(".gz")) {
+                return new GzipSpliterator(new GZIPInputStream(new FileInputStream(fileName)), Math.min(windowSize, GZIP_BUFFER_SIZE));
+            }
+
+            final Path path = Paths.get(fileName);
+            return new MappedSpliterator(path, windowSize, 0, Files.size(path));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(fileName, e);
+        }
     }
 
-    private class StringIterator implements Iterator<String> {
-        private final BufferedReader bufferedReader;
-        private String nextObject;
+    public Stream<String> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
 
-        public StringIterator(final String fileName) {
-            try {
-                InputStream in = new FileInputStream(fileName);
-                if (fileName.endsWith(".gz")) {
-                    in = new GZIPInputStream(in);
+    /**
+     * Returns the next object from the position of the buffer (which must be little endian), and moves the position
+     * past it. Returns null if the buffer holds no complete object, unless it holds the last of the data.
+     */
+    private static String nextObject(final ByteBuffer buffer, final boolean last) {
+        final int limit = buffer.limit();
+        int objectStart = -1;
+        boolean content = false;
+        boolean plain = true;   // no comment lines or carriage returns, so the object is a copy of the bytes
+
+        for (int lineStart = buffer.position(); lineStart < limit; ) {
+            final int newline = indexOf(buffer, (byte) '\n', lineStart, limit);
+            if (newline < 0 && !last) {
+                break;
+            }
+
+            final int lineEnd = newline < 0 ? limit : newline;
+            final int nextLine = newline < 0 ? limit : newline + 1;
+
+            if (isBlank(buffer, lineStart, lineEnd)) {
+                if (content) {
+                    buffer.position(nextLine);
+                    return toObject(buffer, objectStart, lineStart, plain);
                 }
-                bufferedReader = new BufferedReader(new InputStreamReader(in, StandardCharsets.ISO_8859_1));        // split files are written as latin-1
-            } catch (IOException e) {
-                throw new IllegalArgumentException(fileName, e);
+
+                // nothing but comments so far
+                objectStart = -1;
+                plain = true;
+                buffer.position(nextLine);
+            } else {
+                if (objectStart < 0) {
+                    objectStart = lineStart;
+                }
+
+                if (isComment(buffer.get(lineStart))) {
+                    plain = false;
+                } else {
+                    content = true;
+                    if (buffer.get(lineEnd - 1) == '\r') {
+                        plain = false;
+                    }
+                }
+            }
+
+            lineStart = nextLine;
+        }
+
+        if (last) {
+            buffer.position(limit);
+            return content ? toObject(buffer, objectStart, limit, plain) : null;
+        }
+
+        return null;
+    }
+
+    private static String toObject(final ByteBuffer buffer, final int from, final int to, final boolean plain) {
+        if (plain && buffer.get(to - 1) == '\n') {
+            final byte[] bytes = new byte[to - from];
+            copy(buffer, from, to, bytes, 0);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        final byte[] bytes = new byte[to - from + 1];
+        int length = 0;
+        for (int lineStart = from; lineStart < to; ) {
+            final int newline = indexOf(buffer, (byte) '\n', lineStart, to);
+            final int nextLine = newline < 0 ? to : newline + 1;
+
+            if (!isComment(buffer.get(lineStart))) {
+                int lineEnd = newline < 0 ? to : newline;
+                if (buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+
+                copy(buffer, lineStart, lineEnd, bytes, length);
+                length += lineEnd - lineStart;
+                bytes[length++] = '\n';
             }
+
+            lineStart = nextLine;
+        }
+
+        return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void copy(final ByteBuffer buffer, final int from, final int to, final byte[] bytes, final int offset) {
+        final ByteBuffer source = buffer.duplicate();
+        source.limit(to).position(from);
+        source.get(bytes, offset, to - from);
+    }
+
+    /**
+     * Finds a byte a word (8 bytes) at a time: the bytes equal to the value are zeroed by the xor, and the first zero
+     * byte is found by the borrow of the subtraction. In a little endian word, the lowest zero byte is exact.
+     */
+    private static int indexOf(final ByteBuffer buffer, final byte value, final int from, final int to) {
+        final long pattern = (value & 0xffL) * ONES;
+
+        int index = from;
+        for (; index + Long.BYTES <= to; index += Long.BYTES) {
+            final long word = buffer.getLong(index) ^ pattern;
+            final long found = (word - ONES) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return index + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+
+        for (; index < to; index++) {
+            if (buffer.get(index) == value) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isComment(final byte b) {
+        return b == '#' || b == '%';
+    }
+
+    private static boolean isBlank(final ByteBuffer buffer, final int from, final int to) {
+        for (int index = from; index < to; index++) {
+            if (!isWhitespace(buffer.get(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Character.isWhitespace() for latin-1
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || (b >= 0x09 && b <= 0x0d) || (b >= 0x1c && b <= 0x1f);
+    }
+
+    /**
+     * The objects in a range of a plain file, which always starts at an object boundary (the start of the file, or the
+     * line after a blank line). The range is mapped a window at a time; a window is remapped from the start of the
+     * object it ends in, and doubled if that object doesn't fit.
+     */
+    private static final class MappedSpliterator implements Spliterator<String> {
+        private final Path path;
+        private final int windowSize;
+        private final long end;
+
+        private long position;
+        private ByteBuffer window;
+        private long windowOffset;
+
+        private MappedSpliterator(final Path path, final int windowSize, final long start, final long end) {
+            this.path = path;
+            this.windowSize = windowSize;
+            this.position = start;
+            this.end = end;
         }
 
         @Override
-        public boolean hasNext() {
-            if (nextObject == null) {
-                nextObject = next();
+        public boolean tryAdvance(final Consumer<? super String> action) {
+            long size = windowSize;
+
+            while (true) {
+                if (window == null) {
+                    if (position >= end) {
+                        return false;
+                    }
+                    window = map(position, size);
+                    windowOffset = position;
+                }
+
+                final boolean last = windowOffset + window.limit() == end;
+                final String object = nextObject(window, last);
+                if (object != null) {
+                    action.accept(object);
+                    return true;
+                }
+
+                if (last) {
+                    position = end;
+                    window = null;
+                    return false;
+                }
+
+                if (window.position() == 0) {
+                    if (window.limit() == Integer.MAX_VALUE) {
+                        throw new IllegalStateException(String.format("%s: object at %d exceeds 2GB", path, windowOffset));
+                    }
+                    size = Math.min(2L * window.limit(), Integer.MAX_VALUE);
+                }
+
+                position = windowOffset + window.position();
+                window = null;
             }
-            return nextObject != null;
         }
 
         @Override
-        public String next() {
-            if (nextObject != null) {
-                String ret = nextObject;
-                nextObject = null;
-                return ret;
+        public Spliterator<String> trySplit() {
+            final long from = window == null ? position : windowOffset + window.limit();
+            if (end - from < 2L * windowSize) {
+                return null;
             }
 
-            try {
-                String result;
-
-                do {
-                    String line;
-                    final StringBuilder partialObject = new StringBuilder(1024);
-
-                    while ((line = bufferedReader.readLine()) != null) {
-                        if (StringUtils.isBlank(line)) {
-                            break;
-                        } else {
-                            if (line.charAt(0) != '#' && line.charAt(0) != '%') {
-                                partialObject.append(line).append('\n');
-                            }
+            final long boundary = findBoundary(from + (end - from) / 2);
+            if (boundary < 0) {
+                return null;
+            }
+
+            // this is ordered, so the prefix is split off, taking the current window along
+            final MappedSpliterator prefix = new MappedSpliterator(path, windowSize, position, boundary);
+            prefix.window = window;
+            prefix.windowOffset = windowOffset;
+
+            position = boundary;
+            window = null;
+            return prefix;
+        }
+
+        // the start of the first line after a blank line, from offset, or -1 if there is none in the range
+        private long findBoundary(final long offset) {
+            boolean lineStarted = false;
+            boolean blank = false;
+
+            for (long chunkOffset = offset; chunkOffset < end; ) {
+                final ByteBuffer chunk = map(chunkOffset, windowSize);
+                for (int index = 0; index < chunk.limit(); index++) {
+                    final byte b = chunk.get(index);
+                    if (b == '\n') {
+                        if (lineStarted && blank) {
+                            final long boundary = chunkOffset + index + 1;
+                            return boundary < end ? boundary : -1;
                         }
+                        lineStarted = true;
+                        blank = true;
+                    } else if (blank && !isWhitespace(b)) {
+                        blank = false;
                     }
+                }
+                chunkOffset += chunk.limit();
+            }
 
-                    if (line == null && partialObject.length() == 0) {
-                        return null; // terminator
-                    }
+            return -1;
+        }
+
+        private ByteBuffer map(final long offset, final long size) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size, end - offset)).order(ByteOrder.LITTLE_ENDIAN);
+            } catch (IOException e) {
+                throw new IllegalStateException(path.toString(), e);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            final long current = window == null ? position : windowOffset + window.position();
+            return (end - current) / AVERAGE_OBJECT_SIZE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
 
-                    result = partialObject.toString();
+    /**
+     * The objects in a gzipped file, read in chunks into a buffer that grows if an object doesn't fit. Splits are
+     * batches of objects (see {@link Spliterators.AbstractSpliterator}).
+     */
+    private static final class GzipSpliterator extends Spliterators.AbstractSpliterator<String> {
+        private final InputStream in;
+        private ByteBuffer buffer;
+        private boolean last;
 
-                } while (StringUtils.isBlank(result));
+        private GzipSpliterator(final InputStream in, final int bufferSize) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL | IMMUTABLE);
+            this.in = in;
+            this.buffer = ByteBuffer.allocate(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);
+        }
 
-                return result;
+        @Override
+        public boolean tryAdvance(final Consumer<? super String> action) {
+            try {
+                while (true) {
+                    final String object = nextObject(buffer, last);
+                    if (object != null) {
+                        action.accept(object);
+                        return true;
+                    }
+
+                    if (last) {
+                        in.close();
+                        return false;
+                    }
+
+                    fill();
+                }
             } catch (IOException e) {
                 throw new IllegalStateException(e);
             }
         }
 
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        // keeps the unread bytes, and reads more after them
+        private void fill() throws IOException {
+            if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                final ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+
+            final int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read < 0) {
+                last = true;
+            } else {
+                buffer.position(buffer.position() + read);
+            }
+            buffer.flip();
         }
     }
 }
@@ -0,0 +1,147 @@
+package net.ripe.db.whois.common.io;
+
+import com.google.common.base.Stopwatch;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.apache.commons.lang.StringUtils;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Read a multi-GB synthetic dump line by line (as the reader used to), with the reader, and with the reader split
+ * into a parallel stream, reporting the throughput. Parsing the objects into RpslObjects shows the parallel speedup.
+ */
+@Category(ManualTest.class)
+public class RpslObjectFileReaderManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectFileReaderManualTest.class);
+
+    private static final long DUMP_SIZE = 4L * 1024 * 1024 * 1024;
+
+    @ClassRule public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static File dump;
+    private static long objects;
+
+    @BeforeClass
+    public static void createDump() throws IOException {
+        dump = folder.newFile("ripe.db");
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dump), StandardCharsets.ISO_8859_1), 1024 * 1024)) {
+            writer.write("# synthetic dump\n\n");
+            while (dump.length() < DUMP_SIZE) {
+                for (int i = 0; i < 10_000; i++, objects++) {
+                    writer.write(createObject(objects));
+                }
+                writer.flush();
+            }
+        }
+
+        LOGGER.info("Generated {} objects ({} MB) in {}", objects, dump.length() / (1024 * 1024), stopwatch);
+    }
+
+    @Test
+    public void read_lines() throws IOException {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        long count = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(dump), StandardCharsets.ISO_8859_1))) {
+            StringBuilder object = new StringBuilder();
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (StringUtils.isBlank(line)) {
+                    if (object.length() > 0) {
+                        count++;
+                        object = new StringBuilder();
+                    }
+                } else if (line.charAt(0) != '#' && line.charAt(0) != '%') {
+                    object.append(line).append('\n');
+                }
+            }
+        }
+
+        report("line by line", count, stopwatch);
+    }
+
+    @Test
+    public void read() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        long count = 0;
+
+        for (final String object : new RpslObjectFileReader(dump.getPath())) {
+            count++;
+        }
+
+        report("sequential", count, stopwatch);
+    }
+
+    @Test
+    public void read_parallel() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final long count = new RpslObjectFileReader(dump.getPath()).stream().parallel().count();
+
+        report("parallel", count, stopwatch);
+    }
+
+    @Test
+    public void parse() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final long count = new RpslObjectFileReader(dump.getPath()).stream().map(RpslObject::parse).count();
+
+        report("sequential parse", count, stopwatch);
+    }
+
+    @Test
+    public void parse_parallel() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final long count = new RpslObjectFileReader(dump.getPath()).stream().parallel().map(RpslObject::parse).count();
+
+        report("parallel parse", count, stopwatch);
+    }
+
+    private static void report(final String name, final long count, final Stopwatch stopwatch) {
+        final double seconds = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS)) / 1000.0;
+        LOGGER.info("{}: {} objects in {} ({} MB/s, {} objects/s)",
+                name, count, stopwatch, (long) (dump.length() / (1024 * 1024) / seconds), (long) (count / seconds));
+
+        assertThat(count, is(objects));
+    }
+
+    private static String createObject(final long index) {
+        return String.format("" +
+                "inetnum:        10.%d.%d.0 - 10.%d.%d.255\n" +
+                "netname:        NET-%d\n" +
+                "descr:          Synthetic network\n" +
+                "                for the reader benchmark\n" +
+                "country:        NL\n" +
+                "admin-c:        TP1-TEST\n" +
+                "tech-c:         TP1-TEST\n" +
+                "status:         ASSIGNED PA\n" +
+                "mnt-by:         OWNER-MNT\n" +
+                "source:         TEST\n" +
+                "\n",
+                (index >> 8) & 0xff, index & 0xff, (index >> 8) & 0xff, index & 0xff, index);
+    }
+}
@@ -0,0 +1,124 @@
+package net.ripe.db.whois.common.io;
+
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RpslObjectFileReaderTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String DUMP = "" +
+            "# comment\n" +
+            "\n" +
+            "mntner:         OWNER-MNT\n" +
+            "% comment within object\n" +
+            "source:         TEST\n" +
+            "\n" +
+            "\n" +
+            "% comment only\n" +
+            " \t\n" +
+            "person:         Test Person\n" +
+            "address:        Singel 258\n" +
+            "                Amsterdam\n" +
+            "nic-hdl:        TP1-TEST\n" +
+            "source:         TEST\n" +
+            "\n" +
+            "aut-num:        AS1\r\n" +
+            "as-name:        \u00c6sir\r\n" +
+            "source:         TEST";
+
+    @Test
+    public void read_objects() throws IOException {
+        final File file = createFile("dump.db", DUMP);
+
+        assertThat(Lists.newArrayList(new RpslObjectFileReader(file.getPath())), contains(
+                "mntner:         OWNER-MNT\nsource:         TEST\n",
+                "person:         Test Person\naddress:        Singel 258\n                Amsterdam\nnic-hdl:        TP1-TEST\nsource:         TEST\n",
+                "aut-num:        AS1\nas-name:        \u00c6sir\nsource:         TEST\n"));
+    }
+
+    @Test
+    public void read_gzipped_objects() throws IOException {
+        final File file = folder.newFile("dump.db.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write(DUMP.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        assertThat(Lists.newArrayList(new RpslObjectFileReader(file.getPath(), 8)),
+                is(Lists.newArrayList(new RpslObjectFileReader(createFile("dump.db", DUMP).getPath()))));
+    }
+
+    @Test
+    public void read_objects_larger_than_window() throws IOException {
+        final File file = createFile("dump.db", DUMP);
+
+        assertThat(Lists.newArrayList(new RpslObjectFileReader(file.getPath(), 8)),
+                is(Lists.newArrayList(new RpslObjectFileReader(file.getPath()))));
+    }
+
+    @Test
+    public void read_empty_file() throws IOException {
+        final File file = createFile("dump.db", "");
+
+        assertThat(Lists.newArrayList(new RpslObjectFileReader(file.getPath())), is(empty()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read_missing_file() {
+        new RpslObjectFileReader(new File(folder.getRoot(), "missing.db").getPath()).iterator();
+    }
+
+    @Test
+    public void split_at_object_boundaries() throws IOException {
+        final StringBuilder dump = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            dump.append("person:         Test Person\nnic-hdl:        TP").append(i).append("-TEST\n\n");
+        }
+        final File file = createFile("dump.db", dump.toString());
+        final List<String> expected = Lists.newArrayList(new RpslObjectFileReader(file.getPath()));
+
+        final Spliterator<String> suffix = new RpslObjectFileReader(file.getPath(), 64).spliterator();
+        final Spliterator<String> prefix = suffix.trySplit();
+        assertThat(prefix, is(notNullValue()));
+
+        final List<String> objects = Lists.newArrayList();
+        prefix.forEachRemaining(objects::add);
+        suffix.forEachRemaining(objects::add);
+        assertThat(objects, is(expected));
+
+        assertThat(new RpslObjectFileReader(file.getPath(), 64).stream().parallel().collect(Collectors.toList()), is(expected));
+    }
+
+    @Test
+    public void no_split_without_object_boundary() throws IOException {
+        final File file = createFile("dump.db", "remarks:        " + "x".repeat(1000) + "\n");
+
+        assertThat(new RpslObjectFileReader(file.getPath(), 64).spliterator().trySplit(), is(nullValue()));
+    }
+
+    private File createFile(final String name, final String content) throws IOException {
+        final File file = folder.newFile(name);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return file;
+    }
+}
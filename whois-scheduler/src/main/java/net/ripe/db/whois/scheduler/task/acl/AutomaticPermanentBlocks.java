@@ -1,9 +1,11 @@
 package net.ripe.db.whois.scheduler.task.acl;
 
+import com.google.common.collect.Lists;
 import net.javacrumbs.shedlock.core.SchedulerLock;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.FormatHelper;
 import net.ripe.db.whois.common.domain.BlockEvents;
+import net.ripe.db.whois.common.domain.PermanentBlock;
 import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.common.scheduler.DailyScheduledTask;
 import net.ripe.db.whois.query.acl.IpResourceConfiguration;
@@ -15,12 +17,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.CheckForNull;
 import java.net.InetAddress;
 import java.util.List;
 
+/**
+ * Bans every prefix that was blocked temporarily too often in the last 30 days. The temporary blocks are counted by the
+ * database, and the bans are saved in batches.
+ */
 @Component
 public class AutomaticPermanentBlocks implements DailyScheduledTask {
     private static final Logger LOGGER = LoggerFactory.getLogger(AutomaticPermanentBlocks.class);
+    private static final int BATCH_SIZE = 1000;
 
     private final DateTimeProvider dateTimeProvider;
     private final AccessControlListDao accessControlListDao;
@@ -39,35 +47,67 @@ public class AutomaticPermanentBlocks implements DailyScheduledTask {
     @Scheduled(cron = "0 0 0 * * *")
     @SchedulerLock(name = "AutomaticPermanentBlocks")
     public void run() {
+        LOGGER.debug("Reload IP resource configuration to make sure we have the latest ACL");
+        ipResourceConfiguration.reload();
+
         final LocalDate now = dateTimeProvider.getCurrentDate();
         final LocalDate checkTemporaryBlockTime = now.minusDays(30);
-        final List<BlockEvents> temporaryBlocks = accessControlListDao.getTemporaryBlocks(checkTemporaryBlockTime);
-        for (final BlockEvents blockEvents : temporaryBlocks) {
-            handleBlockEvents(now, blockEvents);
-        }
+        final List<PermanentBlock> permanentBlocks = Lists.newArrayListWithCapacity(BATCH_SIZE);
+
+        accessControlListDao.getTemporaryBlockCounts(checkTemporaryBlockTime, BlockEvents.NR_TEMP_BLOCKS_BEFORE_PERMANENT, (prefix, temporaryBlockCount) -> {
+            final PermanentBlock permanentBlock = createPermanentBlock(now, prefix, temporaryBlockCount);
+            if (permanentBlock != null) {
+                permanentBlocks.add(permanentBlock);
+                if (permanentBlocks.size() == BATCH_SIZE) {
+                    savePermanentBlocks(permanentBlocks);
+                }
+            }
+        });
+
+        savePermanentBlocks(permanentBlocks);
     }
 
-    private void handleBlockEvents(final LocalDate now, final BlockEvents blockEvents) {
-        LOGGER.debug("Reload IP resource configuration to make sure we have the latest ACL");
-        ipResourceConfiguration.reload();
+    @CheckForNull
+    private PermanentBlock createPermanentBlock(final LocalDate now, final String prefix, final int temporaryBlockCount) {
+        try {
+            final IpInterval<?> ipInterval = IpInterval.parse(prefix);
+            final InetAddress remoteAddress = ipInterval.beginAsInetAddress();
+            if (ipResourceConfiguration.isDenied(remoteAddress)) {
+                LOGGER.debug("Permanent ban already created for prefix: {}", prefix);
+                return null;
+            }
 
-        final String prefix = blockEvents.getPrefix();
-        if (blockEvents.isPermanentBlockRequired()) {
-            try {
-                final InetAddress remoteAddress = IpInterval.parse(prefix).beginAsInetAddress();
-                if (ipResourceConfiguration.isDenied(remoteAddress)) {
-                    LOGGER.debug("Permanent ban already created for prefix: {}", prefix);
-                } else {
-                    final String comment = String.format("Automatic permanent ban after %s temporary blocks at %s",
-                            blockEvents.getTemporaryBlockCount(),
-                            FormatHelper.dateToString(now));
+            final String comment = String.format("Automatic permanent ban after %s temporary blocks at %s",
+                    temporaryBlockCount,
+                    FormatHelper.dateToString(now));
 
-                    accessControlListDao.savePermanentBlock(IpInterval.parse(prefix), now, ipResourceConfiguration.getLimit(remoteAddress), comment);
-                    LOGGER.debug("Permanent ban created for prefix: {}", prefix);
-                }
-            } catch (Exception e) {
-                LOGGER.error("Creating permanent ban for prefix: {}", prefix, e);
+            return new PermanentBlock(ipInterval, now, ipResourceConfiguration.getLimit(remoteAddress), comment);
+        } catch (Exception e) {
+            LOGGER.error("Creating permanent ban for prefix: {}", prefix, e);
+            return null;
+        }
+    }
+
+    private void savePermanentBlocks(final List<PermanentBlock> permanentBlocks) {
+        try {
+            accessControlListDao.savePermanentBlocks(permanentBlocks);
+            permanentBlocks.forEach(permanentBlock -> LOGGER.debug("Permanent ban created for prefix: {}", permanentBlock.getIpInterval()));
+        } catch (Exception e) {
+            LOGGER.warn("Saving {} permanent bans failed ({}), saving them one by one", permanentBlocks.size(), e.getMessage());
+            for (final PermanentBlock permanentBlock : permanentBlocks) {
+                savePermanentBlock(permanentBlock);
             }
         }
+
+        permanentBlocks.clear();
+    }
+
+    private void savePermanentBlock(final PermanentBlock permanentBlock) {
+        try {
+            accessControlListDao.savePermanentBlock(permanentBlock.getIpInterval(), permanentBlock.getDate(), permanentBlock.getLimit(), permanentBlock.getComment());
+            LOGGER.debug("Permanent ban created for prefix: {}", permanentBlock.getIpInterval());
+        } catch (Exception e) {
+            LOGGER.error("Creating permanent ban for prefix: {}", permanentBlock.getIpInterval(), e);
+        }
     }
 }
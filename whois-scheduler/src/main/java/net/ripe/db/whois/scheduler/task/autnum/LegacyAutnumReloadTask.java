@@ -1,31 +1,224 @@
 package net.ripe.db.whois.scheduler.task.autnum;
 
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.RateLimiter;
+import net.javacrumbs.shedlock.core.SchedulerLock;
+import net.ripe.db.whois.api.rest.InternalJob;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.rpsl.attrs.AutnumStatus;
 import net.ripe.db.whois.common.scheduler.DailyScheduledTask;
+import net.ripe.db.whois.update.domain.Action;
+import net.ripe.db.whois.update.domain.Keyword;
 import net.ripe.db.whois.update.domain.LegacyAutnum;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Paragraph;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.domain.UpdateStatus;
+import net.ripe.db.whois.update.handler.UpdateRequestHandler;
+import net.ripe.db.whois.update.log.LoggerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.CheckForNull;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reloads the legacy autnums on every node. Optionally, the aut-nums whose status no longer matches the reloaded list
+ * are updated through the update pipeline, by a single node (holding the scheduler lock): a chunk at a time at a
+ * limited rate, every update in its own transaction, so interactive updates get the global update lock in between.
+ *
+ * Every node keeps the aut-nums found by its own reloads, as any node can get the lock. The status is checked again
+ * just before updating, so aut-nums already updated by another node are skipped.
+ */
 @Component
 public class LegacyAutnumReloadTask implements DailyScheduledTask {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(LegacyAutnumReloadTask.class);
+    private static final String ORIGIN_ID = "LegacyAutnumReloadTask";
+
     private final LegacyAutnum legacyAutnum;
+    private final RpslObjectDao rpslObjectDao;
+    private final UpdateRequestHandler updateRequestHandler;
+    private final LoggerContext loggerContext;
+    private final boolean updateStatus;
+    private final int chunkSize;
+    private final RateLimiter rateLimiter;
+
+    // aut-nums waiting for a status update, in the order they were found
+    private final Set<CIString> pending = Sets.newLinkedHashSet();
+    private final AtomicInteger chunkNumber = new AtomicInteger();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile double updatesPerMinute;
 
     @Autowired
-    public LegacyAutnumReloadTask(final LegacyAutnum legacyAutnum) {
+    public LegacyAutnumReloadTask(final LegacyAutnum legacyAutnum,
+                                  final RpslObjectDao rpslObjectDao,
+                                  final UpdateRequestHandler updateRequestHandler,
+                                  final LoggerContext loggerContext,
+                                  @Value("${legacy.autnum.status.update.enabled:false}") final boolean updateStatus,
+                                  @Value("${legacy.autnum.status.update.chunk.size:10}") final int chunkSize,
+                                  @Value("${legacy.autnum.status.updates.per.second:2}") final double updatesPerSecond) {
         this.legacyAutnum = legacyAutnum;
+        this.rpslObjectDao = rpslObjectDao;
+        this.updateRequestHandler = updateRequestHandler;
+        this.loggerContext = loggerContext;
+        this.updateStatus = updateStatus;
+        this.chunkSize = chunkSize;
+        this.rateLimiter = RateLimiter.create(updatesPerSecond);
     }
 
     @Override
     @Scheduled(cron = "0 1/15 * * * *")
     public void run() {
         LOGGER.info("Reloading legacy autnums");
-        final int previousTotal = legacyAutnum.getTotal();
+        final Set<CIString> previous = legacyAutnum.getLegacyAutnums();
         legacyAutnum.init();
-        LOGGER.info("Loaded {} legacy autnums (was {})", legacyAutnum.getTotal(), previousTotal);
+        final Set<CIString> current = legacyAutnum.getLegacyAutnums();
+        LOGGER.info("Loaded {} legacy autnums (was {})", current.size(), previous.size());
+
+        if (updateStatus) {
+            final List<CIString> changed = Lists.newArrayList();
+            for (final CIString autnum : Sets.symmetricDifference(previous, current)) {
+                if (getObjectToUpdate(autnum) != null) {
+                    changed.add(autnum);
+                }
+            }
+
+            if (!changed.isEmpty()) {
+                LOGGER.info("Found {} aut-nums to update the status of", changed.size());
+                synchronized (pending) {
+                    pending.addAll(changed);
+                }
+            }
+        }
+    }
+
+    @Scheduled(cron = "0 6/15 * * * *")
+    @SchedulerLock(name = "LegacyAutnumStatusUpdate")
+    public void updatePending() {
+        if (!updateStatus) {
+            return;
+        }
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        int processed = 0;
+
+        for (List<CIString> chunk = nextChunk(); !chunk.isEmpty(); chunk = nextChunk()) {
+            rateLimiter.acquire(chunk.size());
+            try {
+                updateChunk(chunk);
+            } catch (RuntimeException e) {
+                LOGGER.error("Updating status of {}", chunk, e);
+                failed.addAndGet(chunk.size());
+            }
+
+            processed += chunk.size();
+            updatesPerMinute = processed * 60_000.0 / Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+
+        if (processed > 0) {
+            LOGGER.info("Processed {} aut-num status updates in {}", processed, stopwatch);
+        }
+    }
+
+    // the current version of an aut-num if its status doesn't match the legacy autnums (and isn't OTHER, which is not
+    // maintained by the RIR and so doesn't depend on the list)
+    @CheckForNull
+    private RpslObject getObjectToUpdate(final CIString autnum) {
+        final RpslObject object = rpslObjectDao.getByKeyOrNull(ObjectType.AUT_NUM, autnum);
+        if (object == null) {
+            return null;
+        }
+
+        final CIString status = object.getValueOrNullForAttribute(AttributeType.STATUS);
+        if (AutnumStatus.OTHER.getCIName().equals(status)) {
+            return null;
+        }
+
+        final boolean legacy = AutnumStatus.LEGACY.getCIName().equals(status);
+        return legacy != legacyAutnum.contains(autnum) ? object : null;
     }
 
+    private List<CIString> nextChunk() {
+        synchronized (pending) {
+            final List<CIString> chunk = Lists.newArrayListWithCapacity(chunkSize);
+            for (final Iterator<CIString> iterator = pending.iterator(); iterator.hasNext() && chunk.size() < chunkSize; ) {
+                chunk.add(iterator.next());
+                iterator.remove();
+            }
+            return chunk;
+        }
+    }
+
+    private void updateChunk(final List<CIString> chunk) {
+        // read the objects just before updating them, as they may have been updated since
+        final List<Update> updates = Lists.newArrayListWithCapacity(chunk.size());
+        for (final CIString autnum : chunk) {
+            final RpslObject object = getObjectToUpdate(autnum);
+            if (object != null) {
+                updates.add(new Update(new Paragraph(object.toString()), Operation.UNSPECIFIED, null, object));
+            }
+        }
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        loggerContext.init(String.format("%s_%d", ORIGIN_ID, chunkNumber.incrementAndGet()));
+        try {
+            final UpdateContext updateContext = new UpdateContext(loggerContext);
+            // one by one (not a batch update), so every update is a transaction of its own
+            updateRequestHandler.handle(new UpdateRequest(new InternalJob(ORIGIN_ID), Keyword.NONE, updates), updateContext);
+
+            for (final Update update : updates) {
+                if (updateContext.getStatus(update) == UpdateStatus.SUCCESS) {
+                    // the status may have been corrected by another update in the meantime
+                    if (updateContext.getAction(update) == Action.MODIFY) {
+                        updated.incrementAndGet();
+                    }
+                } else {
+                    failed.incrementAndGet();
+                    LOGGER.warn("Updating status of {} failed: {}", update.getSubmittedObject().getKey(), updateContext.getMessages(update));
+                }
+            }
+        } finally {
+            loggerContext.remove();
+        }
+    }
+
+    int getPending() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    long getUpdated() {
+        return updated.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    double getUpdatesPerMinute() {
+        return updatesPerMinute;
+    }
 }
@@ -0,0 +1,43 @@
+package net.ripe.db.whois.scheduler.task.autnum;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "LegacyAutnumReload", description = "Legacy autnum reload and aut-num status updates")
+public class LegacyAutnumReloadTaskJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LegacyAutnumReloadTaskJmx.class);
+
+    private final LegacyAutnumReloadTask legacyAutnumReloadTask;
+
+    @Autowired
+    public LegacyAutnumReloadTaskJmx(final LegacyAutnumReloadTask legacyAutnumReloadTask) {
+        super(LOGGER);
+        this.legacyAutnumReloadTask = legacyAutnumReloadTask;
+    }
+
+    @ManagedAttribute(description = "Number of aut-nums waiting for a status update")
+    public int getPending() {
+        return legacyAutnumReloadTask.getPending();
+    }
+
+    @ManagedAttribute(description = "Number of aut-num status updates since startup")
+    public long getUpdated() {
+        return legacyAutnumReloadTask.getUpdated();
+    }
+
+    @ManagedAttribute(description = "Number of failed aut-num status updates since startup")
+    public long getFailed() {
+        return legacyAutnumReloadTask.getFailed();
+    }
+
+    @ManagedAttribute(description = "Aut-num status updates per minute in the current (or last) run")
+    public double getUpdatesPerMinute() {
+        return legacyAutnumReloadTask.getUpdatesPerMinute();
+    }
+}
@@ -18,7 +18,7 @@ public interface DecorationStrategy {
         }
     }
 
-    class DummifyLegacy implements DecorationStrategy {
+    class DummifyLegacy implements WithPlaceholders {
         private static final int VERSION = 3;
         private final DummifierNrtm dummifier;
         private final Set<ObjectType> writtenPlaceHolders = Sets.newHashSet();
@@ -29,11 +29,20 @@ public interface DecorationStrategy {
 
         @Override
         public RpslObject decorate(final RpslObject object) {
-            if (dummifier.isAllowed(VERSION, object)) {
-                return dummifier.dummify(VERSION, object);
+            if (usesPlaceholder(object)) {
+                return placeholder(object.getType());
             }
 
-            final ObjectType objectType = object.getType();
+            return dummifier.dummify(VERSION, object);
+        }
+
+        @Override
+        public boolean usesPlaceholder(final RpslObject object) {
+            return !dummifier.isAllowed(VERSION, object);
+        }
+
+        @Override
+        public RpslObject placeholder(final ObjectType objectType) {
             if (writtenPlaceHolders.add(objectType)) {
                 if (objectType.equals(ObjectType.ROLE)) {
                     return DummifierNrtm.getPlaceholderRoleObject();
@@ -63,6 +72,23 @@ public interface DecorationStrategy {
         }
     }
 
+    /**
+     * Decorates (some) objects as the placeholder for their type.
+     */
+    interface WithPlaceholders extends DecorationStrategy {
+        /**
+         * @return true if the object is decorated as the placeholder for its type, which only depends on the objects
+         * decorated before it
+         */
+        boolean usesPlaceholder(RpslObject object);
+
+        /**
+         * @return the placeholder for an object of the type, or null if it was already written
+         */
+        @CheckForNull
+        RpslObject placeholder(ObjectType objectType);
+    }
+
     @CheckForNull
     RpslObject decorate(RpslObject object);
 }
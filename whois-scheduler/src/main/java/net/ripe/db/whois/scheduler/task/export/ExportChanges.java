@@ -0,0 +1,64 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import com.google.common.collect.ListMultimap;
+import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import javax.annotation.CheckForNull;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * The objects changed since the previous export: objects with a serial after the previously exported serial, and
+ * objects of which the tags changed. A changed object without a current version was deleted (or can't be exported).
+ */
+final class ExportChanges {
+    private final int previousSerial;
+    private final int serial;
+    private final NavigableSet<Integer> objectIds;
+    private final Map<Integer, RpslObject> objects;
+    private final ListMultimap<Integer, Tag> tags;
+    private final TagsDao tagsDao;
+
+    ExportChanges(final int previousSerial, final int serial, final NavigableSet<Integer> objectIds, final Map<Integer, RpslObject> objects,
+                  final ListMultimap<Integer, Tag> tags, final TagsDao tagsDao) {
+        this.previousSerial = previousSerial;
+        this.serial = serial;
+        this.objectIds = objectIds;
+        this.objects = objects;
+        this.tags = tags;
+        this.tagsDao = tagsDao;
+    }
+
+    int getPreviousSerial() {
+        return previousSerial;
+    }
+
+    int getSerial() {
+        return serial;
+    }
+
+    /**
+     * @return the ids of the changed objects, in ascending order
+     */
+    NavigableSet<Integer> getObjectIds() {
+        return objectIds;
+    }
+
+    /**
+     * @return the current version of a changed object, or null if it was deleted
+     */
+    @CheckForNull
+    RpslObject getObject(final int objectId) {
+        return objects.get(objectId);
+    }
+
+    /**
+     * @return the current tags of an object, also of an unchanged object
+     */
+    List<Tag> getTags(final int objectId) {
+        return objectIds.contains(objectId) ? tags.get(objectId) : tagsDao.getTags(objectId);
+    }
+}
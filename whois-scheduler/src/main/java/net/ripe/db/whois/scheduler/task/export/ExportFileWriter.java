@@ -6,37 +6,68 @@ import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.QueryMessages;
 import net.ripe.db.whois.query.domain.TagResponseObject;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.CharArrayWriter;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public class ExportFileWriter {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExportFileWriter.class);
+    private static final String HEADER = QueryMessages.termsAndConditionsDump().toString();
 
     private final File baseDir;
     private final FilenameStrategy filenameStrategy;
     private final DecorationStrategy decorationStrategy;
+    @Nullable private final DecorationStrategy.WithPlaceholders placeholderStrategy;
     private final ExportFilter exportFilter;
+    private final ExecutorService compressionExecutor;
     private final Map<String, Writer> writerMap = Maps.newHashMap();
+    private final Map<String, Writer> deltaWriterMap = Maps.newHashMap();
+    private final CharArrayWriter text = new CharArrayWriter();
 
     public ExportFileWriter(final File baseDir,
                             final FilenameStrategy filenameStrategy,
                             final DecorationStrategy decorationStrategy,
                             final ExportFilter exportFilter) {
+        this(baseDir, filenameStrategy, decorationStrategy, exportFilter, null);
+    }
+
+    public ExportFileWriter(final File baseDir,
+                            final FilenameStrategy filenameStrategy,
+                            final DecorationStrategy decorationStrategy,
+                            final ExportFilter exportFilter,
+                            @Nullable final ExecutorService compressionExecutor) {
         this.baseDir = baseDir;
         this.filenameStrategy = filenameStrategy;
         this.decorationStrategy = decorationStrategy;
+        this.placeholderStrategy = decorationStrategy instanceof DecorationStrategy.WithPlaceholders ? (DecorationStrategy.WithPlaceholders) decorationStrategy : null;
         this.exportFilter = exportFilter;
+        this.compressionExecutor = compressionExecutor;
 
         for (final ObjectType objectType : ObjectType.values()) {
             final String filename = filenameStrategy.getFilename(objectType);
@@ -50,28 +81,142 @@ public class ExportFileWriter {
         }
     }
 
-    public void write(final RpslObject object, final List<Tag> tags) throws IOException {
+    /**
+     * @return the manifest entry of the object, or null if nothing was written (and nothing would be, when written
+     * again later)
+     */
+    @CheckForNull
+    public ExportManifest.Entry write(final RpslObject object, final List<Tag> tags) throws IOException {
         if (exportFilter.shouldExport(object)) {
-            final String filename = filenameStrategy.getFilename(object.getType());
+            final ObjectType objectType = object.getType();
+            final String filename = filenameStrategy.getFilename(objectType);
             if (filename != null) {
-                final Writer writer = getWriter(filename);
+                if (placeholderStrategy != null && placeholderStrategy.usesPlaceholder(object)) {
+                    writeText(filename, placeholderStrategy.placeholder(objectType), tags);
+                    return new ExportManifest.Entry(object.getObjectId(), objectType, true, text.size());
+                }
+
+                writeText(filename, decorationStrategy.decorate(object), tags);
+                if (text.size() > 0) {
+                    return new ExportManifest.Entry(object.getObjectId(), objectType, false, text.size());
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private void writeText(final String filename, @Nullable final RpslObject decoratedObject, final Supplier<List<Tag>> tags) throws IOException {
+        text.reset();
+        if (decoratedObject != null) {
+            text.write('\n');
+            decoratedObject.writeTo(text);
+
+            final List<Tag> objectTags = tags.get();
+            if (!objectTags.isEmpty()) {
+                text.write('\n');
+                text.write(new TagResponseObject(decoratedObject.getKey(), objectTags).toString());
+            }
+
+            text.writeTo(getWriter(filename));
+        }
+    }
 
-                final RpslObject decoratedObject = decorationStrategy.decorate(object);
-                if (decoratedObject != null) {
-                    writer.write('\n');
-                    decoratedObject.writeTo(writer);
+    private void writeText(final String filename, @Nullable final RpslObject decoratedObject, final List<Tag> tags) throws IOException {
+        writeText(filename, decoratedObject, () -> tags);
+    }
 
-                    if (!tags.isEmpty()) {
-                        writer.write('\n');
-                        writer.write(new TagResponseObject(decoratedObject.getKey(), tags).toString());
+    /**
+     * Write the export files by merging the previous export files with the changes since: the text of unchanged
+     * objects is copied from the previous export files, and changed objects are written again (in object id order).
+     * The changed text is also written to a delta file per export file: the new text of added and modified objects,
+     * and the previous text of deleted objects.
+     *
+     * @param previousBaseDir the directory of the previous export files
+     * @param previous the manifest of the previous export files
+     * @param current the manifest to write
+     */
+    void merge(final File previousBaseDir, final ExportManifest.Input previous, final ExportManifest.Output current, final ExportChanges changes) throws IOException {
+        final String deltaHeader = String.format("\n%% Changes after serial %d up to and including serial %d\n", changes.getPreviousSerial(), changes.getSerial());
+        for (final ObjectType objectType : ObjectType.values()) {
+            final String filename = filenameStrategy.getFilename(objectType);
+            if (filename != null && !deltaWriterMap.containsKey(filename)) {
+                final Writer deltaWriter = openWriter(new File(baseDir, filename + ".delta.gz"));
+                deltaWriter.write(deltaHeader);
+                deltaWriterMap.put(filename, deltaWriter);
+            }
+        }
+
+        try (PreviousExportFiles previousFiles = new PreviousExportFiles(previousBaseDir)) {
+            final Iterator<Integer> changedObjectIds = changes.getObjectIds().iterator();
+            Integer changedObjectId = changedObjectIds.hasNext() ? changedObjectIds.next() : null;
+            ExportManifest.Entry previousEntry = previous.next();
+
+            while (previousEntry != null || changedObjectId != null) {
+                final ExportManifest.Entry entry;
+                if (changedObjectId != null && (previousEntry == null || changedObjectId <= previousEntry.getObjectId())) {
+                    String previousText = "";
+                    ObjectType objectType = null;
+                    if (previousEntry != null && previousEntry.getObjectId() == changedObjectId) {
+                        previousText = previousFiles.read(previousEntry);
+                        objectType = previousEntry.getType();
+                        previousEntry = previous.next();
                     }
+
+                    final RpslObject object = changes.getObject(changedObjectId);
+                    entry = object == null ? null : write(object, changes.getTags(changedObjectId));
+                    writeDelta(entry == null ? objectType : entry.getType(), previousText, entry);
+                    changedObjectId = changedObjectIds.hasNext() ? changedObjectIds.next() : null;
+                } else if (previousEntry.isPlaceholder() && placeholderStrategy != null) {
+                    final String previousText = previousFiles.read(previousEntry);
+                    final int objectId = previousEntry.getObjectId();
+                    final ObjectType objectType = previousEntry.getType();
+                    writeText(filenameStrategy.getFilename(objectType), placeholderStrategy.placeholder(objectType), () -> changes.getTags(objectId));
+                    entry = new ExportManifest.Entry(objectId, objectType, true, text.size());
+                    writeDelta(objectType, previousText, entry);
+                    previousEntry = previous.next();
+                } else {
+                    previousFiles.copy(previousEntry, getWriter(filenameStrategy.getFilename(previousEntry.getType())));
+                    entry = previousEntry;
+                    previousEntry = previous.next();
+                }
+
+                if (entry != null) {
+                    current.add(entry);
                 }
             }
+
+            previousFiles.checkComplete();
         }
     }
 
+    private void writeDelta(@Nullable final ObjectType objectType, final String previousText, @Nullable final ExportManifest.Entry entry) throws IOException {
+        final String currentText = entry == null ? "" : text.toString();
+        if (objectType == null || currentText.equals(previousText)) {
+            return;
+        }
+
+        final Writer deltaWriter = deltaWriterMap.get(filenameStrategy.getFilename(objectType));
+        if (currentText.isEmpty()) {
+            deltaWriter.write("\nDEL\n");
+            deltaWriter.write(previousText);
+        } else {
+            deltaWriter.write("\nADD\n");
+            deltaWriter.write(currentText);
+        }
+    }
+
+    File getBaseDir() {
+        return baseDir;
+    }
+
     public void close() {
-        for (final Map.Entry<String, Writer> entry : writerMap.entrySet()) {
+        close(writerMap);
+        close(deltaWriterMap);
+    }
+
+    private void close(final Map<String, Writer> writers) {
+        for (final Map.Entry<String, Writer> entry : writers.entrySet()) {
             final Writer writer = entry.getValue();
             try {
                 writer.flush();
@@ -85,17 +230,97 @@ public class ExportFileWriter {
     private Writer getWriter(final String filename) throws IOException {
         Writer writer = writerMap.get(filename);
         if (writer == null) {
-            final File file = new File(baseDir, filename + ".gz");
-            final FileOutputStream fileOutputStream = new FileOutputStream(file);
-            try {
-                writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(fileOutputStream), StandardCharsets.ISO_8859_1));
-                writer.write(QueryMessages.termsAndConditionsDump().toString());
-                writerMap.put(filename, writer);
-            } catch (IOException e) {
-                fileOutputStream.close();
-            }
+            writer = openWriter(new File(baseDir, filename + ".gz"));
+            writerMap.put(filename, writer);
         }
 
         return writer;
     }
+
+    private Writer openWriter(final File file) throws IOException {
+        final FileOutputStream fileOutputStream = new FileOutputStream(file);
+        try {
+            final OutputStream outputStream = compressionExecutor == null ?
+                    new GZIPOutputStream(fileOutputStream) :
+                    new ParallelGzipOutputStream(new BufferedOutputStream(fileOutputStream), compressionExecutor);
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.ISO_8859_1));
+            writer.write(HEADER);
+            return writer;
+        } catch (IOException e) {
+            fileOutputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The export files of the previous export, read in the order of the manifest entries.
+     */
+    private final class PreviousExportFiles implements Closeable {
+        private final File previousBaseDir;
+        private final Map<String, Reader> readerMap = Maps.newHashMap();
+        private final char[] buffer = new char[8192];
+
+        private PreviousExportFiles(final File previousBaseDir) {
+            this.previousBaseDir = previousBaseDir;
+        }
+
+        private String read(final ExportManifest.Entry entry) throws IOException {
+            final StringBuilder previousText = new StringBuilder(entry.getLength());
+            final Reader reader = getReader(entry.getType());
+            for (int remaining = entry.getLength(); remaining > 0; ) {
+                final int read = readBuffer(reader, remaining);
+                previousText.append(buffer, 0, read);
+                remaining -= read;
+            }
+            return previousText.toString();
+        }
+
+        private void copy(final ExportManifest.Entry entry, final Writer writer) throws IOException {
+            final Reader reader = getReader(entry.getType());
+            for (int remaining = entry.getLength(); remaining > 0; ) {
+                final int read = readBuffer(reader, remaining);
+                writer.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+
+        private int readBuffer(final Reader reader, final int remaining) throws IOException {
+            final int read = reader.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Previous export file shorter than its manifest in " + previousBaseDir);
+            }
+            return read;
+        }
+
+        private Reader getReader(final ObjectType objectType) throws IOException {
+            final String filename = filenameStrategy.getFilename(objectType);
+            Reader reader = readerMap.get(filename);
+            if (reader == null) {
+                final File file = new File(previousBaseDir, filename + ".gz");
+                reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.ISO_8859_1));
+                readerMap.put(filename, reader);
+
+                final char[] header = new char[HEADER.length()];
+                if (IOUtils.read(reader, header) != header.length || !HEADER.equals(new String(header))) {
+                    throw new IllegalStateException("Unexpected header in previous export file: " + file);
+                }
+            }
+            return reader;
+        }
+
+        private void checkComplete() throws IOException {
+            for (final Map.Entry<String, Reader> entry : readerMap.entrySet()) {
+                if (entry.getValue().read() != -1) {
+                    throw new IllegalStateException("Previous export file longer than its manifest: " + new File(previousBaseDir, entry.getKey()));
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (final Reader reader : readerMap.values()) {
+                reader.close();
+            }
+        }
+    }
 }
@@ -11,10 +11,16 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.FileCopyUtils;
 
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.ripe.db.whois.common.rpsl.ObjectType.AUT_NUM;
 import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE;
@@ -23,6 +29,7 @@ import static net.ripe.db.whois.common.rpsl.ObjectType.ROUTE6;
 @Component
 class ExportFileWriterFactory {
     private static final String SPLITFILE_FOLDERNAME = "split";
+    private static final String MANIFEST_FOLDERNAME = "manifest";
     private static final String CURRENTSERIAL_FILENAME = "RIPE.CURRENTSERIAL";
     private static final String CURRENTSERIAL_NONAUTH_FILENAME = "RIPE-NONAUTH.CURRENTSERIAL";
 
@@ -34,6 +41,7 @@ class ExportFileWriterFactory {
     private final String nonAuthSource;
     private final String externalExportDir;
     private final String internalExportDir;
+    private final ExecutorService compressionExecutor;
 
     @Autowired
     ExportFileWriterFactory(final DummifierNrtm dummifierNrtm, final DummifierCurrent dummifierCurrent,
@@ -41,7 +49,8 @@ class ExportFileWriterFactory {
                             @Value("${dir.rpsl.export.external}") final String externalExportDir,
                             @Value("${dir.rpsl.export.external.legacy}") final String legacyExternalExportDir,
                             @Value("${whois.source}") final String source,
-                            @Value("${whois.nonauth.source}") final String nonAuthSource) {
+                            @Value("${whois.nonauth.source}") final String nonAuthSource,
+                            @Value("${rpsl.export.compression.threads:0}") final int compressionThreads) {
         this.dummifierNrtm = dummifierNrtm;
         this.dummifierCurrent = dummifierCurrent;
         this.internalExportDir = internalExportDir;
@@ -49,6 +58,26 @@ class ExportFileWriterFactory {
         this.legacyExternalExportDir = legacyExternalExportDir;
         this.source = source;
         this.nonAuthSource = nonAuthSource;
+        this.compressionExecutor = compressionThreads > 0 ? createCompressionExecutor(compressionThreads) : null;
+    }
+
+    private static ExecutorService createCompressionExecutor(final int compressionThreads) {
+        final AtomicInteger threadNum = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(compressionThreads, compressionThreads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable, String.format("export-compress-%s", threadNum.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @PreDestroy
+    void shutdownCompressionThreads() {
+        if (compressionExecutor != null) {
+            compressionExecutor.shutdownNow();
+        }
     }
 
     public List<ExportFileWriter> createExportFileWriters(final File baseDir, final int lastSerial) {
@@ -79,20 +108,27 @@ class ExportFileWriterFactory {
         final ExportFilter nonAuthSourceFilter = new ExportFilter.SourceExportFilter(nonAuthSource, Sets.immutableEnumSet(AUT_NUM, ROUTE, ROUTE6), false);
 
         return Lists.newArrayList(
-                new ExportFileWriter(fullDir, singleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter),
-                new ExportFileWriter(splitDir, splitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter),
-                new ExportFileWriter(fullDirNew, singleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter),
-                new ExportFileWriter(splitDirNew, splitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter),
-                new ExportFileWriter(internalDir, splitFile, new DecorationStrategy.None(), sourceFilter),
-
-                new ExportFileWriter(fullDir, nonAuthSingleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter),
-                new ExportFileWriter(splitDir, nonAuthSplitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter),
-                new ExportFileWriter(fullDirNew, nonAuthSingleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter),
-                new ExportFileWriter(splitDirNew, nonAuthSplitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter),
-                new ExportFileWriter(internalDir, nonAuthSplitFile, new DecorationStrategy.None(), nonAuthSourceFilter)
+                new ExportFileWriter(fullDir, singleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDir, splitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), sourceFilter, compressionExecutor),
+                new ExportFileWriter(fullDirNew, singleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDirNew, splitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), sourceFilter, compressionExecutor),
+                new ExportFileWriter(internalDir, splitFile, new DecorationStrategy.None(), sourceFilter, compressionExecutor),
+
+                new ExportFileWriter(fullDir, nonAuthSingleFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDir, nonAuthSplitFile, new DecorationStrategy.DummifyLegacy(dummifierNrtm), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(fullDirNew, nonAuthSingleFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(splitDirNew, nonAuthSplitFile, new DecorationStrategy.DummifyCurrent(dummifierCurrent), nonAuthSourceFilter, compressionExecutor),
+                new ExportFileWriter(internalDir, nonAuthSplitFile, new DecorationStrategy.None(), nonAuthSourceFilter, compressionExecutor)
         );
     }
 
+    /**
+     * @return the directory for the manifest of an export (not published, so in the internal export)
+     */
+    public File getManifestDir(final File baseDir) {
+        return new File(baseDir, internalExportDir + File.separator + MANIFEST_FOLDERNAME);
+    }
+
     public boolean isExportDir(final File dir) {
         final File[] files = dir.listFiles();
         if (files == null) {
@@ -0,0 +1,244 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+
+import javax.annotation.CheckForNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What an export wrote, so the next export can merge the changes since into the previous export files instead of
+ * writing every object again: the last exported serial, a hash of the tags of every tagged object and, for every
+ * export file writer, the type of every object written and the length of its text (in object id order, which is the
+ * order of the export files).
+ *
+ * A manifest is only valid for the same export file writers, so a configuration change needs a full export.
+ */
+final class ExportManifest {
+    private static final int VERSION = 1;
+    private static final String TAGS_FILENAME = "tags";
+    private static final String WRITER_FILENAME = "writer.";
+
+    private static final ObjectType[] OBJECT_TYPES = ObjectType.values();
+
+    private ExportManifest() {
+    }
+
+    static File getTagsFile(final File manifestDir) {
+        return new File(manifestDir, TAGS_FILENAME);
+    }
+
+    static File getWriterFile(final File manifestDir, final int writerNum) {
+        return new File(manifestDir, WRITER_FILENAME + writerNum);
+    }
+
+    /**
+     * @return a hash of the tags of an object, independent of their order
+     */
+    static long hashTags(final List<Tag> tags) {
+        final List<HashCode> hashCodes = Lists.newArrayListWithCapacity(tags.size());
+        for (final Tag tag : tags) {
+            hashCodes.add(Hashing.murmur3_128().newHasher()
+                    .putString(tag.getType().toString(), StandardCharsets.UTF_8)
+                    .putByte((byte) 0)
+                    .putString(String.valueOf(tag.getValue()), StandardCharsets.UTF_8)
+                    .hash());
+        }
+        return hashCodes.isEmpty() ? 0 : Hashing.combineUnordered(hashCodes).asLong();
+    }
+
+    /**
+     * The text an export file writer wrote for an object. A placeholder entry is for an object that is replaced by the
+     * placeholder for its type (so the text depends on the objects before it, and can be empty).
+     */
+    static final class Entry {
+        private final int objectId;
+        private final ObjectType type;
+        private final boolean placeholder;
+        private final int length;
+
+        Entry(final int objectId, final ObjectType type, final boolean placeholder, final int length) {
+            this.objectId = objectId;
+            this.type = type;
+            this.placeholder = placeholder;
+            this.length = length;
+        }
+
+        int getObjectId() {
+            return objectId;
+        }
+
+        ObjectType getType() {
+            return type;
+        }
+
+        boolean isPlaceholder() {
+            return placeholder;
+        }
+
+        int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * Writes a manifest file, with entries in ascending object id order.
+     */
+    static final class Output implements Closeable {
+        private final DataOutputStream out;
+        private int lastObjectId;
+
+        Output(final File file, final int serial, final String description) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))));
+            out.writeInt(VERSION);
+            out.writeInt(serial);
+            out.writeUTF(description);
+            out.writeInt(OBJECT_TYPES.length);
+        }
+
+        void addTags(final int objectId, final long tagsHash) throws IOException {
+            writeObjectId(objectId);
+            out.writeLong(tagsHash);
+        }
+
+        void add(final Entry entry) throws IOException {
+            writeObjectId(entry.objectId);
+            out.writeByte(entry.type.ordinal());
+            writeVarInt(out, entry.length << 1 | (entry.placeholder ? 1 : 0));
+        }
+
+        private void writeObjectId(final int objectId) throws IOException {
+            if (objectId <= lastObjectId) {
+                throw new IllegalStateException(String.format("Object id %d after %d", objectId, lastObjectId));
+            }
+            writeVarInt(out, objectId - lastObjectId);
+            lastObjectId = objectId;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a manifest file written by {@link Output}.
+     */
+    static final class Input implements Closeable {
+        private final DataInputStream in;
+        private final int serial;
+        private final String description;
+        private int lastObjectId;
+        private long tagsHash;
+
+        Input(final File file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+            try {
+                if (in.readInt() != VERSION) {
+                    throw new IOException("Unsupported manifest version: " + file);
+                }
+                this.serial = in.readInt();
+                this.description = in.readUTF();
+                if (in.readInt() != OBJECT_TYPES.length) {
+                    throw new IOException("Object types changed since: " + file);
+                }
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        int getSerial() {
+            return serial;
+        }
+
+        String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return the next tagged object id (with its hash in {@link #getTagsHash()}), or -1 at the end of the file
+         */
+        int nextTags() throws IOException {
+            if (!readObjectId()) {
+                return -1;
+            }
+            tagsHash = in.readLong();
+            return lastObjectId;
+        }
+
+        long getTagsHash() {
+            return tagsHash;
+        }
+
+        @CheckForNull
+        Entry next() throws IOException {
+            if (!readObjectId()) {
+                return null;
+            }
+            final ObjectType type = OBJECT_TYPES[in.readUnsignedByte()];
+            final int value = readVarInt(in);
+            return new Entry(lastObjectId, type, (value & 1) != 0, value >>> 1);
+        }
+
+        private boolean readObjectId() throws IOException {
+            final int first = in.read();
+            if (first == -1) {
+                return false;
+            }
+            lastObjectId += readVarInt(in, first);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7f) != 0) {
+            out.writeByte((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        return readVarInt(in, in.read());
+    }
+
+    private static int readVarInt(final DataInputStream in, final int first) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b = first;
+        while (true) {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            b = in.read();
+        }
+    }
+}
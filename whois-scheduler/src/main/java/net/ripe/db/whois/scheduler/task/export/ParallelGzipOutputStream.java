@@ -0,0 +1,126 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compress fixed size blocks in parallel, each into a separate gzip member (like pigz --independent), and write the
+ * members in order. Concatenated gzip members decompress to the original stream (RFC 1952).
+ */
+class ParallelGzipOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 128 * 1024;
+    private static final int MAX_PENDING_BLOCKS = 4;
+
+    private final OutputStream out;
+    private final ExecutorService executorService;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>(MAX_PENDING_BLOCKS);
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int count;
+    private int nrBlocks;
+    private boolean closed;
+
+    ParallelGzipOutputStream(final OutputStream out, final ExecutorService executorService) {
+        this.out = out;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (count == block.length) {
+            submitBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (count == block.length) {
+                submitBlock();
+            }
+
+            final int length = Math.min(remaining, block.length - count);
+            System.arraycopy(b, offset, block, count, length);
+            count += length;
+            offset += length;
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Only flushes the underlying stream; a partially filled block is compressed when full or on close, so flushing
+     * does not produce a member for every flush of the writer on top.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            // an empty stream is still a single (empty) member
+            if (count > 0 || nrBlocks == 0) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeMember(pending.removeFirst());
+            }
+            out.flush();
+        } finally {
+            for (final Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            out.close();
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (pending.size() >= MAX_PENDING_BLOCKS) {
+            writeMember(pending.removeFirst());
+        }
+
+        final byte[] data = block;
+        final int length = count;
+        pending.addLast(executorService.submit(() -> compress(data, length)));
+
+        block = new byte[BLOCK_SIZE];
+        count = 0;
+        nrBlocks++;
+    }
+
+    private void writeMember(final Future<byte[]> future) throws IOException {
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compressing block");
+        } catch (ExecutionException e) {
+            throw new IOException("Compressing block", e.getCause());
+        }
+    }
+
+    static byte[] compress(final byte[] data, final int length) throws IOException {
+        final ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+        try (final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(member, 8192)) {
+            gzipOutputStream.write(data, 0, length);
+        }
+        return member.toByteArray();
+    }
+}
@@ -1,6 +1,13 @@
 package net.ripe.db.whois.scheduler.task.export;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -17,14 +24,27 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.FileSystemUtils;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Component
 class RpslObjectsExporter {
     private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectsExporter.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_PENDING_BATCHES = 16;
+    private static final String TAGS_DESCRIPTION = "tags";
 
     private final ExportFileWriterFactory exportFileWriterFactory;
     private final ExportDao exportDao;
@@ -34,6 +54,7 @@ class RpslObjectsExporter {
 
     private final AtomicBoolean exporting = new AtomicBoolean();
     private final boolean enabled;
+    private final boolean incremental;
 
     @Autowired
     public RpslObjectsExporter(final ExportFileWriterFactory exportFileWriterFactory,
@@ -41,11 +62,13 @@ class RpslObjectsExporter {
                                final TagsDao tagsDao,
                                @Value("${dir.rpsl.export}") final String exportDirName,
                                @Value("${dir.rpsl.export.tmp}") final String tmpDirName,
-                               @Value("${rpsl.export.enabled:true}") final boolean enabled) {
+                               @Value("${rpsl.export.enabled:true}") final boolean enabled,
+                               @Value("${rpsl.export.incremental:false}") final boolean incremental) {
         this.exportFileWriterFactory = exportFileWriterFactory;
         this.exportDao = exportDao;
         this.tagsDao = tagsDao;
         this.enabled = enabled;
+        this.incremental = incremental;
 
         exportDir = new File(exportDirName);
         tmpDir = new File(tmpDirName);
@@ -66,7 +89,11 @@ class RpslObjectsExporter {
             final Stopwatch stopwatch = Stopwatch.createStarted();
 
             initDirs();
-            exportToFiles();
+            if (incremental) {
+                exportIncremental();
+            } else {
+                exportToFiles(false);
+            }
 
             Validate.isTrue(FileSystemUtils.deleteRecursively(exportDir), "Recursive delete failed: ", exportDir);
             Validate.isTrue(tmpDir.renameTo(exportDir), "Rename failed: ", tmpDir);
@@ -98,50 +125,302 @@ class RpslObjectsExporter {
     }
 
     @Transactional(isolation = Isolation.REPEATABLE_READ, propagation = Propagation.REQUIRES_NEW)
-    private void exportToFiles() {
+    private void exportToFiles(final boolean writeManifest) {
         final int maxSerial = exportDao.getMaxSerial();
         LOGGER.info("Max serial: {}", maxSerial);
 
         final List<ExportFileWriter> exportFileWriters = exportFileWriterFactory.createExportFileWriters(tmpDir, maxSerial);
+        final List<ExportManifest.Output> manifests = Lists.newArrayList();
         try {
-            final TextFileExporter textFileExporter = new TextFileExporter(exportFileWriters);
+            final File manifestDir = writeManifest ? createManifestDir() : null;
+            final ExportManifest.Output tagsManifest = writeManifest ? addManifest(manifests, ExportManifest.getTagsFile(manifestDir), maxSerial, TAGS_DESCRIPTION) : null;
+
+            final List<WriterStage> writerStages = Lists.newArrayListWithCapacity(exportFileWriters.size());
+            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                final int writerNum = writerStages.size() + 1;
+                final ExportManifest.Output manifest = writeManifest ?
+                        addManifest(manifests, ExportManifest.getWriterFile(manifestDir, writerNum), maxSerial, getDescription(exportFileWriter, writerNum)) :
+                        null;
+                writerStages.add(new WriterStage(exportFileWriter, writerNum, manifest));
+            }
+
+            final TextFileExporter textFileExporter = new TextFileExporter(writerStages, tagsManifest);
             try {
                 exportDao.exportObjects(textFileExporter);
+                textFileExporter.finish();
             } finally {
+                textFileExporter.shutdown();
                 textFileExporter.logNrExported();
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing export manifest", e);
+        } finally {
+            closeManifests(manifests);
+            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                exportFileWriter.close();
+            }
+        }
+    }
+
+    /**
+     * Export the changes since the previous export: write delta files, and the export files merged from the previous
+     * export files and the changes. Export all objects if there is no (valid) manifest of the previous export.
+     */
+    private void exportIncremental() {
+        final File previousManifestDir = exportFileWriterFactory.getManifestDir(exportDir);
+        if (!ExportManifest.getTagsFile(previousManifestDir).exists()) {
+            LOGGER.info("No manifest of a previous export, exporting all objects");
+            exportToFiles(true);
+            return;
+        }
+
+        try {
+            exportChanges(previousManifestDir);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Incremental export failed, exporting all objects", e);
+            initDirs();
+            exportToFiles(true);
+        }
+    }
+
+    @Transactional(isolation = Isolation.REPEATABLE_READ, propagation = Propagation.REQUIRES_NEW)
+    private void exportChanges(final File previousManifestDir) throws IOException {
+        final int maxSerial = exportDao.getMaxSerial();
+        LOGGER.info("Max serial: {}", maxSerial);
+
+        final List<ExportFileWriter> exportFileWriters = exportFileWriterFactory.createExportFileWriters(tmpDir, maxSerial);
+        final List<ExportManifest.Output> manifests = Lists.newArrayList();
+        final List<ExportManifest.Input> previousManifests = Lists.newArrayList();
+        try {
+            final File manifestDir = createManifestDir();
+
+            final ExportChanges changes;
+            try (ExportManifest.Input previousTagsManifest = new ExportManifest.Input(ExportManifest.getTagsFile(previousManifestDir))) {
+                Validate.isTrue(previousTagsManifest.getSerial() <= maxSerial, "Previous export after max serial: ", previousTagsManifest.getSerial());
+                final ExportManifest.Output tagsManifest = addManifest(manifests, ExportManifest.getTagsFile(manifestDir), maxSerial, TAGS_DESCRIPTION);
+                changes = getChanges(previousTagsManifest, tagsManifest, maxSerial);
+            }
+            LOGGER.info("Exporting {} objects changed after serial {}", changes.getObjectIds().size(), changes.getPreviousSerial());
+
+            final List<WriterStage> writerStages = Lists.newArrayListWithCapacity(exportFileWriters.size());
+            try {
+                for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                    final int writerNum = writerStages.size() + 1;
+                    final String description = getDescription(exportFileWriter, writerNum);
+
+                    final ExportManifest.Input previousManifest = new ExportManifest.Input(ExportManifest.getWriterFile(previousManifestDir, writerNum));
+                    previousManifests.add(previousManifest);
+                    Validate.isTrue(previousManifest.getDescription().equals(description), "Export file writer changed since previous export: ", description);
+                    Validate.isTrue(previousManifest.getSerial() == changes.getPreviousSerial(), "Inconsistent previous export manifest: ", description);
+
+                    final ExportManifest.Output manifest = addManifest(manifests, ExportManifest.getWriterFile(manifestDir, writerNum), maxSerial, description);
+                    final WriterStage writerStage = new WriterStage(exportFileWriter, writerNum, manifest);
+                    writerStages.add(writerStage);
+
+                    final File previousBaseDir = exportDir.toPath().resolve(tmpDir.toPath().relativize(exportFileWriter.getBaseDir().toPath())).toFile();
+                    writerStage.merge(previousBaseDir, previousManifest, changes);
+                }
+            } finally {
+                for (final WriterStage writerStage : writerStages) {
+                    writerStage.shutdown();
+                }
+            }
+
+            for (final WriterStage writerStage : writerStages) {
+                writerStage.checkFailure();
+            }
         } finally {
+            for (final ExportManifest.Input previousManifest : previousManifests) {
+                previousManifest.close();
+            }
+            closeManifests(manifests);
             for (final ExportFileWriter exportFileWriter : exportFileWriters) {
                 exportFileWriter.close();
             }
         }
     }
 
+    private ExportChanges getChanges(final ExportManifest.Input previousTagsManifest, final ExportManifest.Output tagsManifest, final int maxSerial) throws IOException {
+        final int previousSerial = previousTagsManifest.getSerial();
+        final NavigableSet<Integer> objectIds = Sets.newTreeSet(exportDao.getChangedObjectIds(previousSerial, maxSerial));
+
+        final TagsComparison tagsComparison = new TagsComparison(previousTagsManifest, tagsManifest, objectIds);
+        exportDao.exportTags(tagsComparison);
+        tagsComparison.finish();
+
+        final Map<Integer, RpslObject> objects = Maps.newHashMap();
+        exportDao.exportObjects(objectIds, object -> objects.put(object.getObjectId(), object));
+
+        final ListMultimap<Integer, Tag> tags = ArrayListMultimap.create();
+        for (final List<Integer> batch : Iterables.partition(objectIds, BATCH_SIZE)) {
+            tags.putAll(Multimaps.index(tagsDao.getTags(batch), Tag::getObjectId));
+        }
+
+        return new ExportChanges(previousSerial, maxSerial, objectIds, objects, tags, tagsDao);
+    }
+
+    private File createManifestDir() {
+        final File manifestDir = exportFileWriterFactory.getManifestDir(tmpDir);
+        Validate.isTrue(manifestDir.mkdirs(), "Unable to create manifest dir: ", manifestDir);
+        return manifestDir;
+    }
+
+    private static ExportManifest.Output addManifest(final List<ExportManifest.Output> manifests, final File file, final int serial, final String description) throws IOException {
+        final ExportManifest.Output manifest = new ExportManifest.Output(file, serial, description);
+        manifests.add(manifest);
+        return manifest;
+    }
+
+    private static void closeManifests(final List<ExportManifest.Output> manifests) {
+        for (final ExportManifest.Output manifest : manifests) {
+            try {
+                manifest.close();
+            } catch (IOException e) {
+                LOGGER.error("Closing export manifest", e);
+            }
+        }
+    }
+
+    private String getDescription(final ExportFileWriter exportFileWriter, final int writerNum) {
+        return String.format("%d %s", writerNum, tmpDir.toPath().relativize(exportFileWriter.getBaseDir().toPath()));
+    }
+
+    /**
+     * Compares the tags of every object (streamed in object id order) with the tags of the previous export, adding
+     * the objects of which the tags changed to the changed objects.
+     */
+    private static final class TagsComparison implements Consumer<Tag> {
+        private final ExportManifest.Input previousTagsManifest;
+        private final ExportManifest.Output tagsManifest;
+        private final Set<Integer> changedObjectIds;
+        private final List<Tag> objectTags = Lists.newArrayList();
+        private int previousObjectId;
+
+        private TagsComparison(final ExportManifest.Input previousTagsManifest, final ExportManifest.Output tagsManifest, final Set<Integer> changedObjectIds) throws IOException {
+            this.previousTagsManifest = previousTagsManifest;
+            this.tagsManifest = tagsManifest;
+            this.changedObjectIds = changedObjectIds;
+            this.previousObjectId = previousTagsManifest.nextTags();
+        }
+
+        @Override
+        public void accept(final Tag tag) {
+            try {
+                if (!objectTags.isEmpty() && objectTags.get(0).getObjectId() != tag.getObjectId()) {
+                    compareObjectTags();
+                }
+                objectTags.add(tag);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void finish() throws IOException {
+            if (!objectTags.isEmpty()) {
+                compareObjectTags();
+            }
+            skipPreviousTags(Integer.MAX_VALUE);
+        }
+
+        private void compareObjectTags() throws IOException {
+            final int objectId = objectTags.get(0).getObjectId();
+            final long tagsHash = ExportManifest.hashTags(objectTags);
+            tagsManifest.addTags(objectId, tagsHash);
+            objectTags.clear();
+
+            skipPreviousTags(objectId);
+            if (previousObjectId == objectId) {
+                if (previousTagsManifest.getTagsHash() != tagsHash) {
+                    changedObjectIds.add(objectId);
+                }
+                previousObjectId = previousTagsManifest.nextTags();
+            } else {
+                changedObjectIds.add(objectId);
+            }
+        }
+
+        // objects before the object id had tags in the previous export, but no longer
+        private void skipPreviousTags(final int objectId) throws IOException {
+            while (previousObjectId != -1 && previousObjectId < objectId) {
+                changedObjectIds.add(previousObjectId);
+                previousObjectId = previousTagsManifest.nextTags();
+            }
+        }
+    }
+
+    /**
+     * Reader stage: collects the streamed objects into batches and looks up their tags in bulk. Every batch is handed
+     * to a writer stage per export file writer, which filters, decorates and writes the objects in order.
+     */
     private final class TextFileExporter implements ExportCallbackHandler {
         private static final int LOG_EVERY = 500000;
-        private final Iterable<ExportFileWriter> exportFileWriters;
+        private final List<WriterStage> writerStages;
+        private final ExportManifest.Output tagsManifest;
 
+        private List<RpslObject> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
         private int lastLogged = -1;
         private int nrExported = 0;
 
-        private TextFileExporter(final Iterable<ExportFileWriter> exportFileWriters) {
-            this.exportFileWriters = exportFileWriters;
+        private TextFileExporter(final List<WriterStage> writerStages, @Nullable final ExportManifest.Output tagsManifest) {
+            this.writerStages = writerStages;
+            this.tagsManifest = tagsManifest;
         }
 
         @Override
         public void exportObject(final RpslObject object) {
-            final List<Tag> tags = tagsDao.getTags(object.getObjectId());
-            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+            batch.add(object);
+            if (batch.size() == BATCH_SIZE) {
+                submitBatch();
+            }
+
+            if (++nrExported % LOG_EVERY == 0) {
+                logNrExported();
+            }
+        }
+
+        public void finish() {
+            submitBatch();
+            shutdown();
+            for (final WriterStage writerStage : writerStages) {
+                writerStage.checkFailure();
+            }
+        }
+
+        public void shutdown() {
+            for (final WriterStage writerStage : writerStages) {
+                writerStage.shutdown();
+            }
+        }
+
+        private void submitBatch() {
+            if (batch.isEmpty() || writerStages.isEmpty()) {
+                return;
+            }
+
+            final List<Integer> objectIds = Lists.newArrayListWithCapacity(batch.size());
+            for (final RpslObject object : batch) {
+                objectIds.add(object.getObjectId());
+            }
+            final ListMultimap<Integer, Tag> tags = Multimaps.index(tagsDao.getTags(objectIds), Tag::getObjectId);
+
+            if (tagsManifest != null) {
                 try {
-                    exportFileWriter.write(object, tags);
+                    for (final Integer objectId : objectIds) {
+                        final List<Tag> objectTags = tags.get(objectId);
+                        if (!objectTags.isEmpty()) {
+                            tagsManifest.addTags(objectId, ExportManifest.hashTags(objectTags));
+                        }
+                    }
                 } catch (IOException e) {
-                    throw new RuntimeException("Exporting to " + exportFileWriter, e);
+                    throw new UncheckedIOException("Writing export manifest", e);
                 }
             }
 
-            if (++nrExported % LOG_EVERY == 0) {
-                logNrExported();
+            for (final WriterStage writerStage : writerStages) {
+                writerStage.submit(batch, tags);
             }
+
+            batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
         }
 
         public void logNrExported() {
@@ -151,4 +430,76 @@ class RpslObjectsExporter {
             }
         }
     }
+
+    /**
+     * Writes batches on a dedicated thread, so every export file writer (and its decoration strategy) is only used by
+     * a single thread and the objects are written in the order they were read.
+     */
+    private static final class WriterStage {
+        private final ExportFileWriter exportFileWriter;
+        private final ExportManifest.Output manifest;
+        private final ExecutorService executorService;
+        private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+        private volatile Exception failure;
+
+        private WriterStage(final ExportFileWriter exportFileWriter, final int threadNum, @Nullable final ExportManifest.Output manifest) {
+            this.exportFileWriter = exportFileWriter;
+            this.manifest = manifest;
+            this.executorService = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, String.format("export-writer-%s", threadNum));
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void submit(final List<RpslObject> objects, final ListMultimap<Integer, Tag> tags) {
+            checkFailure();
+            pendingBatches.acquireUninterruptibly();
+            executorService.execute(() -> {
+                try {
+                    if (failure == null) {
+                        for (final RpslObject object : objects) {
+                            final ExportManifest.Entry entry = exportFileWriter.write(object, tags.get(object.getObjectId()));
+                            if (manifest != null && entry != null) {
+                                manifest.add(entry);
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                } finally {
+                    pendingBatches.release();
+                }
+            });
+        }
+
+        private void merge(final File previousBaseDir, final ExportManifest.Input previousManifest, final ExportChanges changes) {
+            executorService.execute(() -> {
+                try {
+                    exportFileWriter.merge(previousBaseDir, previousManifest, manifest, changes);
+                } catch (IOException | RuntimeException e) {
+                    failure = e;
+                }
+            });
+        }
+
+        private void shutdown() {
+            executorService.shutdown();
+            try {
+                while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                    LOGGER.info("Waiting for {} to finish", exportFileWriter);
+                }
+            } catch (InterruptedException e) {
+                executorService.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted exporting to " + exportFileWriter, e);
+            }
+        }
+
+        private void checkFailure() {
+            if (failure != null) {
+                throw new RuntimeException("Exporting to " + exportFileWriter, failure);
+            }
+        }
+    }
 }
@@ -1,7 +1,25 @@
 package net.ripe.db.whois.scheduler.task.export.dao;
 
+import net.ripe.db.whois.common.domain.Tag;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Consumer;
+
 public interface ExportDao {
     int getMaxSerial();
 
     void exportObjects(ExportCallbackHandler exportCallbackHandler);
+
+    /**
+     * @return the ids of the objects with a serial after fromSerial, up to and including toSerial
+     */
+    Set<Integer> getChangedObjectIds(int fromSerial, int toSerial);
+
+    void exportObjects(Collection<Integer> objectIds, ExportCallbackHandler exportCallbackHandler);
+
+    /**
+     * Stream all tags, in object id order.
+     */
+    void exportTags(Consumer<Tag> tagConsumer);
 }
@@ -1,6 +1,10 @@
 package net.ripe.db.whois.scheduler.task.export.dao;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,21 +12,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 class JdbcExportDao implements ExportDao {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdbcExportDao.class);
 
+    private static final int BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     @Autowired
     JdbcExportDao(@Qualifier("whoisSlaveDataSource") final DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     @Override
@@ -35,10 +49,47 @@ class JdbcExportDao implements ExportDao {
         JdbcStreamingHelper.executeStreaming(jdbcTemplate,
                 "SELECT object_id, object " +
                         "FROM last " +
-                        "WHERE sequence_id != 0 ",
+                        "WHERE sequence_id != 0 " +
+                        "ORDER BY object_id",
                 new ExportRowCallbackHandler(exportCallbackHandler));
     }
 
+    @Override
+    public Set<Integer> getChangedObjectIds(final int fromSerial, final int toSerial) {
+        return Sets.newHashSet(jdbcTemplate.queryForList("" +
+                        "SELECT DISTINCT object_id " +
+                        "FROM serials " +
+                        "WHERE serial_id > ? AND serial_id <= ?",
+                Integer.class,
+                fromSerial, toSerial));
+    }
+
+    @Override
+    public void exportObjects(final Collection<Integer> objectIds, final ExportCallbackHandler exportCallbackHandler) {
+        final ExportRowCallbackHandler rowCallbackHandler = new ExportRowCallbackHandler(exportCallbackHandler);
+        for (final List<Integer> batch : Iterables.partition(Sets.newTreeSet(objectIds), BATCH_SIZE)) {
+            namedParameterJdbcTemplate.query("" +
+                            "SELECT object_id, object " +
+                            "FROM last " +
+                            "WHERE sequence_id != 0 " +
+                            "AND object_id IN (:objectIds) " +
+                            "ORDER BY object_id",
+                    Collections.singletonMap("objectIds", batch),
+                    rowCallbackHandler);
+        }
+    }
+
+    @Override
+    public void exportTags(final Consumer<Tag> tagConsumer) {
+        JdbcStreamingHelper.executeStreaming(jdbcTemplate,
+                "SELECT object_id, tag_id, data " +
+                        "FROM tags " +
+                        "ORDER BY object_id, tag_id",
+                rs -> {
+                    tagConsumer.accept(new Tag(CIString.ciString(rs.getString(2)), rs.getInt(1), rs.getString(3)));
+                });
+    }
+
     private static final class ExportRowCallbackHandler implements RowCallbackHandler {
         private final ExportCallbackHandler exportCallbackHandler;
 
@@ -5,6 +5,7 @@ import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
+import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.ObjectType;
@@ -13,12 +14,19 @@ import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import org.slf4j.Logger;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.CheckForNull;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -38,6 +46,8 @@ class GrsDao {
 
     private JdbcTemplate masterJdbcTemplate;
     private JdbcTemplate slaveJdbcTemplate;
+    private NamedParameterJdbcTemplate masterNamedParameterJdbcTemplate;
+    private TransactionTemplate masterTransactionTemplate;
 
     GrsDao(final Logger logger, final DateTimeProvider dateTimeProvider, final CIString sourceName, final SourceContext sourceContext) {
         this.logger = logger;
@@ -54,6 +64,8 @@ class GrsDao {
             JdbcRpslObjectOperations.sanityCheck(slaveJdbcTemplate);
             this.masterJdbcTemplate = masterJdbcTemplate;
             this.slaveJdbcTemplate = slaveJdbcTemplate;
+            this.masterNamedParameterJdbcTemplate = new NamedParameterJdbcTemplate(masterJdbcTemplate);
+            this.masterTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(masterJdbcTemplate.getDataSource()));
         }
     }
 
@@ -71,6 +83,23 @@ class GrsDao {
                 Integer.class);
     }
 
+    GrsObjectChecksums getCurrentObjectChecksums() {
+        ensureInitialized();
+        final GrsObjectChecksums grsObjectChecksums = new GrsObjectChecksums();
+        JdbcStreamingHelper.executeStreaming(masterJdbcTemplate, "" +
+                "SELECT object_id, object_type, pkey, object " +
+                "FROM last " +
+                "WHERE sequence_id != 0",
+                new RowCallbackHandler() {
+                    @Override
+                    public void processRow(final ResultSet rs) throws SQLException {
+                        grsObjectChecksums.add(rs.getInt(1), ObjectTypeIds.getType(rs.getInt(2)), rs.getString(3), GrsObjectChecksums.checksum(rs.getBytes(4)));
+                    }
+                });
+
+        return grsObjectChecksums;
+    }
+
     @CheckForNull
     GrsObjectInfo get(final int objectId) {
         ensureInitialized();
@@ -79,20 +108,26 @@ class GrsDao {
                 "  FROM last " +
                 "  WHERE object_id = ?" +
                 "  AND sequence_id != 0 ",
-                new RowMapper<GrsObjectInfo>() {
-                    @Override
-                    public GrsObjectInfo mapRow(final ResultSet rs, final int rowNum) throws SQLException {
-                        return new GrsObjectInfo(
-                                rs.getInt(1),
-                                rs.getInt(2),
-                                RpslObject.parse(rs.getString(3))
-                        );
-                    }
-                },
+                new GrsObjectInfoRowMapper(),
                 objectId
         ));
     }
 
+    List<GrsObjectInfo> get(final Collection<Integer> objectIds) {
+        ensureInitialized();
+        if (objectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return masterNamedParameterJdbcTemplate.query("" +
+                "SELECT object_id, sequence_id, object " +
+                "  FROM last " +
+                "  WHERE object_id IN (:objectIds)" +
+                "  AND sequence_id != 0 ",
+                Collections.singletonMap("objectIds", objectIds),
+                new GrsObjectInfoRowMapper());
+    }
+
     @CheckForNull
     GrsObjectInfo find(final String pkey, final ObjectType objectType) {
         ensureInitialized();
@@ -102,21 +137,22 @@ class GrsDao {
                 "  WHERE object_type = ?" +
                 "  AND pkey = ?" +
                 "  AND sequence_id != 0 ",
-                new RowMapper<GrsObjectInfo>() {
-                    @Override
-                    public GrsObjectInfo mapRow(final ResultSet rs, final int rowNum) throws SQLException {
-                        return new GrsObjectInfo(
-                                rs.getInt(1),
-                                rs.getInt(2),
-                                RpslObject.parse(rs.getString(3))
-                        );
-                    }
-                },
+                new GrsObjectInfoRowMapper(),
                 ObjectTypeIds.getId(objectType),
                 pkey
         ));
     }
 
+    void executeInTransaction(final Runnable runnable) {
+        ensureInitialized();
+        masterTransactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                runnable.run();
+            }
+        });
+    }
+
     UpdateResult createObject(final RpslObject rpslObject) {
         ensureInitialized();
         final RpslObjectUpdateInfo rpslObjectInfo = insertIntoLastAndUpdateSerials(dateTimeProvider, masterJdbcTemplate, rpslObject);
@@ -145,6 +181,12 @@ class GrsDao {
             return Collections.emptySet();
         }
 
+        return updateIndexes(grsObjectInfo);
+    }
+
+    Set<CIString> updateIndexes(final GrsObjectInfo grsObjectInfo) {
+        ensureInitialized();
+        final int objectId = grsObjectInfo.getObjectId();
         final RpslObjectInfo rpslObjectInfo = grsObjectInfo.createUpdateInfo();
         final RpslObject rpslObject = grsObjectInfo.getRpslObject();
 
@@ -165,11 +207,27 @@ class GrsDao {
             return;
         }
 
+        deleteObject(grsObjectInfo);
+    }
+
+    void deleteObject(final GrsObjectInfo grsObjectInfo) {
+        ensureInitialized();
         final RpslObjectUpdateInfo rpslObjectInfo = grsObjectInfo.createUpdateInfo();
         deleteFromTables(masterJdbcTemplate, rpslObjectInfo);
         deleteFromLastAndUpdateSerials(dateTimeProvider, masterJdbcTemplate, rpslObjectInfo);
     }
 
+    private static class GrsObjectInfoRowMapper implements RowMapper<GrsObjectInfo> {
+        @Override
+        public GrsObjectInfo mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+            return new GrsObjectInfo(
+                    rs.getInt(1),
+                    rs.getInt(2),
+                    RpslObject.parse(rs.getString(3))
+            );
+        }
+    }
+
     static class UpdateResult {
         private final int objectId;
         private final boolean hasMissingReferences;
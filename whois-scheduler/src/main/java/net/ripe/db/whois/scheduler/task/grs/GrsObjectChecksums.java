@@ -0,0 +1,97 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+import javax.annotation.CheckForNull;
+import java.util.List;
+import java.util.Map;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
+/**
+ * Object id and checksum (of the object as stored) of the objects in a GRS source, by type and primary key, to diff
+ * an imported dump against the database in memory.
+ */
+class GrsObjectChecksums {
+    static final int NOT_CREATED = -1;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final Map<ObjectType, Map<CIString, Entry>> entries = Maps.newEnumMap(ObjectType.class);
+    private int size;
+
+    static final class Entry {
+        private int objectId;
+        private final long checksum;
+        private boolean imported;
+
+        private Entry(final int objectId, final long checksum) {
+            this.objectId = objectId;
+            this.checksum = checksum;
+        }
+
+        int getObjectId() {
+            return objectId;
+        }
+
+        void setObjectId(final int objectId) {
+            this.objectId = objectId;
+        }
+
+        boolean isCreated() {
+            return objectId != NOT_CREATED;
+        }
+
+        boolean matches(final long checksum) {
+            return this.checksum == checksum;
+        }
+
+        void setImported() {
+            imported = true;
+        }
+    }
+
+    static long checksum(final byte[] object) {
+        return HASH_FUNCTION.hashBytes(object).asLong();
+    }
+
+    static long checksum(final RpslObject object) {
+        return checksum(object.toByteArray());
+    }
+
+    Entry add(final int objectId, final ObjectType objectType, final String pkey, final long checksum) {
+        final Entry entry = new Entry(objectId, checksum);
+        if (entries.computeIfAbsent(objectType, type -> Maps.newHashMap()).put(ciString(pkey), entry) == null) {
+            size++;
+        }
+        return entry;
+    }
+
+    @CheckForNull
+    Entry get(final ObjectType objectType, final String pkey) {
+        final Map<CIString, Entry> entriesForType = entries.get(objectType);
+        return entriesForType == null ? null : entriesForType.get(ciString(pkey));
+    }
+
+    int size() {
+        return size;
+    }
+
+    List<Integer> getNotImportedObjectIds() {
+        final List<Integer> objectIds = Lists.newArrayList();
+        for (final Map<CIString, Entry> entriesForType : entries.values()) {
+            for (final Entry entry : entriesForType.values()) {
+                if (!entry.imported && entry.isCreated()) {
+                    objectIds.add(entry.objectId);
+                }
+            }
+        }
+        return objectIds;
+    }
+}
@@ -0,0 +1,168 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Read (and decompress) a dump on a reader thread, prepare chunks of objects in parallel on the parse executor, and
+ * hand the prepared objects to the calling thread in dump order.
+ *
+ * At most maxPendingChunks chunks of chunkSize objects are read ahead of the calling thread, which bounds memory use;
+ * the reader blocks until the calling thread catches up.
+ */
+class GrsObjectPipeline {
+    private static final List<RpslObject> END_OF_DUMP = Collections.emptyList();
+
+    interface Preparer {
+        @Nullable
+        RpslObject prepare(List<String> lines);
+
+        @Nullable
+        RpslObject prepare(RpslObject rpslObject);
+    }
+
+    private final ExecutorService readerExecutor;
+    private final ExecutorService parseExecutor;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+
+    GrsObjectPipeline(final ExecutorService readerExecutor, final ExecutorService parseExecutor, final int chunkSize, final int maxPendingChunks) {
+        this.readerExecutor = readerExecutor;
+        this.parseExecutor = parseExecutor;
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    void run(final GrsSource grsSource, final File dumpFile, final Preparer preparer, final Consumer<RpslObject> consumer) throws IOException {
+        final BlockingQueue<Future<List<RpslObject>>> pending = new ArrayBlockingQueue<>(maxPendingChunks);
+        final Future<?> reader = readerExecutor.submit(() -> read(grsSource, dumpFile, preparer, pending));
+
+        try {
+            while (true) {
+                final List<RpslObject> chunk = pending.take().get();
+                if (chunk == END_OF_DUMP) {
+                    break;
+                }
+
+                for (final RpslObject rpslObject : chunk) {
+                    if (rpslObject == null) {
+                        continue;
+                    }
+
+                    try {
+                        consumer.accept(rpslObject);
+                    } catch (RuntimeException e) {
+                        grsSource.getLogger().warn("Unexpected error handling object {}: {}", rpslObject.getFormattedKey(), e.getMessage(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted importing " + grsSource, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Reading " + grsSource, e.getCause());
+        } finally {
+            reader.cancel(true);
+            for (final Future<List<RpslObject>> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void read(final GrsSource grsSource, final File dumpFile, final Preparer preparer, final BlockingQueue<Future<List<RpslObject>>> pending) {
+        try {
+            final ChunkingObjectHandler objectHandler = new ChunkingObjectHandler(grsSource.getLogger(), preparer, pending);
+            grsSource.handleObjects(dumpFile, objectHandler);
+            objectHandler.submitChunk();
+            pending.put(CompletableFuture.completedFuture(END_OF_DUMP));
+        } catch (Exception e) {
+            final CompletableFuture<List<RpslObject>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            try {
+                pending.put(failed);
+            } catch (InterruptedException ignored) {
+                // the calling thread stopped waiting for the reader
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private class ChunkingObjectHandler implements ObjectHandler {
+        private final Logger logger;
+        private final Preparer preparer;
+        private final BlockingQueue<Future<List<RpslObject>>> pending;
+
+        private List<Supplier<RpslObject>> chunk = Lists.newArrayListWithCapacity(chunkSize);
+
+        private ChunkingObjectHandler(final Logger logger, final Preparer preparer, final BlockingQueue<Future<List<RpslObject>>> pending) {
+            this.logger = logger;
+            this.preparer = preparer;
+            this.pending = pending;
+        }
+
+        @Override
+        public void handle(final List<String> lines) {
+            add(() -> preparer.prepare(lines));
+        }
+
+        @Override
+        public void handle(final RpslObject rpslObject) {
+            add(() -> preparer.prepare(rpslObject));
+        }
+
+        private void add(final Supplier<RpslObject> object) {
+            chunk.add(object);
+            if (chunk.size() == chunkSize) {
+                submitChunk();
+            }
+        }
+
+        private void submitChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            final List<Supplier<RpslObject>> objects = chunk;
+            chunk = Lists.newArrayListWithCapacity(chunkSize);
+
+            final Future<List<RpslObject>> future = parseExecutor.submit(() -> {
+                final List<RpslObject> prepared = Lists.newArrayListWithCapacity(objects.size());
+                for (final Supplier<RpslObject> object : objects) {
+                    try {
+                        prepared.add(object.get());
+                    } catch (RuntimeException e) {
+                        logger.warn("Unexpected error preparing object: {}", e.getMessage(), e);
+                        prepared.add(null);
+                    }
+                }
+                return prepared;
+            });
+
+            try {
+                pending.put(future);
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted reading dump", e);
+            }
+        }
+    }
+}
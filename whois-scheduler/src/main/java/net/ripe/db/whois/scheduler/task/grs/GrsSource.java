@@ -15,6 +15,7 @@ import org.springframework.beans.factory.InitializingBean;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -79,6 +80,10 @@ abstract class GrsSource implements InitializingBean {
         StringBuilder lineBuilder = new StringBuilder();
         for (String line = reader.readLine(); line != null; line = reader.readLine()) {
             if (line.length() == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Interrupted handling lines");
+                }
+
                 lineBuilder = addLine(lines, lineBuilder);
                 handleLines(lineHandler, lines);
                 lines = Lists.newArrayList();
@@ -2,6 +2,9 @@ package net.ripe.db.whois.scheduler.task.grs;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.grs.AuthoritativeResource;
 import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
@@ -19,8 +22,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -28,7 +32,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 class GrsSourceImporter {
@@ -36,11 +45,17 @@ class GrsSourceImporter {
 
     private static final Joiner LINE_JOINER = Joiner.on("");
     private static final int LOG_EVERY_NR_HANDLED = 100000;
+    private static final int BATCH_SIZE = 1000;
 
     private final AttributeSanitizer sanitizer;
     private final ResourceTagger resourceTagger;
     private final SourceContext sourceContext;
 
+    private final AtomicInteger threadNum = new AtomicInteger();
+    private final ExecutorService readerExecutor;
+    private final ExecutorService parseExecutor;
+    private final GrsObjectPipeline objectPipeline;
+
     private Path downloadDir;
 
     private static final FilterChangedFunction FILTER_CHANGED_FUNCTION = new FilterChangedFunction();
@@ -50,12 +65,25 @@ class GrsSourceImporter {
             @Value("${dir.grs.import.download}") final String downloadDir,
             final AttributeSanitizer sanitizer,
             final ResourceTagger resourceTagger,
-            final SourceContext sourceContext) {
+            final SourceContext sourceContext,
+            @Value("${grs.import.parse.threads:0}") final int parseThreads,
+            @Value("${grs.import.parse.chunk.size:1000}") final int chunkSize,
+            @Value("${grs.import.parse.max.pending.chunks:16}") final int maxPendingChunks) {
         this.sourceContext = sourceContext;
         this.downloadDir = Paths.get(downloadDir);
         this.sanitizer = sanitizer;
         this.resourceTagger = resourceTagger;
 
+        if (parseThreads > 0) {
+            this.readerExecutor = Executors.newCachedThreadPool(createThreadFactory("grs-read"));
+            this.parseExecutor = Executors.newFixedThreadPool(parseThreads, createThreadFactory("grs-parse"));
+            this.objectPipeline = new GrsObjectPipeline(readerExecutor, parseExecutor, chunkSize, maxPendingChunks);
+        } else {
+            this.readerExecutor = null;
+            this.parseExecutor = null;
+            this.objectPipeline = null;
+        }
+
         try {
             Files.createDirectories(this.downloadDir);
         } catch (IOException e) {
@@ -63,6 +91,22 @@ class GrsSourceImporter {
         }
     }
 
+    private ThreadFactory createThreadFactory(final String name) {
+        return runnable -> {
+            final Thread thread = new Thread(runnable, String.format("%s-%s", name, threadNum.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    void shutdownPipelineThreads() {
+        if (objectPipeline != null) {
+            readerExecutor.shutdownNow();
+            parseExecutor.shutdownNow();
+        }
+    }
+
     void grsImport(final GrsSource grsSource, final boolean rebuild) {
         final AuthoritativeResource authoritativeResource = grsSource.getAuthoritativeResource();
 
@@ -84,9 +128,10 @@ class GrsSourceImporter {
             private int nrCreated;
             private int nrUpdated;
             private int nrDeleted;
-            private int nrIgnored;
+            private final AtomicInteger nrIgnored = new AtomicInteger();
 
-            private Set<Integer> currentObjectIds;
+            private GrsObjectChecksums currentObjects;
+            private List<RpslObject> changedObjects = Lists.newArrayListWithCapacity(BATCH_SIZE);
             private Set<Integer> incompletelyIndexedObjectIds = Sets.newHashSet();
 
             @Override
@@ -103,16 +148,17 @@ class GrsSourceImporter {
 
                 if (rebuild) {
                     grsSource.getDao().cleanDatabase();
-                    currentObjectIds = Collections.emptySet();
+                    currentObjects = new GrsObjectChecksums();
                     logger.info("Rebuilding database");
                 } else {
-                    currentObjectIds = Sets.newHashSet(grsSource.getDao().getCurrentObjectIds());
-                    logger.info("Updating {} current objects in database", currentObjectIds.size());
+                    currentObjects = grsSource.getDao().getCurrentObjectChecksums();
+                    logger.info("Updating {} current objects in database (loaded in {})", currentObjects.size(), stopwatch);
                 }
 
                 try {
                     // TODO: [AH] continue from here to switch File to Path
                     importObjects(dump.toFile());
+                    applyChanges();
                     deleteNotFoundInImport();
                 } catch (IOException e) {
                     throw new RuntimeException(e);
@@ -124,9 +170,9 @@ class GrsSourceImporter {
             }
 
             private void importObjects(final File dumpFile) throws IOException {
-                grsSource.handleObjects(dumpFile, new ObjectHandler() {
+                final GrsObjectPipeline.Preparer preparer = new GrsObjectPipeline.Preparer() {
                     @Override
-                    public void handle(final List<String> lines) {
+                    public RpslObject prepare(final List<String> lines) {
                         final String rpslObjectString = LINE_JOINER.join(lines);
 
                         final RpslObject rpslObject;
@@ -134,30 +180,32 @@ class GrsSourceImporter {
                             rpslObject = RpslObject.parse(rpslObjectString);
                         } catch (RuntimeException e) {
                             logger.info("Unable to parse input as object: {}\n\n{}\n", e.getMessage(), rpslObjectString);
-                            return;
+                            return null;
                         }
 
-                        handle(FILTER_CHANGED_FUNCTION.apply(rpslObject));
+                        return prepare(FILTER_CHANGED_FUNCTION.apply(rpslObject));
                     }
 
                     @Override
-                    public void handle(final RpslObject rpslObject) {
+                    public RpslObject prepare(final RpslObject rpslObject) {
                         if (rpslObject.getType() == null) {
                             logger.debug("Unknown type: \n\n{}\n", rpslObject);
-                            nrIgnored++;
-                        } else {
-                            final ObjectMessages messages = new ObjectMessages();
-                            final RpslObject filteredObject = filterObject(rpslObject);
-                            final RpslObject cleanObject = sanitizer.sanitize(filteredObject, messages);
-                            final RpslAttribute typeAttribute = cleanObject.getTypeAttribute();
-                            typeAttribute.validateSyntax(cleanObject.getType(), messages);
-                            if (messages.hasErrors()) {
-                                logger.debug("Errors for object with key {}: {}", typeAttribute, messages);
-                                nrIgnored++;
-                            } else if (authoritativeData.isMaintainedInRirSpace(cleanObject)) {
-                                createOrUpdate(cleanObject);
-                            }
+                            nrIgnored.incrementAndGet();
+                            return null;
+                        }
+
+                        final ObjectMessages messages = new ObjectMessages();
+                        final RpslObject filteredObject = filterObject(rpslObject);
+                        final RpslObject cleanObject = sanitizer.sanitize(filteredObject, messages);
+                        final RpslAttribute typeAttribute = cleanObject.getTypeAttribute();
+                        typeAttribute.validateSyntax(cleanObject.getType(), messages);
+                        if (messages.hasErrors()) {
+                            logger.debug("Errors for object with key {}: {}", typeAttribute, messages);
+                            nrIgnored.incrementAndGet();
+                            return null;
                         }
+
+                        return authoritativeData.isMaintainedInRirSpace(cleanObject) ? cleanObject : null;
                     }
 
                     private RpslObject filterObject(final RpslObject rpslObject) {
@@ -183,52 +231,160 @@ class GrsSourceImporter {
 
                         return builder.get();
                     }
+                };
 
-                    @Transactional
-                    private void createOrUpdate(final RpslObject importedObject) {
-                        final String pkey = importedObject.getKey().toString();
-                        final ObjectType type = importedObject.getType();
-                        final GrsObjectInfo grsObjectInfo = grsSource.getDao().find(pkey, type);
-
-                        if (grsObjectInfo == null) {
-                            if (type == ObjectType.PERSON && grsSource.getDao().find(pkey, ObjectType.ROLE) != null) {
-                                return;
-                            }
+                if (objectPipeline == null) {
+                    grsSource.handleObjects(dumpFile, new ObjectHandler() {
+                        @Override
+                        public void handle(final List<String> lines) {
+                            handlePrepared(preparer.prepare(lines));
+                        }
 
-                            if (type == ObjectType.ROLE && grsSource.getDao().find(pkey, ObjectType.PERSON) != null) {
-                                return;
-                            }
+                        @Override
+                        public void handle(final RpslObject rpslObject) {
+                            handlePrepared(preparer.prepare(rpslObject));
+                        }
 
-                            create(importedObject);
-                        } else {
-                            currentObjectIds.remove(grsObjectInfo.getObjectId());
-                            if (!grsObjectInfo.getRpslObject().equals(importedObject)) {
-                                update(importedObject, grsObjectInfo);
+                        private void handlePrepared(@Nullable final RpslObject preparedObject) {
+                            if (preparedObject != null) {
+                                createOrUpdate(preparedObject);
                             }
                         }
+                    });
+                } else {
+                    objectPipeline.run(grsSource, dumpFile, preparer, this::createOrUpdate);
+                }
+            }
 
-                        final int nrImported = nrCreated + nrUpdated;
-                        if ((nrImported % LOG_EVERY_NR_HANDLED == 0) && (nrImported > 0)) {
-                            logger.info("Imported {} objects", nrImported);
-                        }
+            private void createOrUpdate(final RpslObject importedObject) {
+                final String pkey = importedObject.getKey().toString();
+                final ObjectType type = importedObject.getType();
+
+                GrsObjectChecksums.Entry currentObject = currentObjects.get(type, pkey);
+                if (currentObject != null && !currentObject.isCreated()) {
+                    // the same object occurs twice in the dump, create the first one before comparing
+                    applyChanges();
+                    currentObject = currentObjects.get(type, pkey);
+                }
+
+                final long checksum = GrsObjectChecksums.checksum(importedObject);
+                if (currentObject == null) {
+                    if (type == ObjectType.PERSON && currentObjects.get(ObjectType.ROLE, pkey) != null) {
+                        return;
+                    }
+
+                    if (type == ObjectType.ROLE && currentObjects.get(ObjectType.PERSON, pkey) != null) {
+                        return;
+                    }
+
+                    currentObjects.add(GrsObjectChecksums.NOT_CREATED, type, pkey, checksum);
+                    addChange(importedObject);
+                } else {
+                    // found in the dump, so never deleted, even if the update fails (and the old version is kept)
+                    currentObject.setImported();
+                    if (!currentObject.matches(checksum)) {
+                        addChange(importedObject);
                     }
+                }
+            }
+
+            private void addChange(final RpslObject importedObject) {
+                changedObjects.add(importedObject);
+                if (changedObjects.size() == BATCH_SIZE) {
+                    applyChanges();
+                }
+            }
+
+            // the object ids and imported flags of created objects are only recorded once the changes are committed; if
+            // the batch fails, the changes are retried one by one, so a failing object doesn't cost the rest of the batch
+            private void applyChanges() {
+                if (changedObjects.isEmpty()) {
+                    return;
+                }
 
-                    private void create(final RpslObject importedObject) {
-                        final GrsDao.UpdateResult updateResult = grsSource.getDao().createObject(importedObject);
-                        if (updateResult.hasMissingReferences()) {
-                            incompletelyIndexedObjectIds.add(updateResult.getObjectId());
+                final List<RpslObject> batch = changedObjects;
+                changedObjects = Lists.newArrayListWithCapacity(BATCH_SIZE);
+
+                final List<Integer> updatedObjectIds = Lists.newArrayList();
+                for (final RpslObject importedObject : batch) {
+                    final GrsObjectChecksums.Entry currentObject = getCurrentObject(importedObject);
+                    if (currentObject.isCreated()) {
+                        updatedObjectIds.add(currentObject.getObjectId());
+                    }
+                }
+                final Map<Integer, GrsObjectInfo> updatedObjects = Maps.uniqueIndex(grsSource.getDao().get(updatedObjectIds), GrsObjectInfo::getObjectId);
+
+                try {
+                    recordChanges(batch, applyInTransaction(batch, updatedObjects));
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to apply {} changes in one transaction, applying them one by one: {}", batch.size(), e.getMessage());
+
+                    for (final RpslObject importedObject : batch) {
+                        final List<RpslObject> change = Collections.singletonList(importedObject);
+                        try {
+                            recordChanges(change, applyInTransaction(change, updatedObjects));
+                        } catch (RuntimeException e1) {
+                            logger.error("Unable to import object: {}", importedObject.getFormattedKey(), e1);
                         }
-                        nrCreated++;
                     }
+                }
+            }
 
-                    private void update(final RpslObject importedObject, final GrsObjectInfo grsObjectInfo) {
-                        final GrsDao.UpdateResult updateResult = grsSource.getDao().updateObject(grsObjectInfo, importedObject);
-                        if (updateResult.hasMissingReferences()) {
-                            incompletelyIndexedObjectIds.add(updateResult.getObjectId());
+            private List<GrsDao.UpdateResult> applyInTransaction(final List<RpslObject> importedObjects, final Map<Integer, GrsObjectInfo> updatedObjects) {
+                final List<GrsDao.UpdateResult> updateResults = Lists.newArrayListWithCapacity(importedObjects.size());
+                grsSource.getDao().executeInTransaction(() -> {
+                    updateResults.clear();
+                    for (final RpslObject importedObject : importedObjects) {
+                        final GrsObjectChecksums.Entry currentObject = getCurrentObject(importedObject);
+                        if (currentObject.isCreated()) {
+                            updateResults.add(update(importedObject, updatedObjects.get(currentObject.getObjectId())));
+                        } else {
+                            updateResults.add(grsSource.getDao().createObject(importedObject));
                         }
-                        nrUpdated++;
                     }
                 });
+                return updateResults;
+            }
+
+            @Nullable
+            private GrsDao.UpdateResult update(final RpslObject importedObject, @Nullable final GrsObjectInfo grsObjectInfo) {
+                if (grsObjectInfo == null) {
+                    logger.warn("Unable to update unexisting object: {}", importedObject.getFormattedKey());
+                    return null;
+                }
+
+                return grsSource.getDao().updateObject(grsObjectInfo, importedObject);
+            }
+
+            private void recordChanges(final List<RpslObject> importedObjects, final List<GrsDao.UpdateResult> updateResults) {
+                for (int i = 0; i < importedObjects.size(); i++) {
+                    final GrsObjectChecksums.Entry currentObject = getCurrentObject(importedObjects.get(i));
+                    final GrsDao.UpdateResult updateResult = updateResults.get(i);
+                    if (updateResult == null) {
+                        continue;
+                    }
+
+                    if (updateResult.hasMissingReferences()) {
+                        incompletelyIndexedObjectIds.add(updateResult.getObjectId());
+                    }
+
+                    if (currentObject.isCreated()) {
+                        nrUpdated++;
+                    } else {
+                        currentObject.setObjectId(updateResult.getObjectId());
+                        currentObject.setImported();
+                        nrCreated++;
+                    }
+
+                    final int nrImported = nrCreated + nrUpdated;
+                    if (nrImported % LOG_EVERY_NR_HANDLED == 0) {
+                        logger.info("Imported {} objects", nrImported);
+                    }
+                }
+            }
+
+            private GrsObjectChecksums.Entry getCurrentObject(final RpslObject importedObject) {
+                return currentObjects.get(importedObject.getType(), importedObject.getKey().toString());
             }
 
             private void deleteNotFoundInImport() {
@@ -237,33 +393,40 @@ class GrsSourceImporter {
                     return;
                 }
 
-                logger.info("Cleaning up {} currently unreferenced objects", currentObjectIds.size());
-                for (final Integer objectId : currentObjectIds) {
-                    try {
-                        grsSource.getDao().deleteObject(objectId);
-                        nrDeleted++;
-                    } catch (RuntimeException e) {
-                        logger.error("Deleting object with id: {}", objectId, e);
-                    }
+                final List<Integer> notImportedObjectIds = currentObjects.getNotImportedObjectIds();
+                logger.info("Cleaning up {} currently unreferenced objects", notImportedObjectIds.size());
+                for (final List<Integer> objectIds : Lists.partition(notImportedObjectIds, BATCH_SIZE)) {
+                    grsSource.getDao().executeInTransaction(() -> {
+                        for (final GrsObjectInfo grsObjectInfo : grsSource.getDao().get(objectIds)) {
+                            try {
+                                grsSource.getDao().deleteObject(grsObjectInfo);
+                                nrDeleted++;
+                            } catch (RuntimeException e) {
+                                logger.error("Deleting object with id: {}", grsObjectInfo.getObjectId(), e);
+                            }
+                        }
+                    });
                 }
             }
 
             private void updateIndexes() {
                 logger.info("Updating indexes for {} changed objects with missing references", incompletelyIndexedObjectIds.size());
 
-                int nrUpdated = 0;
-
-                for (final Integer objectId : incompletelyIndexedObjectIds) {
-                    try {
-                        grsSource.getDao().updateIndexes(objectId);
-                    } catch (RuntimeException e) {
-                        logger.error("Updating index for object with id: {}", objectId, e);
-                    }
+                final AtomicInteger nrUpdated = new AtomicInteger();
+                for (final List<Integer> objectIds : Iterables.partition(incompletelyIndexedObjectIds, BATCH_SIZE)) {
+                    grsSource.getDao().executeInTransaction(() -> {
+                        for (final GrsObjectInfo grsObjectInfo : grsSource.getDao().get(objectIds)) {
+                            try {
+                                grsSource.getDao().updateIndexes(grsObjectInfo);
+                            } catch (RuntimeException e) {
+                                logger.error("Updating index for object with id: {}", grsObjectInfo.getObjectId(), e);
+                            }
 
-                    nrUpdated++;
-                    if (nrUpdated % LOG_EVERY_NR_HANDLED == 0) {
-                        logger.info("Updated {} indexes", nrUpdated);
-                    }
+                            if (nrUpdated.incrementAndGet() % LOG_EVERY_NR_HANDLED == 0) {
+                                logger.info("Updated {} indexes", nrUpdated);
+                            }
+                        }
+                    });
                 }
             }
         }.run();
@@ -1,31 +1,42 @@
 package net.ripe.db.whois.scheduler.task.grs;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.commons.ip.Asn;
+import net.ripe.commons.ip.AsnRange;
+import net.ripe.commons.ip.Ipv4Range;
+import net.ripe.commons.ip.Ipv6Range;
 import net.ripe.db.whois.common.dao.TagsDao;
-import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.grs.AuthoritativeResource;
-import net.ripe.db.whois.common.rpsl.AttributeType;
-import net.ripe.db.whois.common.rpsl.ObjectType;
-import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import static net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper.executeStreaming;
 import static net.ripe.db.whois.common.domain.CIString.ciString;
 
+/**
+ * Tag the routes of a GRS source by whether their prefix and origin are maintained in the RIR space of the source.
+ *
+ * The prefixes and origins are read from the route index tables, and matched against the authoritative resources in
+ * a single merge of both sorted by range. Only the differences with the current tags are written.
+ */
 @Component
 class ResourceTagger {
-    private static final int BATCH_SIZE = 1000;
+    private static final CIString MULTIPLE_TAG_TYPES = ciString("");
 
     private final SourceContext sourceContext;
     private final TagsDao tagsDao;
@@ -58,72 +69,132 @@ class ResourceTagger {
         final CIString asnOnlyTagType = ciString(String.format("%s-ASN-ONLY-RESOURCE", rirName));
         final CIString prefixOnlyTagType = ciString(String.format("%s-PREFIX-ONLY-RESOURCE", rirName));
         final CIString asnAndPrefixTagTag = ciString(String.format("%s-ASN-AND-PREFIX-RESOURCE", rirName));
+        final List<CIString> tagTypes = Lists.newArrayList(asnOnlyTagType, prefixOnlyTagType, asnAndPrefixTagTag);
+
+        final JdbcTemplate jdbcTemplate = sourceContext.getCurrentSourceConfiguration().getJdbcTemplate();
+        final List<RouteEntry<Ipv4Range>> routes = Lists.newArrayList();
+        final List<RouteEntry<Ipv6Range>> route6s = Lists.newArrayList();
+
+        executeStreaming(jdbcTemplate, "SELECT object_id, prefix, prefix_length, origin FROM route", rs -> {
+            final int objectId = rs.getInt(1);
+            routes.add(new RouteEntry<>(objectId, parseRoute(grsSource, objectId, rs.getLong(2), rs.getInt(3)), parseOrigin(rs.getString(4))));
+        });
 
+        executeStreaming(jdbcTemplate, "SELECT object_id, r6_msb, r6_lsb, prefix_length, origin FROM route6", rs -> {
+            final int objectId = rs.getInt(1);
+            route6s.add(new RouteEntry<>(objectId, parseRoute6(grsSource, objectId, rs.getString(2), rs.getString(3), rs.getInt(4)), parseOrigin(rs.getString(5))));
+        });
+
+        SortedRanges.forEachContained(routes, RouteEntry::getPrefix, authoritativeResource.getInetRanges(), RouteEntry::setPrefixInRirSpace);
+        SortedRanges.forEachContained(route6s, RouteEntry::getPrefix, authoritativeResource.getInet6Ranges(), RouteEntry::setPrefixInRirSpace);
+        SortedRanges.forEachContained(routes, RouteEntry::getOrigin, authoritativeResource.getAutNumRanges(), RouteEntry::setOriginInRirSpace);
+        SortedRanges.forEachContained(route6s, RouteEntry::getOrigin, authoritativeResource.getAutNumRanges(), RouteEntry::setOriginInRirSpace);
+
+        final Map<Integer, CIString> currentTags = getCurrentTags(tagTypes);
         final List<Integer> deletes = Lists.newArrayList();
         final List<Tag> creates = Lists.newArrayList();
-        final List<CIString> tagTypes = Lists.newArrayList(asnOnlyTagType, prefixOnlyTagType, asnAndPrefixTagTag);
 
-        executeStreaming(
-                sourceContext.getCurrentSourceConfiguration().getJdbcTemplate(),
-                String.format("" +
-                        "SELECT object_id, object " +
-                        "FROM last " +
-                        "WHERE object_type IN (%d, %d) " +
-                        "AND sequence_id != 0",
-                ObjectTypeIds.getId(ObjectType.ROUTE), ObjectTypeIds.getId(ObjectType.ROUTE6)),
-                new RowCallbackHandler() {
-                    @Override
-                    public void processRow(ResultSet rs) throws SQLException {
-                        try {
-                            final RpslObject object = RpslObject.parse(rs.getInt(1), rs.getBytes(2));
-
-                            final boolean autnumMaintainedByRir = isAutnumMaintainedByRir(object);
-                            final boolean prefixMaintainedByRir = isRouteMaintainedInRirSpace(object);
-
-                            if (autnumMaintainedByRir) {
-                                if (prefixMaintainedByRir) {
-                                    creates.add(new Tag(asnAndPrefixTagTag, object.getObjectId()));
-                                } else {
-                                    creates.add(new Tag(asnOnlyTagType, object.getObjectId()));
-                                }
-                            } else {
-                                if (prefixMaintainedByRir) {
-                                    creates.add(new Tag(prefixOnlyTagType, object.getObjectId()));
-                                }
-                            }
-
-                            if (creates.size() > BATCH_SIZE) {
-                                updateTags(tagTypes, deletes, creates);
-                            }
-
-                        } catch (RuntimeException e) {
-                            grsSource.getLogger().error("Unexpected", e);
-                        }
-                    }
-
-                    private boolean isAutnumMaintainedByRir(final RpslObject object) {
-                        return authoritativeResource.isMaintainedInRirSpace(ObjectType.AUT_NUM, object.getValueForAttribute(AttributeType.ORIGIN));
-                    }
-
-                    private boolean isRouteMaintainedInRirSpace(final RpslObject object) {
-                        switch (object.getType()) {
-                            case ROUTE:
-                                return authoritativeResource.isMaintainedInRirSpace(ObjectType.INETNUM, object.getValueForAttribute(AttributeType.ROUTE));
-                            case ROUTE6:
-                                return authoritativeResource.isMaintainedInRirSpace(ObjectType.INET6NUM, object.getValueForAttribute(AttributeType.ROUTE6));
-                            default:
-                                throw new IllegalArgumentException("Unhandled type " + object.getType());
-                        }
-                    }
-                }
-        );
-
-        updateTags(tagTypes, deletes, creates);
+        for (final RouteEntry<?> route : Iterables.concat(routes, route6s)) {
+            final CIString tagType;
+            if (route.originInRirSpace) {
+                tagType = route.prefixInRirSpace ? asnAndPrefixTagTag : asnOnlyTagType;
+            } else {
+                tagType = route.prefixInRirSpace ? prefixOnlyTagType : null;
+            }
+
+            final CIString currentTagType = currentTags.remove(route.objectId);
+            if (Objects.equals(tagType, currentTagType)) {
+                continue;
+            }
+
+            if (currentTagType != null) {
+                deletes.add(route.objectId);
+            }
+
+            if (tagType != null) {
+                creates.add(new Tag(tagType, route.objectId));
+            }
+        }
+
+        // tags of objects that are no longer routes
+        deletes.addAll(currentTags.keySet());
+
+        grsSource.getLogger().info("Tagging {} routes and {} route6s: {} tags to delete and {} tags to create", routes.size(), route6s.size(), deletes.size(), creates.size());
+        if (!deletes.isEmpty() || !creates.isEmpty()) {
+            tagsDao.updateTags(tagTypes, deletes, creates);
+        }
+    }
+
+    // the tag type of every tagged object (an object with more than one tag type is re-tagged)
+    private Map<Integer, CIString> getCurrentTags(final List<CIString> tagTypes) {
+        final Map<Integer, CIString> currentTags = Maps.newHashMap();
+        for (final CIString tagType : tagTypes) {
+            for (final Tag tag : tagsDao.getTagsOfType(tagType)) {
+                currentTags.merge(tag.getObjectId(), tag.getType(), (type, otherType) -> MULTIPLE_TAG_TYPES);
+            }
+        }
+        return currentTags;
+    }
+
+    @CheckForNull
+    private static Ipv4Range parseRoute(final GrsSource grsSource, final int objectId, final long prefix, final int prefixLength) {
+        try {
+            return Ipv4Range.from(prefix).andPrefixLength(prefixLength);
+        } catch (IllegalArgumentException e) {
+            grsSource.getLogger().warn("Invalid route index for object {}: {}", objectId, e.getMessage());
+            return null;
+        }
     }
 
-    private void updateTags(final Iterable<CIString> tagTypes, final List<Integer> deletes, final List<Tag> creates) {
-        tagsDao.updateTags(tagTypes, deletes, creates);
-        deletes.clear();
-        creates.clear();
+    @CheckForNull
+    private static Ipv6Range parseRoute6(final GrsSource grsSource, final int objectId, final String msb, final String lsb, final int prefixLength) {
+        try {
+            final Ipv6Resource resource = Ipv6Resource.parseFromStrings(msb, lsb, prefixLength);
+            return Ipv6Range.from(resource.begin()).to(resource.end());
+        } catch (IllegalArgumentException e) {
+            grsSource.getLogger().warn("Invalid route6 index for object {}: {}", objectId, e.getMessage());
+            return null;
+        }
+    }
+
+    @CheckForNull
+    private static AsnRange parseOrigin(final String origin) {
+        try {
+            return Asn.parse(origin).asRange();
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    private static final class RouteEntry<R> {
+        private final int objectId;
+        private final R prefix;
+        private final AsnRange origin;
+        private boolean prefixInRirSpace;
+        private boolean originInRirSpace;
+
+        private RouteEntry(final int objectId, @Nullable final R prefix, @Nullable final AsnRange origin) {
+            this.objectId = objectId;
+            this.prefix = prefix;
+            this.origin = origin;
+        }
+
+        @CheckForNull
+        private R getPrefix() {
+            return prefix;
+        }
+
+        @CheckForNull
+        private AsnRange getOrigin() {
+            return origin;
+        }
+
+        private void setPrefixInRirSpace() {
+            prefixInRirSpace = true;
+        }
+
+        private void setOriginInRirSpace() {
+            originInRirSpace = true;
+        }
     }
 }
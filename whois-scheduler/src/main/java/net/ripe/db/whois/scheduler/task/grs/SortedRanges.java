@@ -0,0 +1,50 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import net.ripe.commons.ip.AbstractRange;
+import net.ripe.commons.ip.Rangeable;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+final class SortedRanges {
+    private SortedRanges() {
+    }
+
+    /**
+     * Call the action for every item with a range contained in one of the ranges, in a single merge of the items
+     * (sorted by range start) with the ranges, instead of a lookup for every item.
+     *
+     * @param items the items, items without a range are skipped
+     * @param ranges disjoint ranges, in ascending order (as in a SortedRangeSet)
+     */
+    static <C extends Rangeable<C, R>, R extends AbstractRange<C, R>, T> void forEachContained(final Collection<T> items, final Function<T, R> rangeFunction,
+                                                                                               final Iterable<R> ranges, final Consumer<T> action) {
+        final List<T> sortedItems = items.stream()
+                .filter(item -> rangeFunction.apply(item) != null)
+                .sorted(Comparator.comparing(item -> rangeFunction.apply(item).start()))
+                .collect(Collectors.toList());
+
+        final Iterator<R> rangeIterator = ranges.iterator();
+        R floor = null;
+        R next = rangeIterator.hasNext() ? rangeIterator.next() : null;
+
+        for (final T item : sortedItems) {
+            final R range = rangeFunction.apply(item);
+
+            // the last range starting at or before the item is the only one that can contain it
+            while (next != null && next.start().compareTo(range.start()) <= 0) {
+                floor = next;
+                next = rangeIterator.hasNext() ? rangeIterator.next() : null;
+            }
+
+            if (floor != null && floor.contains(range)) {
+                action.accept(item);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package net.ripe.db.whois.scheduler.task.loader;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rows collected per statement instead of written one at a time. Rows for an insert statement are written sorted in
+ * primary key order, in multi-row inserts; other statements (e.g. updates of rows inserted before) are written in a
+ * JDBC batch. Every table is written on its own executor thread.
+ */
+class BulkRows {
+    private static final int MAX_ROWS_PER_INSERT = 1000;
+
+    private static final Pattern INSERT_PATTERN = Pattern.compile("(?is)^\\s*(INSERT INTO\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*VALUES)\\s*(\\([?,\\s]*\\))\\s*$");
+    private static final Pattern TABLE_PATTERN = Pattern.compile("(?is)^\\s*(?:INSERT INTO|UPDATE|DELETE FROM)\\s+(\\w+)");
+
+    private final Map<String, List<Object[]>> rowsByStatement = Maps.newLinkedHashMap();
+    private int size;
+
+    void add(final String statement, final Object... args) {
+        rowsByStatement.computeIfAbsent(statement, key -> Lists.newArrayList()).add(args);
+        size++;
+    }
+
+    void addAll(final BulkRows rows) {
+        for (final Map.Entry<String, List<Object[]>> entry : rows.rowsByStatement.entrySet()) {
+            rowsByStatement.computeIfAbsent(entry.getKey(), key -> Lists.newArrayList()).addAll(entry.getValue());
+        }
+        size += rows.size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Write all collected rows, and clear them.
+     */
+    void flush(final JdbcTemplate jdbcTemplate, final ExecutorService executorService) {
+        final Map<String, List<Map.Entry<String, List<Object[]>>>> statementsByTable = Maps.newLinkedHashMap();
+        for (final Map.Entry<String, List<Object[]>> entry : rowsByStatement.entrySet()) {
+            final Matcher matcher = TABLE_PATTERN.matcher(entry.getKey());
+            if (!matcher.find()) {
+                throw new IllegalArgumentException("Unsupported statement: " + entry.getKey());
+            }
+            statementsByTable.computeIfAbsent(matcher.group(1).toLowerCase(), table -> Lists.newArrayList()).add(entry);
+        }
+
+        final List<Future<?>> futures = Lists.newArrayList();
+        for (final Map.Entry<String, List<Map.Entry<String, List<Object[]>>>> entry : statementsByTable.entrySet()) {
+            futures.add(executorService.submit(() -> write(jdbcTemplate, entry.getKey(), entry.getValue())));
+        }
+
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted writing rows", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (final Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        rowsByStatement.clear();
+        size = 0;
+    }
+
+    private static void write(final JdbcTemplate jdbcTemplate, final String table, final List<Map.Entry<String, List<Object[]>>> statements) {
+        // inserts first, other statements can refer to the inserted rows
+        for (final Map.Entry<String, List<Object[]>> statement : statements) {
+            final Matcher matcher = INSERT_PATTERN.matcher(statement.getKey());
+            if (matcher.matches()) {
+                insert(jdbcTemplate, table, matcher, statement.getValue());
+            }
+        }
+
+        for (final Map.Entry<String, List<Object[]>> statement : statements) {
+            if (!INSERT_PATTERN.matcher(statement.getKey()).matches()) {
+                checkRowsAffected(jdbcTemplate.batchUpdate(statement.getKey(), statement.getValue()));
+            }
+        }
+    }
+
+    private static void insert(final JdbcTemplate jdbcTemplate, final String table, final Matcher insert, final List<Object[]> rows) {
+        rows.sort(getPrimaryKeyOrder(jdbcTemplate, table, insert.group(3)));
+
+        for (final List<Object[]> partition : Lists.partition(rows, MAX_ROWS_PER_INSERT)) {
+            final StringBuilder query = new StringBuilder(insert.group(1));
+            final List<Object> args = Lists.newArrayListWithCapacity(partition.size() * partition.get(0).length);
+            for (final Object[] row : partition) {
+                query.append(args.isEmpty() ? " " : ", ").append(insert.group(4));
+                Collections.addAll(args, row);
+            }
+
+            final int rowsAffected = jdbcTemplate.update(query.toString(), args.toArray());
+            if (rowsAffected != partition.size()) {
+                throw new DataIntegrityViolationException(String.format("Rows affected by INSERT INTO %s: %d (expected %d)", table, rowsAffected, partition.size()));
+            }
+        }
+    }
+
+    private static Comparator<Object[]> getPrimaryKeyOrder(final JdbcTemplate jdbcTemplate, final String table, final String columnList) {
+        final List<String> columns = Lists.newArrayList();
+        for (final String column : columnList.split(",")) {
+            columns.add(column.trim().toLowerCase());
+        }
+
+        final List<Integer> primaryKeyIndexes = Lists.newArrayList();
+        for (final String primaryKeyColumn : jdbcTemplate.query(String.format("SHOW KEYS FROM %s WHERE Key_name = 'PRIMARY'", table), (rs, rowNum) -> rs.getString("Column_name"))) {
+            final int index = columns.indexOf(primaryKeyColumn.toLowerCase());
+            if (index < 0) {
+                // primary key is (partly) generated, keep the collected order
+                return (left, right) -> 0;
+            }
+            primaryKeyIndexes.add(index);
+        }
+
+        return (left, right) -> {
+            for (final int index : primaryKeyIndexes) {
+                final int result = compare(left[index], right[index]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(final Object left, final Object right) {
+        if (left instanceof String && right instanceof String) {
+            // the index tables use case insensitive collations
+            return ((String) left).compareToIgnoreCase((String) right);
+        }
+
+        if (left instanceof Comparable && right != null && left.getClass() == right.getClass()) {
+            return ((Comparable<Object>) left).compareTo(right);
+        }
+
+        return 0;
+    }
+
+    private static void checkRowsAffected(final int[] rowsAffected) {
+        for (final int rows : rowsAffected) {
+            if (rows < 1 && rows != Statement.SUCCESS_NO_INFO) {
+                throw new DataIntegrityViolationException("Rows affected: " + rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.ripe.db.whois.scheduler.task.loader;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the index rows of an object instead of writing them, so they can be written in bulk. Lookups (e.g. of
+ * referenced objects) still query the database.
+ *
+ * Rows are collected once, as a strategy that checks for existing rows (mnt-routes) can't see the collected rows.
+ */
+class IndexRowCollector extends JdbcTemplate {
+    private final BulkRows rows = new BulkRows();
+    private final Set<List<Object>> collected = Sets.newHashSet();
+
+    IndexRowCollector(final DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public int update(final String sql, @Nullable final Object... args) {
+        final Object[] row = args == null ? new Object[0] : args;
+        if (collected.add(Lists.asList(sql, row))) {
+            rows.add(sql, row);
+        }
+        return 1;
+    }
+
+    @Override
+    public int[] batchUpdate(final String sql, final List<Object[]> batchArgs) {
+        final int[] rowsAffected = new int[batchArgs.size()];
+        for (int i = 0; i < batchArgs.size(); i++) {
+            rowsAffected[i] = update(sql, batchArgs.get(i));
+        }
+        return rowsAffected;
+    }
+
+    BulkRows getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,349 @@
+package net.ripe.db.whois.scheduler.task.loader;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.io.RpslObjectFileReader;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.rpsl.RpslObjectBuilder;
+import net.ripe.db.whois.common.rpsl.RpslObjectFilter;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoKeyTablesIgnoreMissing;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoNonKeyTablesIgnoreMissing;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.loadScripts;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.now;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.sanityCheck;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.truncateTables;
+
+/**
+ * Load split files into an empty database, writing the rows in bulk instead of creating and updating every object.
+ *
+ * The result is the same as the 2-pass load: the key-only object (pass 1) in history, the full object (pass 2) in
+ * last, a serial for both, and the index rows of the full object. For every file, the objects and their key index
+ * rows are written first, with explicitly assigned object and serial ids. The file is then read again to collect the
+ * other index rows (which can refer to any key written before) on the worker threads; these are written per table in
+ * primary key order. Ids are claimed in file order.
+ */
+@Component
+public class LoaderBulk implements Loader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoaderBulk.class);
+
+    private static final int NOT_CREATED = -1;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_PENDING_ROWS = 100_000;
+
+    private static final String INSERT_LAST = "INSERT INTO last (object_id, sequence_id, timestamp, object_type, object, pkey) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_HISTORY = "INSERT INTO history (object_id, sequence_id, timestamp, object_type, object, pkey) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SERIAL = "INSERT INTO serials (serial_id, object_id, sequence_id, atlast, operation) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate whoisTemplate;
+    private final ObjectLoader objectLoader;
+    private final DateTimeProvider dateTimeProvider;
+    private final int threads;
+    private final AtomicInteger threadNum = new AtomicInteger();
+
+    @Autowired
+    public LoaderBulk(@Qualifier("sourceAwareDataSource") final DataSource dataSource,
+                      final ObjectLoader objectLoader,
+                      final DateTimeProvider dateTimeProvider,
+                      @Value("${bootstrap.bulk.threads:0}") final int threads) {
+        this.whoisTemplate = new JdbcTemplate(dataSource);
+        this.objectLoader = objectLoader;
+        this.dateTimeProvider = dateTimeProvider;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void resetDatabase() {
+        sanityCheck(whoisTemplate);
+        truncateTables(whoisTemplate);
+        loadScripts(whoisTemplate, "whois_data.sql");
+    }
+
+    @Override
+    public String loadSplitFiles(final String... filenames) {
+        final Result result = new Result();
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads, this::createThread);
+        try {
+            validateFiles(Arrays.asList(filenames));
+
+            final int objects = whoisTemplate.queryForObject("SELECT COUNT(*) FROM last", Integer.class);
+            if (objects != 0) {
+                throw new IllegalStateException(String.format("Bulk loading needs an empty database, found %d objects", objects));
+            }
+
+            final Load load = new Load(result, executorService);
+            for (final String filename : filenames) {
+                final Stopwatch stopwatch = Stopwatch.createStarted();
+                final int[] objectIds = load.createObjects(filename);
+                LOGGER.info("Created {} objects from {} in {}", objectIds.length, filename, stopwatch);
+                load.indexObjects(filename, objectIds);
+                LOGGER.info("Loaded {} in {}", filename, stopwatch);
+            }
+        } catch (Exception e) {
+            result.addText(String.format("\n%s\n", e.getMessage()));
+        } finally {
+            executorService.shutdownNow();
+            result.addText(String.format("FINISHED\n%d succeeded\n%d failed in pass 1\n%d failed in pass 2\n",
+                    result.getSuccess(), result.getFailPass1(), result.getFailPass2()));
+            if (result.getFailPass1() > 0 || result.getFailPass2() > 0) {
+                result.addText("Ran in non transactional, bulk mode: no rollback for DB changes\n");
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void validateFiles(final List<String> filenames) {
+        if (filenames == null || filenames.size() == 0) {
+            throw new IllegalArgumentException("no file arguments provided");
+        }
+
+        for (final String filename : filenames) {
+            final File file = new File(filename);
+
+            if (!file.isFile()) {
+                throw new IllegalArgumentException(String.format("Argument '%s' is not a file\n", filename));
+            }
+
+            if (!file.exists()) {
+                throw new IllegalArgumentException(String.format("Argument '%s' does not exist\n", filename));
+            }
+        }
+    }
+
+    private Thread createThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, String.format("bootstrap-bulk-%s", threadNum.incrementAndGet()));
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class PreparedObject {
+        private final int index;
+        private final String fullObject;
+        private RpslObject rpslObject;
+        private BulkRows indexRows;
+        private Exception error;
+
+        private PreparedObject(final int index, final String fullObject) {
+            this.index = index;
+            this.fullObject = fullObject;
+        }
+
+        private String getFormattedKey() {
+            return rpslObject != null ? rpslObject.getFormattedKey() : StringUtils.substringBefore(fullObject, "\n");
+        }
+    }
+
+    private interface Preparer {
+        void prepare(PreparedObject preparedObject) throws Exception;
+    }
+
+    private class Load {
+        private final Result result;
+        private final ExecutorService executorService;
+        private final Map<ObjectType, Set<CIString>> keys = Maps.newEnumMap(ObjectType.class);
+        private final BulkRows rows = new BulkRows();
+        private int nextObjectId;
+        private int nextSerialId;
+
+        private Load(final Result result, final ExecutorService executorService) {
+            this.result = result;
+            this.executorService = executorService;
+            this.nextObjectId = whoisTemplate.queryForObject("SELECT COALESCE(MAX(object_id), 0) + 1 FROM last", Integer.class);
+            this.nextSerialId = whoisTemplate.queryForObject("SELECT COALESCE(MAX(serial_id), 0) + 1 FROM serials", Integer.class);
+        }
+
+        // pass 1: the full object in last (pass 2 reverts it if it fails), its key index rows, and the first serial
+        private int[] createObjects(final String filename) {
+            final List<Integer> objectIds = Lists.newArrayList();
+            final int timestamp = now(dateTimeProvider);
+
+            processInOrder(filename,
+                    preparedObject -> {
+                        preparedObject.rpslObject = objectLoader.parse(preparedObject.fullObject);
+                        objectLoader.checkForReservedNicHandle(preparedObject.rpslObject);
+                    },
+                    preparedObject -> {
+                        int objectId = NOT_CREATED;
+                        try {
+                            if (preparedObject.error != null) {
+                                throw preparedObject.error;
+                            }
+                            objectId = createObject(preparedObject.rpslObject, timestamp);
+                        } catch (Exception e) {
+                            objectLoader.printExceptionToResult(e, result, 1, preparedObject.getFormattedKey());
+                        }
+                        objectIds.add(objectId);
+                    });
+
+            rows.flush(whoisTemplate, executorService);
+            return objectIds.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int createObject(final RpslObject rpslObject, final int timestamp) {
+            final ObjectType objectType = rpslObject.getType();
+            final String pkey = rpslObject.getKey().toString();
+            final Set<CIString> keysForType = keys.computeIfAbsent(objectType, type -> Sets.newHashSet());
+            if (keysForType.contains(rpslObject.getKey())) {
+                throw new IllegalStateException("Object with type: " + ObjectTypeIds.getId(objectType) + " and pkey: " + pkey + " already exists");
+            }
+
+            final int objectId = nextObjectId;
+            final IndexRowCollector indexRowCollector = new IndexRowCollector(whoisTemplate.getDataSource());
+            final Set<CIString> missingReferences = insertIntoKeyTablesIgnoreMissing(indexRowCollector, new RpslObjectInfo(objectId, objectType, pkey), rpslObject);
+            if (!missingReferences.isEmpty()) {
+                throw new IllegalArgumentException("Missing references: " + missingReferences);
+            }
+
+            keysForType.add(rpslObject.getKey());
+            nextObjectId++;
+
+            rows.add(INSERT_LAST, objectId, 2, timestamp, ObjectTypeIds.getId(objectType), rpslObject.toByteArray(), pkey);
+            rows.add(INSERT_SERIAL, nextSerialId++, objectId, 1, 0, Operation.UPDATE.getCode());
+            rows.addAll(indexRowCollector.getRows());
+            flushIfFull();
+            return objectId;
+        }
+
+        // pass 2: the other index rows, the key-only object in history and the second serial
+        private void indexObjects(final String filename, final int[] objectIds) {
+            final int timestamp = now(dateTimeProvider);
+
+            processInOrder(filename,
+                    preparedObject -> {
+                        final RpslObject rpslObject = objectLoader.parse(preparedObject.fullObject);
+                        preparedObject.rpslObject = rpslObject;
+
+                        final int objectId = objectIds[preparedObject.index];
+                        if (objectId == NOT_CREATED) {
+                            throw new IllegalStateException("Object was not created in pass 1");
+                        }
+
+                        final IndexRowCollector indexRowCollector = new IndexRowCollector(whoisTemplate.getDataSource());
+                        final Set<CIString> missingReferences = insertIntoNonKeyTablesIgnoreMissing(indexRowCollector,
+                                new RpslObjectInfo(objectId, rpslObject.getType(), rpslObject.getKey()), rpslObject);
+                        if (!missingReferences.isEmpty()) {
+                            throw new IllegalArgumentException("Missing references: " + missingReferences);
+                        }
+                        preparedObject.indexRows = indexRowCollector.getRows();
+                    },
+                    preparedObject -> {
+                        final int objectId = objectIds[preparedObject.index];
+                        try {
+                            if (preparedObject.error != null) {
+                                throw preparedObject.error;
+                            }
+                            objectLoader.claimIds(preparedObject.rpslObject);
+                        } catch (Exception e) {
+                            objectLoader.printExceptionToResult(e, result, 2, preparedObject.getFormattedKey());
+                            if (objectId != NOT_CREATED && preparedObject.rpslObject != null) {
+                                revertObject(objectId, preparedObject.rpslObject);
+                            }
+                            return;
+                        }
+
+                        final RpslObject rpslObject = preparedObject.rpslObject;
+                        final RpslObject keyOnlyObject = RpslObjectFilter.keepKeyAttributesOnly(new RpslObjectBuilder(rpslObject)).get();
+                        rows.add(INSERT_HISTORY, objectId, 1, timestamp, ObjectTypeIds.getId(rpslObject.getType()), keyOnlyObject.toByteArray(), rpslObject.getKey().toString());
+                        rows.add(INSERT_SERIAL, nextSerialId++, objectId, 2, 1, Operation.UPDATE.getCode());
+                        rows.addAll(preparedObject.indexRows);
+                        flushIfFull();
+                        result.addSuccess();
+                    });
+
+            rows.flush(whoisTemplate, executorService);
+        }
+
+        // leave the key-only object of pass 1, as if the update in pass 2 was rolled back
+        private void revertObject(final int objectId, final RpslObject rpslObject) {
+            final RpslObject keyOnlyObject = RpslObjectFilter.keepKeyAttributesOnly(new RpslObjectBuilder(rpslObject)).get();
+            whoisTemplate.update("UPDATE last SET object = ?, sequence_id = 1 WHERE object_id = ?", keyOnlyObject.toByteArray(), objectId);
+            whoisTemplate.update("UPDATE serials SET atlast = 1 WHERE object_id = ? AND sequence_id = 1", objectId);
+        }
+
+        private void flushIfFull() {
+            if (rows.size() >= MAX_PENDING_ROWS) {
+                rows.flush(whoisTemplate, executorService);
+            }
+        }
+
+        // prepare chunks of objects on the worker threads, and consume them in file order on the calling thread
+        private void processInOrder(final String filename, final Preparer preparer, final Consumer<PreparedObject> consumer) {
+            final Deque<Future<List<PreparedObject>>> pending = new ArrayDeque<>();
+            List<PreparedObject> chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+            int index = 0;
+
+            try {
+                for (final String nextObject : new RpslObjectFileReader(filename)) {
+                    chunk.add(new PreparedObject(index++, nextObject));
+                    if (chunk.size() == CHUNK_SIZE) {
+                        pending.add(submit(chunk, preparer));
+                        chunk = Lists.newArrayListWithCapacity(CHUNK_SIZE);
+
+                        if (pending.size() > 2 * threads) {
+                            pending.remove().get().forEach(consumer);
+                        }
+                    }
+                }
+
+                if (!chunk.isEmpty()) {
+                    pending.add(submit(chunk, preparer));
+                }
+
+                while (!pending.isEmpty()) {
+                    pending.remove().get().forEach(consumer);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted loading " + filename, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Loading " + filename, e.getCause());
+            }
+        }
+
+        private Future<List<PreparedObject>> submit(final List<PreparedObject> chunk, final Preparer preparer) {
+            return executorService.submit(() -> {
+                for (final PreparedObject preparedObject : chunk) {
+                    try {
+                        preparer.prepare(preparedObject);
+                    } catch (Exception e) {
+                        preparedObject.error = e;
+                    }
+                }
+                return chunk;
+            });
+        }
+    }
+}
@@ -63,8 +63,7 @@ public class ObjectLoader {
                               final int pass,
                               final LoaderMode loaderMode) {
 
-        RpslObject rpslObject = RpslObject.parse(fullObject);
-        rpslObject = attributeSanitizer.sanitize(rpslObject, new ObjectMessages());
+        final RpslObject rpslObject = parse(fullObject);
 
         if (loaderMode == LoaderMode.FAST_AND_RISKY) {
             addObjectRisky(rpslObject, result, pass);
@@ -73,6 +72,10 @@ public class ObjectLoader {
         addObjectSafe(rpslObject, result, pass);
     }
 
+    public RpslObject parse(final String fullObject) {
+        return attributeSanitizer.sanitize(RpslObject.parse(fullObject), new ObjectMessages());
+    }
+
     @Transactional(propagation = Propagation.MANDATORY)
     private void addObjectSafe(RpslObject rpslObject, Result result, int pass) {
         try {
@@ -92,7 +95,7 @@ public class ObjectLoader {
         }
     }
 
-    private void printExceptionToResult(final Exception e, final Result result, final int pass, final String formattedKey) {
+    void printExceptionToResult(final Exception e, final Result result, final int pass, final String formattedKey) {
         StringWriter stringWriter = new StringWriter();
         e.printStackTrace(new PrintWriter(stringWriter));
         result.addFail(String.format("Error in pass %d in '%s': %s\n", pass, formattedKey, stringWriter), pass);
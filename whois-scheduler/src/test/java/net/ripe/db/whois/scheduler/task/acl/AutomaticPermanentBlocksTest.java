@@ -1,8 +1,10 @@
 package net.ripe.db.whois.scheduler.task.acl;
 
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.FormatHelper;
 import net.ripe.db.whois.common.domain.BlockEvents;
+import net.ripe.db.whois.common.domain.PermanentBlock;
 import net.ripe.db.whois.common.ip.IpInterval;
 import net.ripe.db.whois.query.acl.IpResourceConfiguration;
 import net.ripe.db.whois.query.dao.AccessControlListDao;
@@ -15,18 +17,22 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.net.InetAddress;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
 
-import static net.ripe.db.whois.query.support.Fixture.createBlockEvents;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.contains;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -57,23 +63,17 @@ public class AutomaticPermanentBlocksTest {
     public void test_date() throws Exception {
         subject.run();
 
-        verify(accessControlListDao, times(1)).getTemporaryBlocks(now.minusDays(30));
+        verify(accessControlListDao, times(1)).getTemporaryBlockCounts(eq(now.minusDays(30)), eq(BlockEvents.NR_TEMP_BLOCKS_BEFORE_PERMANENT), any());
     }
 
     @Test
     public void test_run_no_temporary_blocks() throws Exception {
-        when(accessControlListDao.getTemporaryBlocks(now)).thenReturn(Collections.<BlockEvents>emptyList());
-
         subject.run();
 
+        verify(accessControlListDao, never()).savePermanentBlocks(anyList());
         verify(accessControlListDao, never()).savePermanentBlock(any(IpInterval.class), any(LocalDate.class), anyInt(), anyString());
     }
 
-    @Test
-    public void test_run_temporary_blocks_times_9() throws Exception {
-        test_run_temporary_block(9, IPV4_PREFIX);
-    }
-
     @Test
     public void test_run_temporary_blocks_times_10() throws Exception {
         test_run_temporary_block(10, IPV4_PREFIX);
@@ -90,29 +90,75 @@ public class AutomaticPermanentBlocksTest {
     }
 
     @Captor
-    ArgumentCaptor<IpInterval> argumentCaptor;
+    ArgumentCaptor<List<PermanentBlock>> argumentCaptor;
 
     public void test_run_temporary_block(final int times, String prefix) {
-        when(accessControlListDao.getTemporaryBlocks(now.minusDays(30))).thenReturn(Arrays.asList(createBlockEvents(prefix, times)));
+        givenTemporaryBlockCounts(prefix, times);
 
         subject.run();
 
-        if (times < 10) {
-            verify(accessControlListDao, never()).savePermanentBlock(any(IpInterval.class), any(LocalDate.class), anyInt(), anyString());
-        } else {
-            verify(accessControlListDao).savePermanentBlock(argumentCaptor.capture(), any(LocalDate.class), eq(QUERY_LIMIT), eq("Automatic permanent ban after " + times + " temporary blocks at " + FormatHelper.dateToString(now)));
-            assertThat(argumentCaptor.getValue().toString(), is(IpInterval.parse(prefix).toString()));
-        }
+        verify(accessControlListDao).savePermanentBlocks(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue(), contains(new PermanentBlock(IpInterval.parse(prefix), now, QUERY_LIMIT,
+                "Automatic permanent ban after " + times + " temporary blocks at " + FormatHelper.dateToString(now))));
     }
 
     @Test
     public void test_run_temporary_blocks_already_denied() throws Exception {
-        when(accessControlListDao.getTemporaryBlocks(now.minusDays(30))).thenReturn(Arrays.asList(createBlockEvents(IPV4_PREFIX, 20)));
+        givenTemporaryBlockCounts(IPV4_PREFIX, 20);
         when(ipResourceConfiguration.isDenied(any(InetAddress.class))).thenReturn(true);
 
         subject.run();
 
         verify(ipResourceConfiguration).isDenied(any(InetAddress.class));
+        verify(accessControlListDao, never()).savePermanentBlocks(anyList());
         verify(accessControlListDao, never()).savePermanentBlock(any(IpInterval.class), any(LocalDate.class), anyInt(), anyString());
     }
+
+    @Test
+    public void test_run_saves_in_batches() throws Exception {
+        final List<String> prefixes = Lists.newArrayList();
+        for (int i = 0; i < 2500; i++) {
+            prefixes.add(String.format("10.0.%d.%d/32", i / 256, i % 256));
+        }
+        givenTemporaryBlockCounts(prefixes, 10);
+        final List<Integer> batchSizes = Lists.newArrayList();
+        doAnswer(invocation -> batchSizes.add(invocation.<List<PermanentBlock>>getArgument(0).size()))
+                .when(accessControlListDao).savePermanentBlocks(anyList());
+
+        subject.run();
+
+        verify(ipResourceConfiguration, times(1)).reload();
+        assertThat(batchSizes, contains(1000, 1000, 500));
+    }
+
+    @Test
+    public void test_run_failed_batch_saved_one_by_one() throws Exception {
+        givenTemporaryBlockCounts(Lists.newArrayList(IPV4_PREFIX, IPV6_PREFIX), 10);
+        doThrow(new DataIntegrityViolationException("Duplicate entry")).when(accessControlListDao).savePermanentBlocks(anyList());
+        final List<String> saved = Lists.newArrayList();
+        doAnswer(invocation -> {
+            final String prefix = invocation.getArgument(0).toString();
+            if (prefix.equals(IpInterval.parse(IPV4_PREFIX).toString())) {
+                throw new DataIntegrityViolationException("Duplicate entry");
+            }
+            return saved.add(prefix);
+        }).when(accessControlListDao).savePermanentBlock(any(IpInterval.class), eq(now), eq(QUERY_LIMIT), anyString());
+
+        subject.run();
+
+        verify(accessControlListDao, times(2)).savePermanentBlock(any(IpInterval.class), eq(now), eq(QUERY_LIMIT), anyString());
+        assertThat(saved, contains(IpInterval.parse(IPV6_PREFIX).toString()));
+    }
+
+    private void givenTemporaryBlockCounts(final String prefix, final int count) {
+        givenTemporaryBlockCounts(Collections.singletonList(prefix), count);
+    }
+
+    private void givenTemporaryBlockCounts(final List<String> prefixes, final int count) {
+        doAnswer(invocation -> {
+            final ObjIntConsumer<String> handler = invocation.getArgument(2);
+            prefixes.forEach(prefix -> handler.accept(prefix, count));
+            return null;
+        }).when(accessControlListDao).getTemporaryBlockCounts(eq(now.minusDays(30)), eq(BlockEvents.NR_TEMP_BLOCKS_BEFORE_PERMANENT), any());
+    }
 }
@@ -0,0 +1,165 @@
+package net.ripe.db.whois.scheduler.task.autnum;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Action;
+import net.ripe.db.whois.update.domain.LegacyAutnum;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.domain.UpdateStatus;
+import net.ripe.db.whois.update.handler.UpdateRequestHandler;
+import net.ripe.db.whois.update.log.LoggerContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LegacyAutnumReloadTaskTest {
+
+    @Mock LegacyAutnum legacyAutnum;
+    @Mock RpslObjectDao rpslObjectDao;
+    @Mock UpdateRequestHandler updateRequestHandler;
+    @Mock LoggerContext loggerContext;
+
+    private LegacyAutnumReloadTask subject;
+
+    @Before
+    public void setup() {
+        when(legacyAutnum.getLegacyAutnums()).thenReturn(
+                ImmutableSet.of(ciString("AS1"), ciString("AS2")),
+                ImmutableSet.of(ciString("AS2"), ciString("AS3"), ciString("AS4"), ciString("AS5")));
+        lenient().when(legacyAutnum.contains(any())).thenAnswer(invocation -> ImmutableSet.of(ciString("AS2"), ciString("AS3"), ciString("AS4"), ciString("AS5")).contains(invocation.getArgument(0)));
+    }
+
+    @Test
+    public void reload() {
+        subject = createTask(false);
+
+        subject.run();
+        subject.updatePending();
+
+        verify(legacyAutnum).init();
+        verifyNoInteractions(rpslObjectDao);
+        verifyNoInteractions(updateRequestHandler);
+    }
+
+    @Test
+    public void update_changed_status_only() {
+        subject = createTask(true);
+        // removed from the list
+        givenAutnum("AS1", "LEGACY");
+        // added to the list
+        givenAutnum("AS3", "ASSIGNED");
+        // already up to date, or not maintained by the RIR
+        givenAutnum("AS4", "LEGACY");
+        givenAutnum("AS5", "OTHER");
+
+        subject.run();
+        assertThat(subject.getPending(), is(2));
+        verifyNoInteractions(updateRequestHandler);
+
+        subject.updatePending();
+
+        final ArgumentCaptor<UpdateRequest> updateRequestCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
+        verify(updateRequestHandler).handle(updateRequestCaptor.capture(), any(UpdateContext.class));
+        assertThat(getKeys(updateRequestCaptor.getValue()), contains("AS1", "AS3"));
+        verify(loggerContext).remove();
+        assertThat(subject.getPending(), is(0));
+    }
+
+    @Test
+    public void only_modified_autnums_are_updated() {
+        subject = createTask(true);
+        givenAutnum("AS1", "LEGACY");
+        givenAutnum("AS3", "ASSIGNED");
+        doAnswer(invocation -> {
+            final UpdateRequest updateRequest = invocation.getArgument(0);
+            final UpdateContext updateContext = invocation.getArgument(1);
+            final List<Update> updates = Lists.newArrayList(updateRequest.getUpdates());
+            updateContext.setAction(updates.get(0), Action.MODIFY);
+            updateContext.status(updates.get(0), UpdateStatus.SUCCESS);
+            updateContext.setAction(updates.get(1), Action.NOOP);
+            updateContext.status(updates.get(1), UpdateStatus.SUCCESS);
+            return null;
+        }).when(updateRequestHandler).handle(any(UpdateRequest.class), any(UpdateContext.class));
+
+        subject.run();
+        subject.updatePending();
+
+        assertThat(subject.getUpdated(), is(1L));
+        assertThat(subject.getFailed(), is(0L));
+    }
+
+    @Test
+    public void update_in_chunks() {
+        subject = createTask(true);
+        givenAutnum("AS1", "LEGACY");
+        givenAutnum("AS3", "ASSIGNED");
+        givenAutnum("AS4", "ASSIGNED");
+        givenAutnum("AS5", null);
+
+        subject.run();
+        subject.updatePending();
+
+        final ArgumentCaptor<UpdateRequest> updateRequestCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
+        verify(updateRequestHandler, times(2)).handle(updateRequestCaptor.capture(), any(UpdateContext.class));
+        assertThat(getKeys(updateRequestCaptor.getAllValues().get(0)), contains("AS1", "AS3", "AS4"));
+        assertThat(getKeys(updateRequestCaptor.getAllValues().get(1)), contains("AS5"));
+        verify(loggerContext).init(eq("LegacyAutnumReloadTask_2"));
+    }
+
+    @Test
+    public void no_update_for_missing_autnum() {
+        subject = createTask(true);
+
+        subject.run();
+        subject.updatePending();
+
+        verifyNoInteractions(updateRequestHandler);
+        verify(loggerContext, never()).init(anyString());
+    }
+
+    private LegacyAutnumReloadTask createTask(final boolean updateStatus) {
+        return new LegacyAutnumReloadTask(legacyAutnum, rpslObjectDao, updateRequestHandler, loggerContext, updateStatus, 3, 1000);
+    }
+
+    private void givenAutnum(final String autnum, final String status) {
+        when(rpslObjectDao.getByKeyOrNull(ObjectType.AUT_NUM, ciString(autnum))).thenReturn(RpslObject.parse("" +
+                "aut-num:        " + autnum + "\n" +
+                "as-name:        TEST\n" +
+                (status != null ? "status:         " + status + "\n" : "") +
+                "source:         TEST"));
+    }
+
+    private static List<String> getKeys(final UpdateRequest updateRequest) {
+        return updateRequest.getUpdates().stream()
+                .map(Update::getSubmittedObject)
+                .map(object -> object.getKey().toString())
+                .collect(Collectors.toList());
+    }
+}
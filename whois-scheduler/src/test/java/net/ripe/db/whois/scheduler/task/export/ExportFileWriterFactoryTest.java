@@ -34,7 +34,7 @@ public class ExportFileWriterFactoryTest {
 
     @Before
     public void setup() {
-        subject = new ExportFileWriterFactory(dummifierNrtm, dummifierCurrent, "internal", "dbase_new", "dbase", "test", "test-nonauth");
+        subject = new ExportFileWriterFactory(dummifierNrtm, dummifierCurrent, "internal", "dbase_new", "dbase", "test", "test-nonauth", 0);
     }
 
     @Test(expected = IllegalStateException.class)
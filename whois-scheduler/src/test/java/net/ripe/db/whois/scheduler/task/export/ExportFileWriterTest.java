@@ -23,9 +23,12 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
@@ -102,8 +105,41 @@ public class ExportFileWriterTest {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Test
+    public void write_parallel_compression() throws IOException {
+        final File serialDir = folder.newFolder("serial");
+        final File parallelDir = folder.newFolder("parallel");
+        final ExecutorService compressionExecutor = Executors.newFixedThreadPool(4);
+        try {
+            final ExportFileWriter serialWriter = new ExportFileWriter(serialDir, filenameStrategy, decorationStrategy, exportFilter);
+            final ExportFileWriter parallelWriter = new ExportFileWriter(parallelDir, filenameStrategy, decorationStrategy, exportFilter, compressionExecutor);
+
+            for (int i = 0; i < 20_000; i++) {
+                final RpslObject object = RpslObject.parse("mntner: DEV-MNT" + i + "\ndescr: description " + i);
+                serialWriter.write(object, Collections.EMPTY_LIST);
+                parallelWriter.write(object, Collections.EMPTY_LIST);
+            }
+            serialWriter.close();
+            parallelWriter.close();
+        } finally {
+            compressionExecutor.shutdown();
+        }
+
+        final File[] files = serialDir.listFiles();
+        assertThat(files, is(not(nullValue())));
+        for (final File file : files) {
+            assertThat(file.getName(), readFile(new File(parallelDir, file.getName())), is(readFile(file)));
+        }
+        assertThat(readFile(new File(parallelDir, "mntner.gz")).length(), greaterThan(ParallelGzipOutputStream.BLOCK_SIZE * 2));
+    }
+
+    private String readFile(final File file) throws IOException {
+        return FileCopyUtils.copyToString(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.ISO_8859_1));
+    }
+
     private void checkFile(final File file, final String expectedContents) throws IOException {
-        final String content = FileCopyUtils.copyToString(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.ISO_8859_1));
+        final String content = readFile(file);
 
         assertThat(content, is(QueryMessages.termsAndConditionsDump() + "\n" + expectedContents));
     }
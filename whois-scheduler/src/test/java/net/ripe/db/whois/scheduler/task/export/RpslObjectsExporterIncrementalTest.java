@@ -0,0 +1,306 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.rpsl.DummifierCurrent;
+import net.ripe.db.whois.common.rpsl.DummifierNrtm;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportCallbackHandler;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportDao;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RpslObjectsExporterIncrementalTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final TestExportDao exportDao = new TestExportDao();
+    private final TagsDao tagsDao = mock(TagsDao.class);
+    private ExportFileWriterFactory exportFileWriterFactory;
+
+    @Before
+    public void setUp() {
+        exportFileWriterFactory = new ExportFileWriterFactory(new DummifierNrtm(), new DummifierCurrent(),
+                "internal", "dbase_new", "dbase", "TEST", "TEST-NONAUTH", 0);
+
+        when(tagsDao.getTags(anyInt())).thenAnswer(invocation -> exportDao.getTags(Collections.singleton(invocation.getArgument(0))));
+        when(tagsDao.getTags(anyCollection())).thenAnswer(invocation -> exportDao.getTags(invocation.getArgument(0)));
+
+        for (int i = 0; i < 10; i++) {
+            exportDao.add("" +
+                    "mntner:         DEV-MNT" + i + "\n" +
+                    "auth:           MD5-PW $1$xNv6umMG$cBd9DXqWEpsqeBq2AUjGy/\n" +
+                    "source:         TEST");
+            exportDao.add("" +
+                    "person:         Test person " + i + "\n" +
+                    "nic-hdl:        PN" + i + "-TEST\n" +
+                    "source:         TEST");
+            exportDao.add("" +
+                    "role:           Test role " + i + "\n" +
+                    "nic-hdl:        ROLE" + i + "-TEST\n" +
+                    (i % 2 == 0 ? "abuse-mailbox:  abuse@example.net\n" : "") +
+                    "source:         TEST");
+            exportDao.add("" +
+                    "aut-num:        AS" + i + "\n" +
+                    "as-name:        AS-" + i + "\n" +
+                    "source:         TEST" + (i % 2 == 0 ? "-NONAUTH" : ""));
+        }
+
+        exportDao.setTags(1, new Tag(ciString("unref"), 1, "30"));
+        exportDao.setTags(2, new Tag(ciString("unref"), 2, "30"));
+    }
+
+    @Test
+    public void export_incremental_same_as_full_export() throws IOException {
+        final File exportDir = folder.newFolder("incremental");
+        final RpslObjectsExporter incrementalExporter = createExporter(exportDir, true);
+        incrementalExporter.export();
+
+        modifyObjects();
+        incrementalExporter.export();
+
+        final File fullExportDir = folder.newFolder("full");
+        createExporter(fullExportDir, false).export();
+
+        assertSameExportFiles(fullExportDir, exportDir);
+    }
+
+    @Test
+    public void export_incremental_twice() throws IOException {
+        final File exportDir = folder.newFolder("incremental");
+        final RpslObjectsExporter incrementalExporter = createExporter(exportDir, true);
+        incrementalExporter.export();
+
+        modifyObjects();
+        incrementalExporter.export();
+
+        exportDao.delete(5);
+        exportDao.add("" +
+                "person:         New person 2\n" +
+                "nic-hdl:        NP2-TEST\n" +
+                "source:         TEST");
+        incrementalExporter.export();
+
+        final File fullExportDir = folder.newFolder("full");
+        createExporter(fullExportDir, false).export();
+
+        assertSameExportFiles(fullExportDir, exportDir);
+    }
+
+    @Test
+    public void export_incremental_delta_files() throws IOException {
+        final File exportDir = folder.newFolder("incremental");
+        final RpslObjectsExporter incrementalExporter = createExporter(exportDir, true);
+        incrementalExporter.export();
+
+        modifyObjects();
+        incrementalExporter.export();
+
+        final String mntnerDelta = readFile(new File(exportDir, "internal/split/ripe.db.mntner.delta.gz"));
+        assertThat(mntnerDelta, containsString("% Changes after serial 40 up to and including serial 46\n"));
+        assertThat(mntnerDelta, containsString("" +
+                "ADD\n" +
+                "\n" +
+                "mntner:         DEV-MNT0\n" +
+                "descr:          modified\n"));
+        assertThat(mntnerDelta, containsString("" +
+                "DEL\n" +
+                "\n" +
+                "mntner:         DEV-MNT2\n"));
+        assertThat(mntnerDelta, containsString("" +
+                "ADD\n" +
+                "\n" +
+                "mntner:         DEV-MNT3\n"));
+        assertThat(mntnerDelta, not(containsString("DEV-MNT4")));
+
+        final String personDelta = readFile(new File(exportDir, "dbase/split/ripe.db.person.delta.gz"));
+        assertThat(personDelta, containsString("" +
+                "DEL\n" +
+                "\n" +
+                "person:         Placeholder Person Object\n"));
+        assertThat(personDelta, containsString("" +
+                "ADD\n" +
+                "\n" +
+                "person:         Placeholder Person Object\n"));
+    }
+
+    @Test
+    public void export_incremental_invalid_manifest_exports_all_objects() throws IOException {
+        final File exportDir = folder.newFolder("incremental");
+        final RpslObjectsExporter incrementalExporter = createExporter(exportDir, true);
+        incrementalExporter.export();
+
+        FileCopyUtils.copy(new byte[]{1, 2, 3}, new FileOutputStream(ExportManifest.getWriterFile(exportFileWriterFactory.getManifestDir(exportDir), 3)));
+
+        modifyObjects();
+        incrementalExporter.export();
+
+        final File fullExportDir = folder.newFolder("full");
+        createExporter(fullExportDir, false).export();
+
+        assertSameExportFiles(fullExportDir, exportDir);
+        assertThat(new File(exportDir, "internal/split/ripe.db.mntner.delta.gz").exists(), is(false));
+    }
+
+    private RpslObjectsExporter createExporter(final File exportDir, final boolean incremental) throws IOException {
+        return new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao,
+                exportDir.getAbsolutePath(), folder.newFolder().getAbsolutePath() + "_tmp", true, incremental);
+    }
+
+    // modify, delete and add objects (also the first person, which is replaced by the placeholder), and change tags
+    private void modifyObjects() {
+        exportDao.update(1, "" +
+                "mntner:         DEV-MNT0\n" +
+                "descr:          modified\n" +
+                "auth:           MD5-PW $1$xNv6umMG$cBd9DXqWEpsqeBq2AUjGy/\n" +
+                "source:         TEST");
+        exportDao.delete(2);
+        exportDao.delete(9);
+        exportDao.update(8, "" +
+                "aut-num:        AS1\n" +
+                "as-name:        AS-1\n" +
+                "source:         TEST-NONAUTH");
+        exportDao.add("" +
+                "person:         New person 1\n" +
+                "nic-hdl:        NP1-TEST\n" +
+                "source:         TEST");
+        exportDao.add("" +
+                "role:           New role 1\n" +
+                "nic-hdl:        NR1-TEST\n" +
+                "source:         TEST");
+
+        exportDao.setTags(1);
+        exportDao.setTags(13, new Tag(ciString("unref"), 13, "30"));
+        exportDao.setTags(6, new Tag(ciString("unref"), 6, "28"));
+    }
+
+    private static void assertSameExportFiles(final File expectedDir, final File actualDir) throws IOException {
+        final Set<String> expectedFiles = getExportFiles(expectedDir);
+        assertThat(getExportFiles(actualDir), is(expectedFiles));
+
+        for (final String file : expectedFiles) {
+            assertThat(file, readFile(new File(actualDir, file)), is(readFile(new File(expectedDir, file))));
+        }
+    }
+
+    private static Set<String> getExportFiles(final File dir) throws IOException {
+        final Path root = dir.toPath();
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path).toString())
+                    .filter(path -> !path.startsWith("internal" + File.separator + "manifest"))
+                    .filter(path -> !path.endsWith(".delta.gz"))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static String readFile(final File file) throws IOException {
+        if (!file.getName().endsWith(".gz")) {
+            return FileCopyUtils.copyToString(new InputStreamReader(new FileInputStream(file), StandardCharsets.ISO_8859_1));
+        }
+        return FileCopyUtils.copyToString(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * The last and tags tables, with a serial for every change.
+     */
+    private static final class TestExportDao implements ExportDao {
+        private final NavigableMap<Integer, RpslObject> objects = Maps.newTreeMap();
+        private final NavigableMap<Integer, List<Tag>> tags = Maps.newTreeMap();
+        private final List<Integer> serials = Lists.newArrayList();
+        private int nextObjectId = 1;
+
+        private void add(final String object) {
+            update(nextObjectId++, object);
+        }
+
+        private void update(final int objectId, final String object) {
+            objects.put(objectId, RpslObject.parse(objectId, object));
+            serials.add(objectId);
+        }
+
+        private void delete(final int objectId) {
+            objects.remove(objectId);
+            serials.add(objectId);
+        }
+
+        private void setTags(final int objectId, final Tag... objectTags) {
+            if (objectTags.length == 0) {
+                tags.remove(objectId);
+            } else {
+                tags.put(objectId, Lists.newArrayList(objectTags));
+            }
+        }
+
+        private List<Tag> getTags(final Collection<Integer> objectIds) {
+            final List<Tag> result = Lists.newArrayList();
+            for (final Integer objectId : objectIds) {
+                result.addAll(tags.getOrDefault(objectId, Collections.emptyList()));
+            }
+            return result;
+        }
+
+        @Override
+        public int getMaxSerial() {
+            return serials.size();
+        }
+
+        @Override
+        public void exportObjects(final ExportCallbackHandler exportCallbackHandler) {
+            objects.values().forEach(exportCallbackHandler::exportObject);
+        }
+
+        @Override
+        public Set<Integer> getChangedObjectIds(final int fromSerial, final int toSerial) {
+            return Sets.newHashSet(serials.subList(fromSerial, toSerial));
+        }
+
+        @Override
+        public void exportObjects(final Collection<Integer> objectIds, final ExportCallbackHandler exportCallbackHandler) {
+            for (final Integer objectId : Sets.newTreeSet(objectIds)) {
+                final RpslObject object = objects.get(objectId);
+                if (object != null) {
+                    exportCallbackHandler.exportObject(object);
+                }
+            }
+        }
+
+        @Override
+        public void exportTags(final Consumer<Tag> tagConsumer) {
+            tags.values().forEach(objectTags -> objectTags.forEach(tagConsumer));
+        }
+    }
+}
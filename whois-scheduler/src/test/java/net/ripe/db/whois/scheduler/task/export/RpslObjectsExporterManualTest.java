@@ -0,0 +1,216 @@
+package net.ripe.db.whois.scheduler.task.export;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.Tag;
+import net.ripe.db.whois.common.rpsl.DummifierCurrent;
+import net.ripe.db.whois.common.rpsl.DummifierNrtm;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportCallbackHandler;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportDao;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Export a generated database of persons, mntners and inetnums (with a simulated database round trip for every tag
+ * lookup) to the ten export file writers, measuring end-to-end export time and CPU utilization (process CPU time
+ * divided by wall clock time, so 1.0 is a single busy core) with serial and block-parallel compression.
+ *
+ * Compare with the single threaded exporter by running this test against the previous revision, and with an
+ * incremental export after changing one in a hundred objects.
+ */
+@Category(ManualTest.class)
+public class RpslObjectsExporterManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RpslObjectsExporterManualTest.class);
+
+    private static final int OBJECTS = 1_000_000;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void export_serial_compression() throws Exception {
+        run(0);
+    }
+
+    @Test
+    public void export_parallel_compression() throws Exception {
+        run(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Test
+    public void export_incremental() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final GeneratingExportDao exportDao = new GeneratingExportDao();
+        final ExportFileWriterFactory exportFileWriterFactory = new ExportFileWriterFactory(new DummifierNrtm(), new DummifierCurrent(),
+                "internal", "dbase_new", "dbase", "TEST", "TEST-NONAUTH", 0);
+        final RpslObjectsExporter subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, createTagsDao(lookups),
+                folder.newFolder("export").getAbsolutePath(), folder.newFolder("export_tmp").getAbsolutePath(), true, true);
+
+        final Stopwatch fullStopwatch = Stopwatch.createStarted();
+        subject.export();
+        fullStopwatch.stop();
+
+        exportDao.changeObjects();
+
+        final Stopwatch incrementalStopwatch = Stopwatch.createStarted();
+        subject.export();
+        incrementalStopwatch.stop();
+
+        LOGGER.info("Exported {} objects in {} (writing the manifest), and {} changed objects incrementally in {}",
+                OBJECTS, fullStopwatch, exportDao.changedObjectIds.size(), incrementalStopwatch);
+    }
+
+    private void run(final int compressionThreads) throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final TagsDao tagsDao = createTagsDao(lookups);
+
+        final ExportFileWriterFactory exportFileWriterFactory = new ExportFileWriterFactory(new DummifierNrtm(), new DummifierCurrent(),
+                "internal", "dbase_new", "dbase", "TEST", "TEST-NONAUTH", compressionThreads);
+        final RpslObjectsExporter subject = new RpslObjectsExporter(exportFileWriterFactory, new GeneratingExportDao(), tagsDao,
+                folder.newFolder("export").getAbsolutePath(), folder.newFolder("export_tmp").getAbsolutePath(), true, false);
+
+        final com.sun.management.OperatingSystemMXBean operatingSystemMXBean = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        final long cpuStart = operatingSystemMXBean.getProcessCpuTime();
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        subject.export();
+
+        final long wallNanos = stopwatch.elapsed(TimeUnit.NANOSECONDS);
+        final long cpuNanos = operatingSystemMXBean.getProcessCpuTime() - cpuStart;
+        LOGGER.info("Exported {} objects with {} compression threads in {} ms, {} tag lookups, CPU time {} ms, CPU utilization {} (of {} cores)",
+                OBJECTS, compressionThreads, TimeUnit.NANOSECONDS.toMillis(wallNanos), lookups.get(), TimeUnit.NANOSECONDS.toMillis(cpuNanos),
+                String.format("%.2f", (double) cpuNanos / wallNanos), Runtime.getRuntime().availableProcessors());
+    }
+
+    private static TagsDao createTagsDao(final AtomicInteger lookups) {
+        final TagsDao tagsDao = mock(TagsDao.class);
+        when(tagsDao.getTags(anyInt())).thenAnswer(invocation -> {
+            lookups.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return getTags(Lists.newArrayList(invocation.<Integer>getArgument(0)));
+        });
+        when(tagsDao.getTags(anyCollection())).thenAnswer(invocation -> {
+            lookups.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return getTags(invocation.getArgument(0));
+        });
+        return tagsDao;
+    }
+
+    private static List<Tag> getTags(final Collection<Integer> objectIds) {
+        final List<Tag> tags = Lists.newArrayList();
+        for (final Integer objectId : objectIds) {
+            if (objectId % 10 == 0) {
+                tags.add(new Tag(CIString.ciString("unref"), objectId, "30"));
+            }
+        }
+        return tags;
+    }
+
+    private static class GeneratingExportDao implements ExportDao {
+        private Set<Integer> changedObjectIds = Collections.emptySet();
+
+        // change one in a hundred objects, with a serial per change
+        private void changeObjects() {
+            changedObjectIds = Sets.newHashSet();
+            for (int objectId = 7; objectId <= OBJECTS; objectId += 100) {
+                changedObjectIds.add(objectId);
+            }
+        }
+
+        @Override
+        public int getMaxSerial() {
+            return OBJECTS + changedObjectIds.size();
+        }
+
+        @Override
+        public void exportObjects(final ExportCallbackHandler exportCallbackHandler) {
+            for (int objectId = 1; objectId <= OBJECTS; objectId++) {
+                exportCallbackHandler.exportObject(createRpslObject(objectId));
+            }
+        }
+
+        @Override
+        public Set<Integer> getChangedObjectIds(final int fromSerial, final int toSerial) {
+            return fromSerial < toSerial ? changedObjectIds : Collections.emptySet();
+        }
+
+        @Override
+        public void exportObjects(final Collection<Integer> objectIds, final ExportCallbackHandler exportCallbackHandler) {
+            for (final Integer objectId : Sets.newTreeSet(objectIds)) {
+                exportCallbackHandler.exportObject(createRpslObject(objectId));
+            }
+        }
+
+        @Override
+        public void exportTags(final Consumer<Tag> tagConsumer) {
+            getTags(ContiguousSet.create(Range.closed(1, OBJECTS), DiscreteDomain.integers())).forEach(tagConsumer);
+        }
+
+        private RpslObject createRpslObject(final int objectId) {
+            final String object = createObject(objectId);
+            return RpslObject.parse(objectId, changedObjectIds.contains(objectId) ? object + "\nremarks: changed" : object);
+        }
+
+        private static String createObject(final int objectId) {
+            switch (objectId % 3) {
+                case 0:
+                    return "" +
+                            "person:  Test Person" + objectId + "\n" +
+                            "address: Singel 258\n" +
+                            "phone:   +31 6 12345678\n" +
+                            "e-mail:  person" + objectId + "@example.net\n" +
+                            "nic-hdl: TP" + objectId + "-TEST\n" +
+                            "mnt-by:  TEST-MNT\n" +
+                            "source:  TEST";
+                case 1:
+                    return "" +
+                            "mntner:  TEST" + objectId + "-MNT\n" +
+                            "descr:   Maintainer " + objectId + "\n" +
+                            "admin-c: TP" + (objectId - 1) + "-TEST\n" +
+                            "upd-to:  noreply@example.net\n" +
+                            "auth:    MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7.\n" +
+                            "mnt-by:  TEST" + objectId + "-MNT\n" +
+                            "source:  TEST";
+                default:
+                    return "" +
+                            "inetnum: 10." + (objectId >> 16) + "." + ((objectId >> 8) & 0xff) + ".0 - 10." + (objectId >> 16) + "." + ((objectId >> 8) & 0xff) + ".255\n" +
+                            "netname: NET-" + objectId + "\n" +
+                            "descr:   Network " + objectId + "\n" +
+                            "country: NL\n" +
+                            "admin-c: TP" + (objectId - 2) + "-TEST\n" +
+                            "tech-c:  TP" + (objectId - 2) + "-TEST\n" +
+                            "status:  ASSIGNED PA\n" +
+                            "mnt-by:  TEST-MNT\n" +
+                            "source:  TEST";
+            }
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package net.ripe.db.whois.scheduler.task.export;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.scheduler.task.export.dao.ExportCallbackHandler;
@@ -13,6 +15,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -21,13 +24,14 @@ import org.mockito.stubbing.Answer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.when;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -55,7 +59,7 @@ public class RpslObjectsToTextExporterTest {
 
         when(exportFileWriterFactory.isExportDir(any(File.class))).thenReturn(true);
 
-        subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao, exportdirName, tmpDirName, true);
+        subject = new RpslObjectsExporter(exportFileWriterFactory, exportDao, tagsDao, exportdirName, tmpDirName, true, false);
     }
 
     @Test(expected = RuntimeException.class)
@@ -106,7 +110,7 @@ public class RpslObjectsToTextExporterTest {
             }
         }).when(exportDao).exportObjects(any(ExportCallbackHandler.class));
 
-        when(tagsDao.getTags(anyInt())).thenReturn(emptyList);
+        when(tagsDao.getTags(anyCollection())).thenReturn(emptyList);
 
         subject.export();
 
@@ -119,6 +123,39 @@ public class RpslObjectsToTextExporterTest {
         Mockito.verify(exportFileWriter2).close();
     }
 
+    @Test
+    public void export_objects_in_batches() throws IOException {
+        final ExportFileWriter exportFileWriter = Mockito.mock(ExportFileWriter.class);
+        when(exportFileWriterFactory.createExportFileWriters(tmpDir, 0)).thenReturn(Lists.newArrayList(exportFileWriter));
+
+        final List<RpslObject> rpslObjects = Lists.newArrayList();
+        for (int objectId = 1; objectId <= 2500; objectId++) {
+            rpslObjects.add(RpslObject.parse(objectId, "mntner: DEV-MNT" + objectId));
+        }
+
+        Mockito.doAnswer(invocation -> {
+            final ExportCallbackHandler exportCallbackHandler = invocation.getArgument(0);
+            for (final RpslObject rpslObject : rpslObjects) {
+                exportCallbackHandler.exportObject(rpslObject);
+            }
+            return null;
+        }).when(exportDao).exportObjects(any(ExportCallbackHandler.class));
+
+        final Tag tag = new Tag(CIString.ciString("unref"), 1500, "30");
+        when(tagsDao.getTags(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<Integer>>getArgument(0).contains(1500) ? Lists.newArrayList(tag) : Collections.emptyList());
+
+        subject.export();
+
+        Mockito.verify(tagsDao, Mockito.times(3)).getTags(anyCollection());
+
+        final InOrder inOrder = Mockito.inOrder(exportFileWriter);
+        for (final RpslObject rpslObject : rpslObjects) {
+            inOrder.verify(exportFileWriter).write(rpslObject, rpslObject.getObjectId() == 1500 ? ImmutableList.of(tag) : Collections.emptyList());
+        }
+        inOrder.verify(exportFileWriter).close();
+    }
+
     @Test
     public void export_objects_exception() throws IOException {
         final ExportFileWriter exportFileWriter = Mockito.mock(ExportFileWriter.class);
@@ -144,7 +181,7 @@ public class RpslObjectsToTextExporterTest {
 
         Mockito.doThrow(IOException.class).when(exportFileWriter).write(rpslObject1, emptyList);
 
-        when(tagsDao.getTags(2)).thenReturn(emptyList);
+        when(tagsDao.getTags(ImmutableList.of(2, 3))).thenReturn(emptyList);
 
         try {
             subject.export();
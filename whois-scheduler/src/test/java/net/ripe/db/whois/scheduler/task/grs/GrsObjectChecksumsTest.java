@@ -0,0 +1,42 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+
+public class GrsObjectChecksumsTest {
+    private final GrsObjectChecksums subject = new GrsObjectChecksums();
+
+    @Test
+    public void get_by_type_and_case_insensitive_key() {
+        subject.add(1, ObjectType.MNTNER, "TEST-MNT", 10);
+
+        assertThat(subject.get(ObjectType.MNTNER, "test-mnt").getObjectId(), is(1));
+        assertThat(subject.get(ObjectType.PERSON, "TEST-MNT"), nullValue());
+        assertThat(subject.size(), is(1));
+    }
+
+    @Test
+    public void checksum_of_formatted_object() {
+        final long checksum = GrsObjectChecksums.checksum(RpslObject.parse("mntner: TEST-MNT\nsource: TEST"));
+
+        assertThat(GrsObjectChecksums.checksum(RpslObject.parse("mntner:         TEST-MNT\nsource:         TEST")), is(checksum));
+        assertThat(GrsObjectChecksums.checksum(RpslObject.parse("mntner: TEST-MNT\nsource: TEST-GRS")), not(checksum));
+    }
+
+    @Test
+    public void not_imported_object_ids() {
+        subject.add(1, ObjectType.MNTNER, "IMPORTED-MNT", 10).setImported();
+        subject.add(2, ObjectType.MNTNER, "DELETED-MNT", 10);
+        subject.add(GrsObjectChecksums.NOT_CREATED, ObjectType.MNTNER, "CREATED-MNT", 10).setImported();
+        subject.add(3, ObjectType.PERSON, "IMPORTED-MNT", 10);
+
+        assertThat(subject.getNotImportedObjectIds(), contains(2, 3));
+    }
+}
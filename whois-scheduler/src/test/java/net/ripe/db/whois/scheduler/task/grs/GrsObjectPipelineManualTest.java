@@ -0,0 +1,175 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.io.Downloader;
+import net.ripe.db.whois.common.grs.AuthoritativeResource;
+import net.ripe.db.whois.common.grs.AuthoritativeResourceData;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import dumps made by repeating the bundled sample dumps (with a simulated database round trip for every created
+ * object), measuring import time with parsing on the importing thread and with parsing on the pipeline threads.
+ *
+ * The samples repeat, so only the first copy of every object is written and the rest is parsed and compared.
+ */
+@Category(ManualTest.class)
+public class GrsObjectPipelineManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrsObjectPipelineManualTest.class);
+
+    private static final int REPETITIONS = 20_000;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void import_serial() throws Exception {
+        run(0);
+    }
+
+    @Test
+    public void import_pipeline() throws Exception {
+        run(Runtime.getRuntime().availableProcessors());
+    }
+
+    private void run(final int parseThreads) throws Exception {
+        final SourceContext sourceContext = mock(SourceContext.class);
+        final DateTimeProvider dateTimeProvider = mock(DateTimeProvider.class);
+        final Downloader downloader = mock(Downloader.class);
+        final AuthoritativeResourceData authoritativeResourceData = mock(AuthoritativeResourceData.class);
+        final AuthoritativeResource authoritativeResource = mock(AuthoritativeResource.class);
+        when(authoritativeResourceData.getAuthoritativeResource(any(CIString.class))).thenReturn(authoritativeResource);
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        final AttributeSanitizer sanitizer = new AttributeSanitizer(dateTimeProvider);
+
+        final GrsSourceImporter subject = new GrsSourceImporter(folder.newFolder().getAbsolutePath(), sanitizer, mock(ResourceTagger.class), sourceContext,
+                parseThreads, 1000, 16);
+        try {
+            final Path apnicDump = repeatGzip("/grs/apnic.test.gz");
+            run(subject, new ApnicGrsSource("APNIC-GRS", sourceContext, dateTimeProvider, authoritativeResourceData, downloader, "") {
+                @Override
+                public void acquireDump(final Path path) throws IOException {
+                    Files.copy(apnicDump, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }, parseThreads);
+
+            final Path afrinicDump = repeatGzip("/grs/afrinic.test.gz");
+            run(subject, new AfrinicGrsSource("AFRINIC-GRS", sourceContext, dateTimeProvider, authoritativeResourceData, downloader, "") {
+                @Override
+                public void acquireDump(final Path path) throws IOException {
+                    Files.copy(afrinicDump, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }, parseThreads);
+
+            final Path radbDump = repeatGzip("/grs/radb.test.gz");
+            run(subject, new RadbGrsSource("RADB-GRS", sourceContext, dateTimeProvider, authoritativeResourceData, downloader, "") {
+                @Override
+                public void acquireDump(final Path path) throws IOException {
+                    Files.copy(radbDump, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }, parseThreads);
+
+            final Path arinDump = repeatZipEntry("/grs/arin.test.zip", "arin_db.txt");
+            run(subject, new ArinGrsSource("ARIN-GRS", sourceContext, dateTimeProvider, authoritativeResourceData, downloader, "", "arin_db.txt") {
+                @Override
+                public void acquireDump(final Path path) throws IOException {
+                    Files.copy(arinDump, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }, parseThreads);
+        } finally {
+            subject.shutdownPipelineThreads();
+        }
+    }
+
+    private void run(final GrsSourceImporter subject, final GrsSource grsSource, final int parseThreads) {
+        final AtomicInteger created = new AtomicInteger();
+        final GrsDao grsDao = mock(GrsDao.class);
+        final GrsDao.UpdateResult updateResult = mock(GrsDao.UpdateResult.class);
+        when(grsDao.getCurrentObjectChecksums()).thenReturn(new GrsObjectChecksums());
+        when(grsDao.createObject(any(RpslObject.class))).thenAnswer(invocation -> {
+            created.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return updateResult;
+        });
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(grsDao).executeInTransaction(any(Runnable.class));
+        grsSource.setDao(grsDao);
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        subject.grsImport(grsSource, false);
+        LOGGER.info("Imported {} ({} copies of the sample dump, {} objects created) with {} parse threads in {} ms",
+                grsSource, REPETITIONS, created.get(), parseThreads, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    private Path repeatGzip(final String resource) throws IOException {
+        final byte[] sample;
+        try (InputStream in = new GZIPInputStream(getClass().getResourceAsStream(resource))) {
+            sample = ByteStreams.toByteArray(in);
+        }
+
+        final File dump = folder.newFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dump.toPath()))) {
+            repeat(sample, out);
+        }
+        return dump.toPath();
+    }
+
+    private Path repeatZipEntry(final String resource, final String entryName) throws Exception {
+        final byte[] sample;
+        try (ZipFile zipFile = new ZipFile(new File(getClass().getResource(resource).toURI()));
+             InputStream in = zipFile.getInputStream(zipFile.getEntry(entryName))) {
+            sample = ByteStreams.toByteArray(in);
+        }
+
+        final File dump = folder.newFile();
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dump.toPath()))) {
+            out.putNextEntry(new ZipEntry(entryName));
+            repeat(sample, out);
+            out.closeEntry();
+        }
+        return dump.toPath();
+    }
+
+    private static void repeat(final byte[] sample, final OutputStream out) throws IOException {
+        for (int i = 0; i < REPETITIONS; i++) {
+            out.write(sample);
+            out.write("\n\n".getBytes());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.domain.io.Downloader;
+import net.ripe.db.whois.common.grs.AuthoritativeResourceData;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GrsObjectPipelineTest {
+    @Mock SourceContext sourceContext;
+    @Mock DateTimeProvider dateTimeProvider;
+    @Mock AuthoritativeResourceData authoritativeResourceData;
+    @Mock Downloader downloader;
+
+    ExecutorService readerExecutor;
+    ExecutorService parseExecutor;
+    GrsObjectPipeline subject;
+
+    final GrsObjectPipeline.Preparer preparer = new GrsObjectPipeline.Preparer() {
+        @Override
+        public RpslObject prepare(final List<String> lines) {
+            return prepare(RpslObject.parse(String.join("", lines)));
+        }
+
+        @Override
+        public RpslObject prepare(final RpslObject rpslObject) {
+            final String pkey = rpslObject.getKey().toString();
+            if (pkey.equals("IGNORED-MNT")) {
+                return null;
+            }
+            if (pkey.equals("INVALID-MNT")) {
+                throw new IllegalArgumentException("invalid");
+            }
+            return rpslObject;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        readerExecutor = Executors.newCachedThreadPool();
+        parseExecutor = Executors.newFixedThreadPool(4);
+        subject = new GrsObjectPipeline(readerExecutor, parseExecutor, 3, 2);
+    }
+
+    @After
+    public void tearDown() {
+        readerExecutor.shutdownNow();
+        parseExecutor.shutdownNow();
+    }
+
+    @Test
+    public void objects_in_dump_order() throws IOException {
+        final List<String> handled = Lists.newArrayList();
+
+        subject.run(grsSource(100, null), new File("dump"), preparer, rpslObject -> handled.add(rpslObject.getKey().toString()));
+
+        final List<String> expected = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            expected.add("TEST" + i + "-MNT");
+        }
+        assertThat(handled, is(expected));
+    }
+
+    @Test
+    public void ignored_and_failing_objects_are_skipped() throws IOException {
+        final List<String> handled = Lists.newArrayList();
+
+        subject.run(grsSource(0, "IGNORED-MNT", "INVALID-MNT", "TEST-MNT"), new File("dump"), preparer, rpslObject -> handled.add(rpslObject.getKey().toString()));
+
+        assertThat(handled, contains("TEST-MNT"));
+    }
+
+    @Test
+    public void failing_consumer_continues_with_next_object() throws IOException {
+        final List<String> handled = Lists.newArrayList();
+
+        subject.run(grsSource(5, null), new File("dump"), preparer, rpslObject -> {
+            handled.add(rpslObject.getKey().toString());
+            if (handled.size() == 2) {
+                throw new IllegalStateException("database");
+            }
+        });
+
+        assertThat(handled, contains("TEST0-MNT", "TEST1-MNT", "TEST2-MNT", "TEST3-MNT", "TEST4-MNT"));
+    }
+
+    @Test
+    public void reader_failure_is_thrown() {
+        try {
+            subject.run(failingGrsSource(), new File("dump"), preparer, rpslObject -> {});
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("corrupt dump"));
+        }
+    }
+
+    private GrsSource grsSource(final int nrObjects, final String... pkeys) {
+        return new TestGrsSource() {
+            @Override
+            void handleObjects(final File file, final ObjectHandler handler) {
+                for (int i = 0; i < nrObjects; i++) {
+                    handler.handle(Lists.newArrayList("mntner: TEST" + i + "-MNT\n", "source: TEST\n"));
+                }
+                if (pkeys != null) {
+                    for (final String pkey : pkeys) {
+                        handler.handle(RpslObject.parse("mntner: " + pkey + "\nsource: TEST"));
+                    }
+                }
+            }
+        };
+    }
+
+    private GrsSource failingGrsSource() {
+        return new TestGrsSource() {
+            @Override
+            void handleObjects(final File file, final ObjectHandler handler) throws IOException {
+                for (int i = 0; i < 10; i++) {
+                    handler.handle(RpslObject.parse("mntner: TEST" + i + "-MNT\nsource: TEST"));
+                }
+                throw new IOException("corrupt dump");
+            }
+        };
+    }
+
+    private abstract class TestGrsSource extends GrsSource {
+        TestGrsSource() {
+            super("TEST-GRS", GrsObjectPipelineTest.this.sourceContext, GrsObjectPipelineTest.this.dateTimeProvider,
+                    GrsObjectPipelineTest.this.authoritativeResourceData, GrsObjectPipelineTest.this.downloader);
+        }
+
+        @Override
+        void acquireDump(final Path path) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.common.grs.AuthoritativeResource;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import a generated GRS source (with a simulated database round trip for every dao call) where nothing changed and
+ * where 10% of the objects changed, measuring import time and the number of database round trips.
+ *
+ * Compare with the per object import by running this test against the previous revision.
+ */
+@Category(ManualTest.class)
+public class GrsSourceImporterManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GrsSourceImporterManualTest.class);
+
+    private static final int OBJECTS = 200_000;
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void import_unchanged() throws Exception {
+        run(0);
+    }
+
+    @Test
+    public void import_10_percent_changed() throws Exception {
+        run(10);
+    }
+
+    private void run(final int percentageChanged) throws Exception {
+        final AtomicInteger roundTrips = new AtomicInteger();
+
+        final GrsDao grsDao = mock(GrsDao.class);
+        final GrsDao.UpdateResult updateResult = mock(GrsDao.UpdateResult.class);
+        when(grsDao.getCurrentObjectChecksums()).thenAnswer(invocation -> {
+            final GrsObjectChecksums currentObjects = new GrsObjectChecksums();
+            for (int objectId = 1; objectId <= OBJECTS; objectId++) {
+                currentObjects.add(objectId, ObjectType.MNTNER, "TEST" + objectId + "-MNT", GrsObjectChecksums.checksum(createObject(objectId, false)));
+            }
+            return currentObjects;
+        });
+        when(grsDao.get(anyCollection())).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            final List<GrsObjectInfo> grsObjectInfos = Lists.newArrayList();
+            for (final Integer objectId : invocation.<Collection<Integer>>getArgument(0)) {
+                grsObjectInfos.add(new GrsObjectInfo(objectId, 1, createObject(objectId, false)));
+            }
+            return grsObjectInfos;
+        });
+        when(grsDao.updateObject(any(GrsObjectInfo.class), any(RpslObject.class))).thenAnswer(invocation -> {
+            roundTrips.incrementAndGet();
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+            return updateResult;
+        });
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(grsDao).executeInTransaction(any(Runnable.class));
+
+        final AuthoritativeResource authoritativeResource = mock(AuthoritativeResource.class);
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        final GrsSource grsSource = mock(GrsSource.class);
+        when(grsSource.getName()).thenReturn(ciString("TEST-GRS"));
+        when(grsSource.getDao()).thenReturn(grsDao);
+        when(grsSource.getLogger()).thenReturn(LOGGER);
+        when(grsSource.getAuthoritativeResource()).thenReturn(authoritativeResource);
+        doAnswer(invocation -> {
+            final ObjectHandler objectHandler = invocation.getArgument(1);
+            for (int objectId = 1; objectId <= OBJECTS; objectId++) {
+                objectHandler.handle(createObject(objectId, objectId % 100 < percentageChanged));
+            }
+            return null;
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        final AttributeSanitizer sanitizer = mock(AttributeSanitizer.class);
+        when(sanitizer.sanitize(any(RpslObject.class), any(ObjectMessages.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        final GrsSourceImporter subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, mock(ResourceTagger.class), mock(SourceContext.class), 0, 1000, 16);
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        subject.grsImport(grsSource, false);
+        LOGGER.info("Imported {} objects ({}% changed) in {} ms with {} database round trips",
+                OBJECTS, percentageChanged, stopwatch.elapsed(TimeUnit.MILLISECONDS), roundTrips.get());
+    }
+
+    private static RpslObject createObject(final int objectId, final boolean changed) {
+        return RpslObject.parse("" +
+                "mntner:  TEST" + objectId + "-MNT\n" +
+                "descr:   Maintainer " + objectId + (changed ? " (changed)" : "") + "\n" +
+                "admin-c: TP" + objectId + "-TEST\n" +
+                "upd-to:  noreply@example.net\n" +
+                "auth:    MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7.\n" +
+                "mnt-by:  TEST" + objectId + "-MNT\n" +
+                "source:  TEST-GRS");
+    }
+}
@@ -12,6 +12,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -22,14 +23,15 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
 
 import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -68,8 +70,13 @@ public class GrsSourceImporterTest {
 
         when(grsDao.createObject(any(RpslObject.class))).thenReturn(updateResultCreate);
         when(grsDao.updateObject(any(GrsObjectInfo.class), any(RpslObject.class))).thenReturn(updateResultUpdate);
+        when(grsDao.getCurrentObjectChecksums()).thenReturn(new GrsObjectChecksums());
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(grsDao).executeInTransaction(any(Runnable.class));
 
-        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext);
+        subject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 0, 1000, 16);
     }
 
     @Test
@@ -78,7 +85,7 @@ public class GrsSourceImporterTest {
         subject.grsImport(grsSource, true);
 
         verify(grsDao).cleanDatabase();
-        verify(grsDao, never()).getCurrentObjectIds();
+        verify(grsDao, never()).getCurrentObjectChecksums();
     }
 
     @Test
@@ -88,7 +95,7 @@ public class GrsSourceImporterTest {
         subject.grsImport(grsSource, true);
 
         verify(grsDao, never()).cleanDatabase();
-        verify(grsDao, never()).getCurrentObjectIds();
+        verify(grsDao, never()).getCurrentObjectChecksums();
     }
 
     @Test
@@ -97,7 +104,7 @@ public class GrsSourceImporterTest {
         subject.grsImport(grsSource, false);
 
         verify(grsDao, never()).cleanDatabase();
-        verify(grsDao).getCurrentObjectIds();
+        verify(grsDao).getCurrentObjectChecksums();
     }
 
     @Test
@@ -107,7 +114,7 @@ public class GrsSourceImporterTest {
         subject.grsImport(grsSource, false);
 
         verify(grsDao, never()).cleanDatabase();
-        verify(grsDao, never()).getCurrentObjectIds();
+        verify(grsDao, never()).getCurrentObjectChecksums();
     }
 
     @Test
@@ -135,11 +142,13 @@ public class GrsSourceImporterTest {
     @Test
     public void process_nothing_does_not_delete() {
         when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
-        when(grsDao.getCurrentObjectIds()).thenReturn(Lists.newArrayList(1));
+        final GrsObjectChecksums currentObjects = new GrsObjectChecksums();
+        currentObjects.add(1, ObjectType.MNTNER, "TEST-MNT", 0);
+        when(grsDao.getCurrentObjectChecksums()).thenReturn(currentObjects);
 
         subject.grsImport(grsSource, false);
 
-        verify(grsDao, never()).deleteObject(anyInt());
+        verify(grsDao, never()).deleteObject(any(GrsObjectInfo.class));
     }
 
     @Test
@@ -192,6 +201,34 @@ public class GrsSourceImporterTest {
         verify(sanitizer).sanitize(any(RpslObject.class), any(ObjectMessages.class));
     }
 
+    @Test
+    public void handle_objects_concurrently() throws IOException {
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        doAnswer(invocation -> {
+            final ObjectHandler objectHandler = invocation.getArgument(1);
+            for (int i = 0; i < 10; i++) {
+                objectHandler.handle(Lists.newArrayList("mntner: TEST" + i + "-MNT\n", "source: RIPE\n"));
+            }
+            return null;
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        final GrsSourceImporter concurrentSubject = new GrsSourceImporter(folder.getRoot().getAbsolutePath(), sanitizer, resourceTagger, sourceContext, 4, 3, 2);
+        try {
+            concurrentSubject.grsImport(grsSource, false);
+        } finally {
+            concurrentSubject.shutdownPipelineThreads();
+        }
+
+        final InOrder inOrder = inOrder(grsDao);
+        for (int i = 0; i < 10; i++) {
+            inOrder.verify(grsDao).createObject(RpslObject.parse("" +
+                    "mntner:         TEST" + i + "-MNT\n" +
+                    "source:         APNIC-GRS"));
+        }
+    }
+
     @Test
     public void handle_object_create_syntax_errors() throws IOException {
         when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
@@ -301,9 +338,9 @@ public class GrsSourceImporterTest {
             }
         }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
 
-        final GrsObjectInfo grsObjectInfo1 = new GrsObjectInfo(1, 1, RpslObject.parse("role: Ninja Role\nnic-hdl: NI124-RIPE\n"));
-        when(grsDao.find("NI124-RIPE", ObjectType.PERSON)).thenReturn(null);
-        when(grsDao.find("NI124-RIPE", ObjectType.ROLE)).thenReturn(grsObjectInfo1);
+        final GrsObjectChecksums currentObjects = new GrsObjectChecksums();
+        currentObjects.add(1, ObjectType.ROLE, "NI124-RIPE", GrsObjectChecksums.checksum(RpslObject.parse("role: Ninja Role\nnic-hdl: NI124-RIPE\n")));
+        when(grsDao.getCurrentObjectChecksums()).thenReturn(currentObjects);
 
         subject.grsImport(grsSource, false);
 
@@ -311,10 +348,71 @@ public class GrsSourceImporterTest {
         verify(grsDao, times(0)).updateObject(any(GrsObjectInfo.class), any(RpslObject.class));
     }
 
+    @Test
+    public void apply_changes_one_by_one_if_batch_fails() throws IOException {
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        doAnswer(invocation -> {
+            final ObjectHandler objectHandler = invocation.getArgument(1);
+            for (int i = 0; i < 3; i++) {
+                objectHandler.handle(RpslObject.parse("mntner: TEST" + i + "-MNT\n"));
+            }
+            return null;
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        final RpslObject failingObject = RpslObject.parse("mntner:         TEST1-MNT\nsource:         APNIC-GRS");
+        doAnswer(invocation -> {
+            if (failingObject.equals(invocation.getArgument(0))) {
+                throw new IllegalStateException("create failed");
+            }
+            return updateResultCreate;
+        }).when(grsDao).createObject(any(RpslObject.class));
+
+        subject.grsImport(grsSource, false);
+
+        // once in the failed batch, and once on its own
+        verify(grsDao, times(2)).createObject(RpslObject.parse("mntner:         TEST0-MNT\nsource:         APNIC-GRS"));
+        verify(grsDao, times(2)).createObject(failingObject);
+        verify(grsDao, times(2)).createObject(RpslObject.parse("mntner:         TEST2-MNT\nsource:         APNIC-GRS"));
+        verify(grsDao, times(4)).executeInTransaction(any(Runnable.class));
+    }
+
+    @Test
+    public void failed_update_does_not_delete() throws IOException {
+        when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
+        when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
+
+        doAnswer(invocation -> {
+            final ObjectHandler objectHandler = invocation.getArgument(1);
+            objectHandler.handle(RpslObject.parse("mntner: FAIL-MNT\nmnt-by: CREATE-MNT\n"));
+            objectHandler.handle(RpslObject.parse("mntner: CREATE-MNT\n"));
+            return null;
+        }).when(grsSource).handleObjects(any(File.class), any(ObjectHandler.class));
+
+        final GrsObjectInfo grsObjectInfo1 = new GrsObjectInfo(1, 1, RpslObject.parse("mntner: FAIL-MNT"));
+        final GrsObjectInfo grsObjectInfo2 = new GrsObjectInfo(2, 1, RpslObject.parse("mntner: DELETE-MNT"));
+
+        final GrsObjectChecksums currentObjects = new GrsObjectChecksums();
+        currentObjects.add(1, ObjectType.MNTNER, "FAIL-MNT", GrsObjectChecksums.checksum(grsObjectInfo1.getRpslObject()));
+        currentObjects.add(2, ObjectType.MNTNER, "DELETE-MNT", GrsObjectChecksums.checksum(grsObjectInfo2.getRpslObject()));
+        when(grsDao.getCurrentObjectChecksums()).thenReturn(currentObjects);
+
+        when(grsDao.get(Collections.singletonList(1))).thenReturn(Collections.singletonList(grsObjectInfo1));
+        when(grsDao.get(Collections.singletonList(2))).thenReturn(Collections.singletonList(grsObjectInfo2));
+        doThrow(new IllegalStateException("update failed")).when(grsDao).updateObject(any(GrsObjectInfo.class), any(RpslObject.class));
+
+        subject.grsImport(grsSource, false);
+
+        // once in the failed batch, and once on its own
+        verify(grsDao, times(2)).updateObject(eq(grsObjectInfo1), any(RpslObject.class));
+        verify(grsDao).deleteObject(grsObjectInfo2);
+        verify(grsDao, never()).deleteObject(grsObjectInfo1);
+    }
+
     @Test
     public void run_create_update_delete() throws IOException {
         when(grsSource.getName()).thenReturn(ciString("APNIC-GRS"));
-        when(grsDao.getCurrentObjectIds()).thenReturn(Lists.newArrayList(1, 2, 3));
         when(authoritativeResource.isMaintainedInRirSpace(any(RpslObject.class))).thenReturn(true);
 
         doAnswer(new Answer() {
@@ -340,10 +438,19 @@ public class GrsSourceImporterTest {
         when(updateResultUpdate.hasMissingReferences()).thenReturn(true);
 
         final GrsObjectInfo grsObjectInfo1 = new GrsObjectInfo(1, 1, RpslObject.parse("mntner: MODIFY-MNT"));
-        when(grsDao.find("MODIFY-MNT", ObjectType.MNTNER)).thenReturn(grsObjectInfo1);
-
         final GrsObjectInfo grsObjectInfo2 = new GrsObjectInfo(2, 2, RpslObject.parse("mntner:         NOOP-MNT\nsource:         APNIC-GRS"));
-        when(grsDao.find("NOOP-MNT", ObjectType.MNTNER)).thenReturn(grsObjectInfo2);
+        final GrsObjectInfo grsObjectInfo3 = new GrsObjectInfo(3, 1, RpslObject.parse("mntner: DELETE-MNT"));
+        final GrsObjectInfo grsObjectInfoCreated = new GrsObjectInfo(0, 1, RpslObject.parse("mntner: CREATE-MNT"));
+
+        final GrsObjectChecksums currentObjects = new GrsObjectChecksums();
+        currentObjects.add(1, ObjectType.MNTNER, "MODIFY-MNT", GrsObjectChecksums.checksum(grsObjectInfo1.getRpslObject()));
+        currentObjects.add(2, ObjectType.MNTNER, "NOOP-MNT", GrsObjectChecksums.checksum(grsObjectInfo2.getRpslObject()));
+        currentObjects.add(3, ObjectType.MNTNER, "DELETE-MNT", GrsObjectChecksums.checksum(grsObjectInfo3.getRpslObject()));
+        when(grsDao.getCurrentObjectChecksums()).thenReturn(currentObjects);
+
+        when(grsDao.get(Collections.singletonList(1))).thenReturn(Collections.singletonList(grsObjectInfo1));
+        when(grsDao.get(Collections.singletonList(3))).thenReturn(Collections.singletonList(grsObjectInfo3));
+        when(grsDao.get(Lists.newArrayList(0))).thenReturn(Collections.singletonList(grsObjectInfoCreated));
 
         subject.grsImport(grsSource, false);
 
@@ -357,9 +464,10 @@ public class GrsSourceImporterTest {
                 "mnt-by:         CREATE-MNT\n" +
                 "source:         APNIC-GRS"));
 
-        verify(grsDao).updateIndexes(0);
+        verify(grsDao).updateIndexes(grsObjectInfoCreated);
         verify(grsDao, times(1)).updateObject(any(GrsObjectInfo.class), any(RpslObject.class));
 
-        verify(grsDao).deleteObject(3);
+        verify(grsDao).deleteObject(grsObjectInfo3);
+        verify(grsDao, never()).deleteObject(grsObjectInfo2);
     }
 }
@@ -1,6 +1,8 @@
 package net.ripe.db.whois.scheduler.task.grs;
 
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.TagsDao;
+import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.grs.AuthoritativeResource;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceConfiguration;
@@ -16,12 +18,15 @@ import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.sql.ResultSet;
+import java.util.Collections;
 import java.util.List;
 
 import static net.ripe.db.whois.common.domain.CIString.ciString;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,16 +55,27 @@ public class ResourceTaggerTest {
 
     @Test
     public void tagObjects() {
+        when(tagsDao.getTagsOfType(ciString("RIPE-ASN-ONLY-RESOURCE"))).thenReturn(Lists.newArrayList(new Tag(ciString("RIPE-ASN-ONLY-RESOURCE"), 1)));
+
         subject.tagObjects(grsSource);
 
         verify(sourceContext).setCurrent(any(Source.class));
         verify(sourceContext).removeCurrentSource();
-        verify(tagsDao).updateTags(any(Iterable.class), any(List.class), any(List.class));
+        verify(tagsDao).updateTags(any(Iterable.class), eq(Lists.newArrayList(1)), eq(Collections.emptyList()));
+        verify(tagsDao).deleteOrphanedTags();
+    }
+
+    @Test
+    public void tagObjects_without_changes() {
+        subject.tagObjects(grsSource);
+
+        verify(tagsDao, never()).updateTags(any(Iterable.class), any(List.class), any(List.class));
         verify(tagsDao).deleteOrphanedTags();
     }
 
     @Test
     public void tagObjects_cleans_up() {
+        when(tagsDao.getTagsOfType(ciString("RIPE-ASN-ONLY-RESOURCE"))).thenReturn(Lists.newArrayList(new Tag(ciString("RIPE-ASN-ONLY-RESOURCE"), 1)));
         doThrow(UncategorizedSQLException.class).when(tagsDao).updateTags(any(Iterable.class), any(List.class), any(List.class));
 
         try {
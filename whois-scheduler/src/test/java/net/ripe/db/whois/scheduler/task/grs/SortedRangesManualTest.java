@@ -0,0 +1,125 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.commons.ip.AbstractRange;
+import net.ripe.commons.ip.Asn;
+import net.ripe.commons.ip.AsnRange;
+import net.ripe.commons.ip.Ipv4;
+import net.ripe.commons.ip.Ipv4Range;
+import net.ripe.commons.ip.Ipv6;
+import net.ripe.commons.ip.Ipv6Range;
+import net.ripe.commons.ip.Rangeable;
+import net.ripe.commons.ip.SortedRangeSet;
+import net.ripe.db.whois.common.ManualTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Match a generated population of route prefixes and origins against authoritative resources the size of the RIPE
+ * delegated stats (inetnum, inet6num and aut-num ranges), measuring match time with a lookup for every item and with
+ * a single merge of the sorted items and ranges.
+ */
+@Category(ManualTest.class)
+public class SortedRangesManualTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SortedRangesManualTest.class);
+
+    private static final int INETNUM_RANGES = 10_000;
+    private static final int INET6NUM_RANGES = 20_000;
+    private static final int AUTNUM_RANGES = 40_000;
+    private static final int ROUTES = 1_000_000;
+    private static final int ROUTE6S = 200_000;
+
+    private final Random random = new Random(1);
+
+    @Test
+    public void inetnum() {
+        final SortedRangeSet<Ipv4, Ipv4Range> ranges = new SortedRangeSet<>();
+        for (int i = 0; i < INETNUM_RANGES; i++) {
+            final int prefixLength = 16 + random.nextInt(9);
+            ranges.add(Ipv4Range.from(randomIpv4(prefixLength)).andPrefixLength(prefixLength));
+        }
+
+        final List<Ipv4Range> routes = Lists.newArrayListWithCapacity(ROUTES);
+        for (int i = 0; i < ROUTES; i++) {
+            routes.add(Ipv4Range.from(randomIpv4(24)).andPrefixLength(24));
+        }
+
+        compare("inetnum", routes, ranges);
+    }
+
+    @Test
+    public void inet6num() {
+        final SortedRangeSet<Ipv6, Ipv6Range> ranges = new SortedRangeSet<>();
+        for (int i = 0; i < INET6NUM_RANGES; i++) {
+            final int prefixLength = 29 + random.nextInt(4);
+            ranges.add(Ipv6Range.from(randomIpv6(prefixLength)).andPrefixLength(prefixLength));
+        }
+
+        final List<Ipv6Range> routes = Lists.newArrayListWithCapacity(ROUTE6S);
+        for (int i = 0; i < ROUTE6S; i++) {
+            routes.add(Ipv6Range.from(randomIpv6(48)).andPrefixLength(48));
+        }
+
+        compare("inet6num", routes, ranges);
+    }
+
+    @Test
+    public void autnum() {
+        final SortedRangeSet<Asn, AsnRange> ranges = new SortedRangeSet<>();
+        for (int i = 0; i < AUTNUM_RANGES; i++) {
+            final long start = random.nextInt(400_000);
+            ranges.add(AsnRange.from(start).to(start + random.nextInt(4)));
+        }
+
+        final List<AsnRange> origins = Lists.newArrayListWithCapacity(ROUTES);
+        for (int i = 0; i < ROUTES; i++) {
+            origins.add(Asn.of((long) random.nextInt(400_000)).asRange());
+        }
+
+        compare("aut-num", origins, ranges);
+    }
+
+    // a random address, with the bits after the prefix length cleared
+    private long randomIpv4(final int prefixLength) {
+        return (random.nextInt() & 0xffffffffL) >> (32 - prefixLength) << (32 - prefixLength);
+    }
+
+    // a random address in 2000::/3, with the bits after the prefix length cleared
+    private Ipv6 randomIpv6(final int prefixLength) {
+        final BigInteger address = new BigInteger(125, random).setBit(125);
+        return Ipv6.of(address.shiftRight(128 - prefixLength).shiftLeft(128 - prefixLength));
+    }
+
+    private static <C extends Rangeable<C, R>, R extends AbstractRange<C, R>> void compare(final String name, final List<R> items, final SortedRangeSet<C, R> ranges) {
+        final Stopwatch lookupStopwatch = Stopwatch.createStarted();
+        int lookupContained = 0;
+        for (final R item : items) {
+            if (ranges.contains(item)) {
+                lookupContained++;
+            }
+        }
+        lookupStopwatch.stop();
+
+        final Stopwatch mergeStopwatch = Stopwatch.createStarted();
+        final AtomicInteger mergeContained = new AtomicInteger();
+        SortedRanges.forEachContained(items, Function.identity(), ranges.unmodifiableSet(), item -> mergeContained.incrementAndGet());
+        mergeStopwatch.stop();
+
+        LOGGER.info("Matched {} items against {} {} ranges ({} contained): lookup in {}, merge in {}",
+                items.size(), ranges.unmodifiableSet().size(), name, lookupContained, lookupStopwatch, mergeStopwatch);
+
+        assertThat(mergeContained.get(), is(lookupContained));
+    }
+}
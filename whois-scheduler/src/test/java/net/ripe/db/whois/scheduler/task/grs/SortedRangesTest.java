@@ -0,0 +1,98 @@
+package net.ripe.db.whois.scheduler.task.grs;
+
+import com.google.common.collect.Lists;
+import net.ripe.commons.ip.Asn;
+import net.ripe.commons.ip.AsnRange;
+import net.ripe.commons.ip.Ipv4;
+import net.ripe.commons.ip.Ipv4Range;
+import net.ripe.commons.ip.SortedRangeSet;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class SortedRangesTest {
+
+    @Test
+    public void contained_ranges() {
+        final SortedRangeSet<Ipv4, Ipv4Range> ranges = new SortedRangeSet<>();
+        ranges.add(Ipv4Range.parseCidr("10.0.0.0/8"));
+        ranges.add(Ipv4Range.from("193.0.0.0").to("193.0.7.255"));
+
+        final List<Ipv4Range> contained = Lists.newArrayList();
+        SortedRanges.forEachContained(
+                Lists.newArrayList(
+                        Ipv4Range.parseCidr("193.0.0.0/24"),
+                        Ipv4Range.parseCidr("193.0.4.0/22"),
+                        Ipv4Range.parseCidr("193.0.4.0/21"),
+                        Ipv4Range.parseCidr("11.0.0.0/24"),
+                        Ipv4Range.parseCidr("10.0.0.0/8"),
+                        Ipv4Range.from("9.255.255.255").to("10.0.0.0"),
+                        Ipv4Range.parseCidr("10.1.2.0/24")),
+                Function.identity(), ranges, contained::add);
+
+        assertThat(contained, contains(
+                Ipv4Range.parseCidr("10.0.0.0/8"),
+                Ipv4Range.parseCidr("10.1.2.0/24"),
+                Ipv4Range.parseCidr("193.0.0.0/24"),
+                Ipv4Range.parseCidr("193.0.4.0/22")));
+    }
+
+    @Test
+    public void no_ranges() {
+        final List<AsnRange> contained = Lists.newArrayList();
+        SortedRanges.forEachContained(Lists.newArrayList(AsnRange.from("AS1").to("AS10")), Function.identity(), Collections.emptySet(), contained::add);
+
+        assertThat(contained, is(empty()));
+    }
+
+    @Test
+    public void items_without_range_are_skipped() {
+        final SortedRangeSet<Asn, AsnRange> ranges = new SortedRangeSet<>();
+        ranges.add(AsnRange.from("AS1").to("AS10"));
+
+        final List<String> contained = Lists.newArrayList();
+        SortedRanges.forEachContained(Lists.newArrayList("AS3", "not an asn", "AS11"),
+                item -> item.startsWith("AS") ? AsnRange.from(item).to(item) : null,
+                ranges, contained::add);
+
+        assertThat(contained, containsInAnyOrder("AS3"));
+    }
+
+    @Test
+    public void same_as_lookup() {
+        final Random random = new Random(1);
+
+        final SortedRangeSet<Asn, AsnRange> ranges = new SortedRangeSet<>();
+        for (int i = 0; i < 1000; i++) {
+            final long start = random.nextInt(100_000);
+            ranges.add(AsnRange.from(start).to(start + random.nextInt(50)));
+        }
+
+        final List<AsnRange> items = Lists.newArrayList();
+        for (int i = 0; i < 10_000; i++) {
+            final long start = random.nextInt(100_000);
+            items.add(AsnRange.from(start).to(start + random.nextInt(3)));
+        }
+
+        final List<AsnRange> contained = Lists.newArrayList();
+        SortedRanges.forEachContained(items, Function.identity(), ranges, contained::add);
+
+        final List<AsnRange> expected = Lists.newArrayList();
+        for (final AsnRange item : items) {
+            if (ranges.contains(item)) {
+                expected.add(item);
+            }
+        }
+
+        assertThat(contained, containsInAnyOrder(expected.toArray()));
+    }
+}
@@ -1,5 +1,7 @@
 package net.ripe.db.whois.scheduler.task.loader;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.api.fulltextsearch.FullTextIndex;
 import net.ripe.db.whois.api.fulltextsearch.FullTextSearch;
 import net.ripe.db.whois.api.fulltextsearch.SearchRequest;
@@ -10,6 +12,7 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.support.database.diff.Database;
 import net.ripe.db.whois.common.support.database.diff.DatabaseDiff;
 import net.ripe.db.whois.scheduler.AbstractSchedulerIntegrationTest;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -18,6 +21,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
@@ -43,6 +49,12 @@ public class BootstrapFromFileTestIntegration extends AbstractSchedulerIntegrati
     @Autowired
     private RpslObjectUpdateDao rpslObjectUpdateDao;
 
+    @Autowired
+    private LoaderBulk loaderBulk;
+
+    @Autowired
+    private LoaderSafe loaderSafe;
+
     @BeforeClass
     public static void setProperty() {
         // We only enable fulltext indexing here, so it doesn't slow down the rest of the test suite
@@ -88,6 +100,79 @@ public class BootstrapFromFileTestIntegration extends AbstractSchedulerIntegrati
         assertThat(removed.getAll(), hasSize(0));
     }
 
+    @After
+    public void disableBulk() {
+        bootstrap.setBulkEnabled(false);
+    }
+
+    @Test
+    public void split_file_load_bulk() throws Exception {
+        final Database before = new Database(whoisTemplate);
+
+        bootstrap.setBulkEnabled(true);
+        bootstrap.setDumpFileLocation(applicationContext.getResource("TEST.db").getURI().getPath());
+        final String result = bootstrap.bootstrap();
+
+        assertThat(result, containsString("FINISHED\n220 succeeded\n0 failed in pass 1\n0 failed in pass 2\n"));
+        assertThat(result.toLowerCase(), not(containsString("error")));
+
+        final DatabaseDiff diff = Database.diff(before, new Database(whoisTemplate));
+
+        final Database added = diff.getAdded();
+        assertThat(added.getTable("serials"), hasSize(440));
+        assertThat(added.getTable("last"), hasSize(220));
+        assertThat(added.getTable("history"), hasSize(220));
+        assertThat(added.getTable("organisation_id"), hasSize(4));
+        assertThat(added.getTable("nic_hdl").size(), greaterThan(5));
+
+        final Database removed = diff.getRemoved();
+        assertThat(removed.getAll(), hasSize(0));
+    }
+
+    @Test
+    public void split_file_load_bulk_same_as_load_in_order() throws Exception {
+        final String dumpFile = applicationContext.getResource("TEST.db").getURI().getPath();
+
+        loaderBulk.resetDatabase();
+        assertThat(loaderSafe.loadSplitFiles(dumpFile), containsString("FINISHED\n220 succeeded\n0 failed in pass 1\n0 failed in pass 2\n"));
+        final Map<String, List<String>> loadedInOrder = getTableContents();
+
+        loaderBulk.resetDatabase();
+        assertThat(loaderBulk.loadSplitFiles(dumpFile), containsString("FINISHED\n220 succeeded\n0 failed in pass 1\n0 failed in pass 2\n"));
+
+        assertThat(getTableContents(), is(loadedInOrder));
+    }
+
+    @Test
+    public void split_files_with_errors_load_bulk() throws IOException {
+        loaderBulk.resetDatabase();
+
+        final String result = loaderBulk.loadSplitFiles(
+                applicationContext.getResource("TEST_BOOTSTRAP_LOAD_DUMP.db").getURI().getPath(),
+                applicationContext.getResource("TEST_ADDITIONAL_LOAD_DUMP_WITH_ERROR.db").getURI().getPath());
+
+        assertThat(result, containsString("FINISHED\n5 succeeded\n1 failed in pass 1\n1 failed in pass 2\n"));
+        assertThat(result, containsString("Error in pass 1 in '[person] AA2-TEST   " +
+                "Incorrect Person': net.ripe.db.whois.update.autokey.ClaimException"));
+
+        final Database load = new Database(whoisTemplate);
+        assertThat(load.getTable("serials"), hasSize(10));
+        assertThat(load.getTable("last"), hasSize(5));
+        assertThat(load.getTable("history"), hasSize(5));
+        assertThat(load.getTable("mntner"), hasSize(2));
+        assertThat(load.getTable("nic_hdl"), hasSize(2));
+        assertThat(load.getTable("person_role"), hasSize(3));
+    }
+
+    @Test
+    public void split_file_load_bulk_needs_empty_database() throws IOException {
+        bootstrapInitialObjects();
+
+        final String result = loaderBulk.loadSplitFiles(applicationContext.getResource("TEST_ADDITIONAL_LOAD_DUMP.db").getURI().getPath());
+
+        assertThat(result, containsString("Bulk loading needs an empty database, found 3 objects"));
+    }
+
     @Test
     public void split_file_added_safe() throws IOException {
         bootstrapInitialObjects();
@@ -209,6 +294,26 @@ public class BootstrapFromFileTestIntegration extends AbstractSchedulerIntegrati
         assertThat(diff.getAdded().getAll(), hasSize(0));
     }
 
+    // all rows of all tables (without timestamps), as loading at a different time is not a difference
+    private Map<String, List<String>> getTableContents() {
+        final Map<String, List<String>> tableContents = Maps.newTreeMap();
+        for (final String table : new Database(whoisTemplate).getTableNames()) {
+            final List<String> rows = Lists.newArrayList();
+            whoisTemplate.query(String.format("SELECT * FROM %s", table), rs -> {
+                final StringBuilder row = new StringBuilder();
+                for (int column = 1; column <= rs.getMetaData().getColumnCount(); column++) {
+                    if (!rs.getMetaData().getColumnName(column).equalsIgnoreCase("timestamp")) {
+                        row.append(rs.getString(column)).append('|');
+                    }
+                }
+                rows.add(row.toString());
+            });
+            Collections.sort(rows);
+            tableContents.put(table, rows);
+        }
+        return tableContents;
+    }
+
     public void bootstrapInitialObjects() throws IOException {
 
         bootstrap.setDumpFileLocation(applicationContext.getResource("TEST_BOOTSTRAP_LOAD_DUMP.db").getURI().getPath());
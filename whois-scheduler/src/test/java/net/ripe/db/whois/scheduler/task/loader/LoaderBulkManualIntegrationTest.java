@@ -0,0 +1,113 @@
+package net.ripe.db.whois.scheduler.task.loader;
+
+import com.google.common.base.Stopwatch;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.scheduler.AbstractSchedulerIntegrationTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+
+/**
+ * Load a generated split file of persons, mntners and inetnums into the test database, measuring load time with the
+ * risky (object by object) and the bulk loader. Increase OBJECTS towards the size of the RIPE database (some 4.5
+ * million objects) for a representative comparison.
+ */
+@Category(ManualTest.class)
+public class LoaderBulkManualIntegrationTest extends AbstractSchedulerIntegrationTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoaderBulkManualIntegrationTest.class);
+
+    private static final int OBJECTS = 300_000;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired private LoaderRisky loaderRisky;
+    @Autowired private LoaderBulk loaderBulk;
+
+    @Test
+    public void load_risky() throws Exception {
+        load(loaderRisky);
+    }
+
+    @Test
+    public void load_bulk() throws Exception {
+        load(loaderBulk);
+    }
+
+    private void load(final Loader loader) throws IOException {
+        final File dump = createDump();
+        loader.resetDatabase();
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final String result = loader.loadSplitFiles(dump.getAbsolutePath());
+        LOGGER.info("Loaded {} objects with {} in {}", OBJECTS + 1, loader.getClass().getSimpleName(), stopwatch);
+
+        assertThat(result, containsString(String.format("FINISHED\n%d succeeded\n0 failed in pass 1\n0 failed in pass 2\n", OBJECTS + 1)));
+    }
+
+    private File createDump() throws IOException {
+        final File dump = folder.newFile("split.db");
+        try (Writer writer = Files.newBufferedWriter(dump.toPath(), StandardCharsets.ISO_8859_1)) {
+            writer.write("" +
+                    "mntner:  TEST-MNT\n" +
+                    "descr:   Maintainer\n" +
+                    "admin-c: TP3-TEST\n" +
+                    "upd-to:  noreply@example.net\n" +
+                    "auth:    MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7.\n" +
+                    "mnt-by:  TEST-MNT\n" +
+                    "source:  TEST\n\n");
+
+            for (int objectId = 3; objectId < OBJECTS + 3; objectId++) {
+                writer.write(createObject(objectId));
+                writer.write('\n');
+            }
+        }
+        return dump;
+    }
+
+    private static String createObject(final int objectId) {
+        switch (objectId % 3) {
+            case 0:
+                return "" +
+                        "person:  Test Person" + objectId + "\n" +
+                        "address: Singel 258\n" +
+                        "phone:   +31 6 12345678\n" +
+                        "e-mail:  person" + objectId + "@example.net\n" +
+                        "nic-hdl: TP" + objectId + "-TEST\n" +
+                        "mnt-by:  TEST-MNT\n" +
+                        "source:  TEST\n";
+            case 1:
+                return "" +
+                        "mntner:  TEST" + objectId + "-MNT\n" +
+                        "descr:   Maintainer " + objectId + "\n" +
+                        "admin-c: TP" + (objectId - 1) + "-TEST\n" +
+                        "upd-to:  noreply@example.net\n" +
+                        "auth:    MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7.\n" +
+                        "mnt-by:  TEST" + objectId + "-MNT\n" +
+                        "source:  TEST\n";
+            default:
+                return "" +
+                        "inetnum: 10." + (objectId >> 16) + "." + ((objectId >> 8) & 0xff) + "." + (objectId & 0xff) + " - 10." + (objectId >> 16) + "." + ((objectId >> 8) & 0xff) + "." + (objectId & 0xff) + "\n" +
+                        "netname: NET-" + objectId + "\n" +
+                        "descr:   Network " + objectId + "\n" +
+                        "country: NL\n" +
+                        "admin-c: TP" + (objectId - 2) + "-TEST\n" +
+                        "tech-c:  TP" + (objectId - 2) + "-TEST\n" +
+                        "status:  ASSIGNED PA\n" +
+                        "mnt-by:  TEST-MNT\n" +
+                        "source:  TEST\n";
+        }
+    }
+}
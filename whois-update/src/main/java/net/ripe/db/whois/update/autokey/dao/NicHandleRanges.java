@@ -0,0 +1,149 @@
+package net.ripe.db.whois.update.autokey.dao;
+
+import com.google.common.collect.Lists;
+
+import javax.annotation.CheckForNull;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory copy of the claimed nic_hdl ranges for a single space and suffix, ordered by range start.
+ *
+ * A claim is computed in memory and returned as the changes to apply to nic_hdl. The saved range only ever grows,
+ * and deleted ranges are always merged into it, so applying the changes never releases a claimed index.
+ */
+final class NicHandleRanges {
+    private final NavigableMap<Integer, ClaimedRange> ranges = new TreeMap<>();
+
+    static final class ClaimedRange {
+        private Integer rangeId;
+        private final int start;
+        private int end;
+        private int persistedEnd;
+
+        private ClaimedRange(@CheckForNull final Integer rangeId, final int start, final int end) {
+            this.rangeId = rangeId;
+            this.start = start;
+            this.end = end;
+            this.persistedEnd = end;
+        }
+
+        @CheckForNull
+        Integer getRangeId() {
+            return rangeId;
+        }
+
+        int getStart() {
+            return start;
+        }
+
+        int getEnd() {
+            return end;
+        }
+
+        int getPersistedEnd() {
+            return persistedEnd;
+        }
+
+        void persisted(final int rangeId) {
+            this.rangeId = rangeId;
+            this.persistedEnd = end;
+        }
+    }
+
+    static final class Claim {
+        private final int index;
+        private final ClaimedRange saved;
+        private final List<ClaimedRange> deleted;
+
+        private Claim(final int index, final ClaimedRange saved, final List<ClaimedRange> deleted) {
+            this.index = index;
+            this.saved = saved;
+            this.deleted = deleted;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        ClaimedRange getSaved() {
+            return saved;
+        }
+
+        List<ClaimedRange> getDeleted() {
+            return deleted;
+        }
+    }
+
+    void add(final int rangeId, final int start, final int end) {
+        ranges.put(start, new ClaimedRange(rangeId, start, end));
+    }
+
+    int size() {
+        return ranges.size();
+    }
+
+    boolean isAvailable(final int index) {
+        final Map.Entry<Integer, ClaimedRange> floor = ranges.floorEntry(index);
+        return floor == null || floor.getValue().end < index;
+    }
+
+    /**
+     * Claim the lowest available index (starting from 1).
+     */
+    Claim claimNextAvailableIndex() {
+        if (ranges.isEmpty() || ranges.firstKey() > 1) {
+            return claim(1);
+        }
+
+        final ClaimedRange first = ranges.firstEntry().getValue();
+        final List<ClaimedRange> merged = mergeFollowing(first);
+
+        final Claim claim = claim(first.end + 1);
+        claim.deleted.addAll(0, merged);
+        return claim;
+    }
+
+    /**
+     * Claim the specified index, or return null if it is already claimed.
+     */
+    @CheckForNull
+    Claim claim(final int index) {
+        if (!isAvailable(index)) {
+            return null;
+        }
+
+        final ClaimedRange saved;
+        final Map.Entry<Integer, ClaimedRange> floor = ranges.floorEntry(index);
+        if (floor != null && floor.getValue().end == index - 1) {
+            saved = floor.getValue();
+            saved.end = index;
+        } else {
+            saved = new ClaimedRange(null, index, index);
+            ranges.put(index, saved);
+        }
+
+        return new Claim(index, saved, mergeFollowing(saved));
+    }
+
+    private List<ClaimedRange> mergeFollowing(final ClaimedRange range) {
+        final List<ClaimedRange> merged = Lists.newArrayList();
+
+        final Iterator<ClaimedRange> iterator = ranges.tailMap(range.start, false).values().iterator();
+        while (iterator.hasNext()) {
+            final ClaimedRange next = iterator.next();
+            if (next.start > range.end + 1) {
+                break;
+            }
+
+            range.end = Math.max(range.end, next.end);
+            iterator.remove();
+            merged.add(next);
+        }
+
+        return merged;
+    }
+}
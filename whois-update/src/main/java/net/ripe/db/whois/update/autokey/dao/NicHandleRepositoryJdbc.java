@@ -1,15 +1,21 @@
 package net.ripe.db.whois.update.autokey.dao;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Range;
 import net.ripe.db.whois.update.domain.NicHandle;
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
 import java.sql.ResultSet;
@@ -18,12 +24,19 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Repository
 @Transactional(propagation = Propagation.MANDATORY)
 class NicHandleRepositoryJdbc implements NicHandleRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NicHandleRepositoryJdbc.class);
+
     private final JdbcTemplate jdbcTemplate;
 
+    // claimed ranges per space and suffix, seeded from nic_hdl on first use and evicted when out of sync with the database
+    private final ConcurrentMap<String, NicHandleRanges> rangesCache = new ConcurrentHashMap<>();
+
     private static final class NicHandleRange {
         static enum Action {NONE, SAVE, DELETE}
 
@@ -57,18 +70,123 @@ class NicHandleRepositoryJdbc implements NicHandleRepository {
 
     @Override
     public boolean claimSpecified(final NicHandle nicHandle) {
+        final String key = getCacheKey(nicHandle.getSpace(), nicHandle.getSuffix());
+        final NicHandleRanges cachedRanges = getCachedRanges(key, nicHandle.getSpace(), nicHandle.getSuffix());
+        synchronized (cachedRanges) {
+            final NicHandleRanges.Claim claim = cachedRanges.claim(nicHandle.getIndex());
+            if (claim != null && applyClaim(key, nicHandle.getSpace(), nicHandle.getSuffix(), claim)) {
+                return true;
+            }
+        }
+
+        return claimSpecifiedInDatabase(nicHandle);
+    }
+
+    @Override
+    public NicHandle claimNextAvailableIndex(final String space, final String suffix) {
+        final String key = getCacheKey(space, suffix);
+        final NicHandleRanges cachedRanges = getCachedRanges(key, space, suffix);
+        synchronized (cachedRanges) {
+            final NicHandleRanges.Claim claim = cachedRanges.claimNextAvailableIndex();
+            if (applyClaim(key, space, suffix, claim)) {
+                return new NicHandle(space, claim.getIndex(), suffix);
+            }
+        }
+
+        return claimNextAvailableIndexInDatabase(space, suffix);
+    }
+
+    private NicHandleRanges getCachedRanges(final String key, final String space, final String suffix) {
+        return rangesCache.computeIfAbsent(key, k -> {
+            final NicHandleRanges nicHandleRanges = new NicHandleRanges();
+            for (final NicHandleRange nicHandleRange : getNicHandleRanges(space, suffix)) {
+                nicHandleRanges.add(nicHandleRange.rangeId, nicHandleRange.range.lowerEndpoint(), nicHandleRange.range.upperEndpoint());
+            }
+            return nicHandleRanges;
+        });
+    }
+
+    /**
+     * Write an in-memory claim to nic_hdl, in the current transaction. Every statement is guarded by the range
+     * boundaries known in memory, so changes made by others (e.g. on another node before a failover) are detected.
+     * Ranges are only extended before merged ranges are deleted, so an aborted claim never releases a claimed index.
+     *
+     * @return false if the in-memory ranges were stale (they are evicted), and the claim must be done in the database
+     */
+    private boolean applyClaim(final String key, final String space, final String suffix, final NicHandleRanges.Claim claim) {
+        if (!isAvailable(new NicHandle(space, claim.getIndex(), suffix))) {
+            LOGGER.info("Nic handle ranges for {} out of sync (index {} not available)", key, claim.getIndex());
+            evict(key);
+            return false;
+        }
+
+        evictOnRollback(key);
+
+        final NicHandleRanges.ClaimedRange saved = claim.getSaved();
+        if (saved.getRangeId() == null) {
+            saved.persisted(insertRange(space, suffix, saved.getStart(), saved.getEnd()));
+        } else {
+            if (jdbcTemplate.update("" +
+                    "update nic_hdl set range_end = ? " +
+                    "  where range_id = ? and range_start = ? and range_end = ?",
+                    saved.getEnd(), saved.getRangeId(), saved.getStart(), saved.getPersistedEnd()) != 1) {
+                LOGGER.info("Nic handle ranges for {} out of sync (range {} changed)", key, saved.getRangeId());
+                evict(key);
+                return false;
+            }
+            saved.persisted(saved.getRangeId());
+        }
+
+        for (final NicHandleRanges.ClaimedRange deleted : claim.getDeleted()) {
+            if (jdbcTemplate.update("" +
+                    "delete from nic_hdl " +
+                    "  where range_id = ? and range_start = ? and range_end = ?",
+                    deleted.getRangeId(), deleted.getStart(), deleted.getPersistedEnd()) != 1) {
+                // the claimed index is already persisted, just re-read the ranges on the next claim
+                LOGGER.info("Nic handle ranges for {} out of sync (range {} changed)", key, deleted.getRangeId());
+                evict(key);
+            }
+        }
+
+        return true;
+    }
+
+    private void evictOnRollback(final String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(final int status) {
+                    if (status != STATUS_COMMITTED) {
+                        evict(key);
+                    }
+                }
+            });
+        }
+    }
+
+    private void evict(final String key) {
+        rangesCache.remove(key);
+    }
+
+    private String getCacheKey(final String space, final String suffix) {
+        return space + getSuffixForSql(suffix);
+    }
+
+    private boolean claimSpecifiedInDatabase(final NicHandle nicHandle) {
         if (!isAvailable(nicHandle)) {
             return false;
         }
 
+        evict(getCacheKey(nicHandle.getSpace(), nicHandle.getSuffix()));
+
         final List<NicHandleRange> nicHandleRanges = getNicHandleRanges(nicHandle.getSpace(), nicHandle.getSuffix());
         nicHandleRanges.add(new NicHandleRange(Range.closed(nicHandle.getIndex(), nicHandle.getIndex())));
         saveCompact(nicHandleRanges, nicHandle.getSpace(), nicHandle.getSuffix());
         return true;
     }
 
-    @Override
-    public NicHandle claimNextAvailableIndex(final String space, final String suffix) {
+    private NicHandle claimNextAvailableIndexInDatabase(final String space, final String suffix) {
+        evict(getCacheKey(space, suffix));
         final List<NicHandleRange> nicHandleRanges = getNicHandleRanges(space, suffix);
         final int availableIndex = claimNextAvailableIndexInRanges(nicHandleRanges);
         saveCompact(nicHandleRanges, space, suffix);
@@ -164,12 +282,25 @@ class NicHandleRepositoryJdbc implements NicHandleRepository {
     }
 
     public void createRange(final String space, final String suffix, final int start, final int end) {
+        evict(getCacheKey(space, suffix));
         jdbcTemplate.update("" +
                 "insert into nic_hdl(range_start, range_end, space, source) " +
                 "  values(?, ?, ?, ?)",
                 start, end, space, getSuffixForSql(suffix));
     }
 
+    private int insertRange(final String space, final String suffix, final int start, final int end) {
+        return new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("nic_hdl")
+                .usingColumns("range_start", "range_end", "space", "source")
+                .usingGeneratedKeyColumns("range_id")
+                .executeAndReturnKey(ImmutableMap.of(
+                        "range_start", start,
+                        "range_end", end,
+                        "space", space,
+                        "source", getSuffixForSql(suffix))).intValue();
+    }
+
     private void updateRange(final int rangeId, final int start, final int end) {
         jdbcTemplate.update(
                 "update nic_hdl set range_start = ?, range_end = ? where range_id = ?",
@@ -0,0 +1,130 @@
+package net.ripe.db.whois.update.dao;
+
+import net.ripe.db.whois.update.mail.OutgoingMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outgoing mail queue, stored in the mailupdates database.
+ *
+ * Messages are claimed per recipient, so all queued messages for an address are delivered together by one sender.
+ * All times are in seconds since the epoch.
+ */
+@Repository
+public class OutgoingMessageDao {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    public OutgoingMessageDao(@Qualifier("mailupdatesDataSource") final DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public void enqueue(final List<OutgoingMessage> messages, final long now) {
+        jdbcTemplate.batchUpdate("" +
+                        "INSERT INTO outgoing_message (email, subject, reply_to, message, created, next_attempt) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                messages,
+                messages.size(),
+                (ps, message) -> {
+                    ps.setString(1, message.getTo());
+                    ps.setString(2, message.getSubject());
+                    ps.setString(3, message.getReplyTo());
+                    ps.setBytes(4, message.getText().getBytes(StandardCharsets.UTF_8));
+                    ps.setLong(5, now);
+                    ps.setLong(6, now);
+                });
+    }
+
+    /**
+     * Claim all due messages for up to limit recipients, whose oldest due message was queued at or before createdBefore.
+     */
+    public List<OutgoingMessage> claim(final String claimUuid, final long now, final long createdBefore, final int limit) {
+        final List<String> recipients = jdbcTemplate.queryForList("" +
+                        "SELECT email " +
+                        "FROM outgoing_message " +
+                        "WHERE claim_uuid IS NULL " +
+                        "AND next_attempt <= ? " +
+                        "GROUP BY email " +
+                        "HAVING MIN(created) <= ? " +
+                        "ORDER BY MIN(id) " +
+                        "LIMIT ?",
+                String.class,
+                now, createdBefore, limit);
+
+        if (recipients.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        namedParameterJdbcTemplate.update("" +
+                        "UPDATE outgoing_message " +
+                        "SET claim_uuid = :claimUuid, claimed = :now " +
+                        "WHERE claim_uuid IS NULL " +
+                        "AND next_attempt <= :now " +
+                        "AND email IN (:recipients)",
+                new MapSqlParameterSource()
+                        .addValue("claimUuid", claimUuid)
+                        .addValue("now", now)
+                        .addValue("recipients", recipients));
+
+        return jdbcTemplate.query("" +
+                        "SELECT id, email, subject, reply_to, message, attempts " +
+                        "FROM outgoing_message " +
+                        "WHERE claim_uuid = ? " +
+                        "ORDER BY id",
+                (rs, rowNum) -> new OutgoingMessage(
+                        rs.getInt("id"),
+                        rs.getString("email"),
+                        rs.getString("subject"),
+                        new String(rs.getBytes("message"), StandardCharsets.UTF_8),
+                        rs.getString("reply_to"),
+                        rs.getInt("attempts")),
+                claimUuid);
+    }
+
+    public void delete(final Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        namedParameterJdbcTemplate.update("DELETE FROM outgoing_message WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids));
+    }
+
+    /**
+     * Release the claim on a message and schedule the next delivery attempt.
+     */
+    public void retry(final int id, final long nextAttempt) {
+        jdbcTemplate.update("" +
+                        "UPDATE outgoing_message " +
+                        "SET claim_uuid = NULL, claimed = NULL, attempts = attempts + 1, next_attempt = ? " +
+                        "WHERE id = ?",
+                nextAttempt, id);
+    }
+
+    /**
+     * Release claims of senders that stopped before completing delivery.
+     */
+    public int releaseStaleClaims(final long claimedBefore) {
+        return jdbcTemplate.update("" +
+                        "UPDATE outgoing_message " +
+                        "SET claim_uuid = NULL, claimed = NULL " +
+                        "WHERE claim_uuid IS NOT NULL " +
+                        "AND claimed < ?",
+                claimedBefore);
+    }
+
+    public int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outgoing_message", Integer.class);
+    }
+}
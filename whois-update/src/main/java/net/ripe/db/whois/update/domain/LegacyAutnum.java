@@ -1,16 +1,17 @@
 package net.ripe.db.whois.update.domain;
 
+import com.google.common.collect.ImmutableSet;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.update.dao.LegacyAutnumDao;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.List;
+import java.util.Set;
 
 @Component
 public class LegacyAutnum {
-    private List<CIString> cachedLegacyAutnums;
+    private volatile Set<CIString> cachedLegacyAutnums;
     private final LegacyAutnumDao legacyAutnumDao;
 
     @Autowired
@@ -20,7 +21,14 @@ public class LegacyAutnum {
 
     @PostConstruct
     public synchronized void init() {
-        cachedLegacyAutnums = legacyAutnumDao.load();
+        cachedLegacyAutnums = ImmutableSet.copyOf(legacyAutnumDao.load());
+    }
+
+    /**
+     * @return the legacy autnums as loaded by the last {@link #init()}, which replaces (not changes) the returned set
+     */
+    public Set<CIString> getLegacyAutnums() {
+        return cachedLegacyAutnums;
     }
 
     public boolean contains(final CIString autnum) {
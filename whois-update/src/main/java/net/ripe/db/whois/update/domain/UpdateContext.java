@@ -35,6 +35,7 @@ public class UpdateContext {
     private final Map<Update, Context> contexts = Maps.newLinkedHashMap();
     private final Map<DnsCheckRequest, DnsCheckResponse> dnsCheckResponses = Maps.newHashMap();
     private final Map<String, String> ssoTranslation = Maps.newHashMap();
+    private final Map<Update, ValidatedObject> validatedObjects = Maps.newHashMap();
     private final LoggerContext loggerContext;
 
     private int nrSinceRestart;
@@ -103,6 +104,15 @@ public class UpdateContext {
         return dnsCheckResponses.get(dnsCheckRequest);
     }
 
+    public void addValidatedObject(final Update update, final ValidatedObject validatedObject) {
+        validatedObjects.put(update, validatedObject);
+    }
+
+    @CheckForNull
+    public ValidatedObject getValidatedObject(final Update update) {
+        return validatedObjects.get(update);
+    }
+
     public void addMessage(final UpdateContainer updateContainer, final Message message) {
         getOrCreateContext(updateContainer).objectMessages.addMessage(message);
         loggerContext.logMessage(updateContainer, message);
@@ -0,0 +1,29 @@
+package net.ripe.db.whois.update.domain;
+
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.apache.commons.lang.Validate;
+
+/**
+ * Submitted object after sanitizing and structure and syntax validation, with the resulting messages.
+ * The messages must not be modified, they are copied into the update context on each attempt.
+ */
+public class ValidatedObject {
+    private final RpslObject object;
+    private final ObjectMessages messages;
+
+    public ValidatedObject(final RpslObject object, final ObjectMessages messages) {
+        Validate.notNull(object, "Object cannot be null");
+        Validate.notNull(messages, "Messages cannot be null");
+        this.object = object;
+        this.messages = messages;
+    }
+
+    public RpslObject getObject() {
+        return object;
+    }
+
+    public ObjectMessages getMessages() {
+        return messages;
+    }
+}
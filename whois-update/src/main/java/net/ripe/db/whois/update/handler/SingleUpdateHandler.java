@@ -20,6 +20,7 @@ import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
+import net.ripe.db.whois.update.domain.ValidatedObject;
 import net.ripe.db.whois.update.generator.AttributeGenerator;
 import net.ripe.db.whois.update.handler.transform.Transformer;
 import net.ripe.db.whois.update.sso.SsoTranslator;
@@ -207,15 +208,28 @@ public class SingleUpdateHandler {
             }
         } else {
             final ObjectMessages messages = updateContext.getMessages(update);
-            updatedObject = attributeSanitizer.sanitize(updatedObject, messages);
 
-            ObjectTemplate.getTemplate(updatedObject.getType()).validateStructure(updatedObject, messages);
-            ObjectTemplate.getTemplate(updatedObject.getType()).validateSyntax(updatedObject, messages, true);
+            final ValidatedObject validatedObject = updateContext.getValidatedObject(update);
+            if (validatedObject != null) {
+                messages.addAll(validatedObject.getMessages());
+                return validatedObject.getObject();
+            }
+
+            updatedObject = validate(attributeSanitizer, updatedObject, messages);
         }
 
         return updatedObject;
     }
 
+    static RpslObject validate(final AttributeSanitizer attributeSanitizer, final RpslObject submittedObject, final ObjectMessages messages) {
+        final RpslObject updatedObject = attributeSanitizer.sanitize(submittedObject, messages);
+
+        ObjectTemplate.getTemplate(updatedObject.getType()).validateStructure(updatedObject, messages);
+        ObjectTemplate.getTemplate(updatedObject.getType()).validateSyntax(updatedObject, messages, true);
+
+        return updatedObject;
+    }
+
     private Action getAction(@Nullable final RpslObject originalObject, final RpslObject updatedObject, final Update update, final UpdateContext updateContext, final Keyword keyword) {
         if (Operation.DELETE.equals(update.getOperation())) {
             return Action.DELETE;
@@ -1,5 +1,6 @@
 package net.ripe.db.whois.update.handler;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
@@ -20,15 +21,24 @@ import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateRequest;
 import net.ripe.db.whois.update.handler.response.ResponseFactory;
+import net.ripe.db.whois.update.log.LoggerContext;
 import net.ripe.db.whois.update.mail.MailGateway;
+import net.ripe.db.whois.update.mail.MailMessageLogCallback;
+import net.ripe.db.whois.update.mail.OutgoingMailQueue;
+import net.ripe.db.whois.update.mail.OutgoingMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Component;
 
+import javax.mail.MessagingException;
+import javax.mail.Session;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 @Component
@@ -40,18 +50,24 @@ public class UpdateNotifier {
     private final MailGateway mailGateway;
     private final VersionDao versionDao;
     private final Maintainers maintainers;
+    private final OutgoingMailQueue outgoingMailQueue;
+    private final LoggerContext loggerContext;
 
     @Autowired
     public UpdateNotifier(final RpslObjectDao rpslObjectDao,
                           final ResponseFactory responseFactory,
                           final MailGateway mailGateway,
                           final VersionDao versionDao,
-                          final Maintainers maintainers) {
+                          final Maintainers maintainers,
+                          final OutgoingMailQueue outgoingMailQueue,
+                          final LoggerContext loggerContext) {
         this.rpslObjectDao = rpslObjectDao;
         this.responseFactory = responseFactory;
         this.mailGateway = mailGateway;
         this.versionDao = versionDao;
         this.maintainers = maintainers;
+        this.outgoingMailQueue = outgoingMailQueue;
+        this.loggerContext = loggerContext;
     }
 
     public void sendNotifications(final UpdateRequest updateRequest, final UpdateContext updateContext) {
@@ -68,6 +84,8 @@ public class UpdateNotifier {
             }
         }
 
+        final List<OutgoingMessage> queued = Lists.newArrayList();
+
         for (final Notification notification : notifications.values()) {
             final ResponseMessage responseMessage = responseFactory.createNotification(updateContext, updateRequest.getOrigin(), notification);
             try {
@@ -77,7 +95,43 @@ public class UpdateNotifier {
                 continue;
             }
 
-            mailGateway.sendEmail(notification.getEmail(), responseMessage);
+            if (outgoingMailQueue.isEnabled()) {
+                queued.add(new OutgoingMessage(notification.getEmail(), responseMessage));
+            } else {
+                mailGateway.sendEmail(notification.getEmail(), responseMessage);
+            }
+        }
+
+        // delivered asynchronously, so a slow mail relay does not delay the update response
+        try {
+            outgoingMailQueue.enqueue(queued);
+            for (final OutgoingMessage message : queued) {
+                logQueued(message);
+            }
+        } catch (RuntimeException e) {
+            // the update has been committed already, so send the notifications directly rather than lose them
+            LOGGER.error("Unable to queue {} notifications, sending them directly", queued.size(), e);
+            for (final OutgoingMessage message : queued) {
+                mailGateway.sendEmail(message.getTo(), message.getSubject(), message.getText(), message.getReplyTo());
+            }
+        }
+    }
+
+    // the message is delivered outside of the update, so write it to the update audit log as it is queued
+    private void logQueued(final OutgoingMessage message) {
+        try {
+            final MimeMessage mimeMessage = new MimeMessage((Session) null);
+            final MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_NO, "UTF-8");
+            helper.setTo(message.getTo());
+            if (!message.getReplyTo().isEmpty()) {
+                helper.setReplyTo(message.getReplyTo());
+            }
+            helper.setSubject(message.getSubject());
+            helper.setText(message.getText());
+
+            loggerContext.log("msg-out.txt", new MailMessageLogCallback(mimeMessage));
+        } catch (MessagingException e) {
+            LOGGER.warn("Unable to log queued message {}", message, e);
         }
     }
 
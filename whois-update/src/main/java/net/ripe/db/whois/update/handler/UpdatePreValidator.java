@@ -0,0 +1,171 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.PgpCredential;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.domain.ValidatedObject;
+import net.ripe.db.whois.update.keycert.PgpPublicKeyWrapper;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the checks that do not depend on database state changed by the request (sanitizing, structure and syntax
+ * validation, and PGP signature verification) for all updates in a request in parallel, before the updates are
+ * executed one by one.
+ *
+ * Results are only cached: sanitized objects and their messages in the update context, and signature verification
+ * results in the signed message. The ordered execution uses them where they apply, and does the same checks itself
+ * where they don't (e.g. a key-cert changed earlier in the same request), so the outcome is the same as without
+ * pre-validation.
+ */
+@Component
+public class UpdatePreValidator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdatePreValidator.class);
+
+    private final SourceContext sourceContext;
+    private final AttributeSanitizer attributeSanitizer;
+    private final RpslObjectDao rpslObjectDao;
+    private final int nrThreads;
+
+    private ExecutorService executorService;
+
+    @Autowired
+    public UpdatePreValidator(final SourceContext sourceContext,
+                              final AttributeSanitizer attributeSanitizer,
+                              final RpslObjectDao rpslObjectDao,
+                              @Value("${update.prevalidation.threads:4}") final int nrThreads) {
+        this.sourceContext = sourceContext;
+        this.attributeSanitizer = attributeSanitizer;
+        this.rpslObjectDao = rpslObjectDao;
+        this.nrThreads = nrThreads;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nrThreads < 1) {
+            LOGGER.info("Update pre-validation is disabled");
+            return;
+        }
+
+        executorService = Executors.newFixedThreadPool(nrThreads, new ThreadFactory() {
+            final ThreadGroup threadGroup = new ThreadGroup(Thread.currentThread().getThreadGroup(), "UpdatePreValidator");
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(threadGroup, r, String.format("UpdatePreValidator-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public void preValidate(final UpdateRequest updateRequest, final UpdateContext updateContext) {
+        final List<Update> updates = Lists.newArrayList(updateRequest.getUpdates());
+        if (executorService == null || updates.size() < 2) {
+            return;
+        }
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final List<Future<ValidatedObject>> futures = Lists.newArrayListWithExpectedSize(updates.size());
+        for (final Update update : updates) {
+            futures.add(executorService.submit(() -> preValidate(update)));
+        }
+
+        for (int i = 0; i < updates.size(); i++) {
+            try {
+                final ValidatedObject validatedObject = futures.get(i).get();
+                if (validatedObject != null) {
+                    updateContext.addValidatedObject(updates.get(i), validatedObject);
+                }
+            } catch (ExecutionException e) {
+                // not fatal, the update is validated when it is handled
+                LOGGER.warn("Pre-validating {}", updates.get(i).getSubmittedObject().getFormattedKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                return;
+            }
+        }
+
+        LOGGER.debug("Pre-validated {} updates in {}", updates.size(), stopwatch.stop());
+    }
+
+    @CheckForNull
+    private ValidatedObject preValidate(final Update update) {
+        sourceContext.setCurrentSourceToWhoisMaster();
+        try {
+            for (final PgpCredential offeredCredential : update.getCredentials().ofType(PgpCredential.class)) {
+                verifySignature(offeredCredential);
+            }
+
+            if (Operation.DELETE.equals(update.getOperation())) {
+                return null;
+            }
+
+            final ObjectMessages messages = new ObjectMessages();
+            return new ValidatedObject(SingleUpdateHandler.validate(attributeSanitizer, update.getSubmittedObject(), messages), messages);
+        } finally {
+            sourceContext.removeCurrentSource();
+        }
+    }
+
+    // verification results are kept in the signed message, authentication will not verify against the same key again
+    private void verifySignature(final PgpCredential offeredCredential) {
+        final PgpPublicKeyWrapper pgpPublicKeyWrapper;
+        try {
+            pgpPublicKeyWrapper = PgpPublicKeyWrapper.parse(rpslObjectDao.getByKey(ObjectType.KEY_CERT, "PGPKEY-" + offeredCredential.getKeyId()));
+        } catch (EmptyResultDataAccessException e) {
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to read key for {}: {}", offeredCredential, e.getMessage());
+            return;
+        }
+
+        try {
+            if (!offeredCredential.verify(pgpPublicKeyWrapper.getPublicKey())) {
+                for (final PGPPublicKey subKey : pgpPublicKeyWrapper.getSubKeys()) {
+                    if (offeredCredential.verify(subKey)) {
+                        break;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // not cached, authentication reports the failure
+            LOGGER.debug("Unable to verify {}: {}", offeredCredential, e.getMessage());
+        }
+    }
+}
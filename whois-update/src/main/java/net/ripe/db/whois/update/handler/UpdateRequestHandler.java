@@ -39,6 +39,7 @@ public class UpdateRequestHandler {
     private final SsoTranslator ssoTranslator;
     private final UpdateNotifier updateNotifier;
     private final UpdateLog updateLog;
+    private final UpdatePreValidator updatePreValidator;
 
     @Autowired
     public UpdateRequestHandler(final SourceContext sourceContext,
@@ -49,7 +50,8 @@ public class UpdateRequestHandler {
                                 final DnsChecker dnsChecker,
                                 final SsoTranslator ssoTranslator,
                                 final UpdateNotifier updateNotifier,
-                                final UpdateLog updateLog) {
+                                final UpdateLog updateLog,
+                                final UpdatePreValidator updatePreValidator) {
         this.sourceContext = sourceContext;
         this.responseFactory = responseFactory;
         this.singleUpdateHandler = singleUpdateHandler;
@@ -59,6 +61,7 @@ public class UpdateRequestHandler {
         this.ssoTranslator = ssoTranslator;
         this.updateNotifier = updateNotifier;
         this.updateLog = updateLog;
+        this.updatePreValidator = updatePreValidator;
     }
 
     public UpdateResponse handle(final UpdateRequest updateRequest, final UpdateContext updateContext) {
@@ -88,6 +91,8 @@ public class UpdateRequestHandler {
                 ssoTranslator.populateCacheAuthToUuid(updateContext, update);
             }
 
+            updatePreValidator.preValidate(updateRequest, updateContext);
+
             final UpdateResponse updateResponse;
 
             if (updateContext.isBatchUpdate()) {
@@ -25,7 +25,9 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +51,9 @@ public final class PgpSignedMessage {
     private final byte[] signature;
     private final boolean clearText;
 
+    // verification results by public key fingerprint, so a signature is only checked once against the same key
+    private final Map<ByteBuffer, Boolean> verified = new ConcurrentHashMap<>();
+
     @SuppressWarnings("PMD.ArrayIsStoredDirectly")
     // Constructor only used internally, arrays are not modified externally
     private PgpSignedMessage(final byte[] content, final byte[] signature, final boolean clearText) {
@@ -139,6 +144,10 @@ public final class PgpSignedMessage {
     }
 
     public boolean verify(final PGPPublicKey publicKey) {
+        return verified.computeIfAbsent(ByteBuffer.wrap(publicKey.getFingerprint()), fingerprint -> verifySignature(publicKey));
+    }
+
+    private boolean verifySignature(final PGPPublicKey publicKey) {
         try {
             final PGPSignature pgpSignature = getPgpSignature();
             if (pgpSignature.getKeyAlgorithm() != publicKey.getAlgorithm()) {
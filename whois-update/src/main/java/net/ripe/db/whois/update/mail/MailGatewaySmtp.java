@@ -1,5 +1,7 @@
 package net.ripe.db.whois.update.mail;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
 import net.ripe.db.whois.common.aspects.RetryFor;
@@ -20,6 +22,9 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,22 +85,69 @@ public class MailGatewaySmtp implements MailGateway {
         }
     }
 
+    /**
+     * Send messages over a single SMTP connection, without retrying.
+     * Runs outside of an update, so nothing is written to the audit log.
+     *
+     * @return the messages that could not be delivered, and can be retried
+     */
+    public List<OutgoingMessage> sendEmails(final List<OutgoingMessage> messages) {
+        if (!outgoingMailEnabled) {
+            for (final OutgoingMessage message : messages) {
+                LOGGER.debug("Outgoing mail disabled, not sending {}", message);
+            }
+            return Collections.emptyList();
+        }
+
+        final Map<MimeMessage, OutgoingMessage> mimeMessages = Maps.newLinkedHashMap();
+        for (final OutgoingMessage message : messages) {
+            if (INVALID_EMAIL_PATTERN.matcher(message.getTo()).find()) {
+                LOGGER.error("Refusing outgoing email: {}", message);
+                continue;
+            }
+
+            try {
+                final MimeMessage mimeMessage = mailSender.createMimeMessage();
+                prepare(mimeMessage, message.getTo(), message.getReplyTo(), message.getSubject(), message.getText());
+                mimeMessages.put(mimeMessage, message);
+            } catch (MessagingException e) {
+                LOGGER.error("Unable to create mail message {}", message, e);
+            }
+        }
+
+        if (mimeMessages.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            mailSender.send(mimeMessages.keySet().toArray(new MimeMessage[0]));
+            return Collections.emptyList();
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                LOGGER.warn("Unable to send {} mail messages: {}", mimeMessages.size(), e.getMessage());
+                return Lists.newArrayList(mimeMessages.values());
+            }
+
+            final List<OutgoingMessage> failed = Lists.newArrayList();
+            for (final Map.Entry<Object, Exception> entry : e.getFailedMessages().entrySet()) {
+                final OutgoingMessage message = mimeMessages.get(entry.getKey());
+                LOGGER.warn("Unable to send {}: {}", message, entry.getValue().getMessage());
+                failed.add(message);
+            }
+            return failed;
+        } catch (MailException e) {
+            LOGGER.warn("Unable to send {} mail messages: {}", mimeMessages.size(), e.getMessage());
+            return Lists.newArrayList(mimeMessages.values());
+        }
+    }
+
     @RetryFor(value = MailSendException.class, attempts = 20, intervalMs = 10000)
     private void sendEmailAttempt(final String to, final String replyTo, final String subject, final String text) {
         try {
             mailSender.send(new MimeMessagePreparator() {
                 @Override
                 public void prepare(final MimeMessage mimeMessage) throws MessagingException {
-                    final MimeMessageHelper message = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_NO, "UTF-8");
-                    message.setFrom(mailConfiguration.getFrom());
-                    message.setTo(to);
-                    if (!StringUtils.isEmpty(replyTo))
-                        message.setReplyTo(replyTo);
-                    message.setSubject(subject);
-                    message.setText(text);
-
-                    mimeMessage.addHeader("Precedence", "bulk");
-                    mimeMessage.addHeader("Auto-Submitted", "auto-generated");
+                    MailGatewaySmtp.this.prepare(mimeMessage, to, replyTo, subject, text);
 
                     loggerContext.log("msg-out.txt", new MailMessageLogCallback(mimeMessage));
                 }
@@ -108,4 +160,17 @@ public class MailGatewaySmtp implements MailGateway {
             }
         }
     }
+
+    private void prepare(final MimeMessage mimeMessage, final String to, final String replyTo, final String subject, final String text) throws MessagingException {
+        final MimeMessageHelper message = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_NO, "UTF-8");
+        message.setFrom(mailConfiguration.getFrom());
+        message.setTo(to);
+        if (!StringUtils.isEmpty(replyTo))
+            message.setReplyTo(replyTo);
+        message.setSubject(subject);
+        message.setText(text);
+
+        mimeMessage.addHeader("Precedence", "bulk");
+        mimeMessage.addHeader("Auto-Submitted", "auto-generated");
+    }
 }
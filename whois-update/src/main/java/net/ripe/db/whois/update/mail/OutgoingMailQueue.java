@@ -0,0 +1,206 @@
+package net.ripe.db.whois.update.mail;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MultimapBuilder;
+import net.ripe.db.whois.common.ApplicationService;
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.domain.Timestamp;
+import net.ripe.db.whois.update.dao.OutgoingMessageDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers notifications asynchronously from a persistent queue, so a slow SMTP relay does not delay updates.
+ *
+ * Messages to the same address that are queued within the coalesce window are delivered as a single message
+ * (as long as subject and reply-to are equal). Each delivery run sends all messages over one SMTP connection.
+ * Failed messages are retried with exponential backoff, and dropped after the maximum number of attempts.
+ */
+@Component
+public class OutgoingMailQueue implements ApplicationService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutgoingMailQueue.class);
+
+    static final String COALESCE_SEPARATOR = "\n" + Strings.repeat("-", 72) + "\n\n";
+
+    private final OutgoingMessageDao outgoingMessageDao;
+    private final MailGatewaySmtp mailGatewaySmtp;
+    private final DateTimeProvider dateTimeProvider;
+
+    @Value("${mail.queue.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mail.queue.interval:1000}")
+    private int intervalMs;
+
+    @Value("${mail.queue.coalesce.seconds:5}")
+    private int coalesceSeconds;
+
+    @Value("${mail.queue.batch.size:100}")
+    private int batchSize;
+
+    @Value("${mail.queue.retry.seconds:30}")
+    private int retrySeconds;
+
+    @Value("${mail.queue.retry.attempts:10}")
+    private int retryAttempts;
+
+    @Value("${mail.queue.claim.timeout:3600}")
+    private int claimTimeoutSeconds;
+
+    private ScheduledExecutorService executorService;
+
+    @Autowired
+    public OutgoingMailQueue(final OutgoingMessageDao outgoingMessageDao,
+                             final MailGatewaySmtp mailGatewaySmtp,
+                             final DateTimeProvider dateTimeProvider) {
+        this.outgoingMessageDao = outgoingMessageDao;
+        this.mailGatewaySmtp = mailGatewaySmtp;
+        this.dateTimeProvider = dateTimeProvider;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueue(final List<OutgoingMessage> messages) {
+        if (!messages.isEmpty()) {
+            outgoingMessageDao.enqueue(messages, now());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        if (executorService != null) {
+            throw new IllegalStateException("Already started");
+        }
+
+        executorService = Executors.newSingleThreadScheduledExecutor();
+        executorService.scheduleWithFixedDelay(() -> {
+            try {
+                deliver();
+            } catch (RuntimeException e) {
+                LOGGER.error("Delivering queued mail", e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+        LOGGER.info("Outgoing mail queue started");
+    }
+
+    @Override
+    public void stop(final boolean force) {
+        if (executorService == null) {
+            return;
+        }
+
+        executorService.shutdown();
+        try {
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executorService = null;
+
+        LOGGER.info("Outgoing mail queue stopped");
+    }
+
+    /**
+     * Deliver all due messages.
+     * @return the number of messages delivered
+     */
+    int deliver() {
+        final long now = now();
+
+        final int released = outgoingMessageDao.releaseStaleClaims(now - claimTimeoutSeconds);
+        if (released > 0) {
+            LOGGER.warn("Released {} stale claims on queued mail", released);
+        }
+
+        int delivered = 0;
+        for (;;) {
+            final List<OutgoingMessage> claimed = outgoingMessageDao.claim(UUID.randomUUID().toString(), now, now - coalesceSeconds, batchSize);
+            if (claimed.isEmpty()) {
+                return delivered;
+            }
+
+            delivered += deliver(claimed, now);
+        }
+    }
+
+    private int deliver(final List<OutgoingMessage> claimed, final long now) {
+        final ListMultimap<OutgoingMessage, OutgoingMessage> coalesced = coalesce(claimed);
+
+        final List<OutgoingMessage> failed = mailGatewaySmtp.sendEmails(Lists.newArrayList(coalesced.keySet()));
+        for (final OutgoingMessage message : failed) {
+            retry(coalesced.removeAll(message), now);
+        }
+
+        outgoingMessageDao.delete(coalesced.values().stream().map(OutgoingMessage::getId).collect(Collectors.toList()));
+        return coalesced.size();
+    }
+
+    private void retry(final Collection<OutgoingMessage> messages, final long now) {
+        for (final OutgoingMessage message : messages) {
+            if (message.getAttempts() + 1 >= retryAttempts) {
+                LOGGER.error("Giving up delivery of {} after {} attempts", message, message.getAttempts() + 1);
+                outgoingMessageDao.delete(Arrays.asList(message.getId()));
+            } else {
+                outgoingMessageDao.retry(message.getId(), now + getBackoff(message.getAttempts()));
+            }
+        }
+    }
+
+    // doubles with each attempt, capped at a day
+    long getBackoff(final int attempts) {
+        return Math.min((long) retrySeconds << Math.min(attempts, 20), TimeUnit.DAYS.toSeconds(1));
+    }
+
+    /**
+     * Combine messages with the same recipient, subject and reply-to, in queue order.
+     * @return the combined messages, mapped to the queued messages they replace
+     */
+    static ListMultimap<OutgoingMessage, OutgoingMessage> coalesce(final List<OutgoingMessage> messages) {
+        final ListMultimap<List<String>, OutgoingMessage> grouped = MultimapBuilder.linkedHashKeys().arrayListValues().build();
+        for (final OutgoingMessage message : messages) {
+            grouped.put(Arrays.asList(message.getTo().toLowerCase(), message.getSubject(), message.getReplyTo()), message);
+        }
+
+        final ListMultimap<OutgoingMessage, OutgoingMessage> coalesced = MultimapBuilder.linkedHashKeys().arrayListValues().build();
+        for (final Map.Entry<List<String>, Collection<OutgoingMessage>> entry : grouped.asMap().entrySet()) {
+            final List<OutgoingMessage> group = (List<OutgoingMessage>) entry.getValue();
+            final OutgoingMessage first = group.get(0);
+
+            if (group.size() == 1) {
+                coalesced.put(first, first);
+            } else {
+                final String text = Joiner.on(COALESCE_SEPARATOR).join(group.stream().map(OutgoingMessage::getText).iterator());
+                coalesced.putAll(new OutgoingMessage(first.getId(), first.getTo(), first.getSubject(), text, first.getReplyTo(), first.getAttempts()), group);
+            }
+        }
+
+        return coalesced;
+    }
+
+    private long now() {
+        return Timestamp.from(dateTimeProvider.getCurrentDateTime()).getValue();
+    }
+}
@@ -0,0 +1,62 @@
+package net.ripe.db.whois.update.mail;
+
+import net.ripe.db.whois.update.domain.ResponseMessage;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A mail message in the outgoing queue.
+ */
+@Immutable
+public class OutgoingMessage {
+    private final Integer id;
+    private final String to;
+    private final String subject;
+    private final String text;
+    private final String replyTo;
+    private final int attempts;
+
+    public OutgoingMessage(@CheckForNull final Integer id, final String to, final String subject, final String text, final String replyTo, final int attempts) {
+        this.id = id;
+        this.to = to;
+        this.subject = subject;
+        this.text = text;
+        this.replyTo = replyTo == null ? "" : replyTo;
+        this.attempts = attempts;
+    }
+
+    public OutgoingMessage(final String to, final ResponseMessage responseMessage) {
+        this(null, to, responseMessage.getSubject(), responseMessage.getMessage(), responseMessage.getReplyTo(), 0);
+    }
+
+    @CheckForNull
+    public Integer getId() {
+        return id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getReplyTo() {
+        return replyTo;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OutgoingMessage{id=%s, to='%s', subject='%s'}", id, to, subject);
+    }
+}
@@ -0,0 +1,144 @@
+package net.ripe.db.whois.update.autokey.dao;
+
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeMatcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class NicHandleRangesTest {
+    private NicHandleRanges subject;
+
+    @Before
+    public void setUp() {
+        subject = new NicHandleRanges();
+    }
+
+    @Test
+    public void claimNextAvailableIndex_empty() {
+        final NicHandleRanges.Claim claim = subject.claimNextAvailableIndex();
+
+        assertThat(claim.getIndex(), is(1));
+        assertThat(claim.getSaved().getRangeId(), is(nullValue()));
+        assertThat(claim.getSaved().getStart(), is(1));
+        assertThat(claim.getSaved().getEnd(), is(1));
+        assertThat(claim.getDeleted(), is(empty()));
+    }
+
+    @Test
+    public void claimNextAvailableIndex_extends_first_range() {
+        subject.add(1, 1, 10);
+
+        final NicHandleRanges.Claim claim = subject.claimNextAvailableIndex();
+
+        assertThat(claim.getIndex(), is(11));
+        assertThat(claim.getSaved().getRangeId(), is(1));
+        assertThat(claim.getSaved().getEnd(), is(11));
+        assertThat(claim.getSaved().getPersistedEnd(), is(10));
+        assertThat(claim.getDeleted(), is(empty()));
+    }
+
+    @Test
+    public void claimNextAvailableIndex_closing_gap_beginning() {
+        subject.add(1, 2, 10);
+
+        final NicHandleRanges.Claim claim = subject.claimNextAvailableIndex();
+
+        assertThat(claim.getIndex(), is(1));
+        assertThat(claim.getSaved().getRangeId(), is(nullValue()));
+        assertThat(claim.getSaved().getStart(), is(1));
+        assertThat(claim.getSaved().getEnd(), is(10));
+        assertThat(claim.getDeleted(), contains(new RangeIdMatcher(1)));
+        assertThat(subject.size(), is(1));
+    }
+
+    @Test
+    public void claimNextAvailableIndex_closing_all_gaps() {
+        subject.add(1, 1, 3);
+        subject.add(2, 4, 5);
+        subject.add(3, 6, 10);
+        subject.add(4, 12, 13);
+        subject.add(5, 14, 17);
+        subject.add(6, 20, 21);
+
+        final NicHandleRanges.Claim claim = subject.claimNextAvailableIndex();
+
+        assertThat(claim.getIndex(), is(11));
+        assertThat(claim.getSaved().getRangeId(), is(1));
+        assertThat(claim.getSaved().getEnd(), is(17));
+        assertThat(claim.getDeleted(), contains(new RangeIdMatcher(2), new RangeIdMatcher(3), new RangeIdMatcher(4), new RangeIdMatcher(5)));
+        assertThat(subject.size(), is(2));
+
+        assertThat(subject.claimNextAvailableIndex().getIndex(), is(18));
+        assertThat(subject.claimNextAvailableIndex().getIndex(), is(19));
+        assertThat(subject.size(), is(1));
+        assertThat(subject.claimNextAvailableIndex().getIndex(), is(22));
+    }
+
+    @Test
+    public void claim_specified() {
+        subject.add(1, 1, 10);
+
+        final NicHandleRanges.Claim claim = subject.claim(20);
+
+        assertThat(claim.getIndex(), is(20));
+        assertThat(claim.getSaved().getRangeId(), is(nullValue()));
+        assertThat(subject.size(), is(2));
+        assertThat(subject.isAvailable(20), is(false));
+        assertThat(subject.isAvailable(19), is(true));
+    }
+
+    @Test
+    public void claim_specified_twice() {
+        assertThat(subject.claim(5).getIndex(), is(5));
+        assertThat(subject.claim(5), is(nullValue()));
+    }
+
+    @Test
+    public void claim_specified_merges_neighbours() {
+        subject.add(1, 1, 4);
+        subject.add(2, 6, 10);
+
+        final NicHandleRanges.Claim claim = subject.claim(5);
+
+        assertThat(claim.getSaved().getRangeId(), is(1));
+        assertThat(claim.getSaved().getEnd(), is(10));
+        assertThat(claim.getDeleted(), contains(new RangeIdMatcher(2)));
+        assertThat(subject.size(), is(1));
+    }
+
+    @Test
+    public void persisted() {
+        final NicHandleRanges.Claim claim = subject.claimNextAvailableIndex();
+        claim.getSaved().persisted(7);
+
+        final NicHandleRanges.Claim next = subject.claimNextAvailableIndex();
+
+        assertThat(next.getSaved().getRangeId(), is(7));
+        assertThat(next.getSaved().getPersistedEnd(), is(1));
+        assertThat(next.getSaved().getEnd(), is(2));
+    }
+
+    private static class RangeIdMatcher extends TypeSafeMatcher<NicHandleRanges.ClaimedRange> {
+        private final int rangeId;
+
+        RangeIdMatcher(final int rangeId) {
+            this.rangeId = rangeId;
+        }
+
+        @Override
+        protected boolean matchesSafely(final NicHandleRanges.ClaimedRange item) {
+            return Integer.valueOf(rangeId).equals(item.getRangeId());
+        }
+
+        @Override
+        public void describeTo(final Description description) {
+            description.appendText("range id ").appendValue(rangeId);
+        }
+    }
+}
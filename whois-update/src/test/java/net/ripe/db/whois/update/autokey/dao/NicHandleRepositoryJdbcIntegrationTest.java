@@ -119,6 +119,41 @@ public class NicHandleRepositoryJdbcIntegrationTest extends AbstractUpdateDaoInt
         assertRows(1);
     }
 
+    @Test
+    public void claimNextAvailableIndex_range_claimed_elsewhere() {
+        for (int i = 1; i <= 3; i++) {
+            assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(i));
+        }
+
+        whoisTemplate.update("insert into nic_hdl(range_start, range_end, space, source) values(4, 10, 'DW', '-RIPE')");
+
+        assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(11));
+        assertRows(1);
+        assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(12));
+        assertRows(1);
+    }
+
+    @Test
+    public void claimNextAvailableIndex_range_changed_elsewhere() {
+        assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(1));
+
+        whoisTemplate.update("update nic_hdl set range_end = 5 where space = 'DW'");
+
+        assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(6));
+        assertRows(1);
+    }
+
+    @Test
+    public void claimSpecified_after_claimNextAvailableIndex() {
+        assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(1));
+        assertThat(subject.claimSpecified(new NicHandle("DW", 3, "RIPE")), is(true));
+        assertRows(2);
+
+        assertThat(subject.claimNextAvailableIndex("DW", "RIPE").getIndex(), is(2));
+        assertRows(1);
+        assertThat(subject.claimSpecified(new NicHandle("DW", 2, "RIPE")), is(false));
+    }
+
 
     private void assertRows(final int expectedRows) {
         final List<Map<String, Object>> list = whoisTemplate.queryForList("select * from nic_hdl");
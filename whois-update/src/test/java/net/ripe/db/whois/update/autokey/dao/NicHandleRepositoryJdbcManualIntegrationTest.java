@@ -0,0 +1,77 @@
+package net.ripe.db.whois.update.autokey.dao;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.ManualTest;
+import net.ripe.db.whois.update.dao.AbstractUpdateDaoIntegrationTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Allocation latency with 1M existing handles in a single space.
+ *
+ * The first claim reads all ranges from nic_hdl (as every claim did before the ranges were kept in memory),
+ * subsequent claims only touch the claimed range.
+ */
+@Category(ManualTest.class)
+@Transactional
+public class NicHandleRepositoryJdbcManualIntegrationTest extends AbstractUpdateDaoIntegrationTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NicHandleRepositoryJdbcManualIntegrationTest.class);
+
+    private static final int EXISTING_HANDLES = 1_000_000;
+    private static final int CLAIMS = 10_000;
+
+    @Autowired NicHandleRepository subject;
+
+    @Test
+    public void claimNextAvailableIndex_one_million_handles() {
+        final int nrRanges = createFragmentedRanges("AA", "RIPE", EXISTING_HANDLES);
+        LOGGER.info("Created {} handles in {} ranges", EXISTING_HANDLES, nrRanges);
+
+        final Stopwatch first = Stopwatch.createStarted();
+        final int firstIndex = subject.claimNextAvailableIndex("AA", "RIPE").getIndex();
+        first.stop();
+
+        final Stopwatch next = Stopwatch.createStarted();
+        int previousIndex = firstIndex;
+        for (int i = 0; i < CLAIMS; i++) {
+            final int index = subject.claimNextAvailableIndex("AA", "RIPE").getIndex();
+            assertThat(index > previousIndex, is(true));
+            previousIndex = index;
+        }
+        next.stop();
+
+        LOGGER.info("First claim (loading ranges) took {}", first);
+        LOGGER.info("{} claims took {} ({} us/claim)", CLAIMS, next, next.elapsed(TimeUnit.MICROSECONDS) / CLAIMS);
+    }
+
+    // a range of up to 16 handles followed by a single free index, to keep gaps for the allocator to close
+    private int createFragmentedRanges(final String space, final String suffix, final int nrHandles) {
+        final List<Object[]> ranges = Lists.newArrayList();
+
+        int start = 1;
+        int handles = 0;
+        while (handles < nrHandles) {
+            final int length = Math.min(1 + (start % 16), nrHandles - handles);
+            ranges.add(new Object[]{start, start + length - 1, space, "-" + suffix});
+            handles += length;
+            start += length + 1;
+        }
+
+        for (final List<Object[]> batch : Lists.partition(ranges, 10_000)) {
+            whoisTemplate.batchUpdate("insert into nic_hdl(range_start, range_end, space, source) values(?, ?, ?, ?)", batch);
+        }
+
+        return ranges.size();
+    }
+}
@@ -13,7 +13,11 @@ import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateRequest;
 import net.ripe.db.whois.update.domain.UpdateStatus;
 import net.ripe.db.whois.update.handler.response.ResponseFactory;
+import net.ripe.db.whois.update.log.LoggerContext;
 import net.ripe.db.whois.update.mail.MailGateway;
+import net.ripe.db.whois.update.mail.MailMessageLogCallback;
+import net.ripe.db.whois.update.mail.OutgoingMailQueue;
+import net.ripe.db.whois.update.mail.OutgoingMessage;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -21,9 +25,14 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -38,6 +47,8 @@ public class UpdateNotifierTest {
     @Mock ResponseFactory responseFactory;
     @Mock MailGateway mailGateway;
     @Mock ResponseMessage responseMessage;
+    @Mock OutgoingMailQueue outgoingMailQueue;
+    @Mock LoggerContext loggerContext;
 
     @InjectMocks UpdateNotifier subject;
 
@@ -116,4 +127,64 @@ public class UpdateNotifierTest {
 
         verify(mailGateway, never()).sendEmail("notifies us <mailto:notify@me.com>", responseMessage);
     }
+
+    @Test
+    public void sendNotifications_queued() {
+        final Update update = mock(Update.class);
+        final RpslObject rpslObject = RpslObject.parse(
+                "mntner: UPD-MNT\n" +
+                "descr: description\n" +
+                "admin-c: TEST-RIPE\n" +
+                "mnt-by: UPD-MNT\n" +
+                "notify: notify1@me.com\n" +
+                "notify: notify2@me.com\n" +
+                "upd-to: dbtest@ripe.net\n" +
+                "auth:   MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7. # update\n" +
+                "source: TEST\n");
+
+        final PreparedUpdate preparedUpdate = new PreparedUpdate(update, null, rpslObject, Action.CREATE);
+
+        when(outgoingMailQueue.isEnabled()).thenReturn(true);
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(update));
+        when(updateRequest.getOrigin()).thenReturn(origin);
+        when(updateContext.getPreparedUpdate(update)).thenReturn(preparedUpdate);
+        when(updateContext.getStatus(preparedUpdate)).thenReturn(UpdateStatus.SUCCESS);
+        when(responseFactory.createNotification(any(UpdateContext.class), any(Origin.class), any(Notification.class))).thenReturn(new ResponseMessage("Notification of RIPE Database changes", "message"));
+
+        subject.sendNotifications(updateRequest, updateContext);
+
+        verify(outgoingMailQueue).enqueue(argThat(messages -> messages.size() == 2 &&
+                messages.stream().map(OutgoingMessage::getTo).allMatch(to -> to.equals("notify1@me.com") || to.equals("notify2@me.com"))));
+        verify(mailGateway, never()).sendEmail(anyString(), any(ResponseMessage.class));
+        verify(loggerContext, times(2)).log(eq("msg-out.txt"), any(MailMessageLogCallback.class));
+    }
+
+    @Test
+    public void sendNotifications_queue_fails() {
+        final Update update = mock(Update.class);
+        final RpslObject rpslObject = RpslObject.parse(
+                "mntner: UPD-MNT\n" +
+                "descr: description\n" +
+                "admin-c: TEST-RIPE\n" +
+                "mnt-by: UPD-MNT\n" +
+                "notify: notify1@me.com\n" +
+                "upd-to: dbtest@ripe.net\n" +
+                "auth:   MD5-PW $1$fU9ZMQN9$QQtm3kRqZXWAuLpeOiLN7. # update\n" +
+                "source: TEST\n");
+
+        final PreparedUpdate preparedUpdate = new PreparedUpdate(update, null, rpslObject, Action.CREATE);
+
+        when(outgoingMailQueue.isEnabled()).thenReturn(true);
+        doThrow(new IllegalStateException("mailupdates unavailable")).when(outgoingMailQueue).enqueue(anyList());
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(update));
+        when(updateRequest.getOrigin()).thenReturn(origin);
+        when(updateContext.getPreparedUpdate(update)).thenReturn(preparedUpdate);
+        when(updateContext.getStatus(preparedUpdate)).thenReturn(UpdateStatus.SUCCESS);
+        when(responseFactory.createNotification(any(UpdateContext.class), any(Origin.class), any(Notification.class))).thenReturn(new ResponseMessage("Notification of RIPE Database changes", "message"));
+
+        subject.sendNotifications(updateRequest, updateContext);
+
+        verify(mailGateway).sendEmail(eq("notify1@me.com"), eq("Notification of RIPE Database changes"), eq("message"), any());
+        verify(loggerContext, never()).log(eq("msg-out.txt"), any(MailMessageLogCallback.class));
+    }
 }
@@ -0,0 +1,117 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Paragraph;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.domain.ValidatedObject;
+import net.ripe.db.whois.update.log.LoggerContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UpdatePreValidatorTest {
+    @Mock SourceContext sourceContext;
+    @Mock AttributeSanitizer attributeSanitizer;
+    @Mock RpslObjectDao rpslObjectDao;
+    @Mock LoggerContext loggerContext;
+    @Mock UpdateRequest updateRequest;
+
+    private UpdateContext updateContext;
+    private UpdatePreValidator subject;
+
+    @Before
+    public void setUp() {
+        updateContext = new UpdateContext(loggerContext);
+
+        subject = new UpdatePreValidator(sourceContext, attributeSanitizer, rpslObjectDao, 2);
+        subject.init();
+    }
+
+    @After
+    public void tearDown() {
+        subject.stop();
+    }
+
+    @Test
+    public void single_update_not_prevalidated() {
+        final Update update = createUpdate(Operation.UNSPECIFIED, "mntner: TEST-MNT");
+        when(updateRequest.getUpdates()).thenReturn(Collections.singletonList(update));
+
+        subject.preValidate(updateRequest, updateContext);
+
+        assertThat(updateContext.getValidatedObject(update), is(nullValue()));
+        verifyNoMoreInteractions(attributeSanitizer);
+    }
+
+    @Test
+    public void multiple_updates() {
+        when(attributeSanitizer.sanitize(any(RpslObject.class), any())).then(returnsFirstArg());
+
+        final Update valid = createUpdate(Operation.UNSPECIFIED, "" +
+                "person:  Test Person\n" +
+                "address: Street\n" +
+                "phone:   +31 20 123456\n" +
+                "nic-hdl: TP1-TEST\n" +
+                "mnt-by:  TEST-MNT\n" +
+                "source:  TEST");
+        final Update invalid = createUpdate(Operation.UNSPECIFIED, "" +
+                "person:  Test Person\n" +
+                "nic-hdl: TP2-TEST\n" +
+                "source:  TEST");
+        final Update delete = createUpdate(Operation.DELETE, "mntner: TEST-MNT");
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(valid, invalid, delete));
+
+        subject.preValidate(updateRequest, updateContext);
+
+        final ValidatedObject validObject = updateContext.getValidatedObject(valid);
+        assertThat(validObject.getObject(), is(valid.getSubmittedObject()));
+        assertThat(validObject.getMessages().hasErrors(), is(false));
+
+        final ValidatedObject invalidObject = updateContext.getValidatedObject(invalid);
+        assertThat(invalidObject.getObject(), is(invalid.getSubmittedObject()));
+        assertThat(invalidObject.getMessages().hasErrors(), is(true));
+
+        assertThat(updateContext.getValidatedObject(delete), is(nullValue()));
+        assertThat(updateContext.hasErrors(invalid), is(false));
+    }
+
+    @Test
+    public void disabled() {
+        final UpdatePreValidator disabled = new UpdatePreValidator(sourceContext, attributeSanitizer, rpslObjectDao, 0);
+        disabled.init();
+
+        final Update update = createUpdate(Operation.UNSPECIFIED, "mntner: TEST-MNT");
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(update, mock(Update.class)));
+
+        disabled.preValidate(updateRequest, updateContext);
+
+        assertThat(updateContext.getValidatedObject(update), is(nullValue()));
+        disabled.stop();
+    }
+
+    private static Update createUpdate(final Operation operation, final String object) {
+        return new Update(new Paragraph(object), operation, Lists.newArrayList(), RpslObject.parse(object));
+    }
+}
@@ -53,6 +53,7 @@ public class UpdateRequestHandlerTest {
     @Mock UpdateNotifier updateNotifier;
     @Mock UpdateLog updateLog;
     @Mock SsoTranslator ssoTranslator;
+    @Mock UpdatePreValidator updatePreValidator;
 
     @InjectMocks UpdateRequestHandler subject;
 
@@ -84,6 +85,7 @@ public class UpdateRequestHandlerTest {
         verify(sourceContext).setCurrentSourceToWhoisMaster();
         verify(sourceContext).removeCurrentSource();
         verify(dnsChecker).checkAll(updateRequest, updateContext);
+        verify(updatePreValidator).preValidate(updateRequest, updateContext);
         verify(singleUpdateHandler).handle(origin, Keyword.NONE, update, updateContext);
         verify(updateNotifier).sendNotifications(updateRequest, updateContext);
     }
@@ -0,0 +1,129 @@
+package net.ripe.db.whois.update.mail;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server, accepting (or temporarily rejecting) every message.
+ */
+class FakeSmtpServer implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FakeSmtpServer.class);
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger rejectMessages = new AtomicInteger();
+    private final List<String> messages = Collections.synchronizedList(Lists.newArrayList());
+
+    FakeSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::accept, "FakeSmtpServer");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    List<String> getMessages() {
+        synchronized (messages) {
+            return Lists.newArrayList(messages);
+        }
+    }
+
+    /**
+     * Reply with a temporary failure to the next messages.
+     */
+    void rejectMessages(final int count) {
+        rejectMessages.set(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try (final Socket socket = serverSocket.accept()) {
+                connections.incrementAndGet();
+                handle(socket);
+            } catch (SocketException e) {
+                LOGGER.debug("Socket closed: {}", e.getMessage());
+            } catch (IOException e) {
+                LOGGER.warn("Handling connection", e);
+            }
+        }
+    }
+
+    private void handle(final Socket socket) throws IOException {
+        final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        final OutputStream out = socket.getOutputStream();
+
+        reply(out, "220 localhost fake smtp");
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            final String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+            switch (command) {
+                case "EHLO":
+                case "HELO":
+                    reply(out, "250 localhost");
+                    break;
+                case "MAIL":
+                    if (rejectMessages.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                        reply(out, "451 try again later");
+                    } else {
+                        reply(out, "250 ok");
+                    }
+                    break;
+                case "DATA":
+                    reply(out, "354 end data with <CR><LF>.<CR><LF>");
+                    messages.add(readData(in));
+                    reply(out, "250 ok queued");
+                    break;
+                case "QUIT":
+                    reply(out, "221 bye");
+                    return;
+                default:
+                    // RCPT, RSET, NOOP
+                    reply(out, "250 ok");
+                    break;
+            }
+        }
+    }
+
+    private static String readData(final BufferedReader in) throws IOException {
+        final StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            data.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+        }
+        return data.toString();
+    }
+
+    private static void reply(final OutputStream out, final String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+}
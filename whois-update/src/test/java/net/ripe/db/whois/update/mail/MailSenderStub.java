@@ -47,6 +47,16 @@ public class MailSenderStub extends MailSenderBase implements Stub {
         }
     }
 
+    @Override
+    public MimeMessage createMimeMessage() {
+        return new MimeMessage((Session) null);
+    }
+
+    @Override
+    public void send(final MimeMessage... mimeMessages) {
+        messages.addAll(Arrays.asList(mimeMessages));
+    }
+
     public MimeMessage getMessage(final String to) throws MessagingException {
         final GetResponse getResponse = new GetResponse(to);
 
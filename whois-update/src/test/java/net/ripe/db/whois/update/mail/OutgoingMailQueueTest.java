@@ -0,0 +1,175 @@
+package net.ripe.db.whois.update.mail;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.domain.Timestamp;
+import net.ripe.db.whois.update.dao.OutgoingMessageDao;
+import net.ripe.db.whois.update.log.LoggerContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutgoingMailQueueTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2020, 1, 1, 12, 0);
+
+    @Mock OutgoingMessageDao outgoingMessageDao;
+    @Mock DateTimeProvider dateTimeProvider;
+    @Mock LoggerContext loggerContext;
+
+    private FakeSmtpServer smtpServer;
+    private OutgoingMailQueue subject;
+    private long now;
+
+    @Before
+    public void setUp() throws Exception {
+        smtpServer = new FakeSmtpServer();
+
+        final JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+
+        final MailGatewaySmtp mailGatewaySmtp = new MailGatewaySmtp(loggerContext, new MailConfiguration("RIPE Database <noreply@ripe.net>"), mailSender);
+        ReflectionTestUtils.setField(mailGatewaySmtp, "outgoingMailEnabled", true);
+
+        when(dateTimeProvider.getCurrentDateTime()).thenReturn(NOW);
+        now = Timestamp.from(NOW).getValue();
+
+        subject = new OutgoingMailQueue(outgoingMessageDao, mailGatewaySmtp, dateTimeProvider);
+        ReflectionTestUtils.setField(subject, "coalesceSeconds", 5);
+        ReflectionTestUtils.setField(subject, "batchSize", 100);
+        ReflectionTestUtils.setField(subject, "retrySeconds", 30);
+        ReflectionTestUtils.setField(subject, "retryAttempts", 3);
+        ReflectionTestUtils.setField(subject, "claimTimeoutSeconds", 3600);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        smtpServer.close();
+    }
+
+    @Test
+    public void deliver_nothing_queued() {
+        when(outgoingMessageDao.claim(anyString(), anyLong(), anyLong(), anyInt())).thenReturn(Collections.emptyList());
+
+        assertThat(subject.deliver(), is(0));
+        assertThat(smtpServer.getConnections(), is(0));
+    }
+
+    @Test
+    public void deliver_coalesced_over_single_connection() {
+        when(outgoingMessageDao.claim(anyString(), eq(now), eq(now - 5), eq(100))).thenReturn(Lists.newArrayList(
+                message(1, "one@ripe.net", "first change", 0),
+                message(2, "two@ripe.net", "second change", 0),
+                message(3, "ONE@ripe.net", "third change", 0)),
+                Collections.emptyList());
+
+        assertThat(subject.deliver(), is(3));
+
+        assertThat(smtpServer.getConnections(), is(1));
+        final List<String> messages = smtpServer.getMessages();
+        assertThat(messages, hasSize(2));
+        assertThat(messages.get(0), containsString("first change"));
+        assertThat(messages.get(0), containsString("third change"));
+        assertThat(messages.get(1), containsString("second change"));
+
+        verify(outgoingMessageDao).delete(Lists.newArrayList(1, 3, 2));
+        verify(outgoingMessageDao, never()).retry(anyInt(), anyLong());
+    }
+
+    @Test
+    public void deliver_failed_is_retried_with_backoff() {
+        smtpServer.rejectMessages(1);
+        when(outgoingMessageDao.claim(anyString(), anyLong(), anyLong(), anyInt())).thenReturn(Lists.newArrayList(
+                message(1, "one@ripe.net", "first", 0),
+                message(2, "one@ripe.net", "second", 0),
+                message(3, "two@ripe.net", "third", 1)),
+                Collections.emptyList());
+
+        assertThat(subject.deliver(), is(1));
+
+        assertThat(smtpServer.getMessages(), hasSize(1));
+        verify(outgoingMessageDao).retry(1, now + 30);
+        verify(outgoingMessageDao).retry(2, now + 30);
+        verify(outgoingMessageDao).delete(Lists.newArrayList(3));
+    }
+
+    @Test
+    public void deliver_failed_gives_up_after_max_attempts() {
+        smtpServer.rejectMessages(1);
+        when(outgoingMessageDao.claim(anyString(), anyLong(), anyLong(), anyInt())).thenReturn(Lists.newArrayList(
+                message(1, "one@ripe.net", "first", 2)),
+                Collections.emptyList());
+
+        assertThat(subject.deliver(), is(0));
+
+        verify(outgoingMessageDao, never()).retry(anyInt(), anyLong());
+        verify(outgoingMessageDao).delete(Lists.newArrayList(1));
+    }
+
+    @Test
+    public void deliver_releases_stale_claims() {
+        when(outgoingMessageDao.claim(anyString(), anyLong(), anyLong(), anyInt())).thenReturn(Collections.emptyList());
+
+        subject.deliver();
+
+        verify(outgoingMessageDao).releaseStaleClaims(now - 3600);
+    }
+
+    @Test
+    public void backoff() {
+        assertThat(subject.getBackoff(0), is(30L));
+        assertThat(subject.getBackoff(1), is(60L));
+        assertThat(subject.getBackoff(4), is(480L));
+        assertThat(subject.getBackoff(100), is(86400L));
+    }
+
+    @Test
+    public void coalesce_different_subject_not_combined() {
+        final ListMultimap<OutgoingMessage, OutgoingMessage> coalesced = OutgoingMailQueue.coalesce(Lists.newArrayList(
+                message(1, "one@ripe.net", "first", 0),
+                new OutgoingMessage(2, "one@ripe.net", "other subject", "second", "", 0)));
+
+        assertThat(coalesced.keySet(), hasSize(2));
+    }
+
+    @Test
+    public void coalesce_same_recipient_in_queue_order() {
+        final ListMultimap<OutgoingMessage, OutgoingMessage> coalesced = OutgoingMailQueue.coalesce(Lists.newArrayList(
+                message(1, "one@ripe.net", "first", 0),
+                message(2, "two@ripe.net", "second", 0),
+                message(3, "one@ripe.net", "third", 0)));
+
+        assertThat(coalesced.keySet(), hasSize(2));
+        final OutgoingMessage combined = coalesced.keySet().iterator().next();
+        assertThat(combined.getText(), is("first" + OutgoingMailQueue.COALESCE_SEPARATOR + "third"));
+        assertThat(coalesced.get(combined).stream().map(OutgoingMessage::getId).toArray(), is(new Object[]{1, 3}));
+        assertThat(coalesced.values().stream().map(OutgoingMessage::getId).toArray(), is(new Object[]{1, 3, 2}));
+    }
+
+    private static OutgoingMessage message(final int id, final String to, final String text, final int attempts) {
+        return new OutgoingMessage(id, to, "Notification of RIPE Database changes", text, "", attempts);
+    }
+}